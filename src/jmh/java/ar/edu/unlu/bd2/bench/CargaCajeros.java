@@ -0,0 +1,364 @@
+package ar.edu.unlu.bd2.bench;
+
+import ar.edu.unlu.bd2.bench.jmh.BaseH2;
+import ar.edu.unlu.bd2.controller.FacturaController;
+import ar.edu.unlu.bd2.controller.ProductoController;
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga de lazo cerrado: N cajeros concurrentes, cada uno repite sin pausa una mezcla
+ * de operaciones sobre los controllers (crear factura, agregar/reemplazar/eliminar línea, consultar
+ * producto). La popularidad de productos sigue una Zipf, así unos pocos productos concentran los
+ * bloqueos de fila que toman los triggers de stock.
+ * Cada cajero trabaja sobre sus propias facturas: la contención es solo sobre producto.
+ * Deadlocks y lock wait timeouts se reintentan (hasta REINTENTOS veces) y se cuentan.
+ * Al final reporta throughput, percentiles por operación, conteos de errores y verifica invariantes:
+ * stock + unidades vendidas constante por producto, stock >= 0 y total = suma de subtotales.
+ * (Las invariantes asumen que nadie más escribe en la base durante la corrida.)
+ *
+ * Uso: mvn -Pbench -q compile exec:java -Dexec.mainClass=ar.edu.unlu.bd2.bench.CargaCajeros \
+ *        -Dexec.args="[--h2] [--cajeros 8] [--duracion 30] [--calentamiento 5] [--zipf 1.0]
+ *                     [--mezcla crear=30,agregar=25,reemplazar=10,eliminar=10,consultar=25]"
+ * --h2 usa una base H2 en memoria sembrada (BaseH2, -Dbench.*); sin --h2 usa hibernate.cfg.xml.
+ */
+public final class CargaCajeros {
+
+    enum Operacion { CREAR, AGREGAR, REEMPLAZAR, ELIMINAR, CONSULTAR }
+
+    private static final int REINTENTOS = 3;
+    private static final int MAX_LINEAS_FACTURA = 5;
+    private static final int FACTURAS_POR_CAJERO = 20;
+
+    private final SessionFactory sf;
+    private final FacturaController facturas;
+    private final ProductoController productos;
+    private final int[] idsProducto;
+    private final int[] idsCliente;
+    private final double[] zipfAcumulada;
+    private final Operacion[] ruleta;
+
+    private final LongAdder deadlocks = new LongAdder();
+    private final LongAdder timeoutsBloqueo = new LongAdder();
+    private final LongAdder reintentos = new LongAdder();
+    private final LongAdder sinStock = new LongAdder();
+    private final LongAdder otrosErrores = new LongAdder();
+
+    private CargaCajeros(SessionFactory sf, double zipf, Map<Operacion, Integer> mezcla) {
+        this.sf = sf;
+        this.facturas = new FacturaController(sf);
+        this.productos = new ProductoController(sf);
+        try (Session s = sf.openSession()) {
+            idsProducto = s.createQuery("select p.idProducto from Producto p where p.activo = true order by p.idProducto", Integer.class)
+                    .getResultList().stream().mapToInt(Integer::intValue).toArray();
+            idsCliente = s.createQuery("select c.idCliente from Cliente c where c.estado = 'activo' order by c.idCliente", Integer.class)
+                    .setMaxResults(10_000).getResultList().stream().mapToInt(Integer::intValue).toArray();
+        }
+        if (idsProducto.length < MAX_LINEAS_FACTURA || idsCliente.length == 0) {
+            throw new IllegalStateException("Hacen falta al menos " + MAX_LINEAS_FACTURA + " productos activos y un cliente activo");
+        }
+        zipfAcumulada = zipf(idsProducto.length, zipf);
+        List<Operacion> r = new ArrayList<>();
+        mezcla.forEach((op, peso) -> { for (int i = 0; i < peso; i++) r.add(op); });
+        if (r.isEmpty()) throw new IllegalArgumentException("La mezcla no tiene operaciones");
+        ruleta = r.toArray(new Operacion[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opc = opciones(args);
+        int cajeros = Integer.parseInt(opc.getOrDefault("cajeros", "8"));
+        int duracion = Integer.parseInt(opc.getOrDefault("duracion", "30"));
+        int calentamiento = Integer.parseInt(opc.getOrDefault("calentamiento", "5"));
+        double zipf = Double.parseDouble(opc.getOrDefault("zipf", "1.0"));
+        Map<Operacion, Integer> mezcla = mezcla(opc.getOrDefault("mezcla", "crear=30,agregar=25,reemplazar=10,eliminar=10,consultar=25"));
+
+        SessionFactory sf = opc.containsKey("h2")
+                ? BaseH2.crear("carga", BaseH2.Volumen.desdePropiedades())
+                : HibernateUtil.getSessionFactory();
+        try {
+            CargaCajeros carga = new CargaCajeros(sf, zipf, mezcla);
+            System.out.printf("cajeros=%d, duración=%ds (+%ds de calentamiento), zipf=%.2f, productos=%d, mezcla=%s%n",
+                    cajeros, duracion, calentamiento, zipf, carga.idsProducto.length, mezcla);
+            carga.correr(cajeros, duracion, calentamiento);
+        } finally {
+            sf.close();
+        }
+    }
+
+    // ======= Corrida =======
+
+    private void correr(int cajeros, int duracionSeg, int calentamientoSeg) throws Exception {
+        Map<Integer, Long> invarianteAntes = stockMasVendido();
+
+        long inicio = System.nanoTime();
+        long inicioMedicion = inicio + calentamientoSeg * 1_000_000_000L;
+        long fin = inicioMedicion + duracionSeg * 1_000_000_000L;
+        List<Map<Operacion, Latencias>> porCajero = new ArrayList<>();
+        CountDownLatch listos = new CountDownLatch(cajeros);
+        ExecutorService pool = Executors.newFixedThreadPool(cajeros);
+        for (int c = 0; c < cajeros; c++) {
+            Map<Operacion, Latencias> lat = new EnumMap<>(Operacion.class);
+            for (Operacion op : Operacion.values()) lat.put(op, new Latencias(4096));
+            porCajero.add(lat);
+            SplittableRandom rnd = new SplittableRandom(7919L * (c + 1));
+            pool.execute(() -> {
+                try {
+                    new Cajero(rnd, lat).trabajar(inicioMedicion, fin);
+                } finally {
+                    listos.countDown();
+                }
+            });
+        }
+        listos.await();
+        pool.shutdown();
+
+        long ops = 0;
+        System.out.println();
+        for (Operacion op : Operacion.values()) {
+            List<Latencias> partes = new ArrayList<>();
+            for (Map<Operacion, Latencias> m : porCajero) partes.add(m.get(op));
+            Latencias total = Latencias.merge(partes);
+            ops += total.cantidad();
+            System.out.println(total.resumen(op.name(), fin - inicioMedicion));
+        }
+        double seg = (fin - inicioMedicion) / 1e9;
+        long crear = 0;
+        for (Map<Operacion, Latencias> m : porCajero) crear += m.get(Operacion.CREAR).cantidad();
+        System.out.printf("%nTotal: %d ops (%.1f ops/s), facturas creadas/s=%.1f%n", ops, ops / seg, crear / seg);
+        System.out.printf("deadlocks=%d, lock wait timeouts=%d, reintentos=%d, stock insuficiente=%d, otros errores=%d%n",
+                deadlocks.sum(), timeoutsBloqueo.sum(), reintentos.sum(), sinStock.sum(), otrosErrores.sum());
+        verificarInvariantes(invarianteAntes);
+    }
+
+    /** Un cajero: sus facturas recientes y el producto de cada línea, para operar sin pisar a los demás. */
+    private final class Cajero {
+        private final SplittableRandom rnd;
+        private final Map<Operacion, Latencias> lat;
+        private final Deque<Integer> misFacturas = new ArrayDeque<>();
+        private final Map<Integer, LinkedHashSet<Integer>> lineas = new HashMap<>();
+        private Operacion realizada; // la que se ejecutó de verdad (AGREGAR sobre una factura llena crea otra)
+
+        Cajero(SplittableRandom rnd, Map<Operacion, Latencias> lat) {
+            this.rnd = rnd;
+            this.lat = lat;
+        }
+
+        void trabajar(long inicioMedicion, long fin) {
+            long ahora;
+            while ((ahora = System.nanoTime()) < fin) {
+                Operacion op = ruleta[rnd.nextInt(ruleta.length)];
+                if (op != Operacion.CREAR && op != Operacion.CONSULTAR && misFacturas.isEmpty()) op = Operacion.CREAR;
+                long t0 = System.nanoTime();
+                boolean ok = ejecutarConReintentos(op);
+                long t1 = System.nanoTime();
+                if (ahora >= inicioMedicion) {
+                    if (ok) lat.get(realizada).registrar(t1 - t0);
+                    else lat.get(realizada).error();
+                }
+            }
+        }
+
+        private boolean ejecutarConReintentos(Operacion op) {
+            for (int intento = 0; ; intento++) {
+                try {
+                    ejecutar(op);
+                    return true;
+                } catch (RuntimeException e) {
+                    Falla f = clasificar(e);
+                    if (f == Falla.DEADLOCK || f == Falla.TIMEOUT_BLOQUEO) {
+                        (f == Falla.DEADLOCK ? deadlocks : timeoutsBloqueo).increment();
+                        if (intento < REINTENTOS) {
+                            reintentos.increment();
+                            dormir(1L << intento);
+                            continue;
+                        }
+                    } else if (f == Falla.SIN_STOCK) {
+                        sinStock.increment();
+                    } else {
+                        otrosErrores.increment();
+                    }
+                    return false;
+                }
+            }
+        }
+
+        private void ejecutar(Operacion op) {
+            realizada = op;
+            switch (op) {
+                case CREAR -> crear();
+                case AGREGAR -> {
+                    Integer f = facturaAlAzar();
+                    LinkedHashSet<Integer> prods = lineas.get(f);
+                    if (prods.size() >= MAX_LINEAS_FACTURA) {
+                        crear();
+                        return;
+                    }
+                    int p = productoNoIncluido(prods);
+                    facturas.agregarDetalle(f, p, 1 + rnd.nextInt(3));
+                    prods.add(p);
+                }
+                case REEMPLAZAR -> {
+                    Integer f = facturaAlAzar();
+                    LinkedHashSet<Integer> prods = lineas.get(f);
+                    if (prods.isEmpty()) return;
+                    int viejo = prods.iterator().next();
+                    int nuevo = productoNoIncluido(prods);
+                    facturas.reemplazarProducto(f, viejo, nuevo, 1 + rnd.nextInt(3));
+                    prods.remove(viejo);
+                    prods.add(nuevo);
+                }
+                case ELIMINAR -> {
+                    Integer f = facturaAlAzar();
+                    LinkedHashSet<Integer> prods = lineas.get(f);
+                    if (prods.isEmpty()) return;
+                    int p = prods.iterator().next();
+                    facturas.eliminarDetalle(f, p);
+                    prods.remove(p);
+                }
+                case CONSULTAR -> productos.obtenerPorId((long) idsProducto[zipfIndice(rnd)]);
+            }
+        }
+
+        private void crear() {
+            realizada = Operacion.CREAR;
+            int n = 1 + rnd.nextInt(MAX_LINEAS_FACTURA);
+            LinkedHashSet<Integer> prods = new LinkedHashSet<>();
+            while (prods.size() < n) prods.add(idsProducto[zipfIndice(rnd)]);
+            List<FacturaController.Linea> ls = new ArrayList<>(n);
+            for (Integer p : prods) ls.add(new FacturaController.Linea(p, 1 + rnd.nextInt(3)));
+            Integer id = facturas.crearFacturaCompleta(idsCliente[rnd.nextInt(idsCliente.length)], ls).getIdFactura();
+            misFacturas.addLast(id);
+            lineas.put(id, prods);
+            if (misFacturas.size() > FACTURAS_POR_CAJERO) lineas.remove(misFacturas.removeFirst());
+        }
+
+        private Integer facturaAlAzar() {
+            int i = rnd.nextInt(misFacturas.size());
+            for (Integer f : misFacturas) if (i-- == 0) return f;
+            throw new IllegalStateException();
+        }
+
+        private int productoNoIncluido(LinkedHashSet<Integer> prods) {
+            while (true) {
+                int p = idsProducto[zipfIndice(rnd)];
+                if (!prods.contains(p)) return p;
+            }
+        }
+    }
+
+    // ======= Zipf =======
+
+    /** Acumulada de Zipf(s) sobre n rangos: P(k) ~ 1 / k^s. */
+    private static double[] zipf(int n, double s) {
+        double[] acum = new double[n];
+        double suma = 0;
+        for (int k = 0; k < n; k++) {
+            suma += 1.0 / Math.pow(k + 1, s);
+            acum[k] = suma;
+        }
+        for (int k = 0; k < n; k++) acum[k] /= suma;
+        return acum;
+    }
+
+    private int zipfIndice(SplittableRandom rnd) {
+        int i = Arrays.binarySearch(zipfAcumulada, rnd.nextDouble());
+        return Math.min(zipfAcumulada.length - 1, i >= 0 ? i : -i - 1);
+    }
+
+    // ======= Clasificación de fallas =======
+
+    private enum Falla { DEADLOCK, TIMEOUT_BLOQUEO, SIN_STOCK, OTRA }
+
+    private static Falla clasificar(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String msg = String.valueOf(t.getMessage()).toLowerCase();
+            if (t instanceof SQLException sql) {
+                // MySQL/MariaDB: 1213 deadlock, 1205 lock wait timeout. H2: 40001 deadlock, HYT00 timeout de lock
+                if (sql.getErrorCode() == 1213 || "40001".equals(sql.getSQLState())) return Falla.DEADLOCK;
+                if (sql.getErrorCode() == 1205 || "HYT00".equals(sql.getSQLState())) return Falla.TIMEOUT_BLOQUEO;
+            }
+            if (msg.contains("deadlock")) return Falla.DEADLOCK;
+            if (msg.contains("lock wait timeout") || msg.contains("timeout trying to lock")) return Falla.TIMEOUT_BLOQUEO;
+            if (msg.contains("stock insuficiente")) return Falla.SIN_STOCK;
+        }
+        return Falla.OTRA;
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ======= Invariantes =======
+
+    /** Por producto: stock + unidades en detalles de factura. Con solo ventas y devoluciones no cambia. */
+    private Map<Integer, Long> stockMasVendido() {
+        try (Session s = sf.openSession()) {
+            Map<Integer, Long> m = new HashMap<>();
+            for (Object[] r : s.createNativeQuery(
+                    "select p.id_producto, p.stock + coalesce((select sum(d.cantidad) from factura_detalle d " +
+                            "where d.id_producto = p.id_producto), 0) from producto p", Object[].class).getResultList()) {
+                m.put(((Number) r[0]).intValue(), ((Number) r[1]).longValue());
+            }
+            return m;
+        }
+    }
+
+    private void verificarInvariantes(Map<Integer, Long> antes) {
+        Map<Integer, Long> despues = stockMasVendido();
+        long difStock = despues.entrySet().stream().filter(e -> !e.getValue().equals(antes.get(e.getKey()))).count();
+        try (Session s = sf.openSession()) {
+            long negativos = ((Number) s.createNativeQuery("select count(*) from producto where stock < 0", Long.class)
+                    .getSingleResult()).longValue();
+            long totales = ((Number) s.createNativeQuery(
+                    "select count(*) from factura f where f.total <> coalesce((select sum(d.subtotal) " +
+                            "from factura_detalle d where d.id_factura = f.id_factura), 0)", Long.class)
+                    .getSingleResult()).longValue();
+            System.out.printf("Invariantes: productos con stock+vendido distinto=%d, stock negativo=%d, facturas con total != suma subtotales=%d  %s%n",
+                    difStock, negativos, totales, difStock + negativos + totales == 0 ? "OK" : "VIOLADAS");
+        }
+    }
+
+    // ======= Argumentos =======
+
+    private static Map<String, String> opciones(String[] args) {
+        Map<String, String> m = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Argumento inesperado: " + args[i]);
+            String clave = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) m.put(clave, args[++i]);
+            else m.put(clave, "");
+        }
+        return m;
+    }
+
+    private static Map<Operacion, Integer> mezcla(String texto) {
+        Map<Operacion, Integer> m = new EnumMap<>(Operacion.class);
+        for (String parte : texto.split(",")) {
+            String[] kv = parte.trim().split("=");
+            if (kv.length != 2) throw new IllegalArgumentException("Mezcla inválida: " + parte);
+            m.put(Operacion.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+        }
+        return m;
+    }
+}
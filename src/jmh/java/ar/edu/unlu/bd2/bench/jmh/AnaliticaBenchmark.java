@@ -0,0 +1,70 @@
+package ar.edu.unlu.bd2.bench.jmh;
+
+import ar.edu.unlu.bd2.analitica.Agregado;
+import ar.edu.unlu.bd2.analitica.Agrupacion;
+import ar.edu.unlu.bd2.analitica.Consulta;
+import ar.edu.unlu.bd2.analitica.MotorAnalitico;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ventas por producto en un trimestre: GROUP BY en la base contra el escaneo en paralelo de la foto
+ * en memoria de MotorAnalitico (cargada una vez en el setup). 'actualizar' mide ponerse al día sin
+ * facturas nuevas: relee solo el margen de MotorAnalitico.MARGEN_FACTURAS.
+ *
+ * Uso: mvn -Pbench verify -Djmh.filtro=Analitica [-Dbench.facturas=200000 -Dbench.lineas=5]
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnaliticaBenchmark {
+
+    private SessionFactory sf;
+    private MotorAnalitico motor;
+    private Consulta trimestre;
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        sf = BaseH2.crear("analitica", BaseH2.Volumen.desdePropiedades());
+        motor = new MotorAnalitico(sf);
+        motor.cargar();
+        var ultimo = motor.instantanea().ultimoDia();
+        trimestre = Consulta.todas().entre(ultimo.minusMonths(3), ultimo.plusDays(1)).agrupadaPor(Agrupacion.PRODUCTO);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        sf.close();
+    }
+
+    @Benchmark
+    public List<Object[]> porProductoSql() {
+        try (Session session = sf.openSession()) {
+            return session.createNativeQuery(
+                            "select d.id_producto, count(*), count(distinct d.id_factura), sum(d.cantidad), sum(d.subtotal) " +
+                                    "from factura_detalle d join factura f on f.id_factura = d.id_factura " +
+                                    "where cast(f.fecha as date) >= :desde and cast(f.fecha as date) < :hasta " +
+                                    "group by d.id_producto order by d.id_producto", Object[].class)
+                    .setParameter("desde", trimestre.desde())
+                    .setParameter("hasta", trimestre.hasta())
+                    .getResultList();
+        }
+    }
+
+    @Benchmark
+    public List<Agregado> porProductoEnMemoria() {
+        return motor.consultar(trimestre);
+    }
+
+    @Benchmark
+    public Object actualizar() {
+        return motor.actualizar();
+    }
+}
@@ -0,0 +1,156 @@
+package ar.edu.unlu.bd2.bench.jmh;
+
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * Base H2 en memoria con el esquema de Hibernate, los triggers de TriggersH2 y datos sembrados.
+ * El volumen se configura con -Dbench.clientes, -Dbench.productos, -Dbench.facturas y -Dbench.lineas
+ * (líneas por factura); la semilla es fija, así dos corridas siembran exactamente lo mismo.
+ */
+public final class BaseH2 {
+
+    /** Stock inicial de cada producto: alcanza para que los benchmarks nunca se queden sin stock. */
+    public static final int STOCK_INICIAL = 100_000_000;
+
+    public record Volumen(int clientes, int productos, int facturas, int lineasPorFactura) {
+        public static Volumen desdePropiedades() {
+            return new Volumen(Integer.getInteger("bench.clientes", 1000), Integer.getInteger("bench.productos", 1000),
+                    Integer.getInteger("bench.facturas", 2000), Integer.getInteger("bench.lineas", 3));
+        }
+    }
+
+    /** Tablas de resúmenes de ventas: nombre, columna de la clave y expresión que la calcula. */
+    private static final String[][] RESUMENES = {
+            { "venta_diaria_producto", "id_producto", "d.id_producto" },
+            { "venta_diaria_cliente", "id_cliente", "f.id_cliente" }
+    };
+
+    private BaseH2() { }
+
+    /** SessionFactory (configuración de hibernate.cfg.xml) apuntando a una base H2 nueva llamada 'nombre'. */
+    public static SessionFactory crear(String nombre, Volumen volumen) {
+        Properties p = new Properties();
+        p.setProperty("hibernate.connection.url", "jdbc:h2:mem:" + nombre + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        p.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        p.setProperty("hibernate.connection.username", "sa");
+        p.setProperty("hibernate.connection.password", "");
+        p.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        p.setProperty("hibernate.hbm2ddl.auto", "create");
+        p.setProperty("hibernate.show_sql", "false");
+        p.setProperty("hibernate.format_sql", "false");
+        p.setProperty("hibernate.highlight_sql", "false");
+        // Las tablas de resúmenes se crean acá abajo: los benchmarks miden con la actualización por delta
+        p.setProperty("bd2.ventas.activa", "true");
+        // Ídem el outbox de eventos (sin relay: los eventos quedan en la tabla)
+        p.setProperty("bd2.outbox.activa", "true");
+        SessionFactory sf = HibernateUtil.buildSessionFactory(p);
+        try (Session session = sf.openSession()) {
+            session.doWork(conn -> {
+                try (Statement st = conn.createStatement()) {
+                    // En MariaDB estas columnas las completan los triggers; acá necesitan un valor para el NOT NULL
+                    st.execute("alter table factura alter column total set default 0");
+                    st.execute("alter table factura_detalle alter column precio_unitario set default 0");
+                    st.execute("alter table factura_detalle alter column subtotal set default 0");
+                    // Resúmenes diarios de ventas (resources/sql/ventas_diarias.sql): no son entidades
+                    for (String[] t : RESUMENES) {
+                        st.execute("create table " + t[0] + " (dia date not null, " + t[1] + " integer not null, " +
+                                "cantidad bigint not null, importe numeric(14,2) not null, lineas integer not null, " +
+                                "primary key (dia, " + t[1] + "))");
+                        st.execute("create index idx_" + t[0] + "_dia on " + t[0] + " (" + t[1] + ", dia)");
+                    }
+                    // Outbox de eventos (resources/sql/outbox.sql)
+                    st.execute("create table evento_outbox (id_evento bigint generated by default as identity primary key, " +
+                            "tipo varchar(40) not null, id_factura integer, id_producto integer, " +
+                            "creado timestamp(3) default current_timestamp(3) not null, datos varchar(2000) not null)");
+                }
+                TriggersH2.instalar(conn);
+                sembrar(conn, volumen);
+                // La siembra no pasa por los controllers: carga inicial de los resúmenes, como el script
+                try (Statement st = conn.createStatement()) {
+                    for (String[] t : RESUMENES) {
+                        st.execute("insert into " + t[0] + " select cast(f.fecha as date), " + t[2] + ", " +
+                                "sum(d.cantidad), sum(d.subtotal), count(*) " +
+                                "from factura_detalle d join factura f on f.id_factura = d.id_factura " +
+                                "group by cast(f.fecha as date), " + t[2]);
+                    }
+                }
+                // Sin estadísticas el planificador de H2 puede arrancar un join por el lado equivocado
+                // (p. ej. tableScan de producto en vez de la PK de factura_detalle); MariaDB sí las tiene
+                try (Statement st = conn.createStatement()) {
+                    st.execute("analyze");
+                }
+            });
+        }
+        return sf;
+    }
+
+    private static void sembrar(Connection conn, Volumen v) throws java.sql.SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        SplittableRandom rnd = new SplittableRandom(42);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "insert into cliente (id_cliente, nombre, apellido, es_cuenta_corriente, estado) values (?, ?, ?, ?, 'activo')")) {
+            for (int i = 1; i <= v.clientes(); i++) {
+                ps.setInt(1, i);
+                ps.setString(2, "Nombre" + i);
+                ps.setString(3, "Apellido" + i);
+                ps.setBoolean(4, i % 3 == 0);
+                ps.addBatch();
+                if (i % 1000 == 0) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "insert into producto (nombre, precio_unitario, stock, activo, version) values (?, ?, ?, true, 0)")) {
+            for (int i = 1; i <= v.productos(); i++) {
+                ps.setString(1, "Producto" + i);
+                ps.setBigDecimal(2, BigDecimal.valueOf(100 + rnd.nextInt(99_900), 2));
+                ps.setInt(3, STOCK_INICIAL);
+                ps.addBatch();
+                if (i % 1000 == 0) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement fac = conn.prepareStatement(
+                "insert into factura (id_cliente, fecha, version) values (?, ?, 0)", Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement det = conn.prepareStatement(
+                     "insert into factura_detalle (id_factura, id_producto, cantidad) values (?, ?, ?)")) {
+            LocalDateTime inicio = LocalDateTime.now().minusDays(365);
+            int lineas = Math.min(v.lineasPorFactura(), v.productos());
+            for (int i = 1; i <= v.facturas(); i++) {
+                fac.setInt(1, 1 + rnd.nextInt(v.clientes()));
+                fac.setTimestamp(2, Timestamp.valueOf(inicio.plusMinutes(rnd.nextInt(365 * 24 * 60))));
+                fac.executeUpdate();
+                int idFactura;
+                try (ResultSet rs = fac.getGeneratedKeys()) {
+                    rs.next();
+                    idFactura = rs.getInt(1);
+                }
+                // Productos consecutivos a partir de uno al azar: nunca se repiten dentro de la factura
+                int desde = rnd.nextInt(v.productos());
+                for (int l = 0; l < lineas; l++) {
+                    det.setInt(1, idFactura);
+                    det.setInt(2, 1 + (desde + l) % v.productos());
+                    det.setInt(3, 1 + rnd.nextInt(5));
+                    det.addBatch();
+                }
+                det.executeBatch();
+                if (i % 500 == 0) conn.commit();
+            }
+        }
+        conn.commit();
+        conn.setAutoCommit(autoCommit);
+    }
+}
@@ -0,0 +1,113 @@
+package ar.edu.unlu.bd2.bench.jmh;
+
+import ar.edu.unlu.bd2.controller.ClienteController;
+import ar.edu.unlu.bd2.controller.FacturaController;
+import ar.edu.unlu.bd2.controller.ProductoController;
+import ar.edu.unlu.bd2.modelo.Cliente;
+import ar.edu.unlu.bd2.modelo.DetalleFactura;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caminos calientes de los controllers contra H2 en memoria (BaseH2).
+ * Cada benchmark corre en su propio fork con una base recién sembrada.
+ * Modo SampleTime: el JSON trae p50/p90/p99/p999 además del promedio.
+ *
+ * Uso: mvn -Pbench verify [-Djmh.filtro=listarDetalles] [-Dbench.facturas=20000] [-Djmh.args="-t 4"]
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControladoresBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Base {
+        BaseH2.Volumen volumen;
+        SessionFactory sf;
+        ClienteController clientes;
+        ProductoController productos;
+        FacturaController facturas;
+        final AtomicInteger hilos = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void arrancar() {
+            volumen = BaseH2.Volumen.desdePropiedades();
+            sf = BaseH2.crear("jmh", volumen);
+            clientes = new ClienteController(sf);
+            productos = new ProductoController(sf);
+            facturas = new FacturaController(sf);
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() {
+            sf.close();
+        }
+    }
+
+    /** Estado por hilo: azar propio y una factura propia para no chocar con otros hilos. */
+    @State(Scope.Thread)
+    public static class Hilo {
+        SplittableRandom rnd;
+        int idCliente;
+        // agregarDetalle: factura vacía que se va llenando con productos consecutivos
+        Integer facturaNueva;
+        int siguienteProducto;
+        // actualizarCantidad: factura con un solo detalle cuya cantidad alterna entre 1 y 2
+        Integer facturaCantidad;
+        Integer productoCantidad;
+        int cantidad = 1;
+        long paso;
+
+        @Setup(Level.Trial)
+        public void preparar(Base b) {
+            int n = b.hilos.incrementAndGet();
+            rnd = new SplittableRandom(1000 + n);
+            idCliente = 1 + rnd.nextInt(b.volumen.clientes());
+            productoCantidad = 1 + rnd.nextInt(b.volumen.productos());
+            facturaCantidad = b.facturas.crearFacturaCompleta(idCliente,
+                    List.of(new FacturaController.Linea(productoCantidad, 1))).getIdFactura();
+            facturaNueva = b.facturas.crearParaCliente(idCliente).getIdFactura();
+            siguienteProducto = 1;
+        }
+    }
+
+    @Benchmark
+    public DetalleFactura agregarDetalle(Base b, Hilo h) {
+        if (h.siguienteProducto > b.volumen.productos()) {
+            // Factura llena: se empieza otra (una vez cada 'productos' llamadas)
+            h.facturaNueva = b.facturas.crearParaCliente(h.idCliente).getIdFactura();
+            h.siguienteProducto = 1;
+        }
+        return b.facturas.agregarDetalle(h.facturaNueva, h.siguienteProducto++, 1);
+    }
+
+    @Benchmark
+    public DetalleFactura actualizarCantidad(Base b, Hilo h) {
+        h.cantidad = 3 - h.cantidad;
+        return b.facturas.actualizarCantidad(h.facturaCantidad, h.productoCantidad, h.cantidad);
+    }
+
+    @Benchmark
+    public List<DetalleFactura> listarDetalles(Base b, Hilo h) {
+        return b.facturas.listarDetalles(1 + h.rnd.nextInt(b.volumen.facturas()));
+    }
+
+    @Benchmark
+    public Integer ajustarStock(Base b, Hilo h) {
+        long id = 1 + h.rnd.nextInt(b.volumen.productos());
+        return b.productos.ajustarStock(id, (h.paso++ & 1) == 0 ? 1 : -1);
+    }
+
+    @Benchmark
+    public Optional<Cliente> obtenerCliente(Base b, Hilo h) {
+        return b.clientes.obtenerPorId(1 + h.rnd.nextInt(b.volumen.clientes()));
+    }
+}
@@ -0,0 +1,98 @@
+package ar.edu.unlu.bd2.bench.jmh;
+
+import ar.edu.unlu.bd2.controller.DetalleLinea;
+import ar.edu.unlu.bd2.controller.FacturaController;
+import ar.edu.unlu.bd2.controller.FacturaResumen;
+import ar.edu.unlu.bd2.controller.ProductoController;
+import ar.edu.unlu.bd2.controller.ProductoResumen;
+import ar.edu.unlu.bd2.modelo.DetalleFactura;
+import ar.edu.unlu.bd2.modelo.Factura;
+import ar.edu.unlu.bd2.modelo.Producto;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listados con entidades administradas contra las proyecciones a records en sesión de solo lectura
+ * (mismo SQL de fondo, misma página). Cada par entidad / proyección recorre los mismos datos.
+ * Con "-prof gc" JMH informa gc.alloc.rate.norm: bytes reservados por operación.
+ *
+ * Uso: mvn -Pbench verify -Djmh.filtro=Proyecciones -Djmh.args="-foe true -prof gc" [-Dbench.facturas=20000]
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProyeccionesBenchmark {
+
+    /** Tamaño de página de los listados de las vistas. */
+    private static final int PAGINA = 20;
+
+    private BaseH2.Volumen volumen;
+    private SessionFactory sf;
+    private FacturaController facturas;
+    private ProductoController productos;
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        volumen = BaseH2.Volumen.desdePropiedades();
+        sf = BaseH2.crear("proyecciones", volumen);
+        facturas = new FacturaController(sf);
+        productos = new ProductoController(sf);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        sf.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Azar {
+        final SplittableRandom rnd = new SplittableRandom(42);
+    }
+
+    private int facturaAlAzar(Azar a) {
+        return 1 + a.rnd.nextInt(volumen.facturas());
+    }
+
+    // ======= Página de facturas =======
+
+    @Benchmark
+    public List<Factura> paginaFacturasEntidades(Azar a) {
+        return facturas.listarTodas(facturaAlAzar(a) - 1, PAGINA);
+    }
+
+    @Benchmark
+    public List<FacturaResumen> paginaFacturasProyeccion(Azar a) {
+        return facturas.listarResumenes(facturaAlAzar(a) - 1, PAGINA);
+    }
+
+    // ======= Líneas de una factura =======
+
+    @Benchmark
+    public List<DetalleFactura> lineasEntidades(Azar a) {
+        return facturas.listarDetalles(facturaAlAzar(a));
+    }
+
+    @Benchmark
+    public List<DetalleLinea> lineasProyeccion(Azar a) {
+        return facturas.listarLineas(facturaAlAzar(a));
+    }
+
+    // ======= Productos activos (tabla completa) =======
+
+    @Benchmark
+    public List<Producto> activosEntidades() {
+        return productos.listarActivos();
+    }
+
+    @Benchmark
+    public List<ProductoResumen> activosProyeccion() {
+        return productos.listarActivosResumen();
+    }
+}
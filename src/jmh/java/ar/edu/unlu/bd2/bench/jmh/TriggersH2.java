@@ -0,0 +1,141 @@
+package ar.edu.unlu.bd2.bench.jmh;
+
+import org.h2.api.Trigger;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Triggers de H2 (en Java) que imitan a los de la base MariaDB, para que los controllers se comporten
+ * igual que en producción: al dar de alta un detalle se congela el precio del producto, se calcula el
+ * subtotal, se descuenta stock y se suma al total de la factura; al borrarlo se revierte; al cambiar
+ * la cantidad se ajusta por delta (trg_factura_detalle_bu.sql); y los UPDATE de producto/factura
+ * incrementan la versión si el que actualiza no lo hizo (version_optimista.sql).
+ */
+public final class TriggersH2 {
+
+    private TriggersH2() { }
+
+    /** Crea los triggers sobre el esquema ya generado por Hibernate. */
+    public static void instalar(Connection conn) throws SQLException {
+        String paquete = TriggersH2.class.getName();
+        String[] ddl = {
+                "create trigger trg_factura_detalle_bi before insert on factura_detalle for each row call '" + paquete + "$Alta'",
+                "create trigger trg_factura_detalle_ad after delete on factura_detalle for each row call '" + paquete + "$Baja'",
+                "create trigger trg_factura_detalle_bu before update on factura_detalle for each row call '" + paquete + "$Cambio'",
+                "create trigger trg_producto_version_bu before update on producto for each row call '" + paquete + "$Version'",
+                "create trigger trg_factura_version_bu before update on factura for each row call '" + paquete + "$Version'"
+        };
+        try (var st = conn.createStatement()) {
+            for (String s : ddl) st.execute(s);
+        }
+    }
+
+    /** Base: resuelve la posición de cada columna de la tabla del trigger. */
+    abstract static class Base implements Trigger {
+        protected final Map<String, Integer> col = new HashMap<>();
+
+        @Override
+        public void init(Connection conn, String schema, String trigger, String tabla, boolean before, int tipo)
+                throws SQLException {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "select column_name, ordinal_position from information_schema.columns " +
+                            "where table_schema = ? and table_name = ?")) {
+                ps.setString(1, schema);
+                ps.setString(2, tabla);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) col.put(rs.getString(1).toLowerCase(Locale.ROOT), rs.getInt(2) - 1);
+                }
+            }
+        }
+
+        protected static void actualizar(Connection conn, String sql, Object... params) throws SQLException {
+            if (ejecutar(conn, sql, params) == 0) throw new SQLException("Fila inexistente: " + sql, "45000");
+        }
+
+        protected static int ejecutar(Connection conn, String sql, Object... params) throws SQLException {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+                return ps.executeUpdate();
+            }
+        }
+
+        protected static void descontarStock(Connection conn, Object idProducto, int cantidad) throws SQLException {
+            if (ejecutar(conn, "update producto set stock = stock - ? where id_producto = ? and stock >= ?",
+                    cantidad, idProducto, cantidad) == 0) {
+                throw new SQLException("Stock insuficiente para el producto " + idProducto, "45000");
+            }
+        }
+    }
+
+    /** BEFORE INSERT ON factura_detalle. */
+    public static final class Alta extends Base {
+        @Override
+        public void fire(Connection conn, Object[] viejo, Object[] nuevo) throws SQLException {
+            Object idProducto = nuevo[col.get("id_producto")];
+            int cantidad = ((Number) nuevo[col.get("cantidad")]).intValue();
+            BigDecimal precio;
+            try (PreparedStatement ps = conn.prepareStatement("select precio_unitario from producto where id_producto = ?")) {
+                ps.setObject(1, idProducto);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) throw new SQLException("Producto inexistente " + idProducto, "45000");
+                    precio = rs.getBigDecimal(1);
+                }
+            }
+            descontarStock(conn, idProducto, cantidad);
+            BigDecimal subtotal = precio.multiply(BigDecimal.valueOf(cantidad));
+            nuevo[col.get("precio_unitario")] = precio;
+            nuevo[col.get("subtotal")] = subtotal;
+            actualizar(conn, "update factura set total = total + ? where id_factura = ?", subtotal, nuevo[col.get("id_factura")]);
+        }
+    }
+
+    /** AFTER DELETE ON factura_detalle. */
+    public static final class Baja extends Base {
+        @Override
+        public void fire(Connection conn, Object[] viejo, Object[] nuevo) throws SQLException {
+            ejecutar(conn, "update producto set stock = stock + ? where id_producto = ?",
+                    viejo[col.get("cantidad")], viejo[col.get("id_producto")]);
+            // Al borrar la factura entera el detalle se va antes o después del encabezado: puede no haber fila
+            ejecutar(conn, "update factura set total = total - ? where id_factura = ?",
+                    viejo[col.get("subtotal")], viejo[col.get("id_factura")]);
+        }
+    }
+
+    /** BEFORE UPDATE ON factura_detalle (ver resources/sql/trg_factura_detalle_bu.sql). */
+    public static final class Cambio extends Base {
+        @Override
+        public void fire(Connection conn, Object[] viejo, Object[] nuevo) throws SQLException {
+            if (!viejo[col.get("id_factura")].equals(nuevo[col.get("id_factura")])
+                    || !viejo[col.get("id_producto")].equals(nuevo[col.get("id_producto")])) {
+                throw new SQLException("Para cambiar factura/producto de un detalle usar DELETE + INSERT", "45000");
+            }
+            int delta = ((Number) nuevo[col.get("cantidad")]).intValue() - ((Number) viejo[col.get("cantidad")]).intValue();
+            BigDecimal precio = (BigDecimal) viejo[col.get("precio_unitario")];
+            BigDecimal subtotal = precio.multiply(BigDecimal.valueOf(((Number) nuevo[col.get("cantidad")]).intValue()));
+            BigDecimal subtotalViejo = (BigDecimal) viejo[col.get("subtotal")];
+            nuevo[col.get("precio_unitario")] = precio;
+            nuevo[col.get("subtotal")] = subtotal;
+            if (delta != 0) {
+                descontarStock(conn, nuevo[col.get("id_producto")], delta);
+                actualizar(conn, "update factura set total = total + ? where id_factura = ?",
+                        subtotal.subtract(subtotalViejo), nuevo[col.get("id_factura")]);
+            }
+        }
+    }
+
+    /** BEFORE UPDATE ON producto / factura: versión + 1 si el UPDATE no la cambió. */
+    public static final class Version extends Base {
+        @Override
+        public void fire(Connection conn, Object[] viejo, Object[] nuevo) {
+            int i = col.get("version");
+            if (nuevo[i].equals(viejo[i])) nuevo[i] = ((Number) viejo[i]).intValue() + 1;
+        }
+    }
+}
@@ -1,23 +1,75 @@
 package ar.edu.unlu.bd2;
 
+import ar.edu.unlu.bd2.analitica.MotorAnalitico;
+import ar.edu.unlu.bd2.catalogo.CacheProductos;
 import ar.edu.unlu.bd2.controller.ClienteController;
 import ar.edu.unlu.bd2.controller.DetalleFacturaController;
+import ar.edu.unlu.bd2.controller.ExportacionController;
 import ar.edu.unlu.bd2.controller.FacturaController;
+import ar.edu.unlu.bd2.controller.ImportacionController;
 import ar.edu.unlu.bd2.controller.ProductoController;
+import ar.edu.unlu.bd2.controller.VentasController;
+import ar.edu.unlu.bd2.eventos.RelayOutbox;
+import ar.edu.unlu.bd2.metricas.Metricas;
+import ar.edu.unlu.bd2.util.CacheUtil;
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import ar.edu.unlu.bd2.view.AnaliticaView;
 import ar.edu.unlu.bd2.view.ClienteView;
 import ar.edu.unlu.bd2.view.ProductoView;
 import ar.edu.unlu.bd2.view.FacturaView;
 import ar.edu.unlu.bd2.view.DetalleFacturaView;
+import ar.edu.unlu.bd2.view.EventosView;
+import ar.edu.unlu.bd2.view.ImportacionView;
+import ar.edu.unlu.bd2.view.ExportacionView;
+import ar.edu.unlu.bd2.view.VentasView;
 import ar.edu.unlu.bd2.view.InputReader;
+import org.hibernate.SessionFactory;
+
+import java.io.IOException;
+import java.time.Duration;
 
 public class App {
+
+    /** Cada cuánto se vuelve a leer la caché de productos (cambios hechos por fuera de la aplicación). */
+    private static final Duration RECARGA_CACHE_PRODUCTOS = Duration.ofMinutes(5);
+    /** Pausa del relay del outbox cuando no quedan eventos pendientes. */
+    private static final Duration ESPERA_RELAY = Duration.ofMillis(200);
+
+    // La cierra el shutdown hook antes que el SessionFactory
+    private static volatile RelayOutbox relayOutbox;
+
     public static void main(String[] args) {
         registerShutdownHook();
-        // Views sin inyección (cada view crea su controller interno)
-        ClienteView clienteView = new ClienteView();
-        ProductoView productoView = new ProductoView();
-        FacturaView facturaView = new FacturaView();
-        DetalleFacturaView detalleView = new DetalleFacturaView();
+        // Único SessionFactory (y único pool de conexiones) para toda la aplicación
+        SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+        iniciarMetricas();
+
+        ClienteController clienteController = new ClienteController(sessionFactory);
+        clienteController.iniciarIndice(); // en segundo plano: el menú no lo espera
+        // Una sola caché de productos: ProductoController la mantiene, los de facturas validan con ella
+        CacheProductos cacheProductos = new CacheProductos(sessionFactory);
+        cacheProductos.iniciar(RECARGA_CACHE_PRODUCTOS);
+        ProductoController productoController = new ProductoController(sessionFactory, cacheProductos);
+        productoController.iniciarIndice();
+        FacturaController facturaController = new FacturaController(sessionFactory, cacheProductos);
+        DetalleFacturaController detalleController = new DetalleFacturaController(sessionFactory, cacheProductos);
+        ImportacionController importacionController =
+                new ImportacionController(sessionFactory, clienteController, productoController, cacheProductos);
+        ExportacionController exportacionController = new ExportacionController(sessionFactory);
+        VentasController ventasController = new VentasController(sessionFactory);
+        MotorAnalitico motorAnalitico = new MotorAnalitico(sessionFactory);
+        relayOutbox = iniciarRelay(sessionFactory);
+
+        // Views con inyección del controller que usan
+        ClienteView clienteView = new ClienteView(clienteController);
+        ProductoView productoView = new ProductoView(productoController);
+        FacturaView facturaView = new FacturaView(facturaController, productoController);
+        DetalleFacturaView detalleView = new DetalleFacturaView(detalleController);
+        ImportacionView importacionView = new ImportacionView(importacionController);
+        ExportacionView exportacionView = new ExportacionView(exportacionController);
+        VentasView ventasView = new VentasView(ventasController);
+        AnaliticaView analiticaView = new AnaliticaView(motorAnalitico);
+        EventosView eventosView = new EventosView(relayOutbox);
 
         String op;
         do {
@@ -26,6 +78,13 @@ public class App {
             System.out.println("2) Productos");
             System.out.println("3) Facturas");
             System.out.println("4) Detalles de Factura");
+            System.out.println("5) Estadísticas de caché");
+            System.out.println("6) Importar CSV (clientes / productos)");
+            System.out.println("7) Exportar facturas (CSV / JSONL)");
+            System.out.println("8) Métricas (latencias por operación y pool)");
+            System.out.println("9) Ventas (por día, top productos / clientes)");
+            System.out.println("10) Análisis en memoria (márgenes, productos que se compran juntos)");
+            System.out.println("11) Eventos de facturación (outbox y log)");
             System.out.println("0) Salir");
             op = InputReader.nextLine("> ");
 
@@ -34,19 +93,58 @@ public class App {
                 case "2" -> productoView.menu();
                 case "3" -> facturaView.menu();
                 case "4" -> detalleView.menu();
+                case "5" -> {
+                    System.out.print(CacheUtil.estadisticas(sessionFactory));
+                    System.out.println("Caché de productos: " + cacheProductos);
+                }
+                case "6" -> importacionView.menu();
+                case "7" -> exportacionView.menu();
+                case "8" -> System.out.print(Metricas.texto());
+                case "9" -> ventasView.menu();
+                case "10" -> analiticaView.menu();
+                case "11" -> eventosView.menu();
                 case "0" -> System.out.println("Saliendo...");
                 default  -> System.out.println("Opción inválida");
             }
         } while (!"0".equals(op));
     }
 
-    /** Cierra los SessionFactory para que no queden hilos vivos (pool de conexiones). */
+    /**
+     * Publica las métricas en formato Prometheus en http://127.0.0.1:9464/metrics
+     * (otro puerto con -Dmetricas.puerto=N; 0 lo desactiva). Por JMX están siempre.
+     */
+    private static void iniciarMetricas() {
+        int puerto = Integer.getInteger("metricas.puerto", 9464);
+        if (puerto <= 0) return;
+        try {
+            Metricas.iniciarServidor(puerto);
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir el puerto de métricas " + puerto + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Abre el log de eventos y publica en segundo plano lo que los controllers dejan en el outbox.
+     * null si bd2.outbox.activa está apagado o el log no se pudo abrir (los eventos esperan en la tabla).
+     */
+    private static RelayOutbox iniciarRelay(SessionFactory sessionFactory) {
+        try {
+            RelayOutbox relay = RelayOutbox.desdePropiedades(sessionFactory);
+            if (relay != null) relay.iniciar(ESPERA_RELAY);
+            return relay;
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir el log de eventos: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Cierra el SessionFactory para que no queden hilos vivos (pool de conexiones). */
     private static void registerShutdownHook() {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            try { ClienteController.shutdown(); } catch (Exception ignored) {}
-            try { ProductoController.shutdown(); } catch (Exception ignored) {}
-            try { FacturaController.shutdown(); } catch (Exception ignored) {}
-            try { DetalleFacturaController.shutdown(); } catch (Exception ignored) {}
+            Metricas.detenerServidor();
+            RelayOutbox relay = relayOutbox;
+            if (relay != null) relay.close();
+            try { HibernateUtil.shutdown(); } catch (Exception ignored) {}
         }, "hibernate-shutdown-hook"));
     }
 
@@ -0,0 +1,43 @@
+package ar.edu.unlu.bd2.analitica;
+
+/**
+ * Acumuladores densos de un escaneo: una posición por grupo (la clave ya traducida a 0..grupos-1).
+ * Cada hilo del escaneo llena el suyo sin compartir nada (uno por hilo, no por tramo: son ~44 bytes
+ * por grupo); al terminar se suman. 'ultima' guarda la última factura contada por grupo: como los
+ * tramos no parten facturas, contar facturas distintas es comparar con la anterior, también cuando un
+ * mismo acumulador recorre varios tramos, y las sumas entre hilos siguen siendo exactas.
+ */
+final class Acumulador {
+
+    final long[] lineas;
+    final long[] facturas;
+    final long[] unidades;
+    final long[] importe;
+    final long[] costo;
+    final int[] ultima;
+    /** Facturas que pasaron el filtro (en afinidad: las que incluyen el producto pedido). */
+    long base;
+
+    Acumulador(int grupos) {
+        lineas = new long[grupos];
+        facturas = new long[grupos];
+        unidades = new long[grupos];
+        importe = new long[grupos];
+        costo = new long[grupos];
+        ultima = new int[grupos];
+    }
+
+    /** Suma 'otro' sobre este y lo devuelve. */
+    Acumulador sumar(Acumulador otro) {
+        for (int k = 0; k < lineas.length; k++) {
+            if (otro.lineas[k] == 0) continue;
+            lineas[k] += otro.lineas[k];
+            facturas[k] += otro.facturas[k];
+            unidades[k] += otro.unidades[k];
+            importe[k] += otro.importe[k];
+            costo[k] += otro.costo[k];
+        }
+        base += otro.base;
+        return this;
+    }
+}
@@ -0,0 +1,19 @@
+package ar.edu.unlu.bd2.analitica;
+
+import java.util.List;
+
+/**
+ * Productos que se venden junto con 'idProducto': de las 'facturas' que lo incluyen, cuántas incluyen
+ * además cada acompañante (Agregado.facturas, clave = id del acompañante), ordenados de más a menos.
+ */
+public record Afinidad(int idProducto, long facturas, List<Agregado> acompanantes) {
+
+    public Afinidad {
+        acompanantes = List.copyOf(acompanantes);
+    }
+
+    /** Fracción de las facturas con idProducto que también llevan al acompañante (confianza de la regla). */
+    public double confianza(Agregado acompanante) {
+        return facturas == 0 ? 0 : (double) acompanante.facturas() / facturas;
+    }
+}
@@ -0,0 +1,24 @@
+package ar.edu.unlu.bd2.analitica;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Un grupo del resultado de una consulta (ver Agrupacion para el significado de 'clave').
+ * Los importes van en centavos; 'costoCentavos' es cantidad x costo unitario de Consulta.costos
+ * (0 si no se pasaron costos), para simular márgenes.
+ */
+public record Agregado(int clave, long lineas, long facturas, long unidades, long importeCentavos, long costoCentavos) {
+
+    public BigDecimal importe() { return BigDecimal.valueOf(importeCentavos, 2); }
+
+    public BigDecimal margen() { return BigDecimal.valueOf(importeCentavos - costoCentavos, 2); }
+
+    /** Margen sobre el importe, en porcentaje (0 si no hubo importe). */
+    public double margenPorcentual() {
+        return importeCentavos == 0 ? 0 : 100.0 * (importeCentavos - costoCentavos) / importeCentavos;
+    }
+
+    /** La clave como fecha, para Agrupacion.DIA. */
+    public LocalDate dia() { return LocalDate.ofEpochDay(clave); }
+}
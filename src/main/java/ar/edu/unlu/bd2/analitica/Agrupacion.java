@@ -0,0 +1,13 @@
+package ar.edu.unlu.bd2.analitica;
+
+/**
+ * Por qué se agrupan las líneas en MotorAnalitico.consultar. La clave de cada Agregado es:
+ * TOTAL 0, PRODUCTO el id_producto, CLIENTE el id_cliente, DIA el epoch-day y MES aaaamm.
+ */
+public enum Agrupacion {
+    TOTAL,
+    PRODUCTO,
+    CLIENTE,
+    DIA,
+    MES
+}
@@ -0,0 +1,51 @@
+package ar.edu.unlu.bd2.analitica;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filtro y agrupación de una consulta de MotorAnalitico. Los criterios no nulos se combinan con AND;
+ * el rango de fechas es [desde, hasta) y cualquiera de los dos extremos puede faltar.
+ * 'costos' (costo unitario por producto, opcional) alimenta Agregado.costoCentavos para simular márgenes.
+ */
+public record Consulta(LocalDate desde, LocalDate hasta, Set<Integer> clientes, Set<Integer> productos,
+                       Agrupacion agrupacion, Map<Integer, BigDecimal> costos) {
+
+    public Consulta {
+        if (desde != null && hasta != null && !desde.isBefore(hasta)) {
+            throw new IllegalArgumentException("'desde' debe ser anterior a 'hasta'");
+        }
+        if (clientes != null) clientes = Set.copyOf(clientes);
+        if (productos != null) productos = Set.copyOf(productos);
+        if (costos != null) costos = Map.copyOf(costos);
+        if (agrupacion == null) agrupacion = Agrupacion.TOTAL;
+    }
+
+    /** Todas las líneas, un solo total. */
+    public static Consulta todas() {
+        return new Consulta(null, null, null, null, Agrupacion.TOTAL, null);
+    }
+
+    public Consulta entre(LocalDate desde, LocalDate hasta) {
+        return new Consulta(desde, hasta, clientes, productos, agrupacion, costos);
+    }
+
+    public Consulta deClientes(Collection<Integer> ids) {
+        return new Consulta(desde, hasta, Set.copyOf(ids), productos, agrupacion, costos);
+    }
+
+    public Consulta deProductos(Collection<Integer> ids) {
+        return new Consulta(desde, hasta, clientes, Set.copyOf(ids), agrupacion, costos);
+    }
+
+    public Consulta agrupadaPor(Agrupacion agrupacion) {
+        return new Consulta(desde, hasta, clientes, productos, agrupacion, costos);
+    }
+
+    public Consulta conCostos(Map<Integer, BigDecimal> costos) {
+        return new Consulta(desde, hasta, clientes, productos, agrupacion, costos);
+    }
+}
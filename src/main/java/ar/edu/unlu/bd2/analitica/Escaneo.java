@@ -0,0 +1,77 @@
+package ar.edu.unlu.bd2.analitica;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Recorrido en paralelo de una Instantanea: se parte en tramos de líneas (sin cortar facturas) y una
+ * tarea por hilo del pool va tomando el siguiente tramo libre hasta agotarlos, siempre sobre el mismo
+ * acumulador. Los acumuladores son densos (uno por grupo, ver Acumulador): con uno por tramo, un
+ * catálogo grande multiplicaba la memoria por la cantidad de tramos; así hay uno por hilo y se unen
+ * una sola vez al final.
+ */
+final class Escaneo {
+
+    /** Tramo mínimo: por debajo, repartir cuesta más que recorrer. */
+    static final int MIN_TRAMO = 16_384;
+
+    /** Recorre las líneas [desde, hasta) de 's' sumando sobre 'acc'. */
+    interface Hoja<A> {
+        void recorrer(Segmento s, int desde, int hasta, A acc);
+    }
+
+    private record Tramo(Segmento s, int desde, int hasta) { }
+
+    private Escaneo() { }
+
+    static <A> A ejecutar(ForkJoinPool pool, Instantanea inst, Supplier<A> nuevo, Hoja<A> hoja, BinaryOperator<A> unir) {
+        List<Tramo> tramos = tramos(inst, pool.getParallelism());
+        if (tramos.isEmpty()) return nuevo.get();
+        int hilos = Math.min(pool.getParallelism(), tramos.size());
+        return pool.invoke(new RecursiveTask<A>() {
+            @Override
+            protected A compute() {
+                AtomicInteger siguiente = new AtomicInteger();
+                List<ForkJoinTask<A>> otros = new ArrayList<>(hilos - 1);
+                for (int i = 1; i < hilos; i++) {
+                    otros.add(ForkJoinTask.adapt(() -> recorrer(tramos, siguiente, nuevo.get(), hoja)).fork());
+                }
+                A total = recorrer(tramos, siguiente, nuevo.get(), hoja);
+                for (ForkJoinTask<A> t : otros) total = unir.apply(total, t.join());
+                return total;
+            }
+        });
+    }
+
+    /** Toma tramos libres de a uno y los recorre sobre 'acc'. */
+    private static <A> A recorrer(List<Tramo> tramos, AtomicInteger siguiente, A acc, Hoja<A> hoja) {
+        for (int i; (i = siguiente.getAndIncrement()) < tramos.size(); ) {
+            Tramo t = tramos.get(i);
+            hoja.recorrer(t.s(), t.desde(), t.hasta(), acc);
+        }
+        return acc;
+    }
+
+    /** Unos 4 tramos por hilo, para repartir bien aunque algún tramo tarde más. */
+    private static List<Tramo> tramos(Instantanea inst, int paralelismo) {
+        int paso = (int) Math.max(MIN_TRAMO, inst.lineas() / (4L * Math.max(1, paralelismo)));
+        List<Tramo> tramos = new ArrayList<>();
+        for (Segmento s : inst.segmentos) {
+            int i = 0;
+            while (i < s.n) {
+                int f = Math.min(s.n, i + paso);
+                // Se estira hasta el final de la factura en la que cayó el corte
+                if (f < s.n) f = s.primeraMayor(s.factura[f - 1], f, s.n);
+                tramos.add(new Tramo(s, i, f));
+                i = f;
+            }
+        }
+        return tramos;
+    }
+}
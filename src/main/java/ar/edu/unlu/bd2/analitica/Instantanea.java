@@ -0,0 +1,75 @@
+package ar.edu.unlu.bd2.analitica;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Foto inmutable de las líneas de factura cargadas en memoria: segmentos ordenados por id_factura,
+ * sin facturas repetidas entre segmentos. MotorAnalitico publica una nueva en cada carga o
+ * actualización; las consultas en curso siguen leyendo la que tomaron.
+ * Los máximos de ids y el rango de días (cotas, ver Segmento) dimensionan los arrays densos de las agrupaciones.
+ */
+public final class Instantanea {
+
+    final List<Segmento> segmentos;
+    private final long lineas;
+    private final int ultimaFactura;
+    final int maxProducto;
+    final int maxCliente;
+    final int minDia;
+    final int maxDia;
+    private final LocalDateTime tomada;
+
+    Instantanea(List<Segmento> segmentos, LocalDateTime tomada) {
+        this.segmentos = List.copyOf(segmentos);
+        this.tomada = tomada;
+        long total = 0;
+        int maxP = 0, maxC = 0, minD = Integer.MAX_VALUE, maxD = Integer.MIN_VALUE;
+        for (Segmento s : this.segmentos) {
+            total += s.n;
+            maxP = Math.max(maxP, s.maxProducto);
+            maxC = Math.max(maxC, s.maxCliente);
+            minD = Math.min(minD, s.minDia);
+            maxD = Math.max(maxD, s.maxDia);
+        }
+        this.lineas = total;
+        this.ultimaFactura = this.segmentos.isEmpty() ? 0 : this.segmentos.get(this.segmentos.size() - 1).ultimaFactura();
+        this.maxProducto = maxP;
+        this.maxCliente = maxC;
+        this.minDia = total == 0 ? 0 : minD;
+        this.maxDia = total == 0 ? 0 : maxD;
+    }
+
+    static Instantanea vacia() {
+        return new Instantanea(List.of(), LocalDateTime.now());
+    }
+
+    public long lineas() { return lineas; }
+
+    /** Mayor id_factura cargado (0 si está vacía): la marca del keyset para la próxima actualización. */
+    public int ultimaFactura() { return ultimaFactura; }
+
+    public int cantidadSegmentos() { return segmentos.size(); }
+
+    public LocalDateTime tomada() { return tomada; }
+
+    /** Rango de fechas de las líneas cargadas (null si está vacía). */
+    public LocalDate primerDia() { return lineas == 0 ? null : LocalDate.ofEpochDay(minDia); }
+
+    public LocalDate ultimoDia() { return lineas == 0 ? null : LocalDate.ofEpochDay(maxDia); }
+
+    /** Memoria de las columnas (capacidad de los arrays). */
+    public long bytes() {
+        long b = 0;
+        for (Segmento s : segmentos) b += s.bytes();
+        return b;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d líneas hasta la factura %d en %d segmento(s), %.1f MB (%.0f bytes/línea), tomada %s",
+                lineas, ultimaFactura, segmentos.size(), bytes() / 1048576.0,
+                lineas == 0 ? 0.0 : (double) bytes() / lineas, tomada.withNano(0));
+    }
+}
@@ -0,0 +1,345 @@
+package ar.edu.unlu.bd2.analitica;
+
+import ar.edu.unlu.bd2.metricas.Medidor;
+import ar.edu.unlu.bd2.metricas.Metricas;
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Análisis en memoria de las líneas de factura (márgenes simulados, composición de ventas, productos que
+ * se compran juntos) sin ir a la base en cada consulta. factura_detalle, con la fecha y el cliente de su
+ * factura, se carga en columnas de primitivos (ver Segmento: ~36 bytes por línea) y las consultas las
+ * recorren en paralelo con fork-join (ver Escaneo).
+ *
+ * La foto (Instantanea) es inmutable y se reemplaza entera: las consultas nunca esperan a una carga.
+ * actualizar() trae solo lo nuevo por keyset sobre id_factura, pero vuelve a leer las últimas
+ * MARGEN_FACTURAS facturas: así entran las líneas agregadas a facturas recientes y las facturas cuyo id
+ * IDENTITY se asignó antes que el de otra que confirmó primero. Los cambios en facturas más viejas
+ * (bajas, cantidades editadas) solo se ven con cargar().
+ */
+public class MotorAnalitico {
+
+    /** Facturas del final que actualizar() vuelve a leer aunque ya estén cargadas. */
+    public static final int MARGEN_FACTURAS = 1000;
+
+    /** Con más segmentos que esto, actualizar() une todos los posteriores al primero. */
+    static final int MAX_SEGMENTOS = 16;
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String SQL_LINEAS =
+            "select d.id_factura, f.id_cliente, d.id_producto, cast(f.fecha as date), d.cantidad, " +
+                    "d.precio_unitario, d.subtotal " +
+                    "from factura_detalle d join factura f on f.id_factura = d.id_factura " +
+                    "where d.id_factura > ? order by d.id_factura, d.id_producto";
+
+    // ======= Métricas por operación (JMX / Prometheus, ver Metricas) =======
+    private static final Medidor M_CARGAR = Metricas.medidor("analitica.cargar");
+    private static final Medidor M_ACTUALIZAR = Metricas.medidor("analitica.actualizar");
+    private static final Medidor M_CONSULTAR = Metricas.medidor("analitica.consultar");
+    private static final Medidor M_AFINIDAD = Metricas.medidor("analitica.afinidad");
+
+    private final SessionFactory sessionFactory;
+    private final ForkJoinPool pool;
+    private volatile Instantanea actual = Instantanea.vacia();
+
+    public MotorAnalitico(SessionFactory sessionFactory) {
+        this(sessionFactory, ForkJoinPool.commonPool());
+    }
+
+    public MotorAnalitico(SessionFactory sessionFactory, ForkJoinPool pool) {
+        this.sessionFactory = sessionFactory;
+        this.pool = pool;
+    }
+
+    /** La foto publicada (vacía hasta el primer cargar/actualizar). */
+    public Instantanea instantanea() {
+        return actual;
+    }
+
+    // ======= Carga =======
+
+    /** Descarta la foto y carga todas las líneas de nuevo. */
+    public synchronized Instantanea cargar() {
+        return M_CARGAR.medir(() -> {
+            Segmento s = leer(0);
+            actual = new Instantanea(s == null ? List.of() : List.of(s), LocalDateTime.now());
+            return actual;
+        });
+    }
+
+    /**
+     * Se pone al día con las facturas nuevas: conserva lo cargado hasta ultimaFactura - MARGEN_FACTURAS
+     * (de la carga completa, un prefijo que comparte sus arrays) y lee desde ahí en un segmento nuevo.
+     */
+    public synchronized Instantanea actualizar() {
+        return M_ACTUALIZAR.medir(() -> {
+            Instantanea previa = actual;
+            int corte = Math.max(0, previa.ultimaFactura() - MARGEN_FACTURAS);
+            List<Segmento> segmentos = new ArrayList<>(previa.segmentos.size() + 1);
+            for (int i = 0; i < previa.segmentos.size(); i++) {
+                Segmento s = previa.segmentos.get(i);
+                if (s.ultimaFactura() <= corte) {
+                    segmentos.add(s);
+                } else if (i == 0) {
+                    Segmento p = s.prefijo(corte);
+                    if (p != null) segmentos.add(p);
+                    break;
+                } else {
+                    // Un segmento de actualización que cae en el margen se vuelve a leer entero: quedarse con
+                    // un prefijo corto retendría sus arrays completos
+                    corte = Math.min(corte, s.primeraFactura() - 1);
+                    break;
+                }
+            }
+            Segmento nuevo = leer(corte);
+            if (nuevo != null) segmentos.add(nuevo);
+            if (segmentos.size() > MAX_SEGMENTOS) {
+                // El primero suele ser la carga completa: se deja como está y se compactan las actualizaciones
+                Segmento cola = Segmento.unir(segmentos.subList(1, segmentos.size()));
+                segmentos = List.of(segmentos.get(0), cola);
+            }
+            actual = new Instantanea(segmentos, LocalDateTime.now());
+            return actual;
+        });
+    }
+
+    /** Lee las líneas de las facturas con id > 'despuesDe' (JDBC en streaming, sin entidades). */
+    private Segmento leer(int despuesDe) {
+        Segmento.Constructor c = new Segmento.Constructor(FETCH_SIZE);
+        try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+            session.doWork(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(SQL_LINEAS,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setInt(1, despuesDe);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            c.agregar(rs.getInt(1), rs.getInt(2), rs.getInt(3), (int) rs.getObject(4, LocalDate.class).toEpochDay(),
+                                    rs.getInt(5), centavos(rs.getBigDecimal(6)), centavos(rs.getBigDecimal(7)));
+                        }
+                    }
+                }
+            });
+            return c.construir();
+        } catch (Exception e) {
+            throw new RuntimeException("No se pudieron cargar las líneas de factura: " + e.getMessage(), e);
+        }
+    }
+
+    // ======= Consultas =======
+
+    /**
+     * Filtra y agrupa las líneas de la foto actual según 'consulta'. Devuelve un Agregado por grupo con
+     * al menos una línea, ordenados por clave.
+     */
+    public List<Agregado> consultar(Consulta consulta) {
+        return M_CONSULTAR.medir(() -> {
+            if (consulta == null) throw new IllegalArgumentException("La consulta es obligatoria");
+            Instantanea inst = actual;
+            Filtro filtro = new Filtro(inst, consulta);
+            Grupos grupos = new Grupos(inst, consulta.agrupacion());
+            Acumulador acc = Escaneo.ejecutar(pool, inst, () -> new Acumulador(grupos.cantidad),
+                    (s, desde, hasta, a) -> agregar(s, desde, hasta, a, filtro, grupos), Acumulador::sumar);
+            List<Agregado> resultado = new ArrayList<>();
+            for (int k = 0; k < grupos.cantidad; k++) {
+                if (acc.lineas[k] == 0) continue;
+                resultado.add(new Agregado(grupos.clave(k), acc.lineas[k], acc.facturas[k], acc.unidades[k],
+                        acc.importe[k], acc.costo[k]));
+            }
+            return resultado;
+        });
+    }
+
+    /**
+     * Productos comprados en las mismas facturas que 'idProducto' (las que pasan el filtro de fechas y
+     * clientes de 'consulta'; su filtro de productos restringe los acompañantes). Devuelve los 'n' que
+     * aparecen en más facturas, desempatando por importe. La agrupación de 'consulta' no se usa.
+     */
+    public Afinidad afinidad(int idProducto, Consulta consulta, int n) {
+        return M_AFINIDAD.medir(() -> {
+            if (consulta == null) throw new IllegalArgumentException("La consulta es obligatoria");
+            if (n <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
+            Instantanea inst = actual;
+            Filtro filtro = new Filtro(inst, consulta);
+            int grupos = inst.maxProducto + 1;
+            Acumulador acc = Escaneo.ejecutar(pool, inst, () -> new Acumulador(grupos),
+                    (s, desde, hasta, a) -> acompanantes(s, desde, hasta, a, idProducto, filtro), Acumulador::sumar);
+            List<Agregado> acompanantes = new ArrayList<>();
+            for (int k = 0; k < grupos; k++) {
+                if (acc.lineas[k] == 0) continue;
+                acompanantes.add(new Agregado(k, acc.lineas[k], acc.facturas[k], acc.unidades[k], acc.importe[k], acc.costo[k]));
+            }
+            acompanantes.sort(Comparator.comparingLong(Agregado::facturas)
+                    .thenComparingLong(Agregado::importeCentavos).reversed());
+            return new Afinidad(idProducto, acc.base, acompanantes.subList(0, Math.min(n, acompanantes.size())));
+        });
+    }
+
+    // ======= Hojas del escaneo =======
+
+    private static void agregar(Segmento s, int desde, int hasta, Acumulador a, Filtro f, Grupos g) {
+        int[] factura = s.factura, producto = s.producto, cantidad = s.cantidad;
+        long[] subtotal = s.subtotal;
+        for (int i = desde; i < hasta; i++) {
+            if (!f.linea(s, i)) continue;
+            int k = g.grupo(s, i);
+            if (a.ultima[k] != factura[i]) {
+                a.ultima[k] = factura[i];
+                a.facturas[k]++;
+            }
+            a.lineas[k]++;
+            a.unidades[k] += cantidad[i];
+            a.importe[k] += subtotal[i];
+            if (f.costo != null) a.costo[k] += cantidad[i] * f.costo[producto[i]];
+        }
+    }
+
+    /** Recorre factura por factura; las líneas de cada una son contiguas y están ordenadas por producto. */
+    private static void acompanantes(Segmento s, int desde, int hasta, Acumulador a, int idProducto, Filtro f) {
+        int[] factura = s.factura, producto = s.producto, cantidad = s.cantidad;
+        long[] subtotal = s.subtotal;
+        int i = desde;
+        while (i < hasta) {
+            int fin = i + 1;
+            while (fin < hasta && factura[fin] == factura[i]) fin++;
+            if (f.factura(s, i) && contiene(producto, i, fin, idProducto)) {
+                a.base++;
+                for (int j = i; j < fin; j++) {
+                    int p = producto[j];
+                    if (p == idProducto || (f.productos != null && !f.productos[p])) continue;
+                    a.lineas[p]++;
+                    a.facturas[p]++;
+                    a.unidades[p] += cantidad[j];
+                    a.importe[p] += subtotal[j];
+                    if (f.costo != null) a.costo[p] += cantidad[j] * f.costo[p];
+                }
+            }
+            i = fin;
+        }
+    }
+
+    private static boolean contiene(int[] producto, int desde, int hasta, int idProducto) {
+        for (int j = desde; j < hasta; j++) {
+            if (producto[j] == idProducto) return true;
+        }
+        return false;
+    }
+
+    // ======= Filtro y grupos compilados para una foto =======
+
+    /** La Consulta traducida a rangos de epoch-day y máscaras por id (null = sin filtro). */
+    private static final class Filtro {
+        final int desdeDia, hastaDia;
+        final boolean[] clientes, productos;
+        final long[] costo;
+
+        Filtro(Instantanea inst, Consulta c) {
+            desdeDia = c.desde() == null ? Integer.MIN_VALUE : (int) c.desde().toEpochDay();
+            hastaDia = c.hasta() == null ? Integer.MAX_VALUE : (int) c.hasta().toEpochDay();
+            clientes = mascara(c.clientes(), inst.maxCliente);
+            productos = mascara(c.productos(), inst.maxProducto);
+            if (c.costos() == null) {
+                costo = null;
+            } else {
+                costo = new long[inst.maxProducto + 1];
+                for (Map.Entry<Integer, BigDecimal> e : c.costos().entrySet()) {
+                    int p = e.getKey();
+                    if (p >= 0 && p < costo.length) costo[p] = centavos(e.getValue());
+                }
+            }
+        }
+
+        /** Criterios de la factura (fecha y cliente): iguales para todas sus líneas. */
+        boolean factura(Segmento s, int i) {
+            int d = s.dia[i];
+            return d >= desdeDia && d < hastaDia && (clientes == null || clientes[s.cliente[i]]);
+        }
+
+        boolean linea(Segmento s, int i) {
+            return factura(s, i) && (productos == null || productos[s.producto[i]]);
+        }
+
+        private static boolean[] mascara(Set<Integer> ids, int max) {
+            if (ids == null) return null;
+            boolean[] m = new boolean[max + 1];
+            for (int id : ids) {
+                if (id >= 0 && id <= max) m[id] = true;
+            }
+            return m;
+        }
+    }
+
+    /**
+     * Traduce cada línea a una posición densa 0..cantidad-1. Los ids se usan tal cual (los arrays miden
+     * max + 1); días y meses se cuentan desde el primer día de la foto.
+     */
+    private static final class Grupos {
+        final Agrupacion agrupacion;
+        final int cantidad;
+        final int minDia;
+        final int primerMes;    // año * 12 + mes - 1 del primer día
+        final int[] mesDeDia;   // solo para MES: día - minDia -> mes - primerMes
+
+        Grupos(Instantanea inst, Agrupacion agrupacion) {
+            this.agrupacion = agrupacion;
+            this.minDia = inst.minDia;
+            LocalDate primero = LocalDate.ofEpochDay(inst.minDia);
+            this.primerMes = primero.getYear() * 12 + primero.getMonthValue() - 1;
+            int dias = inst.maxDia - inst.minDia + 1;
+            if (agrupacion == Agrupacion.MES) {
+                mesDeDia = new int[dias];
+                for (int d = 0; d < dias; d++) {
+                    LocalDate f = primero.plusDays(d);
+                    mesDeDia[d] = f.getYear() * 12 + f.getMonthValue() - 1 - primerMes;
+                }
+            } else {
+                mesDeDia = null;
+            }
+            cantidad = switch (agrupacion) {
+                case TOTAL -> 1;
+                case PRODUCTO -> inst.maxProducto + 1;
+                case CLIENTE -> inst.maxCliente + 1;
+                case DIA -> dias;
+                case MES -> mesDeDia[dias - 1] + 1;
+            };
+        }
+
+        int grupo(Segmento s, int i) {
+            return switch (agrupacion) {
+                case TOTAL -> 0;
+                case PRODUCTO -> s.producto[i];
+                case CLIENTE -> s.cliente[i];
+                case DIA -> s.dia[i] - minDia;
+                case MES -> mesDeDia[s.dia[i] - minDia];
+            };
+        }
+
+        /** La clave que ve el que llama (ver Agrupacion). */
+        int clave(int k) {
+            return switch (agrupacion) {
+                case TOTAL, PRODUCTO, CLIENTE -> k;
+                case DIA -> minDia + k;
+                case MES -> (primerMes + k) / 12 * 100 + (primerMes + k) % 12 + 1;
+            };
+        }
+    }
+
+    private static long centavos(BigDecimal importe) {
+        return importe.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,146 @@
+package ar.edu.unlu.bd2.analitica;
+
+import java.util.Arrays;
+
+/**
+ * Tramo de líneas de factura en columnas de primitivos, ordenado por (id_factura, id_producto).
+ * Por línea: 5 int + 2 long = 36 bytes (contra cientos de bytes de un DetalleFactura con su grafo).
+ * Es inmutable: una vez publicado en una Instantanea nadie escribe sus arrays, así que lo pueden
+ * recorrer varios hilos sin sincronizar. prefijo() comparte los arrays y solo acorta 'n'.
+ * Los máximos de ids y el rango de días se calculan al construir; un prefijo hereda los del original
+ * (son cotas: alcanzan para dimensionar los arrays de las agrupaciones).
+ */
+final class Segmento {
+
+    static final int BYTES_POR_LINEA = 5 * Integer.BYTES + 2 * Long.BYTES;
+
+    final int[] factura;
+    final int[] cliente;
+    final int[] producto;
+    final int[] dia;        // LocalDate.toEpochDay()
+    final int[] cantidad;
+    final long[] precio;    // centavos
+    final long[] subtotal;  // centavos
+    final int n;
+    final int maxProducto, maxCliente, minDia, maxDia;
+
+    private Segmento(int[] factura, int[] cliente, int[] producto, int[] dia, int[] cantidad,
+                     long[] precio, long[] subtotal, int n, int maxProducto, int maxCliente, int minDia, int maxDia) {
+        this.factura = factura;
+        this.cliente = cliente;
+        this.producto = producto;
+        this.dia = dia;
+        this.cantidad = cantidad;
+        this.precio = precio;
+        this.subtotal = subtotal;
+        this.n = n;
+        this.maxProducto = maxProducto;
+        this.maxCliente = maxCliente;
+        this.minDia = minDia;
+        this.maxDia = maxDia;
+    }
+
+    int primeraFactura() { return factura[0]; }
+
+    int ultimaFactura() { return factura[n - 1]; }
+
+    /** Las líneas de facturas con id <= corte (un prefijo, porque están ordenadas por factura). */
+    Segmento prefijo(int corte) {
+        int k = primeraMayor(corte, 0, n);
+        if (k == n) return this;
+        return k == 0 ? null : new Segmento(factura, cliente, producto, dia, cantidad, precio, subtotal, k,
+                maxProducto, maxCliente, minDia, maxDia);
+    }
+
+    /** Primer índice en [desde, hasta) cuya factura es mayor que 'idFactura'. */
+    int primeraMayor(int idFactura, int desde, int hasta) {
+        int lo = desde, hi = hasta;
+        while (lo < hi) {
+            int m = (lo + hi) >>> 1;
+            if (factura[m] <= idFactura) lo = m + 1;
+            else hi = m;
+        }
+        return lo;
+    }
+
+    /** Bytes de los arrays (la capacidad, no solo 'n'). */
+    long bytes() {
+        return (long) factura.length * BYTES_POR_LINEA;
+    }
+
+    /** Une segmentos consecutivos en uno solo (copia). */
+    static Segmento unir(Iterable<Segmento> segmentos) {
+        Constructor c = new Constructor(1024);
+        for (Segmento s : segmentos) c.agregar(s);
+        return c.construir();
+    }
+
+    /** Acumula líneas en arrays que crecen al doble; construir() los recorta al tamaño justo. */
+    static final class Constructor {
+        private int[] factura, cliente, producto, dia, cantidad;
+        private long[] precio, subtotal;
+        private int n;
+
+        Constructor(int capacidad) {
+            int c = Math.max(16, capacidad);
+            factura = new int[c];
+            cliente = new int[c];
+            producto = new int[c];
+            dia = new int[c];
+            cantidad = new int[c];
+            precio = new long[c];
+            subtotal = new long[c];
+        }
+
+        int lineas() { return n; }
+
+        void agregar(int idFactura, int idCliente, int idProducto, int epochDia, int cant, long precioCent, long subtotalCent) {
+            if (n == factura.length) crecer(n * 2);
+            factura[n] = idFactura;
+            cliente[n] = idCliente;
+            producto[n] = idProducto;
+            dia[n] = epochDia;
+            cantidad[n] = cant;
+            precio[n] = precioCent;
+            subtotal[n] = subtotalCent;
+            n++;
+        }
+
+        void agregar(Segmento s) {
+            if (n + s.n > factura.length) crecer(Math.max(n + s.n, factura.length * 2));
+            System.arraycopy(s.factura, 0, factura, n, s.n);
+            System.arraycopy(s.cliente, 0, cliente, n, s.n);
+            System.arraycopy(s.producto, 0, producto, n, s.n);
+            System.arraycopy(s.dia, 0, dia, n, s.n);
+            System.arraycopy(s.cantidad, 0, cantidad, n, s.n);
+            System.arraycopy(s.precio, 0, precio, n, s.n);
+            System.arraycopy(s.subtotal, 0, subtotal, n, s.n);
+            n += s.n;
+        }
+
+        private void crecer(int capacidad) {
+            factura = Arrays.copyOf(factura, capacidad);
+            cliente = Arrays.copyOf(cliente, capacidad);
+            producto = Arrays.copyOf(producto, capacidad);
+            dia = Arrays.copyOf(dia, capacidad);
+            cantidad = Arrays.copyOf(cantidad, capacidad);
+            precio = Arrays.copyOf(precio, capacidad);
+            subtotal = Arrays.copyOf(subtotal, capacidad);
+        }
+
+        /** null si no se agregó ninguna línea. */
+        Segmento construir() {
+            if (n == 0) return null;
+            int maxP = 0, maxC = 0, minD = Integer.MAX_VALUE, maxD = Integer.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                maxP = Math.max(maxP, producto[i]);
+                maxC = Math.max(maxC, cliente[i]);
+                minD = Math.min(minD, dia[i]);
+                maxD = Math.max(maxD, dia[i]);
+            }
+            return new Segmento(Arrays.copyOf(factura, n), Arrays.copyOf(cliente, n), Arrays.copyOf(producto, n),
+                    Arrays.copyOf(dia, n), Arrays.copyOf(cantidad, n), Arrays.copyOf(precio, n),
+                    Arrays.copyOf(subtotal, n), n, maxP, maxC, minD, maxD);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ar.edu.unlu.bd2.bench;
+
+import ar.edu.unlu.bd2.controller.FacturaController;
+import ar.edu.unlu.bd2.controller.ModoActualizacionCantidad;
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import org.hibernate.SessionFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compara REEMPLAZO (DELETE + INSERT) contra UPDATE en el lugar al cambiar cantidades
+ * de un mismo producto "caliente" desde varios hilos a la vez.
+ * Cada hilo tiene su propia factura con ese producto y alterna la cantidad entre 1 y 2.
+ *
+ * Uso: mvn -q exec:java -Dexec.mainClass=ar.edu.unlu.bd2.bench.ActualizarCantidadBench \
+ *        -Dexec.args="idCliente idProducto [hilos] [iteraciones] [--con-trigger]"
+ * (--con-trigger mide también UPDATE_TRIGGER; requiere resources/sql/trg_factura_detalle_bu.sql instalado)
+ */
+public final class ActualizarCantidadBench {
+
+    private ActualizarCantidadBench() { }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Uso: ActualizarCantidadBench idCliente idProducto [hilos] [iteraciones] [--con-trigger]");
+            return;
+        }
+        int idCliente = Integer.parseInt(args[0]);
+        int idProducto = Integer.parseInt(args[1]);
+        int hilos = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int iteraciones = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        boolean conTrigger = args.length > 4 && "--con-trigger".equals(args[4]);
+
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        FacturaController fc = new FacturaController(sf);
+
+        List<ModoActualizacionCantidad> modos = new ArrayList<>(List.of(
+                ModoActualizacionCantidad.REEMPLAZO, ModoActualizacionCantidad.UPDATE_DELTA));
+        if (conTrigger) modos.add(ModoActualizacionCantidad.UPDATE_TRIGGER);
+
+        System.out.printf("Producto caliente=%d, hilos=%d, iteraciones por hilo=%d%n", idProducto, hilos, iteraciones);
+        try {
+            for (ModoActualizacionCantidad modo : modos) {
+                correr(fc, modo, modo + " (warm-up)", idCliente, idProducto, hilos, Math.max(1, iteraciones / 10));
+                correr(fc, modo, modo.name(), idCliente, idProducto, hilos, iteraciones);
+            }
+        } finally {
+            HibernateUtil.shutdown();
+        }
+    }
+
+    private static void correr(FacturaController fc, ModoActualizacionCantidad modo, String etiqueta, int idCliente, int idProducto,
+                               int hilos, int iteraciones) throws InterruptedException {
+        List<Integer> facturas = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            facturas.add(fc.crearFacturaCompleta(idCliente, List.of(new FacturaController.Linea(idProducto, 1)))
+                    .getIdFactura());
+        }
+
+        List<Latencias> porHilo = new ArrayList<>();
+        CountDownLatch largada = new CountDownLatch(1);
+        CountDownLatch fin = new CountDownLatch(hilos);
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        for (int h = 0; h < hilos; h++) {
+            Integer idFactura = facturas.get(h);
+            Latencias lat = new Latencias(iteraciones);
+            porHilo.add(lat);
+            pool.execute(() -> {
+                try {
+                    largada.await();
+                    for (int i = 0; i < iteraciones; i++) {
+                        long t0 = System.nanoTime();
+                        try {
+                            fc.actualizarCantidad(idFactura, idProducto, i % 2 == 0 ? 2 : 1, modo);
+                            lat.registrar(System.nanoTime() - t0);
+                        } catch (RuntimeException e) {
+                            lat.error(); // deadlock, lock wait timeout, stock insuficiente...
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    fin.countDown();
+                }
+            });
+        }
+        long t0 = System.nanoTime();
+        largada.countDown();
+        fin.await();
+        long duracion = System.nanoTime() - t0;
+        pool.shutdown();
+
+        System.out.println(Latencias.merge(porHilo).resumen(etiqueta, duracion));
+
+        // Limpieza: borrar las facturas devuelve el stock
+        for (Integer idFactura : facturas) {
+            fc.eliminar(idFactura);
+        }
+    }
+}
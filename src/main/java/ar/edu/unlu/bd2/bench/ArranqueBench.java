@@ -0,0 +1,82 @@
+package ar.edu.unlu.bd2.bench;
+
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Comparación de arranque: esquema viejo (5 SessionFactory, cada uno con el pool interno de
+ * Hibernate de 5 conexiones) contra el esquema actual (1 SessionFactory con HikariCP).
+ * Mide tiempo de construcción y conexiones abiertas en el servidor (Threads_connected).
+ *
+ * Uso: mvn -q exec:java -Dexec.mainClass=ar.edu.unlu.bd2.bench.ArranqueBench
+ */
+public final class ArranqueBench {
+
+    private static final int FACTORIES_ESQUEMA_VIEJO = 5;
+    private static final int POOL_SIZE_ESQUEMA_VIEJO = 5;
+
+    private ArranqueBench() { }
+
+    public static void main(String[] args) {
+        long base = conexionesEnServidor();
+        System.out.println("Conexiones en el servidor antes de arrancar: " + base);
+
+        // ===== Esquema viejo =====
+        Properties viejo = new Properties();
+        viejo.setProperty("hibernate.connection.provider_class",
+                "org.hibernate.engine.jdbc.connections.internal.DriverManagerConnectionProviderImpl");
+        viejo.setProperty("hibernate.connection.pool_size", String.valueOf(POOL_SIZE_ESQUEMA_VIEJO));
+
+        List<SessionFactory> factories = new ArrayList<>();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < FACTORIES_ESQUEMA_VIEJO; i++) {
+            factories.add(HibernateUtil.buildSessionFactory(viejo));
+        }
+        long msViejo = (System.nanoTime() - t0) / 1_000_000;
+        // Cada controller hacía al menos una consulta: forzamos una por factory
+        factories.forEach(ArranqueBench::tocar);
+        long conexViejo = conexionesEnServidor() - base;
+        factories.forEach(SessionFactory::close);
+
+        // ===== Esquema actual =====
+        long t1 = System.nanoTime();
+        SessionFactory unico = HibernateUtil.buildSessionFactory(null);
+        long msNuevo = (System.nanoTime() - t1) / 1_000_000;
+        tocar(unico);
+        long conexNuevo = conexionesEnServidor() - base;
+        String maxNuevo = String.valueOf(unico.getProperties().get("hibernate.hikari.maximumPoolSize"));
+        unico.close();
+
+        System.out.printf("%-34s %12s %18s %16s%n", "Esquema", "Arranque(ms)", "Conexiones(ahora)", "Conexiones(máx)");
+        System.out.printf("%-34s %12d %18d %16d%n", FACTORIES_ESQUEMA_VIEJO + " SessionFactory + pool interno",
+                msViejo, conexViejo, FACTORIES_ESQUEMA_VIEJO * POOL_SIZE_ESQUEMA_VIEJO);
+        System.out.printf("%-34s %12d %18d %16s%n", "1 SessionFactory + HikariCP",
+                msNuevo, conexNuevo, maxNuevo);
+    }
+
+    private static void tocar(SessionFactory sf) {
+        try (Session s = sf.openSession()) {
+            s.createNativeQuery("select 1", Integer.class).getSingleResult();
+        }
+    }
+
+    /** Conexiones abiertas en el servidor, medidas con una conexión JDBC aparte (sin pool). */
+    private static long conexionesEnServidor() {
+        Properties sinPool = new Properties();
+        sinPool.setProperty("hibernate.connection.provider_class",
+                "org.hibernate.engine.jdbc.connections.internal.DriverManagerConnectionProviderImpl");
+        sinPool.setProperty("hibernate.connection.pool_size", "1");
+        try (SessionFactory sf = HibernateUtil.buildSessionFactory(sinPool);
+             Session s = sf.openSession()) {
+            Object[] fila = s.createNativeQuery("show status like 'Threads_connected'", Object[].class)
+                    .getSingleResult();
+            // Descontamos la conexión de esta misma medición
+            return Long.parseLong(String.valueOf(fila[1])) - 1;
+        }
+    }
+}
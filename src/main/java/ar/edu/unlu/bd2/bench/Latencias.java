@@ -0,0 +1,55 @@
+package ar.edu.unlu.bd2.bench;
+
+import java.util.Arrays;
+
+/**
+ * Muestras de latencia (en nanos) de un hilo, con percentiles al final.
+ * No es thread-safe: cada hilo usa la suya y se combinan con merge().
+ */
+public final class Latencias {
+
+    private long[] muestras;
+    private int n;
+    private long errores;
+
+    public Latencias(int capacidadInicial) {
+        this.muestras = new long[Math.max(16, capacidadInicial)];
+    }
+
+    public void registrar(long nanos) {
+        if (n == muestras.length) {
+            muestras = Arrays.copyOf(muestras, n * 2);
+        }
+        muestras[n++] = nanos;
+    }
+
+    public void error() { errores++; }
+
+    public int cantidad() { return n; }
+    public long errores() { return errores; }
+
+    public static Latencias merge(Iterable<Latencias> partes) {
+        Latencias total = new Latencias(1024);
+        for (Latencias l : partes) {
+            for (int i = 0; i < l.n; i++) total.registrar(l.muestras[i]);
+            total.errores += l.errores;
+        }
+        return total;
+    }
+
+    /** Percentil en milisegundos (p entre 0 y 100). */
+    public double percentilMs(double p) {
+        if (n == 0) return 0;
+        long[] orden = Arrays.copyOf(muestras, n);
+        Arrays.sort(orden);
+        int idx = (int) Math.min(n - 1, Math.ceil(p / 100.0 * n) - 1);
+        return orden[Math.max(0, idx)] / 1_000_000.0;
+    }
+
+    /** Línea de reporte: operaciones, ops/s, p50/p95/p99/máx y errores. */
+    public String resumen(String nombre, long duracionNanos) {
+        double seg = duracionNanos / 1e9;
+        return String.format("%-22s %8d ops %10.1f ops/s  p50=%7.2fms p95=%7.2fms p99=%7.2fms max=%7.2fms  errores=%d",
+                nombre, n, n / seg, percentilMs(50), percentilMs(95), percentilMs(99), percentilMs(100), errores);
+    }
+}
@@ -0,0 +1,88 @@
+package ar.edu.unlu.bd2.bench;
+
+import ar.edu.unlu.bd2.controller.ModoConcurrencia;
+import ar.edu.unlu.bd2.controller.ProductoController;
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import ar.edu.unlu.bd2.util.Reintentos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Contención sobre pocos productos "calientes": ajustarStock PESIMISTA contra OPTIMISTA.
+ * Cada hilo alterna +1 / -1 sobre un producto al azar de la lista (el stock neto no cambia).
+ * Reporta throughput, p50/p95/p99/máx, errores y reintentos optimistas.
+ *
+ * Uso: mvn -q exec:java -Dexec.mainClass=ar.edu.unlu.bd2.bench.StockContencionBench \
+ *        -Dexec.args="hilos opsPorHilo idProducto [idProducto...]"
+ */
+public final class StockContencionBench {
+
+    private StockContencionBench() { }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Uso: StockContencionBench hilos opsPorHilo idProducto [idProducto...]");
+            return;
+        }
+        int hilos = Integer.parseInt(args[0]);
+        int ops = Integer.parseInt(args[1]);
+        long[] productos = new long[args.length - 2];
+        for (int i = 2; i < args.length; i++) productos[i - 2] = Long.parseLong(args[i]);
+
+        ProductoController pc = new ProductoController(HibernateUtil.getSessionFactory());
+        System.out.printf("hilos=%d, ops por hilo=%d, productos calientes=%d%n", hilos, ops, productos.length);
+        try {
+            for (ModoConcurrencia modo : ModoConcurrencia.values()) {
+                correr(pc, modo, modo + " (warm-up)", hilos, Math.max(2, ops / 10), productos);
+                correr(pc, modo, modo.name(), hilos, ops, productos);
+            }
+        } finally {
+            HibernateUtil.shutdown();
+        }
+    }
+
+    private static void correr(ProductoController pc, ModoConcurrencia modo, String etiqueta,
+                               int hilos, int ops, long[] productos) throws InterruptedException {
+        List<Latencias> porHilo = new ArrayList<>();
+        CountDownLatch largada = new CountDownLatch(1);
+        CountDownLatch fin = new CountDownLatch(hilos);
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        for (int h = 0; h < hilos; h++) {
+            Latencias lat = new Latencias(ops);
+            porHilo.add(lat);
+            pool.execute(() -> {
+                try {
+                    largada.await();
+                    for (int i = 0; i < ops; i++) {
+                        long id = productos[ThreadLocalRandom.current().nextInt(productos.length)];
+                        long t0 = System.nanoTime();
+                        try {
+                            pc.ajustarStock(id, i % 2 == 0 ? 1 : -1, modo);
+                            lat.registrar(System.nanoTime() - t0);
+                        } catch (RuntimeException e) {
+                            lat.error(); // reintentos agotados, deadlock, stock negativo...
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    fin.countDown();
+                }
+            });
+        }
+        long reintentosAntes = Reintentos.reintentosTotales();
+        long t0 = System.nanoTime();
+        largada.countDown();
+        fin.await();
+        long duracion = System.nanoTime() - t0;
+        pool.shutdown();
+
+        System.out.println(Latencias.merge(porHilo).resumen(etiqueta, duracion)
+                + "  reintentos=" + (Reintentos.reintentosTotales() - reintentosAntes));
+    }
+}
@@ -0,0 +1,4 @@
+package ar.edu.unlu.bd2.busqueda;
+
+/** Resultado de IndiceClientes.buscar: más puntaje, mejor coincidencia (ver IndiceClientes). */
+public record ClienteEncontrado(int idCliente, String nombre, String apellido, int puntaje) { }
@@ -0,0 +1,70 @@
+package ar.edu.unlu.bd2.busqueda;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+
+/**
+ * Palabras normalizadas (ver Texto) con su valor, buscables por prefijo y a distancia de edición 1.
+ * Las palabras están en un TreeMap (un prefijo es un rango) y, al revés, en un TreeSet (un sufijo es
+ * un rango). Para las aproximadas se parte la palabra buscada q en q[0, h) y q[h+1, n) con h = n / 2:
+ * un solo error no puede romper las dos mitades, así que toda palabra a distancia 1 empieza con la
+ * primera o termina con la segunda. Se recorren esos dos rangos y se confirma con Texto.distanciaUno.
+ * No es thread-safe: lo sincroniza el índice que lo usa.
+ */
+final class Diccionario<V> {
+
+    private final TreeMap<String, V> palabras = new TreeMap<>();
+    private final TreeSet<String> invertidas = new TreeSet<>();
+
+    V get(String palabra) {
+        return palabras.get(palabra);
+    }
+
+    void put(String palabra, V valor) {
+        if (palabras.put(palabra, valor) == null) invertidas.add(invertir(palabra));
+    }
+
+    void remove(String palabra) {
+        if (palabras.remove(palabra) != null) invertidas.remove(invertir(palabra));
+    }
+
+    int size() {
+        return palabras.size();
+    }
+
+    Iterable<V> valores() {
+        return palabras.values();
+    }
+
+    /** Las palabras que empiezan con q (q incluida, si está), en orden alfabético. */
+    void conPrefijo(String q, BiConsumer<String, V> accion) {
+        for (Map.Entry<String, V> e : palabras.subMap(q, true, q + Character.MAX_VALUE, false).entrySet()) {
+            accion.accept(e.getKey(), e.getValue());
+        }
+    }
+
+    /** Las palabras a distancia de edición exactamente 1 de q. */
+    void aproximadas(String q, BiConsumer<String, V> accion) {
+        int h = q.length() / 2;
+        String inicio = q.substring(0, h);
+        String finInvertido = invertir(q.substring(h + 1));
+        for (Map.Entry<String, V> e : palabras.subMap(inicio, true, inicio + Character.MAX_VALUE, false).entrySet()) {
+            if (cerca(q, e.getKey())) accion.accept(e.getKey(), e.getValue());
+        }
+        for (String w : invertidas.subSet(finInvertido, true, finInvertido + Character.MAX_VALUE, false)) {
+            w = invertir(w);
+            // Las que también empiezan con 'inicio' ya se vieron en el rango anterior
+            if (!w.startsWith(inicio) && cerca(q, w)) accion.accept(w, palabras.get(w));
+        }
+    }
+
+    private static boolean cerca(String q, String w) {
+        return Math.abs(w.length() - q.length()) <= 1 && !w.equals(q) && Texto.distanciaUno(q, w);
+    }
+
+    private static String invertir(String s) {
+        return new StringBuilder(s).reverse().toString();
+    }
+}
@@ -0,0 +1,222 @@
+package ar.edu.unlu.bd2.busqueda;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice en memoria de clientes por nombre y apellido, sin acentos (ver Texto).
+ * Cada palabra buscada tiene que coincidir con alguna palabra del cliente:
+ * igual (PUNTOS_EXACTA), como prefijo (PUNTOS_PREFIJO: sirve mientras se escribe) o a distancia de
+ * edición 1 (PUNTOS_APROXIMADA, desde MIN_APROXIMADA letras). Las coincidencias en el apellido suman
+ * BONO_APELLIDO. Se devuelven los k de más puntaje, desempatando por apellido y nombre.
+ *
+ * Las palabras están en un Diccionario (prefijos y aproximadas por rangos); con una sola palabra
+ * buscada las aproximadas solo se buscan si las exactas y por prefijo no alcanzan (ver puntosDe).
+ *
+ * La carga inicial (cargar / terminarCarga) puede correr en otro hilo mientras la aplicación ya da de
+ * alta y modifica clientes: lo que llega por poner/quitar durante la carga gana sobre lo que lee la carga.
+ */
+public final class IndiceClientes {
+
+    public static final int PUNTOS_EXACTA = 100;
+    public static final int PUNTOS_PREFIJO = 60;
+    public static final int PUNTOS_APROXIMADA = 30;
+    public static final int BONO_APELLIDO = 5;
+    /** Palabras buscadas más cortas que esto no se comparan con errores: "paz" se parece a demasiadas. */
+    public static final int MIN_APROXIMADA = 4;
+
+    /** 'orden' es "apellido nombre" normalizado: el desempate de los resultados. */
+    private record Entrada(int id, String nombre, String apellido, String orden, List<String> palabrasNombre,
+                           List<String> palabrasApellido) {
+        List<String> palabras() {
+            List<String> todas = new ArrayList<>(palabrasNombre);
+            todas.addAll(palabrasApellido);
+            return todas;
+        }
+    }
+
+    /** Candidato de una búsqueda: mejor primero, es decir más puntaje y después por 'orden' e id. */
+    private record Candidato(Entrada entrada, int puntaje) implements Comparable<Candidato> {
+        @Override
+        public int compareTo(Candidato o) {
+            if (puntaje != o.puntaje) return Integer.compare(o.puntaje, puntaje);
+            int c = entrada.orden().compareTo(o.entrada.orden());
+            return c != 0 ? c : Integer.compare(entrada.id(), o.entrada.id());
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entrada> porId = new HashMap<>();
+    /** palabra -> ids de clientes que la tienen. */
+    private final Diccionario<Set<Integer>> palabras = new Diccionario<>();
+
+    private final CompletableFuture<Void> carga = new CompletableFuture<>();
+    /** Ids tocados por poner/quitar mientras corre la carga: la carga no los pisa. */
+    private Set<Integer> tocados = new HashSet<>();
+
+    // ======= Carga inicial =======
+
+    /** Agrega un cliente leído por la carga inicial, salvo que poner/quitar ya lo hayan tocado. */
+    public void cargar(int id, String nombre, String apellido) {
+        lock.writeLock().lock();
+        try {
+            if (tocados == null || tocados.contains(id)) return;
+            reemplazar(id, nombre, apellido);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void terminarCarga() {
+        lock.writeLock().lock();
+        try {
+            tocados = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        carga.complete(null);
+    }
+
+    public void fallarCarga(Throwable causa) {
+        carga.completeExceptionally(causa);
+    }
+
+    /** Se completa cuando termina la carga inicial (o falla). */
+    public CompletableFuture<Void> carga() {
+        return carga;
+    }
+
+    // ======= Mantenimiento =======
+
+    /** Alta o modificación. */
+    public void poner(int id, String nombre, String apellido) {
+        lock.writeLock().lock();
+        try {
+            if (tocados != null) tocados.add(id);
+            reemplazar(id, nombre, apellido);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void quitar(int id) {
+        lock.writeLock().lock();
+        try {
+            if (tocados != null) tocados.add(id);
+            Entrada vieja = porId.remove(id);
+            if (vieja != null) desindexar(vieja);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int tamanio() {
+        lock.readLock().lock();
+        try {
+            return porId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void reemplazar(int id, String nombre, String apellido) {
+        Entrada nueva = new Entrada(id, nombre, apellido, Texto.normalizar(apellido + " " + nombre),
+                Texto.palabras(nombre), Texto.palabras(apellido));
+        Entrada vieja = porId.put(id, nueva);
+        if (vieja != null) desindexar(vieja);
+        for (String p : nueva.palabras()) {
+            Set<Integer> ids = palabras.get(p);
+            if (ids == null) {
+                palabras.put(p, ids = new HashSet<>());
+            }
+            ids.add(id);
+        }
+    }
+
+    private void desindexar(Entrada e) {
+        for (String p : e.palabras()) {
+            Set<Integer> ids = palabras.get(p);
+            if (ids == null || !ids.remove(e.id()) || !ids.isEmpty()) continue;
+            palabras.remove(p);
+        }
+    }
+
+    // ======= Búsqueda =======
+
+    /** Los k clientes que mejor coinciden con 'texto' (vacío si no tiene palabras). */
+    public List<ClienteEncontrado> buscar(String texto, int k) {
+        if (k <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
+        List<String> buscadas = Texto.palabras(texto);
+        if (buscadas.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> acumulado = null;
+            // Con varias palabras no se poda: el AND puede dejar afuera a todas las coincidencias exactas
+            int suficientes = buscadas.size() == 1 ? k : Integer.MAX_VALUE;
+            for (String q : buscadas) {
+                Map<Integer, Integer> puntos = puntosDe(q, suficientes);
+                if (acumulado == null) {
+                    acumulado = puntos;
+                } else {
+                    // AND: quedan los que coinciden con todas las palabras buscadas
+                    acumulado.keySet().retainAll(puntos.keySet());
+                    acumulado.replaceAll((id, p) -> p + puntos.get(id));
+                }
+                if (acumulado.isEmpty()) return List.of();
+            }
+            // Montículo con el peor arriba: cada candidato se compara solo contra el peor de los k
+            PriorityQueue<Candidato> mejores = new PriorityQueue<>(k + 1, Comparator.reverseOrder());
+            for (Map.Entry<Integer, Integer> e : acumulado.entrySet()) {
+                int puntaje = e.getValue();
+                if (mejores.size() == k && puntaje < mejores.peek().puntaje()) continue;
+                Candidato c = new Candidato(porId.get(e.getKey()), puntaje);
+                if (mejores.size() == k) {
+                    if (c.compareTo(mejores.peek()) >= 0) continue;
+                    mejores.poll();
+                }
+                mejores.add(c);
+            }
+            List<Candidato> orden = new ArrayList<>(mejores);
+            orden.sort(null);
+            List<ClienteEncontrado> resultado = new ArrayList<>(orden.size());
+            for (Candidato c : orden) {
+                Entrada en = c.entrada();
+                resultado.add(new ClienteEncontrado(en.id(), en.nombre(), en.apellido(), c.puntaje()));
+            }
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * id -> mejor puntaje de una palabra buscada contra las palabras de cada cliente. Las aproximadas
+     * solo se buscan si las exactas y por prefijo no llegan a 'suficientes' clientes: puntúan menos, así
+     * que con una sola palabra buscada no podrían entrar entre los k primeros. Con varias palabras sí
+     * (p. ej. "gonzales ana": los "Gonzales" exactos pueden no llamarse Ana y "González Ana" sí).
+     */
+    private Map<Integer, Integer> puntosDe(String q, int suficientes) {
+        Map<Integer, Integer> puntos = new HashMap<>();
+        palabras.conPrefijo(q, (w, ids) -> sumar(puntos, w, ids, w.equals(q) ? PUNTOS_EXACTA : PUNTOS_PREFIJO));
+        if (q.length() >= MIN_APROXIMADA && puntos.size() < suficientes) {
+            palabras.aproximadas(q, (w, ids) -> sumar(puntos, w, ids, PUNTOS_APROXIMADA));
+        }
+        return puntos;
+    }
+
+    private void sumar(Map<Integer, Integer> puntos, String palabra, Set<Integer> ids, int base) {
+        for (int id : ids) {
+            int p = porId.get(id).palabrasApellido().contains(palabra) ? base + BONO_APELLIDO : base;
+            puntos.merge(id, p, Math::max);
+        }
+    }
+}
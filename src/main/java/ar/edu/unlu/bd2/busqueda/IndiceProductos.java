@@ -0,0 +1,304 @@
+package ar.edu.unlu.bd2.busqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria del catálogo por nombre de producto, sin acentos (ver Texto).
+ * Cada palabra buscada tiene que coincidir con alguna palabra del nombre: igual (PUNTOS_EXACTA),
+ * como prefijo (PUNTOS_PREFIJO) o a distancia de edición 1 (PUNTOS_APROXIMADA, desde MIN_APROXIMADA
+ * letras; con una sola palabra buscada, solo si las anteriores no llegan a k productos: con varias el
+ * AND puede descartar a todas las exactas). Los activos suman BONO_ACTIVO: a igual
+ * coincidencia van primero, y los inactivos solo aparecen si no hay activos suficientes. Empates: el
+ * nombre más corto (más específico) y después el id.
+ *
+ * Todo es primitivo salvo el diccionario de palabras: cada palabra tiene su lista de ids en un int[]
+ * ordenado (Postings), los nombres van en un array indexado por id_producto (AUTO_INCREMENT: denso) y
+ * el estado en un BitSet. Con un millón de productos de 4 o 5 palabras las listas ocupan unos 20 MB;
+ * lo que más pesa son los nombres en sí.
+ * Para combinar palabras cada hilo reusa sus propios arrays de puntaje (Tablero), sin mapas ni boxing.
+ *
+ * Como IndiceClientes: la carga inicial puede correr en otro hilo y lo que llega por poner/quitar
+ * mientras tanto gana sobre lo que lee la carga.
+ */
+public final class IndiceProductos {
+
+    public static final int PUNTOS_EXACTA = 100;
+    public static final int PUNTOS_PREFIJO = 60;
+    public static final int PUNTOS_APROXIMADA = 30;
+    public static final int BONO_ACTIVO = 50;
+    public static final int MIN_APROXIMADA = 4;
+    /** Palabras buscadas que se consideran (el resto se ignora). */
+    static final int MAX_PALABRAS = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** palabra -> ids de productos que la tienen en el nombre. */
+    private final Diccionario<Postings> palabras = new Diccionario<>();
+    /** Nombre por id_producto; null si el id no está en el índice. */
+    private String[] nombres = new String[1024];
+    private final BitSet activos = new BitSet();
+    private int cantidad;
+
+    private final CompletableFuture<Void> carga = new CompletableFuture<>();
+    /** Ids tocados por poner/quitar mientras corre la carga: la carga no los pisa. */
+    private Set<Integer> tocados = new HashSet<>();
+
+    // ======= Carga inicial =======
+
+    /** Agrega un producto leído por la carga inicial, salvo que poner/quitar ya lo hayan tocado. */
+    public void cargar(int id, String nombre, boolean activo) {
+        lock.writeLock().lock();
+        try {
+            if (tocados == null || tocados.contains(id)) return;
+            reemplazar(id, nombre, activo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Cierra la carga y recorta las listas de ids al tamaño justo. */
+    public void terminarCarga() {
+        lock.writeLock().lock();
+        try {
+            tocados = null;
+            for (Postings p : palabras.valores()) p.recortar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        carga.complete(null);
+    }
+
+    public void fallarCarga(Throwable causa) {
+        carga.completeExceptionally(causa);
+    }
+
+    /** Se completa cuando termina la carga inicial (o falla). */
+    public CompletableFuture<Void> carga() {
+        return carga;
+    }
+
+    // ======= Mantenimiento =======
+
+    /** Alta o modificación (nombre y estado). */
+    public void poner(int id, String nombre, boolean activo) {
+        lock.writeLock().lock();
+        try {
+            if (tocados != null) tocados.add(id);
+            reemplazar(id, nombre, activo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Solo cambia el estado; no hace nada si el id no está. */
+    public void cambiarEstado(int id, boolean activo) {
+        lock.writeLock().lock();
+        try {
+            if (id < nombres.length && nombres[id] != null) activos.set(id, activo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void quitar(int id) {
+        lock.writeLock().lock();
+        try {
+            if (tocados != null) tocados.add(id);
+            if (id < nombres.length && nombres[id] != null) {
+                desindexar(id, nombres[id]);
+                nombres[id] = null;
+                activos.clear(id);
+                cantidad--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reemplazar(int id, String nombre, boolean activo) {
+        if (id < 0) throw new IllegalArgumentException("Id inválido: " + id);
+        if (id >= nombres.length) {
+            nombres = Arrays.copyOf(nombres, Math.max(id + 1, nombres.length + (nombres.length >> 1)));
+        }
+        String viejo = nombres[id];
+        if (viejo != null) desindexar(id, viejo);
+        else cantidad++;
+        nombres[id] = nombre;
+        activos.set(id, activo);
+        for (String p : Texto.palabras(nombre)) {
+            Postings ids = palabras.get(p);
+            if (ids == null) palabras.put(p, ids = new Postings());
+            ids.agregar(id);
+        }
+    }
+
+    private void desindexar(int id, String nombre) {
+        for (String p : Texto.palabras(nombre)) {
+            Postings ids = palabras.get(p);
+            if (ids != null && ids.quitar(id) && ids.size() == 0) palabras.remove(p);
+        }
+    }
+
+    // ======= Consultas =======
+
+    public int tamanio() {
+        lock.readLock().lock();
+        try {
+            return cantidad;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            long apariciones = 0, bytes = 0;
+            for (Postings p : palabras.valores()) {
+                apariciones += p.size();
+                bytes += p.bytes();
+            }
+            return String.format("%d productos, %d palabras, %d apariciones (listas: %.1f MB)",
+                    cantidad, palabras.size(), apariciones, bytes / 1048576.0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Los k productos que mejor coinciden con 'texto' (vacío si no tiene palabras). */
+    public List<ProductoEncontrado> buscar(String texto, int k) {
+        if (k <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
+        List<String> buscadas = Texto.palabras(texto);
+        if (buscadas.isEmpty()) return List.of();
+        if (buscadas.size() > MAX_PALABRAS) buscadas = buscadas.subList(0, MAX_PALABRAS);
+        lock.readLock().lock();
+        try {
+            // Dentro del lock de lectura 'nombres' no crece: el tablero alcanza para todos los ids
+            Tablero t = Tablero.delHilo(nombres.length);
+            t.empezar();
+            int suficientes = buscadas.size() == 1 ? k : Integer.MAX_VALUE;
+            for (int i = 0; i < buscadas.size(); i++) {
+                String q = buscadas.get(i);
+                int paso = i;
+                t.empezarPalabra();
+                palabras.conPrefijo(q, (w, ids) -> t.marcar(ids, paso, w.equals(q) ? PUNTOS_EXACTA : PUNTOS_PREFIJO));
+                if (q.length() >= MIN_APROXIMADA && t.marcados() < suficientes) {
+                    palabras.aproximadas(q, (w, ids) -> t.marcar(ids, paso, PUNTOS_APROXIMADA));
+                }
+                if (t.terminarPalabra() == 0) return List.of();
+            }
+            return mejores(t, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Top k de los que coincidieron con todas las palabras, con el bono de activo. */
+    private List<ProductoEncontrado> mejores(Tablero t, int k) {
+        // Montículo con el peor arriba; cada entrada es {puntaje, id}
+        PriorityQueue<int[]> heap = new PriorityQueue<>(k + 1, (a, b) -> -comparar(a, b));
+        for (int j = 0; j < t.marcados(); j++) {
+            int id = t.marcado(j);
+            int puntaje = t.puntaje(id) + (activos.get(id) ? BONO_ACTIVO : 0);
+            if (heap.size() == k) {
+                if (comparar(puntaje, id, heap.peek()) >= 0) continue;
+                heap.poll();
+            }
+            heap.add(new int[] { puntaje, id });
+        }
+        List<int[]> orden = new ArrayList<>(heap);
+        orden.sort(this::comparar);
+        List<ProductoEncontrado> resultado = new ArrayList<>(orden.size());
+        for (int[] c : orden) resultado.add(new ProductoEncontrado(c[1], nombres[c[1]], activos.get(c[1]), c[0]));
+        return resultado;
+    }
+
+    /** Mejor primero: más puntaje, nombre más corto, menor id. */
+    private int comparar(int[] a, int[] b) {
+        return comparar(a[0], a[1], b);
+    }
+
+    private int comparar(int puntaje, int id, int[] b) {
+        if (puntaje != b[0]) return Integer.compare(b[0], puntaje);
+        int c = Integer.compare(nombres[id].length(), nombres[b[1]].length());
+        return c != 0 ? c : Integer.compare(id, b[1]);
+    }
+
+    /**
+     * Arrays de trabajo de un hilo, indexados por id y reusados entre búsquedas. 'ronda' dice hasta
+     * qué palabra coincidió cada id en la búsqueda en curso (base + palabras coincididas), así no hay
+     * que limpiar nada entre búsquedas: cada una arranca con una base mayor que todo lo escrito antes.
+     */
+    private static final class Tablero {
+        private static final ThreadLocal<Tablero> DEL_HILO = ThreadLocal.withInitial(Tablero::new);
+
+        private int[] ronda = new int[0];
+        private int[] total = new int[0];   // suma de las palabras ya cerradas
+        private int[] actual = new int[0];  // mejor puntaje en la palabra en curso
+        private int[] marcados = new int[16];
+        private int nMarcados;
+        private int base;
+
+        static Tablero delHilo(int capacidad) {
+            Tablero t = DEL_HILO.get();
+            if (t.ronda.length < capacidad) {
+                t.ronda = Arrays.copyOf(t.ronda, capacidad);
+                t.total = Arrays.copyOf(t.total, capacidad);
+                t.actual = Arrays.copyOf(t.actual, capacidad);
+            }
+            return t;
+        }
+
+        void empezar() {
+            if (base > Integer.MAX_VALUE - 2 * (MAX_PALABRAS + 1)) {
+                Arrays.fill(ronda, 0);
+                base = 0;
+            }
+            base += MAX_PALABRAS + 1;
+            nMarcados = 0;
+        }
+
+        void empezarPalabra() {
+            nMarcados = 0;
+        }
+
+        /** Suma 'puntos' a los ids de la lista que coincidieron con todas las palabras anteriores. */
+        void marcar(Postings ids, int paso, int puntos) {
+            int esperado = base + paso, marcado = esperado + 1;
+            for (int j = 0, n = ids.size(); j < n; j++) {
+                int id = ids.get(j);
+                int r = ronda[id];
+                if (r == marcado) {
+                    if (puntos > actual[id]) actual[id] = puntos;
+                } else if (r == esperado || (paso == 0 && r < base)) {
+                    if (paso == 0) total[id] = 0;
+                    ronda[id] = marcado;
+                    actual[id] = puntos;
+                    if (nMarcados == marcados.length) marcados = Arrays.copyOf(marcados, nMarcados * 2);
+                    marcados[nMarcados++] = id;
+                }
+            }
+        }
+
+        /** Cierra la palabra en curso; devuelve cuántos ids siguen en carrera. */
+        int terminarPalabra() {
+            for (int j = 0; j < nMarcados; j++) total[marcados[j]] += actual[marcados[j]];
+            return nMarcados;
+        }
+
+        int marcados() { return nMarcados; }
+
+        int marcado(int j) { return marcados[j]; }
+
+        int puntaje(int id) { return total[id]; }
+    }
+}
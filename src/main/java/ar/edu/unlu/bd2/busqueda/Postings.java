@@ -0,0 +1,51 @@
+package ar.edu.unlu.bd2.busqueda;
+
+import java.util.Arrays;
+
+/**
+ * Lista de ids ordenada en un int[] (sin Integer): 4 bytes por aparición de una palabra.
+ * Las altas suelen llegar en orden de id (AUTO_INCREMENT) y van al final; las demás se insertan
+ * con búsqueda binaria. No es thread-safe: lo sincroniza IndiceProductos.
+ */
+final class Postings {
+
+    private int[] ids = new int[2];
+    private int n;
+
+    int size() { return n; }
+
+    int get(int i) { return ids[i]; }
+
+    void agregar(int id) {
+        if (n > 0 && ids[n - 1] >= id) {
+            int pos = Arrays.binarySearch(ids, 0, n, id);
+            if (pos >= 0) return;
+            pos = -pos - 1;
+            if (n == ids.length) ids = Arrays.copyOf(ids, n + (n >> 1) + 1);
+            System.arraycopy(ids, pos, ids, pos + 1, n - pos);
+            ids[pos] = id;
+            n++;
+            return;
+        }
+        if (n == ids.length) ids = Arrays.copyOf(ids, n + (n >> 1) + 1);
+        ids[n++] = id;
+    }
+
+    /** @return true si estaba */
+    boolean quitar(int id) {
+        int pos = Arrays.binarySearch(ids, 0, n, id);
+        if (pos < 0) return false;
+        System.arraycopy(ids, pos + 1, ids, pos, n - pos - 1);
+        n--;
+        return true;
+    }
+
+    /** Recorta el array al tamaño justo (después de la carga inicial). */
+    void recortar() {
+        if (ids.length > n) ids = Arrays.copyOf(ids, Math.max(n, 1));
+    }
+
+    long bytes() {
+        return 16 + 16 + 4L * ids.length;
+    }
+}
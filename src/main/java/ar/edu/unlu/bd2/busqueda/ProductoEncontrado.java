@@ -0,0 +1,4 @@
+package ar.edu.unlu.bd2.busqueda;
+
+/** Resultado de IndiceProductos.buscar: más puntaje, mejor coincidencia (ver IndiceProductos). */
+public record ProductoEncontrado(int idProducto, String nombre, boolean activo, int puntaje) { }
@@ -0,0 +1,64 @@
+package ar.edu.unlu.bd2.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalización de texto para los índices de búsqueda: minúsculas y sin acentos ni diéresis
+ * ("Muñoz", "MUNOZ" y "muñóz" dan "munoz"), partido en palabras de letras y dígitos.
+ */
+public final class Texto {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    private Texto() { }
+
+    /** Minúsculas y sin marcas diacríticas (NFD separa la letra base del acento, y el acento se descarta). */
+    public static String normalizar(String s) {
+        if (s == null) return "";
+        // Camino rápido: sin caracteres fuera de ASCII no hay acentos que sacar
+        boolean ascii = true;
+        for (int i = 0; i < s.length() && ascii; i++) ascii = s.charAt(i) < 0x80;
+        if (ascii) return s.toLowerCase(Locale.ROOT);
+        return MARCAS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /** Palabras normalizadas (tramos de letras y dígitos), en orden. */
+    public static List<String> palabras(String s) {
+        String n = normalizar(s);
+        List<String> palabras = new ArrayList<>(4);
+        int inicio = -1;
+        for (int i = 0; i <= n.length(); i++) {
+            boolean parte = i < n.length() && Character.isLetterOrDigit(n.charAt(i));
+            if (parte && inicio < 0) {
+                inicio = i;
+            } else if (!parte && inicio >= 0) {
+                palabras.add(n.substring(inicio, i));
+                inicio = -1;
+            }
+        }
+        return palabras;
+    }
+
+    /**
+     * true si a y b están a distancia de edición a lo sumo 1: iguales, o una inserción, borrado,
+     * sustitución o trasposición de dos letras vecinas ("gonzlaez" / "gonzalez").
+     */
+    public static boolean distanciaUno(String a, String b) {
+        int la = a.length(), lb = b.length();
+        if (Math.abs(la - lb) > 1) return false;
+        if (la > lb) return distanciaUno(b, a);
+        int i = 0;
+        while (i < la && a.charAt(i) == b.charAt(i)) i++;
+        if (i == la) return true; // iguales, o b tiene una letra más al final
+        if (la == lb) {
+            if (a.regionMatches(i + 1, b, i + 1, la - i - 1)) return true;                  // sustitución
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.regionMatches(i + 2, b, i + 2, la - i - 2);                         // trasposición
+        }
+        return a.regionMatches(i, b, i + 1, la - i);                                         // inserción en b
+    }
+}
@@ -0,0 +1,380 @@
+package ar.edu.unlu.bd2.catalogo;
+
+import ar.edu.unlu.bd2.metricas.Medidor;
+import ar.edu.unlu.bd2.metricas.Metricas;
+import ar.edu.unlu.bd2.modelo.Producto;
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché cercana de id, estado (activo) y precio de todos los productos, para rechazar sin ir a la BD
+ * las líneas de factura con productos inexistentes o inactivos. Lo positivo no se da por bueno: que un
+ * producto esté activo se confirma en la BD al armar la línea (ver activo()), porque puede haberse
+ * desactivado fuera de esta aplicación y la caché no lo sabe hasta la próxima recarga.
+ * La caché de 2° nivel no sirve para esto: cada línea cambia el stock del
+ * producto (triggers) y los controllers lo evictan después de cada alta o baja de detalle.
+ *
+ * Los lectores no bloquean: leen una foto inmutable y versionada (base + parches, ver TablaProductos)
+ * con una sola lectura volatile. Los escritores (altas y cambios de ProductoController, ids que la BD
+ * dijo que no existen) se serializan y publican una foto nueva copiando solo la tabla de parches, que
+ * es chica; al pasar MAX_PARCHES se unen a una copia de la base. Los cambios masivos van en un Lote:
+ * una sola foto para todos.
+ * recargar() arma la base de cero con un SELECT y la publica entera; como en IndiceProductos, lo que
+ * llega por poner/quitar/noExiste mientras tanto gana sobre lo que leyó la recarga.
+ *
+ * La caché negativa vence a los TTL_NEGATIVO: un id que hoy no existe puede llegar después por la
+ * importación CSV, que inserta sin pasar por acá (ImportacionController recarga al terminar). Con las recargas periódicas de iniciar(), lo que
+ * cambie por fuera de la aplicación queda desactualizado a lo sumo un período.
+ *
+ * Tiene que ser una sola instancia compartida por ProductoController (que la mantiene) y los controllers
+ * que validan líneas: una caché que no se entera de los cambios aceptaría productos ya desactivados.
+ * Los controllers construidos sin caché usan desactivada(), que nunca sabe nada.
+ */
+public class CacheProductos {
+
+    /** Parches que se acumulan antes de unirlos a la base. */
+    static final int MAX_PARCHES = 4096;
+
+    static final Duration TTL_NEGATIVO = Duration.ofSeconds(30);
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String SQL_PRODUCTOS = "select id_producto, activo, precio_unitario from producto";
+
+    private static final Medidor M_RECARGAR = Metricas.medidor("catalogo.recargar");
+
+    /** Foto publicada: los parches se consultan antes que la base. */
+    private record Foto(TablaProductos base, TablaProductos parches, long version, boolean cargada) { }
+
+    private final SessionFactory sessionFactory;
+    private final boolean activa;
+    private volatile Foto foto = new Foto(TablaProductos.VACIA, TablaProductos.VACIA, 0, false);
+
+    /** Ids escritos mientras corre una recarga (null si no hay ninguna): la recarga no los pisa. */
+    private Set<Integer> tocados;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    private ScheduledExecutorService recargas;
+
+    public CacheProductos(SessionFactory sessionFactory) {
+        this(sessionFactory, true);
+    }
+
+    private CacheProductos(SessionFactory sessionFactory, boolean activa) {
+        this.sessionFactory = sessionFactory;
+        this.activa = activa;
+    }
+
+    /** Caché que responde DESCONOCIDO a todo e ignora las escrituras (todo va a la BD, como sin caché). */
+    public static CacheProductos desactivada() {
+        return new CacheProductos(null, false);
+    }
+
+    // ======= Lectura (sin bloqueos) =======
+
+    public EstadoProducto estado(int idProducto) {
+        EstadoProducto e = buscar(idProducto);
+        if (e == EstadoProducto.DESCONOCIDO) fallos.increment();
+        else aciertos.increment();
+        return e;
+    }
+
+    private EstadoProducto buscar(int idProducto) {
+        if (idProducto <= 0) return EstadoProducto.INEXISTENTE;
+        if (!activa) return EstadoProducto.DESCONOCIDO;
+        Foto f = foto;
+        TablaProductos t = f.parches();
+        int i = t.buscar(idProducto);
+        if (i < 0) {
+            t = f.base();
+            i = t.buscar(idProducto);
+        }
+        if (i < 0) return EstadoProducto.DESCONOCIDO;
+        return switch (t.estado(i)) {
+            case TablaProductos.ACTIVO -> EstadoProducto.ACTIVO;
+            case TablaProductos.INACTIVO -> EstadoProducto.INACTIVO;
+            default -> System.nanoTime() - t.precio(i) < 0 ? EstadoProducto.INEXISTENTE : EstadoProducto.DESCONOCIDO;
+        };
+    }
+
+    /** Precio actual según la caché, o null si no lo conoce. */
+    public BigDecimal precio(int idProducto) {
+        Foto f = foto;
+        TablaProductos t = f.parches();
+        int i = t.buscar(idProducto);
+        if (i < 0) {
+            t = f.base();
+            i = t.buscar(idProducto);
+        }
+        return i < 0 || t.estado(i) == TablaProductos.INEXISTENTE ? null : BigDecimal.valueOf(t.precio(i), 2);
+    }
+
+    /**
+     * Rechaza sin ir a la BD un id que la caché sabe inexistente (IllegalArgumentException) o inactivo
+     * (IllegalStateException), con los mensajes de siempre: "'rotulo' inexistente id=...".
+     * @return true si lo sabe activo; false si no lo sabe. En los dos casos la BD tiene la última palabra
+     *         (ver activo()): la caché puede no haber visto una baja hecha fuera de esta aplicación.
+     */
+    public boolean verificarActivo(int idProducto, String rotulo) {
+        return verificar(estado(idProducto), idProducto, rotulo);
+    }
+
+    private static boolean verificar(EstadoProducto estado, int idProducto, String rotulo) {
+        return switch (estado) {
+            case ACTIVO -> true;
+            case INACTIVO -> throw new IllegalStateException(rotulo + " inactivo id=" + idProducto);
+            case INEXISTENTE -> throw new IllegalArgumentException(rotulo + " inexistente id=" + idProducto);
+            case DESCONOCIDO -> false;
+        };
+    }
+
+    /**
+     * El producto para armar una línea dentro de 'session', como referencia (sin cargar la entidad).
+     * Lo que la caché sabe inexistente o inactivo se rechaza sin ir a la BD; lo demás, aunque la caché lo
+     * crea activo, se confirma con un SELECT de la columna activo. Inexistente o inactivo: deshace la
+     * transacción de 'session' (como hacen los controllers antes de lanzar) y lanza la misma excepción que
+     * verificarActivo; un id inexistente queda en la caché negativa.
+     * Lo que se lee de la BD no se anota como positivo: con la lectura en una transacción concurrente
+     * con un cambio podría pisar lo que publicó ProductoController después del commit.
+     * La consulta a la caché no cuenta en aciertos/fallos: los controllers ya llamaron a verificarActivo
+     * antes de abrir la transacción, y cada línea contaría dos veces.
+     */
+    public Producto activo(Session session, int idProducto, String rotulo) {
+        try {
+            verificar(buscar(idProducto), idProducto, rotulo);
+            List<Boolean> activo = session.createSelectionQuery(
+                            "select p.activo from Producto p where p.idProducto = :id", Boolean.class)
+                    .setParameter("id", idProducto)
+                    .getResultList();
+            if (activo.isEmpty()) {
+                noExiste(idProducto);
+                throw new IllegalArgumentException(rotulo + " inexistente id=" + idProducto);
+            }
+            if (Boolean.FALSE.equals(activo.get(0))) throw new IllegalStateException(rotulo + " inactivo id=" + idProducto);
+            return session.getReference(Producto.class, idProducto);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            session.getTransaction().rollback();
+            throw e;
+        }
+    }
+
+    /** Número de la foto publicada: crece con cada escritura o recarga. */
+    public long version() {
+        return foto.version();
+    }
+
+    /** false si se creó con desactivada(). */
+    public boolean activa() {
+        return activa;
+    }
+
+    /** true desde que terminó la primera recarga. */
+    public boolean cargada() {
+        return foto.cargada();
+    }
+
+    // ======= Escritura =======
+
+    /** Alta o cambio de un producto (después del commit). */
+    public void poner(int idProducto, boolean activo, BigDecimal precio) {
+        escribir(idProducto, activo ? TablaProductos.ACTIVO : TablaProductos.INACTIVO, centavos(precio));
+    }
+
+    /** El producto se borró (después del commit). */
+    public void quitar(int idProducto) {
+        if (idProducto > 0) escribir(idProducto, TablaProductos.INEXISTENTE, vencimientoNegativo(), true);
+    }
+
+    /**
+     * La BD dijo que el id no existe: se rechaza sin consultarla hasta que venza TTL_NEGATIVO.
+     * No pisa un producto que la caché ya conoce (pudo crearse después de esa lectura).
+     */
+    public void noExiste(int idProducto) {
+        if (idProducto > 0) escribir(idProducto, TablaProductos.INEXISTENTE, vencimientoNegativo(), false);
+    }
+
+    private static long vencimientoNegativo() {
+        return System.nanoTime() + TTL_NEGATIVO.toNanos();
+    }
+
+    /** Varios cambios ya confirmados (cambios masivos) publicados en una sola foto. */
+    public Lote lote() {
+        return new Lote();
+    }
+
+    public final class Lote {
+        private final TablaProductos.Constructor cambios = new TablaProductos.Constructor(16);
+
+        private Lote() { }
+
+        public Lote poner(int idProducto, boolean activo, BigDecimal precio) {
+            cambios.poner(idProducto, activo ? TablaProductos.ACTIVO : TablaProductos.INACTIVO, centavos(precio));
+            return this;
+        }
+
+        public void publicar() {
+            escribir(cambios.construir());
+        }
+    }
+
+    private void escribir(int idProducto, byte estado, long precio) {
+        escribir(idProducto, estado, precio, true);
+    }
+
+    private synchronized void escribir(int idProducto, byte estado, long precio, boolean pisarConocido) {
+        if (!activa) return;
+        if (!pisarConocido) {
+            EstadoProducto actual = buscar(idProducto);
+            if (actual == EstadoProducto.ACTIVO || actual == EstadoProducto.INACTIVO) return;
+        }
+        TablaProductos.Constructor c = new TablaProductos.Constructor(1);
+        c.poner(idProducto, estado, precio);
+        escribir(c.construir());
+    }
+
+    /**
+     * Publica una foto con 'cambios' encima de los parches; si juntos pasan MAX_PARCHES, todo se une
+     * a una copia de la base. Las entradas negativas vencidas quedan hasta la próxima recarga (ya no
+     * cuentan: buscar las ve como DESCONOCIDO).
+     */
+    private synchronized void escribir(TablaProductos cambios) {
+        if (!activa || cambios.tamanio() == 0) return;
+        if (tocados != null) {
+            for (int i = 0; i < cambios.capacidad(); i++) {
+                if (cambios.id(i) != 0) tocados.add(cambios.id(i));
+            }
+        }
+        Foto f = foto;
+        TablaProductos base = f.base(), parches;
+        if (f.parches().tamanio() + cambios.tamanio() <= MAX_PARCHES) {
+            TablaProductos.Constructor p = TablaProductos.Constructor.copia(f.parches(), cambios.tamanio());
+            p.agregarTodo(cambios);
+            parches = p.construir();
+        } else {
+            TablaProductos.Constructor b = TablaProductos.Constructor.copia(base, f.parches().tamanio() + cambios.tamanio());
+            b.agregarTodo(f.parches());
+            b.agregarTodo(cambios);
+            base = b.construir();
+            parches = TablaProductos.VACIA;
+        }
+        foto = new Foto(base, parches, f.version() + 1, f.cargada());
+    }
+
+    // ======= Recarga =======
+
+    /**
+     * Carga la caché en un hilo aparte y la vuelve a cargar cada 'periodo'. Hasta que termina la
+     * primera carga todo es DESCONOCIDO (los controllers van a la BD como siempre).
+     * @return se completa con la primera carga (o su error)
+     */
+    public synchronized CompletableFuture<Void> iniciar(Duration periodo) {
+        if (!activa) throw new IllegalStateException("La caché de productos está desactivada");
+        if (recargas != null) throw new IllegalStateException("La caché de productos ya está iniciada");
+        recargas = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cache-productos");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletableFuture<Void> primera = new CompletableFuture<>();
+        recargas.scheduleWithFixedDelay(() -> {
+            try {
+                recargar();
+                primera.complete(null);
+            } catch (RuntimeException e) {
+                if (!primera.completeExceptionally(e)) {
+                    System.err.println("No se pudo recargar la caché de productos: " + e.getMessage());
+                }
+            }
+        }, 0, periodo.toMillis(), TimeUnit.MILLISECONDS);
+        return primera;
+    }
+
+    /** Lee todos los productos y publica una base nueva (descarta la caché negativa). */
+    public void recargar() {
+        M_RECARGAR.medir(() -> {
+            synchronized (this) {
+                if (!activa) throw new IllegalStateException("La caché de productos está desactivada");
+                if (tocados != null) throw new IllegalStateException("Ya hay una recarga en curso");
+                tocados = new HashSet<>();
+            }
+            TablaProductos nueva;
+            try {
+                nueva = leer(foto.base().tamanio());
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    tocados = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                // Lo escrito durante la recarga gana: se copia tal como está en la foto actual
+                Foto f = foto;
+                TablaProductos.Constructor p = new TablaProductos.Constructor(tocados.size());
+                for (int id : tocados) {
+                    TablaProductos t = f.parches();
+                    int i = t.buscar(id);
+                    if (i < 0) {
+                        t = f.base();
+                        i = t.buscar(id);
+                    }
+                    if (i >= 0) p.poner(id, t.estado(i), t.precio(i));
+                }
+                tocados = null;
+                foto = new Foto(nueva, p.construir(), f.version() + 1, true);
+            }
+        });
+    }
+
+    /** JDBC en streaming, sin entidades. */
+    private TablaProductos leer(int esperados) {
+        TablaProductos.Constructor c = new TablaProductos.Constructor(esperados);
+        try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+            session.doWork(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(SQL_PRODUCTOS,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            c.poner(rs.getInt(1), rs.getBoolean(2) ? TablaProductos.ACTIVO : TablaProductos.INACTIVO,
+                                    centavos(rs.getBigDecimal(3)));
+                        }
+                    }
+                }
+            });
+            return c.construir();
+        } catch (Exception e) {
+            throw new RuntimeException("No se pudo cargar la caché de productos: " + e.getMessage(), e);
+        }
+    }
+
+    private static long centavos(BigDecimal precio) {
+        return precio == null ? 0 : precio.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    @Override
+    public String toString() {
+        Foto f = foto;
+        long a = aciertos.sum(), total = a + fallos.sum();
+        return String.format("versión %d%s: base de %d + %d parches (%d negativos), %.1f MB, aciertos %.1f%% de %d",
+                f.version(), f.cargada() ? "" : " (sin cargar)", f.base().tamanio(),
+                f.parches().tamanio(), f.base().negativos() + f.parches().negativos(),
+                (f.base().bytes() + f.parches().bytes()) / 1048576.0, total == 0 ? 0.0 : 100.0 * a / total, total);
+    }
+}
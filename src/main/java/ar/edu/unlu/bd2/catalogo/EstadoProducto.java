@@ -0,0 +1,11 @@
+package ar.edu.unlu.bd2.catalogo;
+
+/** Lo que CacheProductos sabe de un id de producto. */
+public enum EstadoProducto {
+    ACTIVO,
+    INACTIVO,
+    /** No existe (caché negativa: alguien ya lo buscó en la BD o se borró). */
+    INEXISTENTE,
+    /** La caché no lo sabe: hay que preguntarle a la BD. */
+    DESCONOCIDO
+}
@@ -0,0 +1,156 @@
+package ar.edu.unlu.bd2.catalogo;
+
+/**
+ * Mapa id_producto -> (estado, precio) de direccionamiento abierto con sondeo lineal, en arrays de
+ * primitivos: ni Integer ni un objeto por entrada. El id 0 marca el casillero libre (los ids de
+ * producto arrancan en 1). Por casillero: 4 (id) + 8 (precio) + 1 (estado) bytes, con la capacidad
+ * en una potencia de 2 y ocupación de a lo sumo 3/4.
+ * Es inmutable: una vez construida nadie escribe sus arrays, así que la leen varios hilos sin sincronizar.
+ * Las entradas INEXISTENTE (caché negativa) guardan en 'precio' hasta cuándo valen (System.nanoTime).
+ */
+final class TablaProductos {
+
+    static final byte ACTIVO = 1;
+    static final byte INACTIVO = 2;
+    static final byte INEXISTENTE = 3;
+
+    static final TablaProductos VACIA = new Constructor(0).construir();
+
+    private final int[] ids;
+    private final long[] precios;
+    private final byte[] estados;
+    private final int mascara;
+    private final int tamanio;
+    private final int negativos;
+
+    private TablaProductos(int[] ids, long[] precios, byte[] estados, int tamanio, int negativos) {
+        this.ids = ids;
+        this.precios = precios;
+        this.estados = estados;
+        this.mascara = ids.length - 1;
+        this.tamanio = tamanio;
+        this.negativos = negativos;
+    }
+
+    /** Casillero del id, o -1 si no está. */
+    int buscar(int id) {
+        int i = hash(id) & mascara;
+        while (true) {
+            int k = ids[i];
+            if (k == id) return i;
+            if (k == 0) return -1;
+            i = (i + 1) & mascara;
+        }
+    }
+
+    int id(int casillero) { return ids[casillero]; }
+
+    byte estado(int casillero) { return estados[casillero]; }
+
+    long precio(int casillero) { return precios[casillero]; }
+
+    int capacidad() { return ids.length; }
+
+    int tamanio() { return tamanio; }
+
+    int negativos() { return negativos; }
+
+    long bytes() {
+        return (long) ids.length * (Integer.BYTES + Long.BYTES + 1);
+    }
+
+    /** Mezcla los bits altos del producto por la constante de Fibonacci en los bajos que usa la máscara. */
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int capacidadPara(int entradas) {
+        int c = 16;
+        while (c - (c >>> 2) <= entradas) c <<= 1;
+        return c;
+    }
+
+    /** Acumula entradas en arrays que se rehacen al doble al pasar 3/4 de ocupación. */
+    static final class Constructor {
+        private int[] ids;
+        private long[] precios;
+        private byte[] estados;
+        private int tamanio;
+        private int negativos;
+
+        Constructor(int esperadas) {
+            int c = capacidadPara(Math.max(0, esperadas));
+            ids = new int[c];
+            precios = new long[c];
+            estados = new byte[c];
+        }
+
+        /** Copia de 't' con lugar para 'extra' entradas más (sin rehacer si alcanza la capacidad actual). */
+        static Constructor copia(TablaProductos t, int extra) {
+            Constructor c;
+            if (capacidadPara(t.tamanio + extra) <= t.ids.length) {
+                c = new Constructor(0);
+                c.ids = t.ids.clone();
+                c.precios = t.precios.clone();
+                c.estados = t.estados.clone();
+                c.tamanio = t.tamanio;
+                c.negativos = t.negativos;
+            } else {
+                c = new Constructor(t.tamanio + extra);
+                c.agregarTodo(t);
+            }
+            return c;
+        }
+
+        int tamanio() { return tamanio; }
+
+        /** Alta o reemplazo de la entrada del id. */
+        void poner(int id, byte estado, long precio) {
+            if (id <= 0) throw new IllegalArgumentException("Id inválido: " + id);
+            int mascara = ids.length - 1;
+            int i = hash(id) & mascara;
+            while (ids[i] != 0 && ids[i] != id) i = (i + 1) & mascara;
+            if (ids[i] == 0) {
+                if (tamanio + 1 > ids.length - (ids.length >>> 2)) {
+                    rehacer(ids.length << 1);
+                    poner(id, estado, precio);
+                    return;
+                }
+                ids[i] = id;
+                tamanio++;
+            } else if (estados[i] == INEXISTENTE) {
+                negativos--;
+            }
+            if (estado == INEXISTENTE) negativos++;
+            estados[i] = estado;
+            precios[i] = precio;
+        }
+
+        /** Copia las entradas de 't' (pisando las que ya estén). */
+        void agregarTodo(TablaProductos t) {
+            for (int i = 0; i < t.ids.length; i++) {
+                if (t.ids[i] != 0) poner(t.ids[i], t.estados[i], t.precios[i]);
+            }
+        }
+
+        private void rehacer(int capacidad) {
+            int[] viejosIds = ids;
+            long[] viejosPrecios = precios;
+            byte[] viejosEstados = estados;
+            ids = new int[capacidad];
+            precios = new long[capacidad];
+            estados = new byte[capacidad];
+            tamanio = 0;
+            negativos = 0;
+            for (int i = 0; i < viejosIds.length; i++) {
+                if (viejosIds[i] != 0) poner(viejosIds[i], viejosEstados[i], viejosPrecios[i]);
+            }
+        }
+
+        /** La tabla se queda con los arrays: el constructor no se usa más después de esto. */
+        TablaProductos construir() {
+            return new TablaProductos(ids, precios, estados, tamanio, negativos);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ar.edu.unlu.bd2.controller;
+
+import ar.edu.unlu.bd2.modelo.DetalleFactura;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Cambio de cantidad de un detalle con UPDATE en el lugar (modos UPDATE_DELTA y UPDATE_TRIGGER).
+ * Lo comparten FacturaController y DetalleFacturaController; corre dentro de la transacción del caller.
+ * Orden de bloqueos igual al de los triggers de alta: factura_detalle -> producto -> factura.
+ * Si trg_factura_detalle_bu está instalado, el UPDATE de factura_detalle ya ajusta stock y total:
+ * UPDATE_DELTA no los vuelve a tocar (si no, se contarían dos veces).
+ */
+final class ActualizacionEnLugar {
+
+    private static final String TRIGGER_UPDATE = "trg_factura_detalle_bu";
+
+    /** Si la base de cada SessionFactory tiene el trigger de UPDATE (se consulta una sola vez). */
+    private static final Map<SessionFactory, Boolean> CON_TRIGGER = new WeakHashMap<>();
+
+    private ActualizacionEnLugar() { }
+
+    static void aplicar(Session session, DetalleFactura det, int nuevaCantidad, ModoActualizacionCantidad modo) {
+        Integer idFactura = det.getId().getIdFactura();
+        Integer idProducto = det.getId().getIdProducto();
+        int delta = nuevaCantidad - det.getCantidad();
+        if (delta == 0) return;
+
+        if (modo == ModoActualizacionCantidad.UPDATE_TRIGGER) {
+            // Un solo UPDATE ... SET cantidad = ?; el trigger BEFORE UPDATE ajusta subtotal, stock y total.
+            // Hibernate relee precio/subtotal (@Generated) en el mismo flush.
+            det.setCantidad(nuevaCantidad);
+            session.flush();
+            return;
+        }
+
+        // UPDATE_DELTA: la aplicación ajusta subtotal, stock y total (salvo que lo haga el trigger).
+        // Por JDBC y no con createNativeMutationQuery: una sentencia nativa sin query spaces hace que
+        // Hibernate vacíe todas las regiones de la caché de 2° nivel (Cliente incluido); así solo se
+        // evicta el producto tocado, que los controllers ya evictan después del commit.
+        boolean conTrigger = hayTriggerUpdate(session);
+        BigDecimal diferencia = det.getPrecioUnitario().multiply(BigDecimal.valueOf(delta));
+        session.flush();
+        session.doWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "update factura_detalle set cantidad = ?, subtotal = precio_unitario * ? " +
+                            "where id_factura = ? and id_producto = ?")) {
+                ps.setInt(1, nuevaCantidad);
+                ps.setInt(2, nuevaCantidad);
+                ps.setInt(3, idFactura);
+                ps.setInt(4, idProducto);
+                ps.executeUpdate();
+            }
+            if (conTrigger) return;
+
+            // Si aumenta la cantidad, solo descuenta si alcanza el stock (delta negativo devuelve stock)
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "update producto set stock = stock - ? where id_producto = ? and stock >= ?")) {
+                ps.setInt(1, delta);
+                ps.setInt(2, idProducto);
+                ps.setInt(3, delta);
+                if (ps.executeUpdate() == 0) {
+                    throw new IllegalStateException("Stock insuficiente para el producto id=" + idProducto);
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "update factura set total = total + ? where id_factura = ?")) {
+                ps.setBigDecimal(1, diferencia);
+                ps.setInt(2, idFactura);
+                ps.executeUpdate();
+            }
+        });
+
+        // Traer cantidad/subtotal ya actualizados por los UPDATE
+        session.refresh(det);
+    }
+
+    /** Busca trg_factura_detalle_bu en information_schema la primera vez que se usa cada SessionFactory. */
+    static boolean hayTriggerUpdate(Session session) {
+        SessionFactory sf = session.getSessionFactory();
+        synchronized (CON_TRIGGER) {
+            Boolean hay = CON_TRIGGER.get(sf);
+            if (hay != null) return hay;
+        }
+        boolean mysql = sf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect() instanceof MySQLDialect;
+        boolean hay = session.doReturningWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "select count(*) from information_schema.triggers where lower(trigger_name) = ? " +
+                            "and lower(event_object_table) = 'factura_detalle' and trigger_schema = " +
+                            (mysql ? "database()" : "current_schema"))) {
+                ps.setString(1, TRIGGER_UPDATE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() && rs.getInt(1) > 0;
+                }
+            }
+        });
+        synchronized (CON_TRIGGER) {
+            CON_TRIGGER.put(sf, hay);
+        }
+        return hay;
+    }
+}
@@ -1,116 +1,288 @@
 package ar.edu.unlu.bd2.controller;
 
+import ar.edu.unlu.bd2.busqueda.ClienteEncontrado;
+import ar.edu.unlu.bd2.busqueda.IndiceClientes;
+import ar.edu.unlu.bd2.metricas.Medidor;
+import ar.edu.unlu.bd2.metricas.Metricas;
 import ar.edu.unlu.bd2.modelo.Cliente;
-import org.hibernate.Hibernate;
+import ar.edu.unlu.bd2.modelo.Factura;
+import ar.edu.unlu.bd2.util.StreamingUtil;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
-import org.hibernate.cfg.Configuration;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 /**
  * CRUD de Cliente usando Hibernate puro y hibernate.cfg.xml.
- * Nota: Para simplificar y evitar dependencias extra, cada controller mantiene su propio SessionFactory estático.
- * En un refactor posterior se puede extraer a un HibernateUtil compartido.
+ * El SessionFactory (y su pool de conexiones) es único para toda la aplicación: lo construye
+ * HibernateUtil y App lo inyecta por constructor.
+ * La búsqueda por nombre usa un índice en memoria (IndiceClientes) que App arranca con iniciarIndice
+ * y que crear / actualizar / eliminar mantienen al día. Las altas que no pasan por acá (importación
+ * CSV) solo aparecen después de otro iniciarIndice, que ImportacionController hace al terminar.
  */
 public class ClienteController {
 
-    // ======= SessionFactory único por clase =======
-    private static final SessionFactory SESSION_FACTORY = buildSessionFactory();
-
-    private static SessionFactory buildSessionFactory() {
-        try {
-            // Carga hibernate.cfg.xml (ya mapea las entidades con <mapping class="..."/>)
-            return new Configuration().configure().buildSessionFactory();
-        } catch (Throwable ex) {
-            // Propagamos con detalle si la configuración falla
-            throw new ExceptionInInitializerError("Error creando SessionFactory: " + ex.getMessage());
-        }
+    // ======= Métricas por operación (JMX / Prometheus, ver Metricas) =======
+    private static final Medidor M_CREAR = Metricas.medidor("cliente.crear");
+    private static final Medidor M_OBTENER = Metricas.medidor("cliente.obtenerPorId");
+    private static final Medidor M_RESUMEN = Metricas.medidor("cliente.obtenerResumen");
+    private static final Medidor M_FACTURAS = Metricas.medidor("cliente.listarFacturas");
+    private static final Medidor M_EXISTE = Metricas.medidor("cliente.existe");
+    private static final Medidor M_LISTAR = Metricas.medidor("cliente.listarTodos");
+    private static final Medidor M_LISTAR_PAGINA = Metricas.medidor("cliente.listarPagina");
+    private static final Medidor M_RECORRER = Metricas.medidor("cliente.recorrerTodos");
+    private static final Medidor M_ACTUALIZAR = Metricas.medidor("cliente.actualizar");
+    private static final Medidor M_ELIMINAR = Metricas.medidor("cliente.eliminar");
+    private static final Medidor M_BUSCAR = Metricas.medidor("cliente.buscar");
+
+    /** Lo que espera buscar a que termine la carga del índice antes de avisar que todavía no está. */
+    private static final long ESPERA_INDICE_SEG = 5;
+
+    // ======= SessionFactory compartido (lo inyecta App) =======
+    private final SessionFactory sessionFactory;
+
+    // ======= Índice de búsqueda por nombre (null hasta iniciarIndice) =======
+    private volatile IndiceClientes indice;
+
+    public ClienteController(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
     }
 
     // ======= Métodos CRUD =======
 
     public Cliente crear(Cliente cliente) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-            session.persist(cliente);
-            tx.commit();
-            return cliente;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException("No se pudo crear el cliente: " + e.getMessage(), e);
-        }
+        return M_CREAR.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+                session.persist(cliente);
+                tx.commit();
+                indexar(cliente);
+                return cliente;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException("No se pudo crear el cliente: " + e.getMessage(), e);
+            }
+        });
     }
 
+    /** Cliente sin sus facturas (la colección queda lazy: no acceder fuera de la sesión). */
     public Optional<Cliente> obtenerPorId(Integer idCliente) {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            Cliente c = session.get(Cliente.class, idCliente);
-            if (c != null) {
-                // Evita LazyInitializationException en la vista
-                Hibernate.initialize(c.getFacturas());
+        return M_OBTENER.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                // Sin las facturas: pueden ser miles. Para mostrarlas usar obtenerResumen / listarFacturas
+                return Optional.ofNullable(session.get(Cliente.class, idCliente));
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo obtener el cliente id=" + idCliente + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Cliente + cantidad de facturas, total histórico y fecha de la última factura.
+     * El cliente sale de la caché de 2° nivel (o por PK) y los agregados de un solo
+     * SELECT count/sum/max sobre factura filtrado por id_cliente (ver sql/idx_factura_cliente.sql):
+     * el costo no depende de cuántas facturas tenga.
+     */
+    public Optional<ResumenCliente> obtenerResumen(Integer idCliente) {
+        return M_RESUMEN.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                Cliente c = session.get(Cliente.class, idCliente);
+                if (c == null) return Optional.empty();
+                Object[] agregados = session.createSelectionQuery(
+                                "select count(f), sum(f.total), max(f.fecha) from Factura f where f.cliente.idCliente = :id",
+                                Object[].class)
+                        .setParameter("id", idCliente)
+                        .getSingleResult();
+                BigDecimal total = agregados[1] == null ? BigDecimal.ZERO : (BigDecimal) agregados[1];
+                return Optional.of(new ResumenCliente(c, ((Number) agregados[0]).longValue(), total,
+                        (LocalDateTime) agregados[2]));
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo obtener el resumen del cliente id=" + idCliente + ": " + e.getMessage(), e);
             }
-            return Optional.ofNullable(c);
-        } catch (Exception e) {
-            throw new RuntimeException("No se pudo obtener el cliente id=" + idCliente + ": " + e.getMessage(), e);
-        }
+        });
+    }
+
+    /**
+     * Facturas del cliente de a páginas, de la más nueva a la más vieja (keyset por id):
+     * hasta 'limite' facturas con id menor a 'antesDeId' (null = desde la última).
+     * Cada página cuesta lo mismo aunque el cliente tenga años de historia.
+     */
+    public List<Factura> listarFacturas(Integer idCliente, Integer antesDeId, int limite) {
+        return M_FACTURAS.medir(() -> {
+            if (limite <= 0) throw new IllegalArgumentException("El límite debe ser > 0");
+            try (Session session = sessionFactory.openSession()) {
+                return session.createSelectionQuery(
+                                "from Factura f where f.cliente.idCliente = :id and f.idFactura < :antes " +
+                                        "order by f.idFactura desc", Factura.class)
+                        .setParameter("id", idCliente)
+                        .setParameter("antes", antesDeId == null ? Integer.MAX_VALUE : antesDeId)
+                        .setMaxResults(limite)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron listar las facturas del cliente id=" + idCliente + ": " + e.getMessage(), e);
+            }
+        });
     }
 
     public List<Cliente> listarTodos() {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            return session.createQuery("from Cliente c order by c.idCliente", Cliente.class)
-                    .getResultList();
-        } catch (Exception e) {
-            throw new RuntimeException("No se pudo listar clientes: " + e.getMessage(), e);
-        }
+        return M_LISTAR.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                return session.createQuery("from Cliente c order by c.idCliente", Cliente.class)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo listar clientes: " + e.getMessage(), e);
+            }
+        });
     }
 
+    /** Paginación por keyset (orden por PK): hasta 'limite' clientes con id mayor a 'despuesDeId'. */
+    public List<Cliente> listarTodos(Integer despuesDeId, int limite) {
+        return M_LISTAR_PAGINA.medir(() -> {
+            if (limite <= 0) throw new IllegalArgumentException("El límite debe ser > 0");
+            try (Session session = sessionFactory.openSession()) {
+                return session.createQuery(
+                                "from Cliente c where c.idCliente > :desde order by c.idCliente", Cliente.class)
+                        .setParameter("desde", despuesDeId == null ? Integer.MIN_VALUE : despuesDeId)
+                        .setMaxResults(limite)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo listar clientes: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Recorre todos los clientes con cursor, sin cargarlos todos en memoria. Devuelve cuántos procesó. */
+    public long recorrerTodos(Consumer<Cliente> consumidor) {
+        return M_RECORRER.medir(() -> {
+            try {
+                return StreamingUtil.recorrer(sessionFactory, "from Cliente c order by c.idCliente",
+                        Cliente.class, StreamingUtil.LOTE_DEFAULT, consumidor);
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo recorrer clientes: " + e.getMessage(), e);
+            }
+        });
+    }
 
     public Cliente actualizar(Cliente cliente) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-            // merge devuelve la instancia administrada; útil si 'cliente' vino detachado
-            Cliente managed = session.merge(cliente);
-            tx.commit();
-            return managed;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            // Si TRG_BU_cliente bloquea pasar a 'inactivo', el mensaje se verá en la vista (try/catch)
-            throw new RuntimeException("No se pudo actualizar el cliente id=" + cliente.getIdCliente() + ": " + e.getMessage(), e);
-        }
+        return M_ACTUALIZAR.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+                // merge devuelve la instancia administrada; útil si 'cliente' vino detachado
+                Cliente managed = session.merge(cliente);
+                tx.commit();
+                indexar(managed);
+                return managed;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                // Si TRG_BU_cliente bloquea pasar a 'inactivo', el mensaje se verá en la vista (try/catch)
+                throw new RuntimeException("No se pudo actualizar el cliente id=" + cliente.getIdCliente() + ": " + e.getMessage(), e);
+            }
+        });
     }
 
     public boolean eliminar(Integer idCliente) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-            Cliente c = session.get(Cliente.class, idCliente);
-            if (c == null) { tx.rollback(); return false; }
-            session.remove(c);
-            tx.commit();
-            return true;
-        } catch (org.hibernate.exception.ConstraintViolationException ex) {
-            if (tx != null) tx.rollback();
-            // FK (facturas) impide el delete
-            return false;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException(
-                    "No se pudo eliminar el cliente id=" + idCliente + ": " + e.getMessage(), e);
-        }
+        return M_ELIMINAR.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+                Cliente c = session.get(Cliente.class, idCliente);
+                if (c == null) { tx.rollback(); return false; }
+                session.remove(c);
+                tx.commit();
+                IndiceClientes idx = indice;
+                if (idx != null) idx.quitar(idCliente);
+                return true;
+            } catch (org.hibernate.exception.ConstraintViolationException ex) {
+                if (tx != null) tx.rollback();
+                // FK (facturas) impide el delete
+                return false;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException(
+                        "No se pudo eliminar el cliente id=" + idCliente + ": " + e.getMessage(), e);
+            }
+        });
     }
 
-    // ======= Utilidades =======
+    // ======= Búsqueda por nombre =======
 
-    public boolean existe(Integer idCliente) {
-        return obtenerPorId(idCliente).isPresent();
+    /**
+     * Construye el índice de nombres en un hilo aparte, recorriendo la tabla con cursor.
+     * Desde este momento crear / actualizar / eliminar ya lo mantienen (ver IndiceClientes);
+     * llamarlo de nuevo reconstruye el índice desde cero.
+     */
+    public CompletableFuture<Void> iniciarIndice() {
+        IndiceClientes nuevo = new IndiceClientes();
+        indice = nuevo;
+        Thread t = new Thread(() -> {
+            try {
+                StreamingUtil.recorrer(sessionFactory, "select c.idCliente, c.nombre, c.apellido from Cliente c",
+                        Object[].class, StreamingUtil.LOTE_DEFAULT,
+                        r -> nuevo.cargar((Integer) r[0], (String) r[1], (String) r[2]));
+                nuevo.terminarCarga();
+            } catch (Exception e) {
+                nuevo.fallarCarga(e);
+            }
+        }, "indice-clientes");
+        t.setDaemon(true);
+        t.start();
+        return nuevo.carga();
     }
 
-    public static void shutdown() {
-        try {
-            if (SESSION_FACTORY != null) SESSION_FACTORY.close();
-        } catch (Exception ignore) {}
+    /**
+     * Los 'limite' clientes cuyo nombre / apellido mejor coinciden con 'texto': sin acentos, por prefijo
+     * y tolerando un error de tipeo por palabra. No va a la base.
+     */
+    public List<ClienteEncontrado> buscar(String texto, int limite) {
+        return M_BUSCAR.medir(() -> {
+            if (limite <= 0) throw new IllegalArgumentException("El límite debe ser > 0");
+            IndiceClientes idx = indice;
+            if (idx == null) throw new IllegalStateException("El índice de clientes no está iniciado");
+            try {
+                idx.carga().get(ESPERA_INDICE_SEG, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("El índice de clientes todavía se está construyendo; reintente en unos segundos");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("No se pudo construir el índice de clientes: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Búsqueda interrumpida", e);
+            }
+            return idx.buscar(texto, limite);
+        });
+    }
+
+    private void indexar(Cliente c) {
+        IndiceClientes idx = indice;
+        if (idx != null) idx.poner(c.getIdCliente(), c.getNombre(), c.getApellido());
+    }
+
+    // ======= Utilidades =======
+
+    /** Sonda de existencia: solo lee la clave (índice de la PK), sin hidratar el cliente. */
+    public boolean existe(Integer idCliente) {
+        return M_EXISTE.medir(() -> {
+            if (idCliente == null) return false;
+            try (Session session = sessionFactory.openSession()) {
+                return session.createSelectionQuery(
+                                "select c.idCliente from Cliente c where c.idCliente = :id", Integer.class)
+                        .setParameter("id", idCliente)
+                        .setMaxResults(1)
+                        .uniqueResultOptional()
+                        .isPresent();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo verificar el cliente id=" + idCliente + ": " + e.getMessage(), e);
+            }
+        });
     }
 }
\ No newline at end of file
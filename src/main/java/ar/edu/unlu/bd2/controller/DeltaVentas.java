@@ -0,0 +1,180 @@
+package ar.edu.unlu.bd2.controller;
+
+import ar.edu.unlu.bd2.modelo.DetalleFactura;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Deltas de los resúmenes diarios de ventas (venta_diaria_producto / venta_diaria_cliente, ver
+ * resources/sql/ventas_diarias.sql) que genera una transacción de los controllers de facturas.
+ * Cada alta, baja o cambio de cantidad de un detalle se anota; aplicar() los suma por (factura, producto)
+ * y por factura, y los escribe con un upsert en batch, en la misma transacción: si la transacción
+ * hace rollback el resumen no cambia, y nunca hay que reconciliar.
+ * El día y el cliente salen de la fila de factura en el mismo upsert (cast(fecha as date), igual que
+ * VentasController.reconstruir): no dependen de la zona horaria de la JVM ni inicializan la factura.
+ * Se aplica justo antes del commit, en orden de clave, para que las filas calientes (el día de hoy de
+ * los productos más vendidos) queden bloqueadas el menor tiempo posible y siempre en el mismo orden.
+ * Una instancia por transacción (no es thread-safe). Con bd2.ventas.activa=false no escribe nada.
+ */
+final class DeltaVentas {
+
+    /** Propiedad de hibernate.cfg.xml; requiere las tablas de ventas_diarias.sql. */
+    static final String ACTIVA = "bd2.ventas.activa";
+
+    private static final Comparator<Clave> ORDEN =
+            Comparator.comparing(Clave::idFactura).thenComparing(Clave::idProducto);
+
+    /** Un detalle anotado; los valores nuevos se leen en aplicar(), después del flush. */
+    private record Movimiento(DetalleFactura detalle, int signo, int cantidadAnterior, BigDecimal subtotalAnterior) { }
+
+    private record Clave(Integer idFactura, Integer idProducto) { }
+
+    private static final class Suma {
+        long cantidad;
+        BigDecimal importe = BigDecimal.ZERO;
+        int lineas;
+
+        void sumar(long cantidad, BigDecimal importe, int lineas) {
+            this.cantidad += cantidad;
+            this.importe = this.importe.add(importe);
+            this.lineas += lineas;
+        }
+
+        boolean vacia() {
+            return cantidad == 0 && lineas == 0 && importe.signum() == 0;
+        }
+    }
+
+    private final List<Movimiento> movimientos = new ArrayList<>(4);
+
+    /** Detalle dado de alta (persist); subtotal y precio los completa el trigger. */
+    void alta(DetalleFactura det) {
+        movimientos.add(new Movimiento(det, 1, 0, null));
+    }
+
+    /** Detalle borrado; hay que anotarlo con sus valores ya cargados. */
+    void baja(DetalleFactura det) {
+        movimientos.add(new Movimiento(det, -1, 0, null));
+    }
+
+    /** Cambio de cantidad en el lugar: 'det' queda con los valores nuevos después del flush/refresh. */
+    void cambio(DetalleFactura det, int cantidadAnterior, BigDecimal subtotalAnterior) {
+        movimientos.add(new Movimiento(det, 0, cantidadAnterior, subtotalAnterior));
+    }
+
+    static boolean activa(SessionFactory sf) {
+        return Boolean.parseBoolean(String.valueOf(sf.getProperties().get(ACTIVA)));
+    }
+
+    /**
+     * Escribe los deltas acumulados. Llamar dentro de la transacción, antes del commit y mientras
+     * exista la fila de la factura (al borrar una factura, antes del remove).
+     */
+    void aplicar(Session session) {
+        if (movimientos.isEmpty() || !activa(session.getSessionFactory())) return;
+        session.flush(); // INSERT/UPDATE pendientes (los subtotales ya los leyó ValoresCalculados)
+
+        Map<Clave, Suma> productos = new TreeMap<>(ORDEN);
+        Map<Clave, Suma> clientes = new TreeMap<>(ORDEN);
+        for (Movimiento m : movimientos) {
+            DetalleFactura d = m.detalle();
+            long cantidad;
+            BigDecimal importe;
+            int lineas;
+            if (m.signo() == 0) {
+                cantidad = d.getCantidad() - m.cantidadAnterior();
+                importe = d.getSubtotal().subtract(m.subtotalAnterior());
+                lineas = 0;
+            } else {
+                cantidad = (long) m.signo() * d.getCantidad();
+                importe = m.signo() > 0 ? d.getSubtotal() : d.getSubtotal().negate();
+                lineas = m.signo();
+            }
+            Integer idFactura = d.getId().getIdFactura();
+            productos.computeIfAbsent(new Clave(idFactura, d.getId().getIdProducto()), k -> new Suma())
+                    .sumar(cantidad, importe, lineas);
+            clientes.computeIfAbsent(new Clave(idFactura, 0), k -> new Suma())
+                    .sumar(cantidad, importe, lineas);
+        }
+        movimientos.clear();
+
+        boolean mysql = session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof MySQLDialect;
+        session.doWork(conn -> {
+            escribir(conn, "venta_diaria_producto", "id_producto", "?", productos, mysql);
+            escribir(conn, "venta_diaria_cliente", "id_cliente", "f.id_cliente", clientes, mysql);
+        });
+    }
+
+    /**
+     * Upsert de cada suma no nula. 'id' es la expresión de la columna clave: el producto llega como
+     * parámetro, el cliente se lee de la factura.
+     */
+    private static void escribir(Connection conn, String tabla, String columna, String id,
+                                 Map<Clave, Suma> sumas, boolean mysql) throws SQLException {
+        boolean porParametro = "?".equals(id);
+        // H2 necesita el tipo de cada parámetro del SELECT; el CAST de MariaDB no acepta BIGINT y no hace falta
+        String clave = porParametro ? parametro("integer", mysql) : id;
+        String fila = "select cast(f.fecha as date) dia, " + clave + " id, " +
+                parametro("bigint", mysql) + " cantidad, " + parametro("decimal(14,2)", mysql) + " importe, " +
+                parametro("integer", mysql) + " lineas from factura f where f.id_factura = ?";
+        String upsert = mysql
+                ? "insert into " + tabla + " (dia, " + columna + ", cantidad, importe, lineas) " + fila + " " +
+                  "on duplicate key update cantidad = " + tabla + ".cantidad + values(cantidad), " +
+                  "importe = " + tabla + ".importe + values(importe), lineas = " + tabla + ".lineas + values(lineas)"
+                // SQL estándar (H2 en los benchmarks)
+                : "merge into " + tabla + " t using (" + fila + ") v " +
+                  "on t.dia = v.dia and t." + columna + " = v.id " +
+                  "when matched then update set cantidad = t.cantidad + v.cantidad, " +
+                  "importe = t.importe + v.importe, lineas = t.lineas + v.lineas " +
+                  "when not matched then insert (dia, " + columna + ", cantidad, importe, lineas) " +
+                  "values (v.dia, v.id, v.cantidad, v.importe, v.lineas)";
+        boolean hayBajas = false;
+        try (PreparedStatement ps = conn.prepareStatement(upsert)) {
+            for (Map.Entry<Clave, Suma> e : sumas.entrySet()) {
+                Suma s = e.getValue();
+                if (s.vacia()) continue;
+                hayBajas |= s.lineas < 0;
+                int i = 1;
+                if (porParametro) ps.setInt(i++, e.getKey().idProducto());
+                ps.setLong(i++, s.cantidad);
+                ps.setBigDecimal(i++, s.importe);
+                ps.setInt(i++, s.lineas);
+                ps.setInt(i, e.getKey().idFactura());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        if (!hayBajas) return;
+        // Sin líneas la fila sobra: así el resumen queda igual al que arma VentasController.reconstruir
+        try (PreparedStatement ps = conn.prepareStatement(
+                "delete from " + tabla + " where lineas = 0 and (dia, " + columna + ") in (" +
+                        "select cast(f.fecha as date), " + clave + " " +
+                        "from factura f where f.id_factura = ?)")) {
+            for (Map.Entry<Clave, Suma> e : sumas.entrySet()) {
+                if (e.getValue().lineas >= 0) continue;
+                int i = 1;
+                if (porParametro) ps.setInt(i++, e.getKey().idProducto());
+                ps.setInt(i, e.getKey().idFactura());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static String parametro(String tipo, boolean mysql) {
+        return mysql ? "?" : "cast(? as " + tipo + ")";
+    }
+}
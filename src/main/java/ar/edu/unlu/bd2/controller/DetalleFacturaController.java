@@ -1,151 +1,207 @@
 package ar.edu.unlu.bd2.controller;
 
+import ar.edu.unlu.bd2.catalogo.CacheProductos;
+import ar.edu.unlu.bd2.metricas.Medidor;
+import ar.edu.unlu.bd2.metricas.Metricas;
 import ar.edu.unlu.bd2.modelo.DetalleFactura;
 import ar.edu.unlu.bd2.modelo.DetalleFacturaId;
 import ar.edu.unlu.bd2.modelo.Factura;
 import ar.edu.unlu.bd2.modelo.Producto;
+import ar.edu.unlu.bd2.util.CacheUtil;
+import ar.edu.unlu.bd2.util.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
-import org.hibernate.cfg.Configuration;
 
 import java.util.List;
 import java.util.Optional;
 
 public class DetalleFacturaController {
 
-    // ======= SessionFactory único por clase (mismo criterio que los otros controllers) =======
-    private static final SessionFactory SESSION_FACTORY = buildSessionFactory();
+    // ======= Métricas por operación (JMX / Prometheus, ver Metricas) =======
+    private static final Medidor M_CREAR = Metricas.medidor("detalle.crear");
+    private static final Medidor M_OBTENER = Metricas.medidor("detalle.obtener");
+    private static final Medidor M_LISTAR = Metricas.medidor("detalle.listarPorFactura");
+    private static final Medidor M_CANTIDAD = Metricas.medidor("detalle.actualizarCantidad");
+    private static final Medidor M_REEMPLAZAR = Metricas.medidor("detalle.reemplazarProducto");
+    private static final Medidor M_ELIMINAR = Metricas.medidor("detalle.eliminar");
+    private static final Medidor M_LINEAS = Metricas.medidor("detalle.listarLineas");
+
+    // ======= SessionFactory compartido (lo inyecta App) =======
+    private final SessionFactory sessionFactory;
+    // Rechaza sin ir a la BD productos inexistentes o inactivos (la comparte con ProductoController, que la mantiene)
+    private final CacheProductos cacheProductos;
+
+    public DetalleFacturaController(SessionFactory sessionFactory) {
+        this(sessionFactory, CacheProductos.desactivada());
+    }
 
-    private static SessionFactory buildSessionFactory() {
-        try {
-            return new Configuration().configure().buildSessionFactory();
-        } catch (Throwable ex) {
-            throw new ExceptionInInitializerError("Error creando SessionFactory: " + ex.getMessage());
-        }
+    public DetalleFacturaController(SessionFactory sessionFactory, CacheProductos cacheProductos) {
+        this.sessionFactory = sessionFactory;
+        this.cacheProductos = cacheProductos;
+    }
+
+    // Modo usado por actualizarCantidad(idFactura, idProducto, cantidad); por defecto DELETE + INSERT
+    private volatile ModoActualizacionCantidad modoActualizacionCantidad = ModoActualizacionCantidad.REEMPLAZO;
+
+    public ModoActualizacionCantidad getModoActualizacionCantidad() { return modoActualizacionCantidad; }
+    public void setModoActualizacionCantidad(ModoActualizacionCantidad modo) {
+        if (modo == null) throw new IllegalArgumentException("El modo no puede ser nulo");
+        this.modoActualizacionCantidad = modo;
     }
 
     // ======= CRUD / Operaciones principales =======
 
     /** Crea un detalle para (idFactura, idProducto) con 'cantidad'. Triggers de BD calculan precio y subtotal. */
     public DetalleFactura crear(Integer idFactura, Integer idProducto, int cantidad) {
-        if (cantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
-
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-
-            Factura factura = session.get(Factura.class, idFactura);
-            if (factura == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("Factura inexistente id=" + idFactura);
-            }
-
-            Producto producto = session.get(Producto.class, idProducto);
-            if (producto == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("Producto inexistente id=" + idProducto);
-            }
-            if (Boolean.FALSE.equals(producto.getActivo())) {
-                tx.rollback();
-                throw new IllegalStateException("Producto inactivo id=" + idProducto);
+        return M_CREAR.medir(() -> {
+            if (cantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
+            cacheProductos.verificarActivo(idProducto, "Producto");
+
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                Factura factura = session.get(Factura.class, idFactura);
+                if (factura == null) {
+                    tx.rollback();
+                    throw new IllegalArgumentException("Factura inexistente id=" + idFactura);
+                }
+
+                Producto producto = cacheProductos.activo(session, idProducto, "Producto");
+
+                // Evitar duplicado del par (factura, producto)
+                DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
+                if (session.get(DetalleFactura.class, pk) != null) {
+                    tx.rollback();
+                    throw new IllegalStateException("Ya existe un detalle para ese producto en la factura");
+                }
+
+                DetalleFactura det = new DetalleFactura(factura, producto, cantidad);
+                ValoresCalculados.insertar(session, det);
+
+                DeltaVentas ventas = new DeltaVentas();
+                ventas.alta(det);
+                ventas.aplicar(session);
+                Outbox outbox = new Outbox();
+                outbox.alta(det);
+                outbox.aplicar(session);
+                tx.commit();
+                CacheUtil.evictarProducto(sessionFactory, idProducto);
+                return det;
+            } catch (RuntimeException e) {
+                if (tx != null) tx.rollback();
+                throw e;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException(
+                        "No se pudo crear el detalle (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
             }
-
-            // Evitar duplicado del par (factura, producto)
-            DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
-            if (session.get(DetalleFactura.class, pk) != null) {
-                tx.rollback();
-                throw new IllegalStateException("Ya existe un detalle para ese producto en la factura");
-            }
-
-            DetalleFactura det = new DetalleFactura(factura, producto, cantidad);
-            session.persist(det);
-
-            // <-- IMPORTANTE: traer campos calculados por triggers (precio_unitario, subtotal)
-            session.flush();
-            session.refresh(det);
-
-            tx.commit();
-            return det;
-        } catch (RuntimeException e) {
-            if (tx != null) tx.rollback();
-            throw e;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException(
-                    "No se pudo crear el detalle (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
-        }
+        });
     }
 
     /** Obtiene un detalle por clave compuesta. */
     public Optional<DetalleFactura> obtener(Integer idFactura, Integer idProducto) {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
-            DetalleFactura d = session.get(DetalleFactura.class, pk);
-            return Optional.ofNullable(d);
-        } catch (Exception e) {
-            throw new RuntimeException(
-                    "No se pudo obtener el detalle (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
-        }
+        return M_OBTENER.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
+                DetalleFactura d = session.get(DetalleFactura.class, pk);
+                return Optional.ofNullable(d);
+            } catch (Exception e) {
+                throw new RuntimeException(
+                        "No se pudo obtener el detalle (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
+            }
+        });
     }
 
     /** Lista todos los detalles de una factura (con producto y factura inicializados). */
     public List<DetalleFactura> listarPorFactura(Integer idFactura) {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            return session.createQuery(
-                            "select d from DetalleFactura d " +
-                                    "join fetch d.producto " +
-                                    "join fetch d.factura " +
-                                    "where d.factura.idFactura = :fid " +
-                                    "order by d.producto.idProducto",
-                            DetalleFactura.class)
-                    .setParameter("fid", idFactura)
-                    .getResultList();
-        } catch (Exception e) {
-            throw new RuntimeException("No se pudieron listar los detalles de la factura " + idFactura + ": " + e.getMessage(), e);
-        }
+        return M_LISTAR.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                return session.createQuery(
+                                "select d from DetalleFactura d " +
+                                        "join fetch d.producto " +
+                                        "join fetch d.factura " +
+                                        "where d.factura.idFactura = :fid " +
+                                        "order by d.producto.idProducto",
+                                DetalleFactura.class)
+                        .setParameter("fid", idFactura)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron listar los detalles de la factura " + idFactura + ": " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
-     * Actualiza la cantidad del detalle. Implementado como DELETE + INSERT para
-     * respetar el flujo de triggers del profe (recalcula stock, subtotal y total).
+     * Actualiza la cantidad del detalle usando el modo configurado (ver setModoActualizacionCantidad).
+     * Por defecto es DELETE + INSERT para respetar el flujo de triggers del profe
+     * (recalcula stock, subtotal y total).
      */
     public DetalleFactura actualizarCantidad(Integer idFactura, Integer idProducto, int nuevaCantidad) {
-        if (nuevaCantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
-
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
+        return actualizarCantidad(idFactura, idProducto, nuevaCantidad, modoActualizacionCantidad);
+    }
 
-            DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
-            DetalleFactura existente = session.get(DetalleFactura.class, pk);
-            if (existente == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("Detalle inexistente (factura=" + idFactura + ", producto=" + idProducto + ")");
+    /**
+     * Actualiza la cantidad del detalle con el modo indicado:
+     * REEMPLAZO (DELETE + INSERT) o UPDATE en el lugar con ajuste por delta (UPDATE_DELTA / UPDATE_TRIGGER).
+     */
+    public DetalleFactura actualizarCantidad(Integer idFactura, Integer idProducto, int nuevaCantidad,
+                                             ModoActualizacionCantidad modo) {
+        return M_CANTIDAD.medir(() -> {
+            if (nuevaCantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
+            if (modo == null) throw new IllegalArgumentException("El modo no puede ser nulo");
+
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
+                DetalleFactura existente = session.get(DetalleFactura.class, pk);
+                if (existente == null) {
+                    tx.rollback();
+                    throw new IllegalArgumentException("Detalle inexistente (factura=" + idFactura + ", producto=" + idProducto + ")");
+                }
+
+                DeltaVentas ventas = new DeltaVentas();
+                Outbox outbox = new Outbox();
+                int cantidadAnterior = existente.getCantidad();
+                if (modo != ModoActualizacionCantidad.REEMPLAZO) {
+                    ventas.cambio(existente, existente.getCantidad(), existente.getSubtotal());
+                    ActualizacionEnLugar.aplicar(session, existente, nuevaCantidad, modo);
+                    ventas.aplicar(session);
+                    if (nuevaCantidad != cantidadAnterior) outbox.cambio(existente, cantidadAnterior);
+                    outbox.aplicar(session);
+                    tx.commit();
+                    CacheUtil.evictarProducto(sessionFactory, idProducto);
+                    return existente;
+                }
+
+                Factura factura = existente.getFactura();
+                Producto producto = existente.getProducto();
+
+                session.remove(existente);   // triggers devuelven stock y recalculan total
+
+                DetalleFactura nuevo = new DetalleFactura(factura, producto, nuevaCantidad);
+                ValoresCalculados.insertar(session, nuevo);
+
+                ventas.baja(existente);
+                ventas.alta(nuevo);
+                ventas.aplicar(session);
+                outbox.cambio(nuevo, cantidadAnterior);
+                outbox.aplicar(session);
+                tx.commit();
+                CacheUtil.evictarProducto(sessionFactory, idProducto);
+                return nuevo;
+            } catch (RuntimeException e) {
+                if (tx != null) tx.rollback();
+                throw e;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException(
+                        "No se pudo actualizar la cantidad (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
             }
-
-            Factura factura = existente.getFactura();
-            Producto producto = existente.getProducto();
-
-            session.remove(existente);   // triggers devuelven stock y recalculan total
-
-            DetalleFactura nuevo = new DetalleFactura(factura, producto, nuevaCantidad);
-            session.persist(nuevo);
-
-            // refrescar para ver valores calculados por triggers
-            session.flush();
-            session.refresh(nuevo);
-
-            tx.commit();
-            return nuevo;
-        } catch (RuntimeException e) {
-            if (tx != null) tx.rollback();
-            throw e;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException(
-                    "No se pudo actualizar la cantidad (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
-        }
+        });
     }
 
     /**
@@ -153,84 +209,101 @@ public class DetalleFacturaController {
      * Evita duplicar si ya existe un detalle con el producto nuevo.
      */
     public DetalleFactura reemplazarProducto(Integer idFactura, Integer idProductoActual, Integer idProductoNuevo, int cantidadNueva) {
-        if (cantidadNueva <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
-
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-
-            DetalleFacturaId pkViejo = new DetalleFacturaId(idFactura, idProductoActual);
-            DetalleFactura viejo = session.get(DetalleFactura.class, pkViejo);
-            if (viejo == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("No existe detalle a reemplazar (factura=" + idFactura + ", producto=" + idProductoActual + ")");
+        return M_REEMPLAZAR.medir(() -> {
+            if (cantidadNueva <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
+            cacheProductos.verificarActivo(idProductoNuevo, "Producto nuevo");
+
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                DetalleFacturaId pkViejo = new DetalleFacturaId(idFactura, idProductoActual);
+                DetalleFactura viejo = session.get(DetalleFactura.class, pkViejo);
+                if (viejo == null) {
+                    tx.rollback();
+                    throw new IllegalArgumentException("No existe detalle a reemplazar (factura=" + idFactura + ", producto=" + idProductoActual + ")");
+                }
+
+                // Evitar duplicados con el nuevo producto
+                DetalleFacturaId pkNuevo = new DetalleFacturaId(idFactura, idProductoNuevo);
+                if (session.get(DetalleFactura.class, pkNuevo) != null) {
+                    tx.rollback();
+                    throw new IllegalStateException("La factura ya tiene un detalle para el producto nuevo " + idProductoNuevo);
+                }
+
+                Producto nuevoProd = cacheProductos.activo(session, idProductoNuevo, "Producto nuevo");
+
+                Factura factura = viejo.getFactura();
+
+                session.remove(viejo); // triggers devuelven stock y recalculan
+                DetalleFactura nuevo = new DetalleFactura(factura, nuevoProd, cantidadNueva);
+                ValoresCalculados.insertar(session, nuevo); // triggers descuentan y recalculan
+
+                DeltaVentas ventas = new DeltaVentas();
+                ventas.baja(viejo);
+                ventas.alta(nuevo);
+                ventas.aplicar(session);
+                Outbox outbox = new Outbox();
+                outbox.reemplazo(viejo, nuevo);
+                outbox.aplicar(session);
+                tx.commit();
+                CacheUtil.evictarProductos(sessionFactory, List.of(idProductoActual, idProductoNuevo));
+                return nuevo;
+            } catch (RuntimeException e) {
+                if (tx != null) tx.rollback();
+                throw e;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException(
+                        "No se pudo reemplazar el producto del detalle (factura=" + idFactura + ", prodViejo=" + idProductoActual + ", prodNuevo=" + idProductoNuevo + "): " + e.getMessage(), e);
             }
-
-            // Evitar duplicados con el nuevo producto
-            DetalleFacturaId pkNuevo = new DetalleFacturaId(idFactura, idProductoNuevo);
-            if (session.get(DetalleFactura.class, pkNuevo) != null) {
-                tx.rollback();
-                throw new IllegalStateException("La factura ya tiene un detalle para el producto nuevo " + idProductoNuevo);
-            }
-
-            Producto nuevoProd = session.get(Producto.class, idProductoNuevo);
-            if (nuevoProd == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("Producto nuevo inexistente id=" + idProductoNuevo);
-            }
-            if (Boolean.FALSE.equals(nuevoProd.getActivo())) {
-                tx.rollback();
-                throw new IllegalStateException("Producto nuevo inactivo id=" + idProductoNuevo);
-            }
-
-            Factura factura = viejo.getFactura();
-
-            session.remove(viejo); // triggers devuelven stock y recalculan
-            DetalleFactura nuevo = new DetalleFactura(factura, nuevoProd, cantidadNueva);
-            session.persist(nuevo); // triggers descuentan y recalculan
-
-            // refrescar para ver valores calculados
-            session.flush();
-            session.refresh(nuevo);
-
-            tx.commit();
-            return nuevo;
-        } catch (RuntimeException e) {
-            if (tx != null) tx.rollback();
-            throw e;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException(
-                    "No se pudo reemplazar el producto del detalle (factura=" + idFactura + ", prodViejo=" + idProductoActual + ", prodNuevo=" + idProductoNuevo + "): " + e.getMessage(), e);
-        }
+        });
     }
 
     /** Elimina un detalle (factura, producto). */
     public boolean eliminar(Integer idFactura, Integer idProducto) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-
-            DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
-            DetalleFactura det = session.get(DetalleFactura.class, pk);
-            if (det == null) {
-                tx.rollback();
-                return false;
+        return M_ELIMINAR.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
+                DetalleFactura det = session.get(DetalleFactura.class, pk);
+                if (det == null) {
+                    tx.rollback();
+                    return false;
+                }
+
+                session.remove(det); // triggers devuelven stock y recalculan total
+                DeltaVentas ventas = new DeltaVentas();
+                ventas.baja(det);
+                ventas.aplicar(session);
+                Outbox outbox = new Outbox();
+                outbox.baja(det);
+                outbox.aplicar(session);
+                tx.commit();
+                CacheUtil.evictarProducto(sessionFactory, idProducto);
+                return true;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException(
+                        "No se pudo eliminar el detalle (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
             }
-
-            session.remove(det); // triggers devuelven stock y recalculan total
-            tx.commit();
-            return true;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException(
-                    "No se pudo eliminar el detalle (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
-        }
+        });
     }
 
-    public static void shutdown() {
-        try {
-            if (SESSION_FACTORY != null) SESSION_FACTORY.close();
-        } catch (Exception ignore) {}
+    // ======= Proyecciones de solo lectura (listados de las vistas) =======
+
+    /** Líneas de la factura con el nombre del producto, en una consulta y sin entidades. */
+    public List<DetalleLinea> listarLineas(Integer idFactura) {
+        return M_LINEAS.medir(() -> {
+            try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+                return session.createSelectionQuery(DetalleLinea.HQL_POR_FACTURA, DetalleLinea.class)
+                        .setParameter("fid", idFactura)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron listar los detalles de la factura " + idFactura + ": " + e.getMessage(), e);
+            }
+        });
     }
 }
@@ -0,0 +1,15 @@
+package ar.edu.unlu.bd2.controller;
+
+import java.math.BigDecimal;
+
+/** Línea de factura para mostrar, con el nombre del producto (proyección: no es una entidad administrada). */
+public record DetalleLinea(Integer idFactura, Integer idProducto, String nombreProducto, Integer cantidad,
+                           BigDecimal precioUnitario, BigDecimal subtotal) {
+
+    /** Líneas de una factura (:fid) ordenadas por producto; lo usan FacturaController y DetalleFacturaController. */
+    static final String HQL_POR_FACTURA =
+            "select new ar.edu.unlu.bd2.controller.DetalleLinea(d.id.idFactura, d.id.idProducto, p.nombre, " +
+                    "d.cantidad, d.precioUnitario, d.subtotal) " +
+                    "from DetalleFactura d join d.producto p " +
+                    "where d.id.idFactura = :fid order by d.id.idProducto";
+}
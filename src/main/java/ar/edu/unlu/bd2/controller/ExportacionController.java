@@ -0,0 +1,261 @@
+package ar.edu.unlu.bd2.controller;
+
+import ar.edu.unlu.bd2.util.StreamingUtil;
+import org.hibernate.SessionFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación de facturas con sus líneas (para contabilidad) sin N+1 y con memoria acotada.
+ * Un solo SELECT factura LEFT JOIN factura_detalle ordenado por factura, recorrido con cursor
+ * forward-only (StreamingUtil): las líneas se agrupan por factura al vuelo y se escriben apenas
+ * cambia el id, así en memoria solo está la factura en curso.
+ * La salida va por un FileChannel con buffer (y gzip opcional).
+ * exportarParalelo parte el rango de fechas en segmentos y escribe cada uno en su archivo; el filtro
+ * por fecha de cada segmento usa el índice de sql/idx_factura_fecha.sql.
+ */
+public class ExportacionController {
+
+    /** Hilos máximos de exportarParalelo: cada segmento ocupa una conexión del pool (máx. 10). */
+    public static final int MAX_HILOS = 4;
+
+    private static final int BUFFER = 1 << 16;
+
+    private static final String HQL =
+            "select f.idFactura, f.cliente.idCliente, f.fecha, f.total, " +
+                    "d.id.idProducto, d.cantidad, d.precioUnitario, d.subtotal " +
+                    "from Factura f left join f.detalles d " +
+                    "where f.fecha >= :desde and f.fecha < :hasta " +
+                    "order by f.idFactura, d.id.idProducto";
+
+    private final SessionFactory sessionFactory;
+
+    public ExportacionController(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Exporta las facturas con fecha en [desde, hasta) a un único archivo.
+     * Con gzip se agrega ".gz" al nombre si no lo tiene.
+     */
+    public ResultadoExportacion exportar(LocalDate desde, LocalDate hasta, Path destino,
+                                         FormatoExportacion formato, boolean gzip) {
+        validarRango(desde, hasta);
+        if (destino == null || formato == null) throw new IllegalArgumentException("Faltan destino o formato");
+        long t0 = System.nanoTime();
+        Segmento s = exportarSegmento(desde, hasta, conGz(destino, gzip), formato, gzip);
+        return new ResultadoExportacion(List.of(s.archivo), s.facturas, s.lineas, s.bytes, System.nanoTime() - t0);
+    }
+
+    /**
+     * Exporta [desde, hasta) en 'segmentos' rangos de días consecutivos, cada uno en su archivo
+     * (facturas_AAAA-MM-DD_AAAA-MM-DD.ext dentro de 'directorio'), con hasta MAX_HILOS en paralelo.
+     */
+    public ResultadoExportacion exportarParalelo(LocalDate desde, LocalDate hasta, Path directorio,
+                                                 FormatoExportacion formato, boolean gzip, int segmentos) {
+        validarRango(desde, hasta);
+        if (directorio == null || formato == null) throw new IllegalArgumentException("Faltan directorio o formato");
+        if (segmentos <= 0) throw new IllegalArgumentException("Los segmentos deben ser > 0");
+        long dias = ChronoUnit.DAYS.between(desde, hasta);
+        int n = (int) Math.min(segmentos, dias);
+
+        long t0 = System.nanoTime();
+        try {
+            Files.createDirectories(directorio);
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo crear el directorio " + directorio + ": " + e.getMessage(), e);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(n, MAX_HILOS));
+        try {
+            List<Future<Segmento>> futuros = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                LocalDate d = desde.plusDays(dias * i / n);
+                LocalDate h = desde.plusDays(dias * (i + 1) / n);
+                Path archivo = conGz(directorio.resolve("facturas_" + d + "_" + h + formato.extension()), gzip);
+                futuros.add(pool.submit(() -> exportarSegmento(d, h, archivo, formato, gzip)));
+            }
+            List<Path> archivos = new ArrayList<>(n);
+            long facturas = 0, lineas = 0, bytes = 0;
+            for (Future<Segmento> f : futuros) {
+                Segmento s = f.get();
+                archivos.add(s.archivo);
+                facturas += s.facturas;
+                lineas += s.lineas;
+                bytes += s.bytes;
+            }
+            return new ResultadoExportacion(archivos, facturas, lineas, bytes, System.nanoTime() - t0);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException re) throw re;
+            throw new RuntimeException("No se pudo exportar facturas: " + causa.getMessage(), causa);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Exportación interrumpida", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // ======= Un segmento =======
+
+    private record Segmento(Path archivo, long facturas, long lineas, long bytes) { }
+
+    private Segmento exportarSegmento(LocalDate desde, LocalDate hasta, Path archivo,
+                                      FormatoExportacion formato, boolean gzip) {
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream os = Channels.newOutputStream(ch);
+            if (gzip) os = new GZIPOutputStream(os, BUFFER);
+            Escritor esc = new Escritor(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER), formato);
+            try (esc) {
+                esc.encabezado();
+                StreamingUtil.recorrer(sessionFactory, HQL, Object[].class,
+                        Map.of("desde", desde.atStartOfDay(), "hasta", hasta.atStartOfDay()),
+                        StreamingUtil.LOTE_DEFAULT, esc::fila);
+                esc.cerrarFactura();
+            }
+            return new Segmento(archivo, esc.facturas, esc.lineas, Files.size(archivo));
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("No se pudo exportar a " + archivo + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Agrupa las filas del join por factura y las escribe. No es thread-safe (uno por segmento).
+     * Solo retiene las líneas de la factura en curso.
+     */
+    private static final class Escritor implements Closeable {
+        private final Writer out;
+        private final FormatoExportacion formato;
+        private final StringBuilder sb = new StringBuilder(256);
+        private final List<Object[]> detalles = new ArrayList<>();
+        private Object[] factura;
+        private long facturas, lineas;
+
+        Escritor(Writer out, FormatoExportacion formato) {
+            this.out = out;
+            this.formato = formato;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        void encabezado() throws IOException {
+            if (formato == FormatoExportacion.CSV) {
+                out.write("id_factura,id_cliente,fecha,total,id_producto,cantidad,precio_unitario,subtotal\n");
+            }
+        }
+
+        void fila(Object[] r) {
+            try {
+                if (factura != null && !factura[0].equals(r[0])) cerrarFactura();
+                if (factura == null) factura = r;
+                if (r[4] != null) detalles.add(r);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** Escribe la factura en curso (si hay) y libera sus líneas. */
+        void cerrarFactura() throws IOException {
+            if (factura == null) return;
+            if (formato == FormatoExportacion.CSV) csv();
+            else jsonl();
+            facturas++;
+            lineas += detalles.size();
+            factura = null;
+            detalles.clear();
+        }
+
+        private void csv() throws IOException {
+            if (detalles.isEmpty()) {
+                sb.setLength(0);
+                cabeceraCsv();
+                sb.append(",,,\n");
+                out.append(sb);
+                return;
+            }
+            for (Object[] d : detalles) {
+                sb.setLength(0);
+                cabeceraCsv();
+                sb.append(',').append(d[4]).append(',').append(d[5])
+                        .append(',').append(num(d[6])).append(',').append(num(d[7])).append('\n');
+                out.append(sb);
+            }
+        }
+
+        private void cabeceraCsv() {
+            sb.append(factura[0]).append(',').append(factura[1]).append(',')
+                    .append(fecha(factura[2])).append(',').append(num(factura[3]));
+        }
+
+        private void jsonl() throws IOException {
+            sb.setLength(0);
+            sb.append("{\"id_factura\":").append(factura[0])
+                    .append(",\"id_cliente\":").append(factura[1])
+                    .append(",\"fecha\":\"").append(fecha(factura[2])).append('"')
+                    .append(",\"total\":").append(numJson(factura[3]))
+                    .append(",\"detalles\":[");
+            for (int i = 0; i < detalles.size(); i++) {
+                Object[] d = detalles.get(i);
+                if (i > 0) sb.append(',');
+                sb.append("{\"id_producto\":").append(d[4])
+                        .append(",\"cantidad\":").append(d[5])
+                        .append(",\"precio_unitario\":").append(numJson(d[6]))
+                        .append(",\"subtotal\":").append(numJson(d[7])).append('}');
+            }
+            sb.append("]}\n");
+            out.append(sb);
+        }
+
+        private static String fecha(Object f) {
+            return f == null ? "" : ((LocalDateTime) f).toString();
+        }
+
+        private static String num(Object v) {
+            return v == null ? "" : ((BigDecimal) v).toPlainString();
+        }
+
+        private static String numJson(Object v) {
+            return v == null ? "null" : ((BigDecimal) v).toPlainString();
+        }
+    }
+
+    // ======= Helpers =======
+
+    private static void validarRango(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null) throw new IllegalArgumentException("El rango de fechas es obligatorio");
+        if (!desde.isBefore(hasta)) throw new IllegalArgumentException("'desde' debe ser anterior a 'hasta'");
+    }
+
+    private static Path conGz(Path p, boolean gzip) {
+        if (!gzip || p.getFileName().toString().endsWith(".gz")) return p;
+        return p.resolveSibling(p.getFileName() + ".gz");
+    }
+}
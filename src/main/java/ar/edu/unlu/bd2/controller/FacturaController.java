@@ -1,196 +1,490 @@
 package ar.edu.unlu.bd2.controller;
 
+import ar.edu.unlu.bd2.catalogo.CacheProductos;
+import ar.edu.unlu.bd2.metricas.Medidor;
+import ar.edu.unlu.bd2.metricas.Metricas;
 import ar.edu.unlu.bd2.modelo.*;
+import ar.edu.unlu.bd2.util.CacheUtil;
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import ar.edu.unlu.bd2.util.StreamingUtil;
+import jakarta.persistence.EntityGraph;
 import org.hibernate.Hibernate;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
-import org.hibernate.cfg.Configuration;
+import org.hibernate.graph.GraphSemantic;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class FacturaController {
 
-    // ======= SessionFactory único por clase (simple, estilo del profe) =======
-    private static final SessionFactory SESSION_FACTORY = buildSessionFactory();
+    // ======= Métricas por operación (JMX / Prometheus, ver Metricas) =======
+    private static final Medidor M_CREAR = Metricas.medidor("factura.crearParaCliente");
+    private static final Medidor M_CREAR_COMPLETA = Metricas.medidor("factura.crearFacturaCompleta");
+    private static final Medidor M_OBTENER = Metricas.medidor("factura.obtenerPorId");
+    private static final Medidor M_OBTENER_COMPLETA = Metricas.medidor("factura.obtenerCompleta");
+    private static final Medidor M_OBTENER_COMPLETAS = Metricas.medidor("factura.obtenerCompletas");
+    private static final Medidor M_LISTAR = Metricas.medidor("factura.listarTodas");
+    private static final Medidor M_LISTAR_PAGINA = Metricas.medidor("factura.listarPagina");
+    private static final Medidor M_RECORRER = Metricas.medidor("factura.recorrerTodas");
+    private static final Medidor M_LISTAR_CLIENTE = Metricas.medidor("factura.listarPorCliente");
+    private static final Medidor M_ELIMINAR = Metricas.medidor("factura.eliminar");
+    private static final Medidor M_AGREGAR_DETALLE = Metricas.medidor("factura.agregarDetalle");
+    private static final Medidor M_CANTIDAD = Metricas.medidor("factura.actualizarCantidad");
+    private static final Medidor M_REEMPLAZAR = Metricas.medidor("factura.reemplazarProducto");
+    private static final Medidor M_ELIMINAR_DETALLE = Metricas.medidor("factura.eliminarDetalle");
+    private static final Medidor M_LISTAR_DETALLES = Metricas.medidor("factura.listarDetalles");
+    private static final Medidor M_RESUMENES = Metricas.medidor("factura.listarResumenes");
+    private static final Medidor M_RESUMENES_CLIENTE = Metricas.medidor("factura.listarResumenesPorCliente");
+    private static final Medidor M_LINEAS = Metricas.medidor("factura.listarLineas");
+
+    // ======= SessionFactory compartido (lo inyecta App) =======
+    private final SessionFactory sessionFactory;
+    // Rechaza sin ir a la BD productos inexistentes o inactivos (la comparte con ProductoController, que la mantiene)
+    private final CacheProductos cacheProductos;
+
+    public FacturaController(SessionFactory sessionFactory) {
+        this(sessionFactory, CacheProductos.desactivada());
+    }
+
+    public FacturaController(SessionFactory sessionFactory, CacheProductos cacheProductos) {
+        this.sessionFactory = sessionFactory;
+        this.cacheProductos = cacheProductos;
+    }
+
+    // Máximo de ids por consulta en obtenerCompletas (acota la lista del IN y el tamaño del resultado)
+    private static final int LOTE_COMPLETAS = 200;
+
+    // Modo usado por actualizarCantidad(idFactura, idProducto, cantidad); por defecto DELETE + INSERT
+    private volatile ModoActualizacionCantidad modoActualizacionCantidad = ModoActualizacionCantidad.REEMPLAZO;
 
-    private static SessionFactory buildSessionFactory() {
-        try {
-            return new Configuration().configure().buildSessionFactory();
-        } catch (Throwable ex) {
-            throw new ExceptionInInitializerError("Error creando SessionFactory: " + ex.getMessage());
-        }
+    public ModoActualizacionCantidad getModoActualizacionCantidad() { return modoActualizacionCantidad; }
+    public void setModoActualizacionCantidad(ModoActualizacionCantidad modo) {
+        if (modo == null) throw new IllegalArgumentException("El modo no puede ser nulo");
+        this.modoActualizacionCantidad = modo;
     }
 
     // ======= CRUD Factura =======
 
     /** Crea una factura vacía para un cliente existente. */
     public Factura crearParaCliente(Integer idCliente) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-
-            Cliente cliente = session.get(Cliente.class, idCliente);
-            if (cliente == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("Cliente inexistente id=" + idCliente);
+        return M_CREAR.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                Cliente cliente = session.get(Cliente.class, idCliente);
+                if (cliente == null) {
+                    tx.rollback();
+                    throw new IllegalArgumentException("Cliente inexistente id=" + idCliente);
+                }
+
+                Factura f = new Factura(cliente);
+                session.persist(f);
+
+                Outbox outbox = new Outbox();
+                outbox.facturaCreada(f);
+                outbox.aplicar(session);
+                tx.commit();
+                return f;
+            } catch (RuntimeException e) {
+                if (tx != null) tx.rollback();
+                throw e;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException("No se pudo crear la factura para cliente " + idCliente + ": " + e.getMessage(), e);
             }
+        });
+    }
+
+    /** Línea pedida al crear una factura completa: producto + cantidad. */
+    public record Linea(Integer idProducto, int cantidad) { }
 
-            Factura f = new Factura(cliente);
-            session.persist(f);
-
-            tx.commit();
-            return f;
-        } catch (RuntimeException e) {
-            if (tx != null) tx.rollback();
-            throw e;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException("No se pudo crear la factura para cliente " + idCliente + ": " + e.getMessage(), e);
-        }
+    /**
+     * Crea una factura con todas sus líneas en UNA transacción.
+     * CacheProductos rechaza antes de abrir la transacción los productos que sabe inexistentes o inactivos;
+     * el resto se confirma con una sola consulta de id y activo (in :ids) y cada línea lleva una referencia
+     * al producto. Las validaciones (activo, duplicados) se hacen en memoria y los
+     * INSERT de detalle salen en batch JDBC (hibernate.jdbc.batch_size); precio y subtotal de todas las
+     * líneas y el total de la factura se leen después con una sola consulta.
+     * Round trips: cliente + productos + insert factura + batch de detalles
+     * + valores calculados + commit.
+     */
+    public Factura crearFacturaCompleta(Integer idCliente, List<Linea> lineas) {
+        return M_CREAR_COMPLETA.medir(() -> {
+            if (lineas == null || lineas.isEmpty()) {
+                throw new IllegalArgumentException("La factura debe tener al menos una línea");
+            }
+            // Validaciones en memoria antes de abrir la transacción
+            Set<Integer> ids = new LinkedHashSet<>();
+            for (Linea l : lineas) {
+                if (l == null || l.idProducto() == null) throw new IllegalArgumentException("Línea sin producto");
+                if (l.cantidad() <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0 (producto " + l.idProducto() + ")");
+                if (!ids.add(l.idProducto())) {
+                    throw new IllegalStateException("Producto repetido en la factura: " + l.idProducto());
+                }
+                cacheProductos.verificarActivo(l.idProducto(), "Producto");
+            }
+
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                Cliente cliente = session.get(Cliente.class, idCliente);
+                if (cliente == null) {
+                    tx.rollback();
+                    throw new IllegalArgumentException("Cliente inexistente id=" + idCliente);
+                }
+
+                // La caché ya descartó los que sabe inexistentes o inactivos. Que el resto exista y esté
+                // activo se confirma en la BD (pudo desactivarse fuera de esta aplicación), en una sola
+                // consulta de id y activo; las líneas llevan una referencia, sin cargar el producto
+                Map<Integer, Boolean> activos = new HashMap<>();
+                for (Object[] r : session.createSelectionQuery(
+                                "select p.idProducto, p.activo from Producto p where p.idProducto in :ids", Object[].class)
+                        .setParameter("ids", ids)
+                        .getResultList()) {
+                    activos.put((Integer) r[0], (Boolean) r[1]);
+                }
+                Map<Integer, Producto> productos = new HashMap<>();
+                for (Integer idProducto : ids) {
+                    if (!activos.containsKey(idProducto)) {
+                        cacheProductos.noExiste(idProducto);
+                        tx.rollback();
+                        throw new IllegalArgumentException("Producto inexistente id=" + idProducto);
+                    }
+                    if (Boolean.FALSE.equals(activos.get(idProducto))) {
+                        tx.rollback();
+                        throw new IllegalStateException("Producto inactivo id=" + idProducto);
+                    }
+                    productos.put(idProducto, session.getReference(Producto.class, idProducto));
+                }
+
+                Factura f = new Factura(cliente);
+                session.persist(f); // IDENTITY: este INSERT sale en el momento
+
+                DeltaVentas ventas = new DeltaVentas();
+                Outbox outbox = new Outbox();
+                outbox.facturaCreada(f);
+                for (Linea l : lineas) {
+                    DetalleFactura det = new DetalleFactura(f, productos.get(l.idProducto()), l.cantidad());
+                    f.getDetalles().add(det);
+                    session.persist(det); // se encolan y salen en batch al flush
+                    ventas.alta(det);
+                    outbox.alta(det);
+                }
+                // Flush del batch (los triggers calculan precio/subtotal/total y descuentan stock)
+                // y lectura de precio/subtotal de todas las líneas y del total en una consulta
+                ValoresCalculados.leer(session, f, f.getDetalles());
+                ventas.aplicar(session); // resúmenes diarios
+                outbox.aplicar(session);
+
+                tx.commit();
+                CacheUtil.evictarProductos(sessionFactory, ids);
+                return f;
+            } catch (RuntimeException e) {
+                if (tx != null && tx.isActive()) tx.rollback();
+                throw e;
+            } catch (Exception e) {
+                if (tx != null && tx.isActive()) tx.rollback();
+                throw new RuntimeException("No se pudo crear la factura completa para cliente " + idCliente + ": " + e.getMessage(), e);
+            }
+        });
     }
 
     public Optional<Factura> obtenerPorId(Integer idFactura) {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            Factura f = session.get(Factura.class, idFactura);
-            if (f != null) {
-                // Evita LazyInitializationException si la vista consulta detalles.size()
-                Hibernate.initialize(f.getCliente());
-                Hibernate.initialize(f.getDetalles());
+        return M_OBTENER.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                Factura f = session.get(Factura.class, idFactura);
+                if (f != null) {
+                    // Evita LazyInitializationException si la vista consulta detalles.size()
+                    Hibernate.initialize(f.getCliente());
+                    Hibernate.initialize(f.getDetalles());
+                }
+                return Optional.ofNullable(f);
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo obtener la factura id=" + idFactura + ": " + e.getMessage(), e);
             }
-            return Optional.ofNullable(f);
-        } catch (Exception e) {
-            throw new RuntimeException("No se pudo obtener la factura id=" + idFactura + ": " + e.getMessage(), e);
-        }
+        });
+    }
+
+    /**
+     * Factura con cliente y líneas (cada una con su producto) en UNA sola consulta, usando el
+     * entity graph Factura.completa: factura join cliente left join detalles left join producto.
+     * Es lo que necesita la pantalla "ver factura" (antes: get + 2 initialize + listarDetalles).
+     */
+    public Optional<Factura> obtenerCompleta(Integer idFactura) {
+        return M_OBTENER_COMPLETA.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                return session.createSelectionQuery("from Factura f where f.idFactura = :id", Factura.class)
+                        .setParameter("id", idFactura)
+                        .setEntityGraph(grafoCompleta(session), GraphSemantic.LOAD)
+                        .uniqueResultOptional();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo obtener la factura id=" + idFactura + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Variante por lotes de obtenerCompleta: carga muchas facturas completas con una consulta cada
+     * LOTE_COMPLETAS ids (ceil(n / LOTE_COMPLETAS) consultas en total, sin N+1).
+     * @return facturas encontradas, en el orden de 'idsFactura' (los ids inexistentes no aparecen)
+     */
+    public Map<Integer, Factura> obtenerCompletas(Collection<Integer> idsFactura) {
+        return M_OBTENER_COMPLETAS.medir(() -> {
+            if (idsFactura == null) throw new IllegalArgumentException("Los ids no pueden ser nulos");
+            List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(idsFactura));
+            ids.removeIf(Objects::isNull);
+            Map<Integer, Factura> encontradas = new HashMap<>(ids.size() * 2);
+            try (Session session = sessionFactory.openSession()) {
+                EntityGraph<Factura> grafo = grafoCompleta(session);
+                for (int desde = 0; desde < ids.size(); desde += LOTE_COMPLETAS) {
+                    List<Factura> lote = session.createSelectionQuery("from Factura f where f.idFactura in :ids", Factura.class)
+                            .setParameter("ids", ids.subList(desde, Math.min(ids.size(), desde + LOTE_COMPLETAS)))
+                            .setEntityGraph(grafo, GraphSemantic.LOAD)
+                            .getResultList();
+                    for (Factura f : lote) encontradas.put(f.getIdFactura(), f);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron obtener las facturas: " + e.getMessage(), e);
+            }
+            Map<Integer, Factura> resultado = new LinkedHashMap<>(encontradas.size() * 2);
+            for (Integer id : ids) {
+                Factura f = encontradas.get(id);
+                if (f != null) resultado.put(id, f);
+            }
+            return resultado;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static EntityGraph<Factura> grafoCompleta(Session session) {
+        return (EntityGraph<Factura>) session.getEntityGraph(Factura.GRAFO_COMPLETA);
     }
 
     public List<Factura> listarTodas() {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            // join fetch para no fallar al acceder f.getCliente() en la vista
-            return session.createQuery("select f from Factura f join fetch f.cliente order by f.idFactura",
-                    Factura.class).getResultList();
-        } catch (Exception e) {
-            throw new RuntimeException("No se pudieron listar facturas: " + e.getMessage(), e);
-        }
+        return M_LISTAR.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                // join fetch para no fallar al acceder f.getCliente() en la vista
+                return session.createQuery("select f from Factura f join fetch f.cliente order by f.idFactura",
+                        Factura.class).getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron listar facturas: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Paginación por keyset: hasta 'limite' facturas con id mayor a 'despuesDeId' (null = desde el principio).
+     * Usa el índice de la PK en vez de OFFSET, así cada página cuesta lo mismo.
+     */
+    public List<Factura> listarTodas(Integer despuesDeId, int limite) {
+        return M_LISTAR_PAGINA.medir(() -> {
+            if (limite <= 0) throw new IllegalArgumentException("El límite debe ser > 0");
+            try (Session session = sessionFactory.openSession()) {
+                return session.createQuery(
+                                "select f from Factura f join fetch f.cliente " +
+                                        "where f.idFactura > :desde order by f.idFactura",
+                                Factura.class)
+                        .setParameter("desde", despuesDeId == null ? Integer.MIN_VALUE : despuesDeId)
+                        .setMaxResults(limite)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron listar facturas: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Recorre todas las facturas con cursor, sin cargarlas todas en memoria. Devuelve cuántas procesó. */
+    public long recorrerTodas(Consumer<Factura> consumidor) {
+        return M_RECORRER.medir(() -> {
+            try {
+                return StreamingUtil.recorrer(sessionFactory,
+                        "select f from Factura f join fetch f.cliente order by f.idFactura",
+                        Factura.class, StreamingUtil.LOTE_DEFAULT, consumidor);
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron recorrer las facturas: " + e.getMessage(), e);
+            }
+        });
     }
 
     public List<Factura> listarPorCliente(Integer idCliente) {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            return session.createQuery(
-                    "select f from Factura f join fetch f.cliente " +
-                            "where f.cliente.idCliente = :cid order by f.idFactura",
-                    Factura.class
-            ).setParameter("cid", idCliente).getResultList();
-        } catch (Exception e) {
-            throw new RuntimeException("No se pudieron listar facturas del cliente " + idCliente + ": " + e.getMessage(), e);
-        }
+        return M_LISTAR_CLIENTE.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                return session.createQuery(
+                        "select f from Factura f join fetch f.cliente " +
+                                "where f.cliente.idCliente = :cid order by f.idFactura",
+                        Factura.class
+                ).setParameter("cid", idCliente).getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron listar facturas del cliente " + idCliente + ": " + e.getMessage(), e);
+            }
+        });
     }
 
     /** Elimina una factura (si hay detalles, dependerá de FK/orphanRemoval). */
     public boolean eliminar(Integer idFactura) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-            Factura f = session.get(Factura.class, idFactura);
-            if (f == null) {
-                tx.rollback();
-                return false;
+        return M_ELIMINAR.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+                Factura f = session.get(Factura.class, idFactura);
+                if (f == null) {
+                    tx.rollback();
+                    return false;
+                }
+                // Los triggers devuelven el stock de cada producto del detalle
+                List<Integer> productos = f.getDetalles().stream()
+                        .map(d -> d.getId().getIdProducto())
+                        .toList();
+                // Los resúmenes de ventas toman día y cliente de la factura: se descuentan antes de borrarla
+                DeltaVentas ventas = new DeltaVentas();
+                f.getDetalles().forEach(ventas::baja);
+                ventas.aplicar(session);
+                Outbox outbox = new Outbox();
+                outbox.facturaEliminada(f);
+                session.remove(f);
+                outbox.aplicar(session); // después del DELETE: la fila de la factura queda bloqueada
+                tx.commit();
+                CacheUtil.evictarProductos(sessionFactory, productos);
+                return true;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException("No se pudo eliminar la factura id=" + idFactura + ": " + e.getMessage(), e);
             }
-            session.remove(f);
-            tx.commit();
-            return true;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException("No se pudo eliminar la factura id=" + idFactura + ": " + e.getMessage(), e);
-        }
+        });
     }
 
     // ======= Operaciones con Detalles =======
 
     /** Agrega un detalle (producto+cantidad) a una factura existente. */
     public DetalleFactura agregarDetalle(Integer idFactura, Integer idProducto, int cantidad) {
-        if (cantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
-
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-
-            Factura factura = session.get(Factura.class, idFactura);
-            if (factura == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("Factura inexistente id=" + idFactura);
-            }
-
-            Producto producto = session.get(Producto.class, idProducto);
-            if (producto == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("Producto inexistente id=" + idProducto);
-            }
-            if (Boolean.FALSE.equals(producto.getActivo())) {
-                tx.rollback();
-                throw new IllegalStateException("Producto inactivo id=" + idProducto);
+        return M_AGREGAR_DETALLE.medir(() -> {
+            if (cantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
+            cacheProductos.verificarActivo(idProducto, "Producto");
+
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                Factura factura = session.get(Factura.class, idFactura);
+                if (factura == null) {
+                    tx.rollback();
+                    throw new IllegalArgumentException("Factura inexistente id=" + idFactura);
+                }
+
+                Producto producto = cacheProductos.activo(session, idProducto, "Producto");
+
+                // Evitar duplicado (id_factura, id_producto)
+                DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
+                if (session.get(DetalleFactura.class, pk) != null) {
+                    tx.rollback();
+                    throw new IllegalStateException("La factura ya tiene un detalle para el producto " + idProducto);
+                }
+
+                DetalleFactura det = new DetalleFactura(factura, producto, cantidad);
+                ValoresCalculados.insertar(session, det); // triggers calcularán subtotal/total y ajustarán stock
+
+                DeltaVentas ventas = new DeltaVentas();
+                ventas.alta(det);
+                ventas.aplicar(session);
+                Outbox outbox = new Outbox();
+                outbox.alta(det);
+                outbox.aplicar(session);
+                tx.commit();
+                CacheUtil.evictarProducto(sessionFactory, idProducto);
+                return det;
+            } catch (RuntimeException e) {
+                if (tx != null) tx.rollback();
+                throw e;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException(
+                        "No se pudo agregar detalle a factura=" + idFactura + " producto=" + idProducto + ": " + e.getMessage(), e);
             }
-
-            // Evitar duplicado (id_factura, id_producto)
-            DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
-            if (session.get(DetalleFactura.class, pk) != null) {
-                tx.rollback();
-                throw new IllegalStateException("La factura ya tiene un detalle para el producto " + idProducto);
-            }
-
-            DetalleFactura det = new DetalleFactura(factura, producto, cantidad);
-            session.persist(det); // triggers calcularán subtotal/total y ajustarán stock
-
-            tx.commit();
-            return det;
-        } catch (RuntimeException e) {
-            if (tx != null) tx.rollback();
-            throw e;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException(
-                    "No se pudo agregar detalle a factura=" + idFactura + " producto=" + idProducto + ": " + e.getMessage(), e);
-        }
+        });
     }
     /**
-     * Actualiza la cantidad de un detalle.
-     * Para imitar el enfoque del profe (SP que hace DELETE + INSERT para recalcular triggers),
-     * implementamos como "reemplazo": borramos y volvemos a insertar con la nueva cantidad.
+     * Actualiza la cantidad de un detalle con el modo configurado (ver setModoActualizacionCantidad).
+     * Por defecto imita el enfoque del profe (SP que hace DELETE + INSERT para recalcular triggers):
+     * borramos y volvemos a insertar con la nueva cantidad.
      */
     public DetalleFactura actualizarCantidad(Integer idFactura, Integer idProducto, int nuevaCantidad) {
-        if (nuevaCantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
-
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
+        return actualizarCantidad(idFactura, idProducto, nuevaCantidad, modoActualizacionCantidad);
+    }
 
-            DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
-            DetalleFactura existente = session.get(DetalleFactura.class, pk);
-            if (existente == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("No existe detalle (factura=" + idFactura + ", producto=" + idProducto + ")");
+    /**
+     * Actualiza la cantidad de un detalle con el modo indicado:
+     * REEMPLAZO (DELETE + INSERT) o UPDATE en el lugar con ajuste por delta (UPDATE_DELTA / UPDATE_TRIGGER).
+     */
+    public DetalleFactura actualizarCantidad(Integer idFactura, Integer idProducto, int nuevaCantidad,
+                                             ModoActualizacionCantidad modo) {
+        return M_CANTIDAD.medir(() -> {
+            if (nuevaCantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
+            if (modo == null) throw new IllegalArgumentException("El modo no puede ser nulo");
+
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
+                DetalleFactura existente = session.get(DetalleFactura.class, pk);
+                if (existente == null) {
+                    tx.rollback();
+                    throw new IllegalArgumentException("No existe detalle (factura=" + idFactura + ", producto=" + idProducto + ")");
+                }
+
+                DeltaVentas ventas = new DeltaVentas();
+                Outbox outbox = new Outbox();
+                int cantidadAnterior = existente.getCantidad();
+                if (modo != ModoActualizacionCantidad.REEMPLAZO) {
+                    ventas.cambio(existente, existente.getCantidad(), existente.getSubtotal());
+                    ActualizacionEnLugar.aplicar(session, existente, nuevaCantidad, modo);
+                    ventas.aplicar(session);
+                    if (nuevaCantidad != cantidadAnterior) outbox.cambio(existente, cantidadAnterior);
+                    outbox.aplicar(session);
+                    tx.commit();
+                    CacheUtil.evictarProducto(sessionFactory, idProducto);
+                    return existente;
+                }
+
+                // Guardamos referencias antes de borrar
+                Factura factura = existente.getFactura();
+                Producto producto = existente.getProducto();
+
+                session.remove(existente); // triggers devuelven stock y recalculan total
+
+                DetalleFactura nuevo = new DetalleFactura(factura, producto, nuevaCantidad);
+                ValoresCalculados.insertar(session, nuevo); // triggers descuentan y recalculan
+
+                ventas.baja(existente);
+                ventas.alta(nuevo);
+                ventas.aplicar(session);
+                outbox.cambio(nuevo, cantidadAnterior);
+                outbox.aplicar(session);
+                tx.commit();
+                CacheUtil.evictarProducto(sessionFactory, idProducto);
+                return nuevo;
+            } catch (RuntimeException e) {
+                if (tx != null) tx.rollback();
+                throw e;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException(
+                        "No se pudo actualizar cantidad del detalle (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
             }
-
-            // Guardamos referencias antes de borrar
-            Factura factura = existente.getFactura();
-            Producto producto = existente.getProducto();
-
-            session.remove(existente); // triggers devuelven stock y recalculan total
-
-            DetalleFactura nuevo = new DetalleFactura(factura, producto, nuevaCantidad);
-            session.persist(nuevo);    // triggers descuentan y recalculan
-
-            tx.commit();
-            return nuevo;
-        } catch (RuntimeException e) {
-            if (tx != null) tx.rollback();
-            throw e;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException(
-                    "No se pudo actualizar cantidad del detalle (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
-        }
+        });
     }
 
     /**
@@ -198,94 +492,149 @@ public class FacturaController {
      * Equivalente conceptual al SP del profe.
      */
     public DetalleFactura reemplazarProducto(Integer idFactura, Integer idProductoActual, Integer idProductoNuevo, int cantidadNueva) {
-        if (cantidadNueva <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
-
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-
-            DetalleFacturaId pkViejo = new DetalleFacturaId(idFactura, idProductoActual);
-            DetalleFactura viejo = session.get(DetalleFactura.class, pkViejo);
-            if (viejo == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("No existe detalle a reemplazar (factura=" + idFactura + ", producto=" + idProductoActual + ")");
-            }
-
-            Factura factura = viejo.getFactura();
-            Producto nuevoProd = session.get(Producto.class, idProductoNuevo);
-            if (nuevoProd == null) {
-                tx.rollback();
-                throw new IllegalArgumentException("Producto nuevo inexistente id=" + idProductoNuevo);
+        return M_REEMPLAZAR.medir(() -> {
+            if (cantidadNueva <= 0) throw new IllegalArgumentException("La cantidad debe ser > 0");
+            cacheProductos.verificarActivo(idProductoNuevo, "Producto nuevo");
+
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                DetalleFacturaId pkViejo = new DetalleFacturaId(idFactura, idProductoActual);
+                DetalleFactura viejo = session.get(DetalleFactura.class, pkViejo);
+                if (viejo == null) {
+                    tx.rollback();
+                    throw new IllegalArgumentException("No existe detalle a reemplazar (factura=" + idFactura + ", producto=" + idProductoActual + ")");
+                }
+
+                Factura factura = viejo.getFactura();
+                Producto nuevoProd = cacheProductos.activo(session, idProductoNuevo, "Producto nuevo");
+
+                // Si ya existe un detalle con el producto nuevo, evitamos duplicar
+                DetalleFacturaId pkNuevo = new DetalleFacturaId(idFactura, idProductoNuevo);
+                if (session.get(DetalleFactura.class, pkNuevo) != null) {
+                    tx.rollback();
+                    throw new IllegalStateException("La factura ya tiene un detalle para el producto nuevo " + idProductoNuevo);
+                }
+
+                session.remove(viejo); // triggers devuelven stock y recalculan
+                DetalleFactura nuevo = new DetalleFactura(factura, nuevoProd, cantidadNueva);
+                ValoresCalculados.insertar(session, nuevo); // triggers descuentan y recalculan
+
+                DeltaVentas ventas = new DeltaVentas();
+                ventas.baja(viejo);
+                ventas.alta(nuevo);
+                ventas.aplicar(session);
+                Outbox outbox = new Outbox();
+                outbox.reemplazo(viejo, nuevo);
+                outbox.aplicar(session);
+                tx.commit();
+                CacheUtil.evictarProductos(sessionFactory, List.of(idProductoActual, idProductoNuevo));
+                return nuevo;
+            } catch (RuntimeException e) {
+                if (tx != null) tx.rollback();
+                throw e;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException(
+                        "No se pudo reemplazar detalle (factura=" + idFactura + ", prodViejo=" + idProductoActual + ", prodNuevo=" + idProductoNuevo + "): " + e.getMessage(), e);
             }
-            if (Boolean.FALSE.equals(nuevoProd.getActivo())) {
-                tx.rollback();
-                throw new IllegalStateException("Producto nuevo inactivo id=" + idProductoNuevo);
-            }
-
-            // Si ya existe un detalle con el producto nuevo, evitamos duplicar
-            DetalleFacturaId pkNuevo = new DetalleFacturaId(idFactura, idProductoNuevo);
-            if (session.get(DetalleFactura.class, pkNuevo) != null) {
-                tx.rollback();
-                throw new IllegalStateException("La factura ya tiene un detalle para el producto nuevo " + idProductoNuevo);
-            }
-
-            session.remove(viejo); // triggers devuelven stock y recalculan
-            DetalleFactura nuevo = new DetalleFactura(factura, nuevoProd, cantidadNueva);
-            session.persist(nuevo); // triggers descuentan y recalculan
-
-            tx.commit();
-            return nuevo;
-        } catch (RuntimeException e) {
-            if (tx != null) tx.rollback();
-            throw e;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException(
-                    "No se pudo reemplazar detalle (factura=" + idFactura + ", prodViejo=" + idProductoActual + ", prodNuevo=" + idProductoNuevo + "): " + e.getMessage(), e);
-        }
+        });
     }
 
     /** Elimina un detalle (factura, producto). */
     public boolean eliminarDetalle(Integer idFactura, Integer idProducto) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-
-            DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
-            DetalleFactura det = session.get(DetalleFactura.class, pk);
-            if (det == null) {
-                tx.rollback();
-                return false;
+        return M_ELIMINAR_DETALLE.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                DetalleFacturaId pk = new DetalleFacturaId(idFactura, idProducto);
+                DetalleFactura det = session.get(DetalleFactura.class, pk);
+                if (det == null) {
+                    tx.rollback();
+                    return false;
+                }
+                session.remove(det); // triggers devuelven stock y recalculan total
+                DeltaVentas ventas = new DeltaVentas();
+                ventas.baja(det);
+                ventas.aplicar(session);
+                Outbox outbox = new Outbox();
+                outbox.baja(det);
+                outbox.aplicar(session);
+                tx.commit();
+                CacheUtil.evictarProducto(sessionFactory, idProducto);
+                return true;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException(
+                        "No se pudo eliminar el detalle (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
             }
-            session.remove(det); // triggers devuelven stock y recalculan total
-            tx.commit();
-            return true;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException(
-                    "No se pudo eliminar el detalle (factura=" + idFactura + ", producto=" + idProducto + "): " + e.getMessage(), e);
-        }
+        });
     }
 
     /** Lista los detalles de una factura. */
     public List<DetalleFactura> listarDetalles(Integer idFactura) {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            return session.createQuery(
-                    "select d from DetalleFactura d " +
-                            "join fetch d.producto " +
-                            "join fetch d.factura " +
-                            "where d.factura.idFactura = :fid " +
-                            "order by d.producto.idProducto",
-                    DetalleFactura.class
-            ).setParameter("fid", idFactura).getResultList();
-        } catch (Exception e) {
-            throw new RuntimeException("No se pudieron listar los detalles de la factura " + idFactura + ": " + e.getMessage(), e);
-        }
+        return M_LISTAR_DETALLES.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                return session.createQuery(
+                        "select d from DetalleFactura d " +
+                                "join fetch d.producto " +
+                                "join fetch d.factura " +
+                                "where d.factura.idFactura = :fid " +
+                                "order by d.producto.idProducto",
+                        DetalleFactura.class
+                ).setParameter("fid", idFactura).getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron listar los detalles de la factura " + idFactura + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // ======= Proyecciones de solo lectura (listados de las vistas) =======
+
+    /** Página de facturas (keyset por id, como listarTodas) sin hidratar entidades. */
+    public List<FacturaResumen> listarResumenes(Integer despuesDeId, int limite) {
+        return M_RESUMENES.medir(() -> {
+            if (limite <= 0) throw new IllegalArgumentException("El límite debe ser > 0");
+            try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+                return session.createSelectionQuery(
+                                "select new ar.edu.unlu.bd2.controller.FacturaResumen(f.idFactura, f.cliente.idCliente, f.fecha, f.total) " +
+                                        "from Factura f where f.idFactura > :desde order by f.idFactura", FacturaResumen.class)
+                        .setParameter("desde", despuesDeId == null ? Integer.MIN_VALUE : despuesDeId)
+                        .setMaxResults(limite)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron listar facturas: " + e.getMessage(), e);
+            }
+        });
     }
 
-    public static void shutdown() {
-        try {
-            if (SESSION_FACTORY != null) SESSION_FACTORY.close();
-        } catch (Exception ignore) {}
+    /** Facturas de un cliente como proyección (sin join con cliente: el id está en la propia factura). */
+    public List<FacturaResumen> listarResumenesPorCliente(Integer idCliente) {
+        return M_RESUMENES_CLIENTE.medir(() -> {
+            try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+                return session.createSelectionQuery(
+                                "select new ar.edu.unlu.bd2.controller.FacturaResumen(f.idFactura, f.cliente.idCliente, f.fecha, f.total) " +
+                                        "from Factura f where f.cliente.idCliente = :cid order by f.idFactura", FacturaResumen.class)
+                        .setParameter("cid", idCliente)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron listar facturas del cliente " + idCliente + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Líneas de la factura con el nombre del producto, en una consulta y sin entidades. */
+    public List<DetalleLinea> listarLineas(Integer idFactura) {
+        return M_LINEAS.medir(() -> {
+            try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+                return session.createSelectionQuery(DetalleLinea.HQL_POR_FACTURA, DetalleLinea.class)
+                        .setParameter("fid", idFactura)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron listar los detalles de la factura " + idFactura + ": " + e.getMessage(), e);
+            }
+        });
     }
-}
\ No newline at end of file
+}
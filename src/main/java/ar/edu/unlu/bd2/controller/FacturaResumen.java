@@ -0,0 +1,7 @@
+package ar.edu.unlu.bd2.controller;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Fila de un listado de facturas (proyección: no es una entidad administrada). */
+public record FacturaResumen(Integer idFactura, Integer idCliente, LocalDateTime fecha, BigDecimal total) { }
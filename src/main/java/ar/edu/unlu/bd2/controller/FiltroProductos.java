@@ -0,0 +1,74 @@
+package ar.edu.unlu.bd2.controller;
+
+import org.hibernate.query.MutationQuery;
+import org.hibernate.query.SelectionQuery;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Filtro para las operaciones masivas sobre productos (ProductoController).
+ * Los criterios no nulos se combinan con AND; sin ningún criterio aplica a todos los productos.
+ * Se traduce a un WHERE de HQL sobre el alias "p".
+ */
+public record FiltroProductos(Integer idDesde, Integer idHasta, String prefijoNombre, List<Integer> ids) {
+
+    public FiltroProductos {
+        if (idDesde != null && idHasta != null && idDesde > idHasta) {
+            throw new IllegalArgumentException("Rango de ids inválido: " + idDesde + " > " + idHasta);
+        }
+        if (prefijoNombre != null && prefijoNombre.isBlank()) prefijoNombre = null;
+        if (ids != null) {
+            if (ids.isEmpty()) throw new IllegalArgumentException("La lista de ids no puede estar vacía");
+            ids = List.copyOf(ids);
+        }
+    }
+
+    public static FiltroProductos todos() {
+        return new FiltroProductos(null, null, null, null);
+    }
+
+    /** Ids entre 'desde' y 'hasta', ambos inclusive. */
+    public static FiltroProductos rangoIds(int desde, int hasta) {
+        return new FiltroProductos(desde, hasta, null, null);
+    }
+
+    public static FiltroProductos prefijoNombre(String prefijo) {
+        if (prefijo == null || prefijo.isBlank()) throw new IllegalArgumentException("El prefijo no puede ser vacío");
+        return new FiltroProductos(null, null, prefijo, null);
+    }
+
+    public static FiltroProductos ids(Collection<Integer> ids) {
+        if (ids == null) throw new IllegalArgumentException("La lista de ids no puede ser nula");
+        return new FiltroProductos(null, null, null, List.copyOf(ids));
+    }
+
+    /** Condiciones HQL (empezando por " and ...") para agregar a un "where 1 = 1". */
+    String hql() {
+        StringBuilder sb = new StringBuilder();
+        if (idDesde != null) sb.append(" and p.idProducto >= :idDesde");
+        if (idHasta != null) sb.append(" and p.idProducto <= :idHasta");
+        if (prefijoNombre != null) sb.append(" and p.nombre like :prefijo escape '!'");
+        if (ids != null) sb.append(" and p.idProducto in :ids");
+        return sb.toString();
+    }
+
+    void bind(MutationQuery q) {
+        if (idDesde != null) q.setParameter("idDesde", idDesde);
+        if (idHasta != null) q.setParameter("idHasta", idHasta);
+        if (prefijoNombre != null) q.setParameter("prefijo", patronPrefijo());
+        if (ids != null) q.setParameterList("ids", ids);
+    }
+
+    void bind(SelectionQuery<?> q) {
+        if (idDesde != null) q.setParameter("idDesde", idDesde);
+        if (idHasta != null) q.setParameter("idHasta", idHasta);
+        if (prefijoNombre != null) q.setParameter("prefijo", patronPrefijo());
+        if (ids != null) q.setParameterList("ids", ids);
+    }
+
+    // Los comodines del prefijo se toman literales ('!' es el carácter de escape)
+    private String patronPrefijo() {
+        return prefijoNombre.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+}
@@ -0,0 +1,19 @@
+package ar.edu.unlu.bd2.controller;
+
+/**
+ * Formato de salida de ExportacionController.
+ * CSV: una fila por línea de factura (el encabezado de la factura se repite).
+ * JSONL: un objeto JSON por factura, con sus líneas en "detalles".
+ */
+public enum FormatoExportacion {
+    CSV(".csv"),
+    JSONL(".jsonl");
+
+    private final String extension;
+
+    FormatoExportacion(String extension) {
+        this.extension = extension;
+    }
+
+    public String extension() { return extension; }
+}
@@ -0,0 +1,262 @@
+package ar.edu.unlu.bd2.controller;
+
+import ar.edu.unlu.bd2.catalogo.CacheProductos;
+import ar.edu.unlu.bd2.modelo.Cliente;
+import ar.edu.unlu.bd2.modelo.Producto;
+import ar.edu.unlu.bd2.util.CsvUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Importación masiva de clientes y productos desde CSV (alta de una sucursal nueva).
+ * El archivo se lee línea por línea y se escribe por lotes con un StatelessSession
+ * (sin contexto de persistencia ni caché): la memoria depende del tamaño de lote, no del archivo.
+ * Cada lote es una transacción; si el lote falla en la BD (p. ej. id duplicado) se reintenta
+ * fila por fila para importar las buenas y mandar las malas al archivo de rechazos.
+ * Como inserta sin pasar por ClienteController / ProductoController, al terminar reconstruye el índice
+ * de búsqueda que corresponda y, con productos, recarga CacheProductos (que sigue creyendo inexistentes
+ * a los ids nuevos).
+ *
+ * Formatos (la primera línea es encabezado y se ignora):
+ *   clientes:  id_cliente,nombre,apellido,es_cuenta_corriente,estado
+ *   productos: nombre,precio_unitario,stock,activo
+ */
+public class ImportacionController {
+
+    public static final int LOTE_DEFAULT = 1000;
+
+    private final SessionFactory sessionFactory;
+    // Lo que hay que poner al día después de importar (null: no hay índices que reconstruir)
+    private final ClienteController clientes;
+    private final ProductoController productos;
+    private final CacheProductos cacheProductos;
+
+    public ImportacionController(SessionFactory sessionFactory) {
+        this(sessionFactory, null, null, CacheProductos.desactivada());
+    }
+
+    public ImportacionController(SessionFactory sessionFactory, ClienteController clientes,
+                                 ProductoController productos, CacheProductos cacheProductos) {
+        this.sessionFactory = sessionFactory;
+        this.clientes = clientes;
+        this.productos = productos;
+        this.cacheProductos = cacheProductos;
+    }
+
+    public ResultadoImportacion importarClientes(Path archivo, Path rechazos, int lote,
+                                                 Consumer<ResultadoImportacion> progreso) {
+        ResultadoImportacion r = importar(archivo, rechazos, lote, progreso, ImportacionController::parsearCliente,
+                (ss, clientes) -> clientes.forEach(ss::insert));
+        if (r.importadas() > 0 && clientes != null) clientes.iniciarIndice();
+        return r;
+    }
+
+    public ResultadoImportacion importarProductos(Path archivo, Path rechazos, int lote,
+                                                  Consumer<ResultadoImportacion> progreso) {
+        ResultadoImportacion r = importar(archivo, rechazos, lote, progreso, ImportacionController::parsearProducto,
+                ImportacionController::insertarProductos);
+        if (r.importadas() > 0) {
+            if (productos != null) productos.iniciarIndice();
+            if (cacheProductos.activa()) {
+                try {
+                    cacheProductos.recargar();
+                } catch (RuntimeException e) {
+                    // La importación ya está confirmada; la próxima recarga periódica la levanta
+                    System.err.println("No se pudo recargar la caché de productos: " + e.getMessage());
+                }
+            }
+        }
+        return r;
+    }
+
+    // ======= Motor común =======
+
+    private record Fila<T>(long numero, String linea, T valor) { }
+
+    private <T> ResultadoImportacion importar(Path archivo, Path rechazos, int lote,
+                                              Consumer<ResultadoImportacion> progreso,
+                                              Function<List<String>, T> parser,
+                                              BiConsumer<StatelessSession, List<T>> escritor) {
+        if (archivo == null || rechazos == null) throw new IllegalArgumentException("Faltan los archivos de entrada/rechazos");
+        if (lote <= 0) throw new IllegalArgumentException("El lote debe ser > 0");
+
+        long t0 = System.nanoTime();
+        long leidas = 0, importadas = 0, rechazadas = 0;
+        try (BufferedReader in = Files.newBufferedReader(archivo, StandardCharsets.UTF_8);
+             BufferedWriter rech = Files.newBufferedWriter(rechazos, StandardCharsets.UTF_8);
+             StatelessSession ss = sessionFactory.openStatelessSession()) {
+            ss.setJdbcBatchSize(lote);
+            rech.write("linea,motivo,registro");
+            rech.newLine();
+
+            List<Fila<T>> pendientes = new ArrayList<>(lote);
+            String linea = in.readLine(); // encabezado
+            long numero = 1;
+            while ((linea = in.readLine()) != null) {
+                numero++;
+                if (linea.isBlank()) continue;
+                leidas++;
+                try {
+                    pendientes.add(new Fila<>(numero, linea, parser.apply(CsvUtil.parsearLinea(linea))));
+                } catch (RuntimeException e) {
+                    rechazar(rech, numero, linea, e);
+                    rechazadas++;
+                }
+                if (pendientes.size() == lote) {
+                    int ok = escribirLote(ss, pendientes, escritor, rech);
+                    importadas += ok;
+                    rechazadas += pendientes.size() - ok;
+                    pendientes.clear();
+                    if (progreso != null) progreso.accept(new ResultadoImportacion(leidas, importadas, rechazadas, System.nanoTime() - t0));
+                }
+            }
+            if (!pendientes.isEmpty()) {
+                int ok = escribirLote(ss, pendientes, escritor, rech);
+                importadas += ok;
+                rechazadas += pendientes.size() - ok;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo importar " + archivo + ": " + e.getMessage(), e);
+        }
+        ResultadoImportacion r = new ResultadoImportacion(leidas, importadas, rechazadas, System.nanoTime() - t0);
+        if (progreso != null) progreso.accept(r);
+        return r;
+    }
+
+    /** Escribe el lote en una transacción; si falla, fila por fila. Devuelve cuántas filas se importaron. */
+    private <T> int escribirLote(StatelessSession ss, List<Fila<T>> filas,
+                                 BiConsumer<StatelessSession, List<T>> escritor, BufferedWriter rech) throws IOException {
+        List<T> valores = new ArrayList<>(filas.size());
+        for (Fila<T> f : filas) valores.add(f.valor());
+        if (escribir(ss, valores, escritor) == null) return filas.size();
+
+        int ok = 0;
+        for (Fila<T> f : filas) {
+            RuntimeException error = escribir(ss, List.of(f.valor()), escritor);
+            if (error == null) ok++;
+            else rechazar(rech, f.numero(), f.linea(), error);
+        }
+        return ok;
+    }
+
+    /** Devuelve null si se pudo commitear, o el error (ya con rollback). */
+    private static <T> RuntimeException escribir(StatelessSession ss, List<T> valores,
+                                                 BiConsumer<StatelessSession, List<T>> escritor) {
+        Transaction tx = null;
+        try {
+            tx = ss.beginTransaction();
+            escritor.accept(ss, valores);
+            tx.commit();
+            return null;
+        } catch (RuntimeException e) {
+            if (tx != null && tx.isActive()) {
+                try { tx.rollback(); } catch (RuntimeException ignored) { }
+            }
+            return e;
+        }
+    }
+
+    private static void rechazar(BufferedWriter rech, long numero, String linea, Exception e) throws IOException {
+        Throwable causa = e;
+        while (causa.getCause() != null) causa = causa.getCause(); // el mensaje útil del driver está al fondo
+        rech.write(numero + "," + CsvUtil.escapar(String.valueOf(causa.getMessage()).replaceAll("\\s+", " ")) + "," + CsvUtil.escapar(linea));
+        rech.newLine();
+    }
+
+    // ======= Clientes =======
+
+    private static Cliente parsearCliente(List<String> c) {
+        if (c.size() != 5) throw new IllegalArgumentException("Se esperaban 5 columnas y hay " + c.size());
+        Integer id = entero(c.get(0), "id_cliente");
+        if (id <= 0) throw new IllegalArgumentException("id_cliente debe ser > 0");
+        String nombre = texto(c.get(1), "nombre", 120);
+        String apellido = texto(c.get(2), "apellido", 120);
+        boolean cuentaCorriente = booleano(c.get(3), "es_cuenta_corriente");
+        Cliente.Estado estado;
+        try {
+            estado = Cliente.Estado.valueOf(c.get(4).trim().toLowerCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("estado inválido: " + c.get(4));
+        }
+        return new Cliente(id, nombre, apellido, cuentaCorriente, estado);
+    }
+
+    // ======= Productos =======
+
+    private static Producto parsearProducto(List<String> c) {
+        if (c.size() != 4) throw new IllegalArgumentException("Se esperaban 4 columnas y hay " + c.size());
+        String nombre = texto(c.get(0), "nombre", 120);
+        BigDecimal precio;
+        try {
+            precio = new BigDecimal(c.get(1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("precio_unitario inválido: " + c.get(1));
+        }
+        if (precio.signum() < 0 || precio.scale() > 2) throw new IllegalArgumentException("precio_unitario inválido: " + c.get(1));
+        int stock = entero(c.get(2), "stock");
+        if (stock < 0) throw new IllegalArgumentException("stock no puede ser negativo");
+        return new Producto(nombre, precio, stock, booleano(c.get(3), "activo"));
+    }
+
+    /**
+     * id_producto es IDENTITY: Hibernate no puede agrupar esos INSERT (necesita la clave de cada fila),
+     * así que el lote va como batch JDBC sobre la conexión del StatelessSession
+     * (con rewriteBatchedStatements=true el driver lo manda como un INSERT multi-fila).
+     */
+    private static void insertarProductos(StatelessSession ss, List<Producto> productos) {
+        ss.doWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "insert into producto (nombre, precio_unitario, stock, activo, version) values (?, ?, ?, ?, 0)")) {
+                for (Producto p : productos) {
+                    ps.setString(1, p.getNombre());
+                    ps.setBigDecimal(2, p.getPrecioUnitario());
+                    ps.setInt(3, p.getStock());
+                    ps.setBoolean(4, p.getActivo());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    // ======= Validaciones de campos =======
+
+    private static String texto(String valor, String campo, int max) {
+        String v = valor.trim();
+        if (v.isEmpty()) throw new IllegalArgumentException(campo + " es obligatorio");
+        if (v.length() > max) throw new IllegalArgumentException(campo + " supera " + max + " caracteres");
+        return v;
+    }
+
+    private static int entero(String valor, String campo) {
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(campo + " no es un entero: " + valor);
+        }
+    }
+
+    private static boolean booleano(String valor, String campo) {
+        return switch (valor.trim().toLowerCase(Locale.ROOT)) {
+            case "1", "true", "si", "sí", "s" -> true;
+            case "0", "false", "no", "n" -> false;
+            default -> throw new IllegalArgumentException(campo + " no es booleano: " + valor);
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package ar.edu.unlu.bd2.controller;
+
+/**
+ * Cómo se cambia la cantidad de un detalle de factura.
+ */
+public enum ModoActualizacionCantidad {
+
+    /** DELETE + INSERT del detalle (enfoque del SP del profe): corren los triggers de borrado y de alta. */
+    REEMPLAZO,
+
+    /**
+     * UPDATE en el lugar del detalle; la aplicación ajusta stock, subtotal y total por delta
+     * en la misma transacción (no requiere triggers de UPDATE en la BD). Si trg_factura_detalle_bu
+     * está instalado, el ajuste lo hace el trigger y la aplicación no lo repite.
+     */
+    UPDATE_DELTA,
+
+    /**
+     * Un solo UPDATE factura_detalle SET cantidad = ?; stock, subtotal y total los ajusta el trigger
+     * BEFORE UPDATE de resources/sql/trg_factura_detalle_bu.sql (tiene que estar instalado).
+     */
+    UPDATE_TRIGGER
+}
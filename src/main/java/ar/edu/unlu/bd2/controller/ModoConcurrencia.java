@@ -0,0 +1,13 @@
+package ar.edu.unlu.bd2.controller;
+
+/**
+ * Cómo se protege una lectura-modificación-escritura sobre Producto (stock, precio).
+ */
+public enum ModoConcurrencia {
+
+    /** SELECT ... FOR UPDATE: serializa contra las ventas (triggers) sobre la misma fila. */
+    PESIMISTA,
+
+    /** Sin bloqueo: UPDATE ... WHERE version = ?; si otro ganó, se reintenta con backoff + jitter. */
+    OPTIMISTA
+}
@@ -0,0 +1,104 @@
+package ar.edu.unlu.bd2.controller;
+
+import ar.edu.unlu.bd2.eventos.Evento;
+import ar.edu.unlu.bd2.eventos.RelayOutbox;
+import ar.edu.unlu.bd2.modelo.DetalleFactura;
+import ar.edu.unlu.bd2.modelo.Factura;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Eventos de dominio (ar.edu.unlu.bd2.eventos.Evento) que genera una transacción de los controllers,
+ * para la tabla evento_outbox (ver resources/sql/outbox.sql). Como en DeltaVentas, se anota la entidad
+ * y el evento se arma en aplicar(), después del flush, con precio y subtotal ya puestos por los triggers.
+ * aplicar() los inserta en batch justo antes del commit: para entonces los triggers ya bloquearon la fila
+ * de la factura (o la factura es nueva), así que los eventos de una factura toman id_evento en el orden
+ * de sus commits. Si la transacción hace rollback no queda ningún evento; RelayOutbox los publica.
+ * Una instancia por transacción (no es thread-safe). Con bd2.outbox.activa=false no escribe nada.
+ */
+final class Outbox {
+
+    /** Propiedad de hibernate.cfg.xml; requiere la tabla de outbox.sql. */
+    static final String ACTIVA = RelayOutbox.ACTIVA;
+
+    private final List<Supplier<Evento>> eventos = new ArrayList<>(4);
+
+    /** Factura nueva, con los detalles que tenga al aplicar; el total es la suma de sus subtotales. */
+    void facturaCreada(Factura f) {
+        eventos.add(() -> {
+            BigDecimal total = BigDecimal.ZERO;
+            for (DetalleFactura d : f.getDetalles()) total = total.add(d.getSubtotal());
+            return new Evento.FacturaCreada(f.getIdFactura(), f.getCliente().getIdCliente(), f.getFecha(),
+                    f.getDetalles().size(), total);
+        });
+    }
+
+    void facturaEliminada(Factura f) {
+        int lineas = f.getDetalles().size();
+        eventos.add(() -> new Evento.FacturaEliminada(f.getIdFactura(), lineas));
+    }
+
+    /** Detalle dado de alta (persist). */
+    void alta(DetalleFactura d) {
+        eventos.add(() -> new Evento.DetalleAgregado(d.getId().getIdFactura(), d.getId().getIdProducto(),
+                d.getCantidad(), d.getPrecioUnitario(), d.getSubtotal()));
+    }
+
+    /** Detalle borrado (con sus valores ya cargados). */
+    void baja(DetalleFactura d) {
+        eventos.add(() -> new Evento.DetalleEliminado(d.getId().getIdFactura(), d.getId().getIdProducto(),
+                d.getCantidad(), d.getSubtotal()));
+    }
+
+    /** Cambio de cantidad: 'd' es el detalle con la cantidad nueva (en el lugar o reinsertado). */
+    void cambio(DetalleFactura d, int cantidadAnterior) {
+        eventos.add(() -> new Evento.DetalleCantidadCambiada(d.getId().getIdFactura(), d.getId().getIdProducto(),
+                cantidadAnterior, d.getCantidad(), d.getSubtotal()));
+    }
+
+    void reemplazo(DetalleFactura viejo, DetalleFactura nuevo) {
+        int idProductoAnterior = viejo.getId().getIdProducto();
+        eventos.add(() -> new Evento.DetalleReemplazado(nuevo.getId().getIdFactura(), idProductoAnterior,
+                nuevo.getId().getIdProducto(), nuevo.getCantidad(), nuevo.getPrecioUnitario(), nuevo.getSubtotal()));
+    }
+
+    void stock(int idProducto, int delta, int stock) {
+        Evento e = new Evento.StockAjustado(idProducto, delta, stock);
+        eventos.add(() -> e);
+    }
+
+    static boolean activa(SessionFactory sf) {
+        return Boolean.parseBoolean(String.valueOf(sf.getProperties().get(ACTIVA)));
+    }
+
+    /** Inserta los eventos anotados. Llamar dentro de la transacción, justo antes del commit. */
+    void aplicar(Session session) {
+        if (eventos.isEmpty() || !activa(session.getSessionFactory())) return;
+        session.flush(); // INSERT/UPDATE pendientes: bloqueo de la factura
+        List<Evento> armados = new ArrayList<>(eventos.size());
+        for (Supplier<Evento> e : eventos) armados.add(e.get());
+        eventos.clear();
+        session.doWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "insert into evento_outbox (tipo, id_factura, id_producto, datos) values (?, ?, ?, ?)")) {
+                for (Evento e : armados) {
+                    ps.setString(1, e.tipo().name());
+                    if (e.idFactura() != 0) ps.setInt(2, e.idFactura());
+                    else ps.setNull(2, Types.INTEGER);
+                    if (e.idProducto() != 0) ps.setInt(3, e.idProducto());
+                    else ps.setNull(3, Types.INTEGER);
+                    ps.setString(4, e.json());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+}
@@ -1,141 +1,282 @@
 package ar.edu.unlu.bd2.controller;
 
+import ar.edu.unlu.bd2.busqueda.IndiceProductos;
+import ar.edu.unlu.bd2.busqueda.ProductoEncontrado;
+import ar.edu.unlu.bd2.catalogo.CacheProductos;
+import ar.edu.unlu.bd2.metricas.Medidor;
+import ar.edu.unlu.bd2.metricas.Metricas;
 import ar.edu.unlu.bd2.modelo.Producto;
+import ar.edu.unlu.bd2.util.CacheUtil;
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import ar.edu.unlu.bd2.util.Reintentos;
+import ar.edu.unlu.bd2.util.StreamingUtil;
 import org.hibernate.*;
-import org.hibernate.cfg.Configuration;
+import org.hibernate.query.MutationQuery;
+import org.hibernate.query.SelectionQuery;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
+/**
+ * CRUD y operaciones de stock / precio de Producto.
+ * La búsqueda por nombre usa un índice invertido en memoria (IndiceProductos) que App arranca con
+ * iniciarIndice y que crear / actualizar / eliminar / activarDesactivar(Masivo) mantienen al día.
+ * Las altas que no pasan por acá (importación CSV) solo aparecen después de otro iniciarIndice, que
+ * ImportacionController hace al terminar.
+ * Los mismos métodos publican id, estado y precio en CacheProductos, con la que Factura y
+ * DetalleFactura validan las líneas.
+ */
 public class ProductoController {
 
-    // ======= SessionFactory único por clase (simple, estilo del profe) =======
-    private static final SessionFactory SESSION_FACTORY = buildSessionFactory();
+    // ======= Métricas por operación (JMX / Prometheus, ver Metricas) =======
+    private static final Medidor M_CREAR = Metricas.medidor("producto.crear");
+    private static final Medidor M_OBTENER = Metricas.medidor("producto.obtenerPorId");
+    private static final Medidor M_LISTAR = Metricas.medidor("producto.listarTodos");
+    private static final Medidor M_LISTAR_PAGINA = Metricas.medidor("producto.listarPagina");
+    private static final Medidor M_RECORRER = Metricas.medidor("producto.recorrerTodos");
+    private static final Medidor M_LISTAR_ACTIVOS = Metricas.medidor("producto.listarActivos");
+    private static final Medidor M_ACTUALIZAR = Metricas.medidor("producto.actualizar");
+    private static final Medidor M_ELIMINAR = Metricas.medidor("producto.eliminar");
+    private static final Medidor M_ACTIVAR = Metricas.medidor("producto.activarDesactivar");
+    private static final Medidor M_PRECIO = Metricas.medidor("producto.actualizarPrecio");
+    private static final Medidor M_STOCK = Metricas.medidor("producto.ajustarStock");
+    private static final Medidor M_STOCK_MASIVO = Metricas.medidor("producto.ajustarStockMasivo");
+    private static final Medidor M_PRECIOS_PORCENTAJE = Metricas.medidor("producto.ajustarPreciosPorcentaje");
+    private static final Medidor M_PRECIOS_MONTO = Metricas.medidor("producto.ajustarPreciosMonto");
+    private static final Medidor M_ACTIVAR_MASIVO = Metricas.medidor("producto.activarDesactivarMasivo");
+    private static final Medidor M_RESUMENES = Metricas.medidor("producto.listarResumenes");
+    private static final Medidor M_ACTIVOS_RESUMEN = Metricas.medidor("producto.listarActivosResumen");
+    private static final Medidor M_BUSCAR = Metricas.medidor("producto.buscar");
 
-    private static SessionFactory buildSessionFactory() {
-        try {
-            return new Configuration().configure().buildSessionFactory();
-        } catch (Throwable ex) {
-            throw new ExceptionInInitializerError("Error creando SessionFactory: " + ex.getMessage());
-        }
+    /** Lo que espera buscar a que termine la carga del índice antes de avisar que todavía no está. */
+    private static final long ESPERA_INDICE_SEG = 5;
+
+    // ======= SessionFactory compartido (lo inyecta App) =======
+    private final SessionFactory sessionFactory;
+
+    // ======= Índice de búsqueda por nombre (null hasta iniciarIndice) =======
+    private volatile IndiceProductos indice;
+
+    // ======= Caché de id / estado / precio que leen los controllers de facturas =======
+    private final CacheProductos cacheProductos;
+
+    public ProductoController(SessionFactory sessionFactory) {
+        this(sessionFactory, CacheProductos.desactivada());
+    }
+
+    public ProductoController(SessionFactory sessionFactory, CacheProductos cacheProductos) {
+        this.sessionFactory = sessionFactory;
+        this.cacheProductos = cacheProductos;
+    }
+
+    // Máximo de productos por UPDATE ... CASE en ajustarStockMasivo (acota la cantidad de parámetros)
+    private static final int LOTE_CASE = 500;
+
+    // Modo usado por ajustarStock/actualizarPrecio sin modo explícito
+    private volatile ModoConcurrencia modoConcurrencia = ModoConcurrencia.PESIMISTA;
+
+    public ModoConcurrencia getModoConcurrencia() { return modoConcurrencia; }
+    public void setModoConcurrencia(ModoConcurrencia modo) {
+        if (modo == null) throw new IllegalArgumentException("El modo no puede ser nulo");
+        this.modoConcurrencia = modo;
     }
 
     // ======= CRUD =======
 
     public Producto crear(Producto producto) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-            session.persist(producto);
-            tx.commit();
-            return producto;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException("No se pudo crear el producto: " + e.getMessage(), e);
-        }
+        return M_CREAR.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+                session.persist(producto);
+                tx.commit();
+                publicar(producto);
+                return producto;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException("No se pudo crear el producto: " + e.getMessage(), e);
+            }
+        });
     }
 
     public Optional<Producto> obtenerPorId(Long idProducto) {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            Producto p = session.get(Producto.class, idProducto);
-            if (p != null) {
-                Hibernate.initialize(p.getDetalles());
+        return M_OBTENER.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                Producto p = session.get(Producto.class, idProducto);
+                if (p != null) {
+                    Hibernate.initialize(p.getDetalles());
+                }
+                return Optional.ofNullable(p);
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo obtener el producto id=" + idProducto + ": " + e.getMessage(), e);
             }
-            return Optional.ofNullable(p);
-        } catch (Exception e) {
-            throw new RuntimeException("No se pudo obtener el producto id=" + idProducto + ": " + e.getMessage(), e);
-        }
+        });
     }
 
     public List<Producto> listarTodos() {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            return session.createQuery("from Producto p order by p.idProducto", Producto.class)
-                    .getResultList();
-        } catch (Exception e) {
-            throw new RuntimeException("No se pudo listar productos: " + e.getMessage(), e);
-        }
+        return M_LISTAR.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                return session.createQuery("from Producto p order by p.idProducto", Producto.class)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo listar productos: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Paginación por keyset (orden por PK): hasta 'limite' productos con id mayor a 'despuesDeId'. */
+    public List<Producto> listarTodos(Integer despuesDeId, int limite) {
+        return M_LISTAR_PAGINA.medir(() -> {
+            if (limite <= 0) throw new IllegalArgumentException("El límite debe ser > 0");
+            try (Session session = sessionFactory.openSession()) {
+                return session.createQuery(
+                                "from Producto p where p.idProducto > :desde order by p.idProducto", Producto.class)
+                        .setParameter("desde", despuesDeId == null ? Integer.MIN_VALUE : despuesDeId)
+                        .setMaxResults(limite)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo listar productos: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Recorre todos los productos con cursor, sin cargarlos todos en memoria. Devuelve cuántos procesó. */
+    public long recorrerTodos(Consumer<Producto> consumidor) {
+        return M_RECORRER.medir(() -> {
+            try {
+                return StreamingUtil.recorrer(sessionFactory, "from Producto p order by p.idProducto",
+                        Producto.class, StreamingUtil.LOTE_DEFAULT, consumidor);
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo recorrer productos: " + e.getMessage(), e);
+            }
+        });
     }
 
     public List<Producto> listarActivos() {
-        try (Session session = SESSION_FACTORY.openSession()) {
-            return session.createQuery(
-                            "from Producto p where p.activo = true order by p.idProducto",
-                            Producto.class)
-                    .getResultList();
-        } catch (Exception e) {
-            throw new RuntimeException("No se pudo listar productos activos: " + e.getMessage(), e);
-        }
+        return M_LISTAR_ACTIVOS.medir(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                return session.createQuery(
+                                "from Producto p where p.activo = true order by p.idProducto",
+                                Producto.class)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo listar productos activos: " + e.getMessage(), e);
+            }
+        });
     }
 
     public Producto actualizar(Producto producto) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-            Producto managed = session.merge(producto);
-            tx.commit();
-            return managed;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException("No se pudo actualizar el producto id=" + producto.getIdProducto() + ": " + e.getMessage(), e);
-        }
+        return M_ACTUALIZAR.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+                Producto managed = session.merge(producto);
+                tx.commit();
+                publicar(managed);
+                return managed;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException("No se pudo actualizar el producto id=" + producto.getIdProducto() + ": " + e.getMessage(), e);
+            }
+        });
     }
 
     public boolean eliminar(Long idProducto) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-            Producto p = session.get(Producto.class, idProducto);
-            if (p == null) {
-                tx.rollback();
-                return false;
+        return M_ELIMINAR.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+                Producto p = session.get(Producto.class, idProducto);
+                if (p == null) {
+                    tx.rollback();
+                    return false;
+                }
+                session.remove(p);
+                tx.commit();
+                IndiceProductos idx = indice;
+                if (idx != null) idx.quitar(idProducto.intValue());
+                cacheProductos.quitar(idProducto.intValue());
+                return true;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                // Si hay detalles de factura que referencian este producto, la BD impedirá el delete.
+                throw new RuntimeException(
+                        "No se pudo eliminar el producto id=" + idProducto +
+                                ". Posible restricción por detalles de factura asociados. Detalle: " + e.getMessage(), e);
             }
-            session.remove(p);
-            tx.commit();
-            return true;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            // Si hay detalles de factura que referencian este producto, la BD impedirá el delete.
-            throw new RuntimeException(
-                    "No se pudo eliminar el producto id=" + idProducto +
-                            ". Posible restricción por detalles de factura asociados. Detalle: " + e.getMessage(), e);
-        }
+        });
     }
 
     // ======= Operaciones específicas =======
 
     public boolean activarDesactivar(Long idProducto, boolean activo) {
-        Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
-            tx = session.beginTransaction();
-            Producto p = session.get(Producto.class, idProducto);
-            if (p == null) {
-                tx.rollback();
-                return false;
+        return M_ACTIVAR.medir(() -> {
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+                Producto p = session.get(Producto.class, idProducto);
+                if (p == null) {
+                    tx.rollback();
+                    return false;
+                }
+                p.setActivo(activo);
+                tx.commit();
+                IndiceProductos idx = indice;
+                if (idx != null) idx.cambiarEstado(idProducto.intValue(), activo);
+                cacheProductos.poner(p.getIdProducto(), activo, p.getPrecioUnitario());
+                return true;
+            } catch (Exception e) {
+                if (tx != null) tx.rollback();
+                throw new RuntimeException("No se pudo cambiar el estado del producto id=" + idProducto + ": " + e.getMessage(), e);
             }
-            p.setActivo(activo);
-            tx.commit();
-            return true;
-        } catch (Exception e) {
-            if (tx != null) tx.rollback();
-            throw new RuntimeException("No se pudo cambiar el estado del producto id=" + idProducto + ": " + e.getMessage(), e);
-        }
+        });
     }
 
     public boolean actualizarPrecio(Long idProducto, BigDecimal nuevoPrecio) {
-        if (nuevoPrecio == null || nuevoPrecio.signum() < 0) {
-            throw new IllegalArgumentException("El precio no puede ser nulo ni negativo");
-        }
+        return actualizarPrecio(idProducto, nuevoPrecio, modoConcurrencia);
+    }
+
+    /**
+     * Cambia el precio del producto.
+     * PESIMISTA: SELECT ... FOR UPDATE. OPTIMISTA: lee sin bloqueo y el UPDATE chequea la versión;
+     * si hubo conflicto se reintenta (Reintentos.optimista).
+     */
+    public boolean actualizarPrecio(Long idProducto, BigDecimal nuevoPrecio, ModoConcurrencia modo) {
+        return M_PRECIO.medir(() -> {
+            if (nuevoPrecio == null || nuevoPrecio.signum() < 0) {
+                throw new IllegalArgumentException("El precio no puede ser nulo ni negativo");
+            }
+            if (modo == null) throw new IllegalArgumentException("El modo no puede ser nulo");
+            if (modo == ModoConcurrencia.OPTIMISTA) {
+                return Reintentos.optimista(() -> actualizarPrecioUnaVez(idProducto, nuevoPrecio, modo));
+            }
+            return actualizarPrecioUnaVez(idProducto, nuevoPrecio, modo);
+        });
+    }
+
+    private boolean actualizarPrecioUnaVez(Long idProducto, BigDecimal nuevoPrecio, ModoConcurrencia modo) {
         Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
+        try (Session session = sessionFactory.openSession()) {
             tx = session.beginTransaction();
-            Producto p = session.get(Producto.class, idProducto);
+            Producto p = leerParaModificar(session, idProducto, modo);
             if (p == null) {
                 tx.rollback();
                 return false;
             }
             p.setPrecioUnitario(nuevoPrecio);
             tx.commit();
+            cacheProductos.poner(p.getIdProducto(), Boolean.TRUE.equals(p.getActivo()), nuevoPrecio);
             return true;
         } catch (Exception e) {
             if (tx != null) tx.rollback();
@@ -144,17 +285,38 @@ public class ProductoController {
     }
 
     /**
-     * Ajusta el stock del producto sumando 'delta' (puede ser negativo).
+     * Ajusta el stock del producto sumando 'delta' (puede ser negativo), con el modo por defecto.
      * NOTA: En el flujo real, los triggers de BD actualizan stock al insertar/borrar detalles de factura.
      * Este método es útil para correcciones manuales.
      */
     public Integer ajustarStock(Long idProducto, int delta) {
+        return ajustarStock(idProducto, delta, modoConcurrencia);
+    }
+
+    /**
+     * Ajusta el stock con el modo indicado.
+     * PESIMISTA: la lectura con PESSIMISTIC_WRITE no usa la caché de 2° nivel (va siempre a la BD)
+     * y bloquea la fila hasta el commit.
+     * OPTIMISTA: no bloquea; el UPDATE lleva "where version = ?" y ante OptimisticLockException
+     * se reintenta con backoff + jitter (los triggers también incrementan la versión).
+     * En ambos casos el UPDATE actualiza la entrada cacheada (READ_WRITE).
+     */
+    public Integer ajustarStock(Long idProducto, int delta, ModoConcurrencia modo) {
+        return M_STOCK.medir(() -> {
+            if (modo == null) throw new IllegalArgumentException("El modo no puede ser nulo");
+            if (modo == ModoConcurrencia.OPTIMISTA) {
+                return Reintentos.optimista(() -> ajustarStockUnaVez(idProducto, delta, modo));
+            }
+            return ajustarStockUnaVez(idProducto, delta, modo);
+        });
+    }
+
+    private Integer ajustarStockUnaVez(Long idProducto, int delta, ModoConcurrencia modo) {
         Transaction tx = null;
-        try (Session session = SESSION_FACTORY.openSession()) {
+        try (Session session = sessionFactory.openSession()) {
             tx = session.beginTransaction();
 
-            // Bloqueo pesimista para evitar carreras al ajustar stock manualmente
-            Producto p = session.get(Producto.class, idProducto, new LockOptions(LockMode.PESSIMISTIC_WRITE));
+            Producto p = leerParaModificar(session, idProducto, modo);
             if (p == null) {
                 tx.rollback();
                 throw new IllegalArgumentException("Producto inexistente id=" + idProducto);
@@ -167,6 +329,14 @@ public class ProductoController {
             }
             p.setStock(nuevo);
 
+            Outbox outbox = new Outbox();
+            outbox.stock(p.getIdProducto(), delta, nuevo);
+            try {
+                outbox.aplicar(session);
+            } catch (RuntimeException e) {
+                tx.rollback(); // el flush hace el UPDATE: con OPTIMISTA, el conflicto de versión salta acá
+                throw e;
+            }
             tx.commit();
             return nuevo;
         } catch (RuntimeException e) {
@@ -177,10 +347,322 @@ public class ProductoController {
             throw new RuntimeException("No se pudo ajustar el stock del producto id=" + idProducto + ": " + e.getMessage(), e);
         }
     }
-    /** Cerrar el SessionFactory para que no queden hilos vivos al salir. */
-    public static void shutdown() {
-        try {
-            if (SESSION_FACTORY != null) SESSION_FACTORY.close();
-        } catch (Exception ignore) {}
+
+    /**
+     * Aplica varios ajustes de stock (idProducto -> delta) en una sola transacción, p. ej. al recibir
+     * una entrega de un proveedor. Todo o nada: si algún producto no existe o quedaría con stock
+     * negativo no se aplica ninguno (IllegalArgumentException / IllegalStateException con todos los casos).
+     * Bloquea las filas con un único SELECT ... FOR UPDATE ordenado por id (mismo orden en todos los
+     * llamadores, así dos ajustes masivos no se bloquean en cruz) y escribe con UPDATE ... CASE de hasta
+     * LOTE_CASE productos por sentencia.
+     * MySQL no tiene UPDATE ... RETURNING: el stock nuevo se calcula con la lectura bloqueada,
+     * que es igual de exacta porque nadie puede cambiar esas filas hasta el commit.
+     * @return stock resultante por producto, ordenado por id
+     */
+    public SortedMap<Integer, Integer> ajustarStockMasivo(Map<Integer, Integer> deltas) {
+        return M_STOCK_MASIVO.medir(() -> {
+            if (deltas == null) throw new IllegalArgumentException("Los ajustes no pueden ser nulos");
+            SortedMap<Integer, Integer> orden = new TreeMap<>();
+            for (Map.Entry<Integer, Integer> e : deltas.entrySet()) {
+                if (e.getKey() == null || e.getValue() == null) {
+                    throw new IllegalArgumentException("Ajuste inválido: " + e.getKey() + " -> " + e.getValue());
+                }
+                if (e.getValue() != 0) orden.put(e.getKey(), e.getValue());
+            }
+            if (orden.isEmpty()) return new TreeMap<>();
+
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+
+                SortedMap<Integer, Integer> actuales = new TreeMap<>();
+                List<Integer> ids = new ArrayList<>(orden.keySet());
+                for (int desde = 0; desde < ids.size(); desde += LOTE_CASE) {
+                    List<Object[]> filas = session.createNativeQuery(
+                                    "select id_producto, stock from producto where id_producto in (:ids) " +
+                                            "order by id_producto for update", Object[].class)
+                            .setParameterList("ids", ids.subList(desde, Math.min(ids.size(), desde + LOTE_CASE)))
+                            .getResultList();
+                    for (Object[] f : filas) {
+                        actuales.put(((Number) f[0]).intValue(), f[1] == null ? 0 : ((Number) f[1]).intValue());
+                    }
+                }
+
+                List<Integer> inexistentes = new ArrayList<>();
+                List<String> negativos = new ArrayList<>();
+                SortedMap<Integer, Integer> nuevos = new TreeMap<>();
+                for (Map.Entry<Integer, Integer> e : orden.entrySet()) {
+                    Integer actual = actuales.get(e.getKey());
+                    if (actual == null) {
+                        inexistentes.add(e.getKey());
+                        continue;
+                    }
+                    long nuevo = (long) actual + e.getValue();
+                    if (nuevo < 0 || nuevo > Integer.MAX_VALUE) negativos.add("id=" + e.getKey() + " (" + nuevo + ")");
+                    else nuevos.put(e.getKey(), (int) nuevo);
+                }
+                if (!inexistentes.isEmpty()) {
+                    tx.rollback();
+                    throw new IllegalArgumentException("Productos inexistentes: " + inexistentes);
+                }
+                if (!negativos.isEmpty()) {
+                    tx.rollback();
+                    throw new IllegalStateException("Stock resultante inválido, no se aplicó ningún ajuste: " + negativos);
+                }
+
+                for (int desde = 0; desde < ids.size(); desde += LOTE_CASE) {
+                    actualizarStockCase(session, ids.subList(desde, Math.min(ids.size(), desde + LOTE_CASE)), nuevos);
+                }
+
+                Outbox outbox = new Outbox();
+                nuevos.forEach((id, stock) -> outbox.stock(id, orden.get(id), stock));
+                outbox.aplicar(session);
+                tx.commit();
+                CacheUtil.evictarProductos(sessionFactory, nuevos.keySet());
+                return nuevos;
+            } catch (RuntimeException e) {
+                if (tx != null && tx.isActive()) tx.rollback();
+                throw e;
+            } catch (Exception e) {
+                if (tx != null && tx.isActive()) tx.rollback();
+                throw new RuntimeException("No se pudo aplicar el ajuste masivo de stock: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * update producto set stock = case id_producto when ? then ? ... end, version = version + 1 where id_producto in (...)
+     * Por JDBC: una sentencia nativa de Hibernate sin query spaces vaciaría todas las regiones de la caché
+     * de 2° nivel (Cliente incluido); el llamador evicta solo los productos ajustados.
+     */
+    private static void actualizarStockCase(Session session, List<Integer> ids, Map<Integer, Integer> nuevos) {
+        StringBuilder sql = new StringBuilder("update producto set stock = case id_producto");
+        sql.append(" when ? then ?".repeat(ids.size()));
+        // La versión sube igual que en un UPDATE de Hibernate: los lectores optimistas ven el cambio
+        sql.append(" end, version = version + 1 where id_producto in (").append("?,".repeat(ids.size() - 1)).append("?)");
+
+        int filas = session.doReturningWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                int i = 1;
+                for (Integer id : ids) {
+                    ps.setInt(i++, id);
+                    ps.setInt(i++, nuevos.get(id));
+                }
+                for (Integer id : ids) ps.setInt(i++, id);
+                return ps.executeUpdate();
+            }
+        });
+        if (filas != ids.size()) {
+            throw new IllegalStateException("Se esperaban " + ids.size() + " filas actualizadas y fueron " + filas);
+        }
+    }
+
+    // ======= Cambios masivos (un solo UPDATE por operación) =======
+
+    /**
+     * Sube (o baja, con porcentaje negativo) el precio de los productos del filtro, p. ej. +7%.
+     * El precio resultante se redondea a 2 decimales, como la columna.
+     * @return cantidad de productos actualizados
+     */
+    public int ajustarPreciosPorcentaje(FiltroProductos filtro, BigDecimal porcentaje) {
+        return M_PRECIOS_PORCENTAJE.medir(() -> {
+            if (porcentaje == null) throw new IllegalArgumentException("El porcentaje no puede ser nulo");
+            BigDecimal factor = BigDecimal.ONE.add(porcentaje.movePointLeft(2));
+            if (factor.signum() < 0) throw new IllegalArgumentException("El porcentaje no puede ser menor a -100");
+            return actualizarMasivo(filtro,
+                    "set p.precioUnitario = round(p.precioUnitario * :factor, 2)", "", "factor", factor, false,
+                    "No se pudo ajustar precios");
+        });
+    }
+
+    /**
+     * Suma 'monto' (puede ser negativo) al precio de los productos del filtro.
+     * Si algún precio quedara negativo no se aplica a ninguno.
+     * @return cantidad de productos actualizados
+     */
+    public int ajustarPreciosMonto(FiltroProductos filtro, BigDecimal monto) {
+        return M_PRECIOS_MONTO.medir(() -> {
+            if (monto == null) throw new IllegalArgumentException("El monto no puede ser nulo");
+            return actualizarMasivo(filtro,
+                    "set p.precioUnitario = p.precioUnitario + :monto", "", "monto", monto, monto.signum() < 0,
+                    "No se pudo ajustar precios");
+        });
+    }
+
+    /**
+     * Activa o desactiva los productos del filtro. Solo toca los que cambian de estado.
+     * @return cantidad de productos que cambiaron
+     */
+    public int activarDesactivarMasivo(FiltroProductos filtro, boolean activo) {
+        return M_ACTIVAR_MASIVO.medir(() -> {
+            return actualizarMasivo(filtro,
+                    "set p.activo = :activo", " and p.activo <> :activo", "activo", activo, false,
+                    "No se pudo cambiar el estado de los productos");
+        });
+    }
+
+    /**
+     * UPDATE HQL "versioned" (incrementa la versión, así los lectores optimistas detectan el cambio)
+     * con el WHERE del filtro más 'condicion' (que puede usar el mismo parámetro del SET). Con 'validarPrecios' chequea en la misma transacción que ningún precio
+     * haya quedado negativo: las filas ya están bloqueadas por el UPDATE, así que el conteo es exacto.
+     * Al final evicta la región de productos de la caché de 2° nivel y, si cambió algo, vuelve a leer
+     * estado y precio de los productos del filtro para el índice y CacheProductos.
+     */
+    private int actualizarMasivo(FiltroProductos filtro, String set, String condicion, String parametro, Object valor,
+                                 boolean validarPrecios, String error) {
+        if (filtro == null) throw new IllegalArgumentException("El filtro no puede ser nulo");
+        String where = " where 1 = 1" + filtro.hql();
+
+        int filas;
+        Transaction tx = null;
+        try (Session session = sessionFactory.openSession()) {
+            tx = session.beginTransaction();
+            MutationQuery q = session.createMutationQuery("update versioned Producto p " + set + where + condicion)
+                    .setParameter(parametro, valor);
+            filtro.bind(q);
+            filas = q.executeUpdate();
+
+            if (validarPrecios) {
+                SelectionQuery<Long> negativos = session.createSelectionQuery(
+                        "select count(p) from Producto p" + where + " and p.precioUnitario < 0", Long.class);
+                filtro.bind(negativos);
+                long n = negativos.getSingleResult();
+                if (n > 0) {
+                    tx.rollback();
+                    throw new IllegalStateException(n + " producto(s) quedarían con precio negativo; no se aplicó ningún cambio");
+                }
+            }
+
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null && tx.isActive()) tx.rollback();
+            throw e;
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) tx.rollback();
+            throw new RuntimeException(error + ": " + e.getMessage(), e);
+        } finally {
+            // Aunque Hibernate invalida la región al ejecutar el UPDATE, la evicción explícita deja claro el contrato
+            CacheUtil.evictarProductos(sessionFactory);
+        }
+        if (filas > 0) sincronizar(filtro);
+        return filas;
+    }
+
+    /** Vuelve a leer estado y precio de los productos del filtro y los publica en el índice y la caché. */
+    private void sincronizar(FiltroProductos filtro) {
+        IndiceProductos idx = indice;
+        try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+            SelectionQuery<Object[]> q = session.createSelectionQuery(
+                    "select p.idProducto, p.activo, p.precioUnitario from Producto p where 1 = 1" + filtro.hql(), Object[].class);
+            filtro.bind(q);
+            CacheProductos.Lote lote = cacheProductos.lote();
+            q.getResultStream().forEach(r -> {
+                int id = (Integer) r[0];
+                boolean activo = Boolean.TRUE.equals(r[1]);
+                if (idx != null) idx.cambiarEstado(id, activo);
+                lote.poner(id, activo, (BigDecimal) r[2]);
+            });
+            lote.publicar();
+        }
+    }
+
+    /** Lee el producto a modificar según el modo de concurrencia. */
+    private Producto leerParaModificar(Session session, Long idProducto, ModoConcurrencia modo) {
+        if (modo == ModoConcurrencia.PESIMISTA) {
+            // Bloqueo pesimista para evitar carreras al ajustar stock manualmente
+            return session.get(Producto.class, idProducto, new LockOptions(LockMode.PESSIMISTIC_WRITE));
+        }
+        // Optimista: la versión tiene que ser la de la BD, no la de una entrada cacheada vieja
+        session.setCacheMode(CacheMode.REFRESH);
+        return session.get(Producto.class, idProducto);
+    }
+
+    // ======= Búsqueda por nombre =======
+
+    /**
+     * Construye el índice de nombres en un hilo aparte, recorriendo la tabla con cursor.
+     * Desde este momento las altas, cambios y bajas ya lo mantienen (ver IndiceProductos);
+     * llamarlo de nuevo reconstruye el índice desde cero.
+     */
+    public CompletableFuture<Void> iniciarIndice() {
+        IndiceProductos nuevo = new IndiceProductos();
+        indice = nuevo;
+        Thread t = new Thread(() -> {
+            try {
+                StreamingUtil.recorrer(sessionFactory, "select p.idProducto, p.nombre, p.activo from Producto p",
+                        Object[].class, StreamingUtil.LOTE_DEFAULT,
+                        r -> nuevo.cargar((Integer) r[0], (String) r[1], (Boolean) r[2]));
+                nuevo.terminarCarga();
+            } catch (Exception e) {
+                nuevo.fallarCarga(e);
+            }
+        }, "indice-productos");
+        t.setDaemon(true);
+        t.start();
+        return nuevo.carga();
+    }
+
+    /**
+     * Los 'limite' productos cuyo nombre mejor coincide con 'texto' (por palabra, prefijo o con un error
+     * de tipeo; los activos primero). No va a la base.
+     */
+    public List<ProductoEncontrado> buscar(String texto, int limite) {
+        return M_BUSCAR.medir(() -> {
+            if (limite <= 0) throw new IllegalArgumentException("El límite debe ser > 0");
+            IndiceProductos idx = indice;
+            if (idx == null) throw new IllegalStateException("El índice de productos no está iniciado");
+            try {
+                idx.carga().get(ESPERA_INDICE_SEG, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("El índice de productos todavía se está construyendo; reintente en unos segundos");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("No se pudo construir el índice de productos: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Búsqueda interrumpida", e);
+            }
+            return idx.buscar(texto, limite);
+        });
+    }
+
+    /** Alta o cambio ya confirmado: al índice de nombres y a la caché de productos. */
+    private void publicar(Producto p) {
+        boolean activo = Boolean.TRUE.equals(p.getActivo());
+        IndiceProductos idx = indice;
+        if (idx != null) idx.poner(p.getIdProducto(), p.getNombre(), activo);
+        cacheProductos.poner(p.getIdProducto(), activo, p.getPrecioUnitario());
+    }
+
+    // ======= Proyecciones de solo lectura (listados de las vistas) =======
+
+    /** Página de productos (keyset por id, como listarTodos) sin hidratar entidades. */
+    public List<ProductoResumen> listarResumenes(Integer despuesDeId, int limite) {
+        return M_RESUMENES.medir(() -> {
+            if (limite <= 0) throw new IllegalArgumentException("El límite debe ser > 0");
+            try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+                return session.createSelectionQuery(
+                                "select new ar.edu.unlu.bd2.controller.ProductoResumen(p.idProducto, p.nombre, p.precioUnitario, p.stock, p.activo) " +
+                                        "from Producto p where p.idProducto > :desde order by p.idProducto", ProductoResumen.class)
+                        .setParameter("desde", despuesDeId == null ? Integer.MIN_VALUE : despuesDeId)
+                        .setMaxResults(limite)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo listar productos: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Productos activos como proyección (sin entidades ni caché de 2° nivel). */
+    public List<ProductoResumen> listarActivosResumen() {
+        return M_ACTIVOS_RESUMEN.medir(() -> {
+            try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+                return session.createSelectionQuery(
+                                "select new ar.edu.unlu.bd2.controller.ProductoResumen(p.idProducto, p.nombre, p.precioUnitario, p.stock, p.activo) " +
+                                        "from Producto p where p.activo = true order by p.idProducto", ProductoResumen.class)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo listar productos activos: " + e.getMessage(), e);
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package ar.edu.unlu.bd2.controller;
+
+import java.math.BigDecimal;
+
+/** Fila de un listado de productos (proyección: no es una entidad administrada). */
+public record ProductoResumen(Integer idProducto, String nombre, BigDecimal precioUnitario, Integer stock,
+                              Boolean activo) { }
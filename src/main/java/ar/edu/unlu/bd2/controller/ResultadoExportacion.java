@@ -0,0 +1,26 @@
+package ar.edu.unlu.bd2.controller;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/** Resultado de una exportación: archivos escritos, facturas, líneas, bytes en disco y duración. */
+public record ResultadoExportacion(List<Path> archivos, long facturas, long lineas, long bytes, long nanos) {
+
+    public ResultadoExportacion {
+        archivos = List.copyOf(archivos);
+    }
+
+    public double facturasPorSegundo() {
+        return nanos == 0 ? 0 : facturas / (nanos / 1e9);
+    }
+
+    public double megabytesPorSegundo() {
+        return nanos == 0 ? 0 : bytes / 1048576.0 / (nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d archivo(s), %d facturas, %d líneas, %.1f MB en %.1f s (%.0f facturas/s, %.1f MB/s)",
+                archivos.size(), facturas, lineas, bytes / 1048576.0, nanos / 1e9, facturasPorSegundo(), megabytesPorSegundo());
+    }
+}
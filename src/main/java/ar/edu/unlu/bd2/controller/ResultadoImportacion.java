@@ -0,0 +1,18 @@
+package ar.edu.unlu.bd2.controller;
+
+/**
+ * Avance (o resultado final) de una importación CSV.
+ * 'leidas' cuenta las filas de datos del archivo (sin el encabezado).
+ */
+public record ResultadoImportacion(long leidas, long importadas, long rechazadas, long nanos) {
+
+    public double filasPorSegundo() {
+        return nanos == 0 ? 0 : leidas / (nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d filas leídas, %d importadas, %d rechazadas en %.1f s (%.0f filas/s)",
+                leidas, importadas, rechazadas, nanos / 1e9, filasPorSegundo());
+    }
+}
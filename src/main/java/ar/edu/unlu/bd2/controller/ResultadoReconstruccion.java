@@ -0,0 +1,15 @@
+package ar.edu.unlu.bd2.controller;
+
+import java.time.LocalDate;
+
+/** Resultado de VentasController.reconstruir: rango recalculado, particiones, filas escritas y duración. */
+public record ResultadoReconstruccion(LocalDate desde, LocalDate hasta, int particiones,
+                                      long filasProducto, long filasCliente, long nanos) {
+
+    @Override
+    public String toString() {
+        if (desde == null) return "Sin ventas: no hay nada que reconstruir";
+        return String.format("[%s, %s) en %d partición(es): %d filas por producto, %d por cliente en %.1f s",
+                desde, hasta, particiones, filasProducto, filasCliente, nanos / 1e9);
+    }
+}
@@ -0,0 +1,14 @@
+package ar.edu.unlu.bd2.controller;
+
+import ar.edu.unlu.bd2.modelo.Cliente;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Cliente con los agregados de sus facturas calculados en la BD (sin cargar las facturas).
+ * 'ultimaFactura' es null si el cliente no tiene facturas. Las facturas en sí se piden por
+ * página con ClienteController.listarFacturas.
+ */
+public record ResumenCliente(Cliente cliente, long cantidadFacturas, BigDecimal totalHistorico,
+                             LocalDateTime ultimaFactura) { }
@@ -0,0 +1,96 @@
+package ar.edu.unlu.bd2.controller;
+
+import ar.edu.unlu.bd2.modelo.DetalleFactura;
+import ar.edu.unlu.bd2.modelo.DetalleFacturaId;
+import ar.edu.unlu.bd2.modelo.Factura;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MariaDBDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trae precio_unitario y subtotal de detalles recién insertados, y el total que dejaron los triggers en
+ * la factura. DetalleFactura no los marca como generados en el INSERT para que Hibernate mande los
+ * INSERT de detalle en batch; acá se leen todos juntos después del flush, con una sola consulta.
+ * Las altas de un solo detalle usan insertar(): en MariaDB (INSERT ... RETURNING) y H2 (FINAL TABLE)
+ * el INSERT mismo devuelve los valores del trigger BEFORE INSERT, sin SELECT aparte; en MySQL, que no
+ * tiene ninguna de las dos, siguen siendo INSERT + SELECT.
+ * Corre dentro de la transacción del caller.
+ */
+final class ValoresCalculados {
+
+    private ValoresCalculados() { }
+
+    /**
+     * Alta de un detalle con precio_unitario y subtotal leídos en la misma sentencia (ver arriba).
+     * En MariaDB y H2 el INSERT va por JDBC: 'det' no queda en la sesión, ni se lee el total de la
+     * factura (lo cambia el trigger y las vistas releen la factura). Los cambios pendientes de la
+     * sesión (p. ej. el remove del detalle reemplazado) se mandan antes.
+     */
+    static void insertar(Session session, DetalleFactura det) {
+        Dialect dialect = session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+        String sql;
+        if (dialect instanceof MariaDBDialect) {
+            sql = "insert into factura_detalle (id_factura, id_producto, cantidad) values (?, ?, ?) " +
+                    "returning precio_unitario, subtotal";
+        } else if (dialect instanceof H2Dialect) {
+            sql = "select precio_unitario, subtotal from final table (" +
+                    "insert into factura_detalle (id_factura, id_producto, cantidad) values (?, ?, ?))";
+        } else {
+            session.persist(det);
+            leer(session, det.getFactura(), List.of(det));
+            return;
+        }
+        // Sin persist no hay @MapsId: la clave se arma acá, como la armaría Hibernate
+        det.setId(new DetalleFacturaId(det.getFactura().getIdFactura(), det.getProducto().getIdProducto()));
+        session.flush();
+        session.doWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, det.getId().getIdFactura());
+                ps.setInt(2, det.getId().getIdProducto());
+                ps.setInt(3, det.getCantidad());
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    det.asignarCalculados(rs.getBigDecimal(1), rs.getBigDecimal(2));
+                }
+            }
+        });
+    }
+
+    /** Flush de los INSERT pendientes y lectura de los valores de 'nuevos' (todos de 'factura') y del total. */
+    static void leer(Session session, Factura factura, Collection<DetalleFactura> nuevos) {
+        if (nuevos.isEmpty()) return;
+        session.flush();
+        Map<Integer, DetalleFactura> porProducto = new HashMap<>();
+        for (DetalleFactura d : nuevos) porProducto.put(d.getId().getIdProducto(), d);
+        boolean uno = porProducto.size() == 1;
+        // Si la factura es un proxy sin cargar (p. ej. detalle.getFactura()), el total no se pide
+        boolean conTotal = Hibernate.isInitialized(factura);
+        session.doWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "select d.id_producto, d.precio_unitario, d.subtotal, f.total " +
+                            "from factura_detalle d join factura f on f.id_factura = d.id_factura " +
+                            "where d.id_factura = ?" + (uno ? " and d.id_producto = ?" : ""))) {
+                ps.setInt(1, factura.getIdFactura());
+                if (uno) ps.setInt(2, porProducto.keySet().iterator().next());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        DetalleFactura d = porProducto.get(rs.getInt(1));
+                        if (d != null) d.asignarCalculados(rs.getBigDecimal(2), rs.getBigDecimal(3));
+                        if (conTotal) factura.asignarTotal(rs.getBigDecimal(4));
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,7 @@
+package ar.edu.unlu.bd2.controller;
+
+import java.math.BigDecimal;
+
+/** Compras acumuladas de un cliente en un rango de fechas (fila de un top-N). */
+public record VentaCliente(Integer idCliente, String nombre, String apellido, long cantidad, BigDecimal importe,
+                           long lineas) { }
@@ -0,0 +1,7 @@
+package ar.edu.unlu.bd2.controller;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** Ventas de un día (de todos los productos o de uno solo): unidades, importe y líneas de factura. */
+public record VentaDia(LocalDate dia, long cantidad, BigDecimal importe, long lineas) { }
@@ -0,0 +1,6 @@
+package ar.edu.unlu.bd2.controller;
+
+import java.math.BigDecimal;
+
+/** Ventas acumuladas de un producto en un rango de fechas (fila de un top-N). */
+public record VentaProducto(Integer idProducto, String nombre, long cantidad, BigDecimal importe, long lineas) { }
@@ -0,0 +1,268 @@
+package ar.edu.unlu.bd2.controller;
+
+import ar.edu.unlu.bd2.metricas.Medidor;
+import ar.edu.unlu.bd2.metricas.Metricas;
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.query.NativeQuery;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reportes de ventas leídos de los resúmenes diarios (venta_diaria_producto / venta_diaria_cliente,
+ * resources/sql/ventas_diarias.sql) en vez de recorrer factura_detalle: un rango de N días lee a lo
+ * sumo N x productos filas, sin importar cuántas líneas de factura haya.
+ * Los resúmenes los mantienen por delta FacturaController y DetalleFacturaController (ver DeltaVentas).
+ * Los rangos son [desde, hasta), como en ExportacionController.
+ * reconstruir recalcula los resúmenes desde factura_detalle, partiendo el rango de días en particiones
+ * que corren en paralelo, cada una en su transacción. Con ventas en curso, el INSERT ... SELECT de InnoDB
+ * bloquea las líneas que lee: un alta concurrente espera (o el motor aborta una de las dos por deadlock
+ * y se reintenta a mano), así que conviene correrla fuera de horario.
+ */
+public class VentasController {
+
+    /** Hilos máximos de reconstruir: cada partición ocupa una conexión del pool (máx. 10). */
+    public static final int MAX_HILOS = 4;
+
+    // ======= Métricas por operación (JMX / Prometheus, ver Metricas) =======
+    private static final Medidor M_POR_DIA = Metricas.medidor("ventas.porDia");
+    private static final Medidor M_POR_DIA_PRODUCTO = Metricas.medidor("ventas.porDiaDeProducto");
+    private static final Medidor M_TOP_PRODUCTOS = Metricas.medidor("ventas.topProductos");
+    private static final Medidor M_TOP_CLIENTES = Metricas.medidor("ventas.topClientes");
+    private static final Medidor M_RECONSTRUIR = Metricas.medidor("ventas.reconstruir");
+
+    private final SessionFactory sessionFactory;
+
+    public VentasController(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    // ======= Reportes =======
+
+    /** Totales por día (todos los productos), ordenados por fecha; los días sin ventas no aparecen. */
+    public List<VentaDia> porDia(LocalDate desde, LocalDate hasta) {
+        return M_POR_DIA.medir(() -> {
+            validarRango(desde, hasta);
+            try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+                List<Object[]> filas = session.createNativeQuery(
+                                "select dia, sum(cantidad), sum(importe), sum(lineas) from venta_diaria_producto " +
+                                        "where dia >= :desde and dia < :hasta group by dia order by dia", Object[].class)
+                        .setParameter("desde", desde)
+                        .setParameter("hasta", hasta)
+                        .getResultList();
+                return filas.stream().map(VentasController::ventaDia).toList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron obtener las ventas por día: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Serie diaria de un producto (recorre el índice (id_producto, dia)). */
+    public List<VentaDia> porDiaDeProducto(Integer idProducto, LocalDate desde, LocalDate hasta) {
+        return M_POR_DIA_PRODUCTO.medir(() -> {
+            validarRango(desde, hasta);
+            if (idProducto == null) throw new IllegalArgumentException("El producto es obligatorio");
+            try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+                List<Object[]> filas = session.createNativeQuery(
+                                "select dia, cantidad, importe, lineas from venta_diaria_producto " +
+                                        "where id_producto = :p and dia >= :desde and dia < :hasta order by dia", Object[].class)
+                        .setParameter("p", idProducto)
+                        .setParameter("desde", desde)
+                        .setParameter("hasta", hasta)
+                        .getResultList();
+                return filas.stream().map(VentasController::ventaDia).toList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudieron obtener las ventas del producto " + idProducto + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Los 'n' productos con más importe vendido en el rango (desempata por id). */
+    public List<VentaProducto> topProductos(LocalDate desde, LocalDate hasta, int n) {
+        return M_TOP_PRODUCTOS.medir(() -> {
+            validarRango(desde, hasta);
+            if (n <= 0) throw new IllegalArgumentException("N debe ser > 0");
+            try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+                List<Object[]> filas = session.createNativeQuery(
+                                "select v.id_producto, p.nombre, sum(v.cantidad), sum(v.importe), sum(v.lineas) " +
+                                        "from venta_diaria_producto v join producto p on p.id_producto = v.id_producto " +
+                                        "where v.dia >= :desde and v.dia < :hasta " +
+                                        "group by v.id_producto, p.nombre " +
+                                        "order by sum(v.importe) desc, v.id_producto", Object[].class)
+                        .setParameter("desde", desde)
+                        .setParameter("hasta", hasta)
+                        .setMaxResults(n)
+                        .getResultList();
+                return filas.stream()
+                        .map(r -> new VentaProducto(((Number) r[0]).intValue(), (String) r[1],
+                                ((Number) r[2]).longValue(), (BigDecimal) r[3], ((Number) r[4]).longValue()))
+                        .toList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo obtener el top de productos: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Los 'n' clientes con más importe comprado en el rango (desempata por id). */
+    public List<VentaCliente> topClientes(LocalDate desde, LocalDate hasta, int n) {
+        return M_TOP_CLIENTES.medir(() -> {
+            validarRango(desde, hasta);
+            if (n <= 0) throw new IllegalArgumentException("N debe ser > 0");
+            try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+                List<Object[]> filas = session.createNativeQuery(
+                                "select v.id_cliente, c.nombre, c.apellido, sum(v.cantidad), sum(v.importe), sum(v.lineas) " +
+                                        "from venta_diaria_cliente v join cliente c on c.id_cliente = v.id_cliente " +
+                                        "where v.dia >= :desde and v.dia < :hasta " +
+                                        "group by v.id_cliente, c.nombre, c.apellido " +
+                                        "order by sum(v.importe) desc, v.id_cliente", Object[].class)
+                        .setParameter("desde", desde)
+                        .setParameter("hasta", hasta)
+                        .setMaxResults(n)
+                        .getResultList();
+                return filas.stream()
+                        .map(r -> new VentaCliente(((Number) r[0]).intValue(), (String) r[1], (String) r[2],
+                                ((Number) r[3]).longValue(), (BigDecimal) r[4], ((Number) r[5]).longValue()))
+                        .toList();
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo obtener el top de clientes: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // ======= Reconstrucción =======
+
+    /**
+     * Reconstruye toda la historia: el rango cubre las fechas de las facturas y las de los resúmenes
+     * actuales (así también se borran días que quedaron sin facturas).
+     */
+    public ResultadoReconstruccion reconstruir(int particiones) {
+        LocalDate[] rango;
+        try (Session session = HibernateUtil.abrirLectura(sessionFactory)) {
+            Object[] r = session.createNativeQuery(
+                    "select min(d), max(d) from (" +
+                            "select cast(min(fecha) as date) d from factura union all " +
+                            "select cast(max(fecha) as date) from factura union all " +
+                            "select min(dia) from venta_diaria_producto union all " +
+                            "select max(dia) from venta_diaria_producto union all " +
+                            "select min(dia) from venta_diaria_cliente union all " +
+                            "select max(dia) from venta_diaria_cliente) x", Object[].class).getSingleResult();
+            rango = new LocalDate[] { fecha(r[0]), fecha(r[1]) };
+        } catch (Exception e) {
+            throw new RuntimeException("No se pudo calcular el rango a reconstruir: " + e.getMessage(), e);
+        }
+        if (rango[0] == null) return new ResultadoReconstruccion(null, null, 0, 0, 0, 0);
+        return reconstruir(rango[0], rango[1].plusDays(1), particiones);
+    }
+
+    /**
+     * Recalcula los resúmenes de [desde, hasta) desde factura_detalle: el rango se parte en 'particiones'
+     * tramos de días consecutivos y cada uno (borrado + INSERT ... SELECT agrupado) corre en su transacción,
+     * con hasta MAX_HILOS en paralelo. Si una partición falla, las ya confirmadas quedan bien.
+     */
+    public ResultadoReconstruccion reconstruir(LocalDate desde, LocalDate hasta, int particiones) {
+        return M_RECONSTRUIR.medir(() -> {
+            long t0 = System.nanoTime();
+            validarRango(desde, hasta);
+            if (particiones <= 0) throw new IllegalArgumentException("Las particiones deben ser > 0");
+            long dias = ChronoUnit.DAYS.between(desde, hasta);
+            int n = (int) Math.min(particiones, dias);
+
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(n, MAX_HILOS));
+            try {
+                List<Future<long[]>> futuros = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    LocalDate d = desde.plusDays(dias * i / n);
+                    LocalDate h = desde.plusDays(dias * (i + 1) / n);
+                    futuros.add(pool.submit(() -> reconstruirParticion(d, h)));
+                }
+                long filasProducto = 0, filasCliente = 0;
+                for (Future<long[]> f : futuros) {
+                    long[] filas = f.get();
+                    filasProducto += filas[0];
+                    filasCliente += filas[1];
+                }
+                return new ResultadoReconstruccion(desde, hasta, n, filasProducto, filasCliente, System.nanoTime() - t0);
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                if (causa instanceof RuntimeException re) throw re;
+                throw new RuntimeException("No se pudieron reconstruir los resúmenes: " + causa.getMessage(), causa);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Reconstrucción interrumpida", e);
+            } finally {
+                pool.shutdownNow();
+            }
+        });
+    }
+
+    /**
+     * Sentencia nativa sobre 'tabla' declarada como su único query space. Sin eso Hibernate vacía todas
+     * las regiones de la caché de 2° nivel (Producto, Cliente) en cada sentencia, aunque ninguna entidad
+     * mapee los resúmenes. createNativeMutationQuery devuelve una NativeQuery (MutationQuery no expone
+     * los query spaces); los parámetros los sigue ligando Hibernate, con hibernate.jdbc.time_zone.
+     */
+    private static NativeQuery<?> nativa(Session session, String tabla, String sql) {
+        return ((NativeQuery<?>) session.createNativeMutationQuery(sql)).addSynchronizedQuerySpace(tabla);
+    }
+
+    /** Una partición en una transacción; devuelve {filas por producto, filas por cliente}. */
+    private long[] reconstruirParticion(LocalDate desde, LocalDate hasta) {
+        Transaction tx = null;
+        try (Session session = sessionFactory.openSession()) {
+            tx = session.beginTransaction();
+            long[] filas = new long[2];
+            String[][] tablas = {
+                    { "venta_diaria_producto", "id_producto", "d.id_producto" },
+                    { "venta_diaria_cliente", "id_cliente", "f.id_cliente" }
+            };
+            for (int i = 0; i < tablas.length; i++) {
+                String tabla = tablas[i][0];
+                nativa(session, tabla, "delete from " + tabla + " where dia >= :desde and dia < :hasta")
+                        .setParameter("desde", desde)
+                        .setParameter("hasta", hasta)
+                        .executeUpdate();
+                filas[i] = nativa(session, tabla,
+                                "insert into " + tabla + " (dia, " + tablas[i][1] + ", cantidad, importe, lineas) " +
+                                        "select cast(f.fecha as date), " + tablas[i][2] + ", sum(d.cantidad), sum(d.subtotal), count(*) " +
+                                        "from factura f join factura_detalle d on d.id_factura = f.id_factura " +
+                                        "where f.fecha >= :desde and f.fecha < :hasta " +
+                                        "group by cast(f.fecha as date), " + tablas[i][2])
+                        .setParameter("desde", desde.atStartOfDay())
+                        .setParameter("hasta", hasta.atStartOfDay())
+                        .executeUpdate();
+            }
+            tx.commit();
+            return filas;
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) tx.rollback();
+            throw new RuntimeException("No se pudo reconstruir [" + desde + ", " + hasta + "): " + e.getMessage(), e);
+        }
+    }
+
+    // ======= Auxiliares =======
+
+    private static VentaDia ventaDia(Object[] r) {
+        return new VentaDia(fecha(r[0]), ((Number) r[1]).longValue(), (BigDecimal) r[2], ((Number) r[3]).longValue());
+    }
+
+    /** DATE de una consulta nativa: según driver y dialecto llega como java.sql.Date o LocalDate. */
+    private static LocalDate fecha(Object o) {
+        if (o == null || o instanceof LocalDate) return (LocalDate) o;
+        return ((java.sql.Date) o).toLocalDate();
+    }
+
+    private static void validarRango(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null) throw new IllegalArgumentException("El rango de fechas es obligatorio");
+        if (!desde.isBefore(hasta)) throw new IllegalArgumentException("'desde' debe ser anterior a 'hasta'");
+    }
+}
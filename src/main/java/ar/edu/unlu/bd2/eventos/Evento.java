@@ -0,0 +1,88 @@
+package ar.edu.unlu.bd2.eventos;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Evento de dominio de facturación. Los controllers lo escriben en evento_outbox en la misma
+ * transacción que el cambio (ver resources/sql/outbox.sql); RelayOutbox lo pasa a LogEventos.
+ * Los importes son los que dejaron los triggers (precio y subtotal de la línea después del flush).
+ */
+public sealed interface Evento {
+
+    TipoEvento tipo();
+
+    /** Factura del evento (0 si no es de una factura): los de una misma factura quedan en orden de commit. */
+    int idFactura();
+
+    /** Producto del evento, o 0. */
+    int idProducto();
+
+    /** El evento como objeto JSON de una línea. */
+    String json();
+
+    record FacturaCreada(int idFactura, int idCliente, LocalDateTime fecha, int lineas, BigDecimal total)
+            implements Evento {
+        public TipoEvento tipo() { return TipoEvento.FACTURA_CREADA; }
+        public int idProducto() { return 0; }
+        public String json() {
+            return new Json().campo("idFactura", idFactura).campo("idCliente", idCliente).campo("fecha", fecha)
+                    .campo("lineas", lineas).campo("total", total).cerrar();
+        }
+    }
+
+    record FacturaEliminada(int idFactura, int lineas) implements Evento {
+        public TipoEvento tipo() { return TipoEvento.FACTURA_ELIMINADA; }
+        public int idProducto() { return 0; }
+        public String json() {
+            return new Json().campo("idFactura", idFactura).campo("lineas", lineas).cerrar();
+        }
+    }
+
+    record DetalleAgregado(int idFactura, int idProducto, int cantidad, BigDecimal precioUnitario, BigDecimal subtotal)
+            implements Evento {
+        public TipoEvento tipo() { return TipoEvento.DETALLE_AGREGADO; }
+        public String json() {
+            return new Json().campo("idFactura", idFactura).campo("idProducto", idProducto).campo("cantidad", cantidad)
+                    .campo("precioUnitario", precioUnitario).campo("subtotal", subtotal).cerrar();
+        }
+    }
+
+    record DetalleCantidadCambiada(int idFactura, int idProducto, int cantidadAnterior, int cantidad, BigDecimal subtotal)
+            implements Evento {
+        public TipoEvento tipo() { return TipoEvento.DETALLE_CANTIDAD_CAMBIADA; }
+        public String json() {
+            return new Json().campo("idFactura", idFactura).campo("idProducto", idProducto)
+                    .campo("cantidadAnterior", cantidadAnterior).campo("cantidad", cantidad)
+                    .campo("subtotal", subtotal).cerrar();
+        }
+    }
+
+    /** idProducto es el nuevo. */
+    record DetalleReemplazado(int idFactura, int idProductoAnterior, int idProducto, int cantidad,
+                              BigDecimal precioUnitario, BigDecimal subtotal) implements Evento {
+        public TipoEvento tipo() { return TipoEvento.DETALLE_REEMPLAZADO; }
+        public String json() {
+            return new Json().campo("idFactura", idFactura).campo("idProductoAnterior", idProductoAnterior)
+                    .campo("idProducto", idProducto).campo("cantidad", cantidad)
+                    .campo("precioUnitario", precioUnitario).campo("subtotal", subtotal).cerrar();
+        }
+    }
+
+    record DetalleEliminado(int idFactura, int idProducto, int cantidad, BigDecimal subtotal) implements Evento {
+        public TipoEvento tipo() { return TipoEvento.DETALLE_ELIMINADO; }
+        public String json() {
+            return new Json().campo("idFactura", idFactura).campo("idProducto", idProducto).campo("cantidad", cantidad)
+                    .campo("subtotal", subtotal).cerrar();
+        }
+    }
+
+    /** Ajuste manual de stock (ProductoController); el que hacen los triggers por cada línea no se publica aparte. */
+    record StockAjustado(int idProducto, int delta, int stock) implements Evento {
+        public TipoEvento tipo() { return TipoEvento.STOCK_AJUSTADO; }
+        public int idFactura() { return 0; }
+        public String json() {
+            return new Json().campo("idProducto", idProducto).campo("delta", delta).campo("stock", stock).cerrar();
+        }
+    }
+}
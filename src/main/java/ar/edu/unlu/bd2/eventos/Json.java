@@ -0,0 +1,48 @@
+package ar.edu.unlu.bd2.eventos;
+
+import java.math.BigDecimal;
+
+/**
+ * Arma un objeto JSON plano campo por campo, como ExportacionController con las facturas
+ * (no hay librería de JSON en el proyecto). Los importes van como número, sin notación científica.
+ */
+final class Json {
+
+    private final StringBuilder sb = new StringBuilder(128).append('{');
+
+    Json campo(String nombre, long valor) {
+        nombre(nombre).append(valor);
+        return this;
+    }
+
+    Json campo(String nombre, BigDecimal valor) {
+        nombre(nombre).append(valor == null ? "null" : valor.toPlainString());
+        return this;
+    }
+
+    Json campo(String nombre, Object valor) {
+        if (valor == null) {
+            nombre(nombre).append("null");
+            return this;
+        }
+        nombre(nombre).append('"');
+        String s = valor.toString();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        sb.append('"');
+        return this;
+    }
+
+    String cerrar() {
+        return sb.append('}').toString();
+    }
+
+    private StringBuilder nombre(String nombre) {
+        if (sb.length() > 1) sb.append(',');
+        return sb.append('"').append(nombre).append("\":");
+    }
+}
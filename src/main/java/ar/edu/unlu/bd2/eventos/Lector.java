@@ -0,0 +1,63 @@
+package ar.edu.unlu.bd2.eventos;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Cursor de un consumidor sobre LogEventos: lee en orden de offset lo ya confirmado, directo del
+ * archivo mapeado. Devuelve siempre el mismo Registro apuntado al evento actual (sin copiar ni crear
+ * objetos por evento). El consumidor guarda posicion() donde le convenga para retomar después.
+ * No es thread-safe; cada hilo que consume usa el suyo.
+ */
+public final class Lector {
+
+    private final LogEventos log;
+    private final Registro registro = new Registro();
+    private SegmentoLog segmento;
+    /** Posición del próximo registro en el segmento; -1 si hay que buscarla (al arrancar o cambiar de segmento). */
+    private int pos = -1;
+    private long siguiente;
+
+    Lector(LogEventos log, SegmentoLog segmento, long desde) {
+        this.log = log;
+        this.segmento = segmento;
+        this.siguiente = desde;
+    }
+
+    /** Offset del próximo evento a leer. */
+    public long posicion() {
+        return siguiente;
+    }
+
+    /** El próximo evento confirmado, o null si todavía no hay. */
+    public Registro siguiente() {
+        if (siguiente >= log.siguienteOffset()) return null;
+        if (siguiente >= segmento.limite) {
+            segmento = log.segmento(siguiente);
+            pos = -1;
+        }
+        if (pos < 0) pos = segmento.posicion(siguiente);
+        registro.apuntar(segmento.datos, pos);
+        pos += registro.largo();
+        siguiente++;
+        return registro;
+    }
+
+    /** Como siguiente(), pero espera hasta 'espera' a que llegue un evento; null si no llegó. */
+    public Registro siguiente(Duration espera) throws InterruptedException {
+        Registro r = siguiente();
+        if (r != null || !log.esperar(siguiente, espera.toNanos())) return r;
+        return siguiente();
+    }
+
+    /** Pasa al consumidor hasta 'max' eventos ya confirmados; devuelve cuántos leyó. */
+    public int leer(int max, Consumer<Registro> consumidor) {
+        int n = 0;
+        Registro r;
+        while (n < max && (r = siguiente()) != null) {
+            consumidor.accept(r);
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,199 @@
+package ar.edu.unlu.bd2.eventos;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Log de eventos local, de solo agregado, en segmentos mapeados en memoria (ver SegmentoLog).
+ * Cada evento tiene un offset: 0, 1, 2... en orden de llegada, sin huecos. Un segmento se llena y
+ * se abre el siguiente, que se llama como el offset de su primer registro (00000000000000012345.log).
+ *
+ * Escribe un solo productor (RelayOutbox): agregar() los registros de un lote y confirmar() una vez,
+ * que los baja a disco (msync) y recién ahí los hace visibles. Los lectores (lector(desde)) leen
+ * directo del mapeo, sin locks ni copias, cada uno a su ritmo; pueden esperar que llegue algo nuevo.
+ * Al abrir se recorre todo validando el CRC de cada registro y se descarta la cola de una escritura
+ * que quedó a medias. No hay retención: los segmentos viejos se borran a mano si hace falta.
+ */
+public final class LogEventos implements AutoCloseable {
+
+    /** Bytes de cabecera de cada registro (ver SegmentoLog). */
+    public static final int CABECERA = 42;
+    public static final int TAMANIO_SEGMENTO = 64 << 20;
+
+    private final Path directorio;
+    private final int tamanioSegmento;
+    /** Segmentos en orden; al rotar se publica un array nuevo (los lectores lo leen sin lock). */
+    private volatile SegmentoLog[] segmentos;
+    /** Offsets menores a este ya están en disco y se pueden leer. */
+    private volatile long confirmado;
+    private final Object aviso = new Object();
+
+    // Solo los usa el escritor (métodos sincronizados)
+    private SegmentoLog activo;
+    private long siguiente;
+    private boolean cerrado;
+
+    private LogEventos(Path directorio, int tamanioSegmento, SegmentoLog[] segmentos) {
+        this.directorio = directorio;
+        this.tamanioSegmento = tamanioSegmento;
+        this.segmentos = segmentos;
+        this.activo = segmentos[segmentos.length - 1];
+        this.siguiente = activo.base + activo.registros();
+        this.confirmado = siguiente;
+    }
+
+    public static LogEventos abrir(Path directorio) throws IOException {
+        return abrir(directorio, TAMANIO_SEGMENTO);
+    }
+
+    /** Abre (o crea) el log del directorio. 'tamanioSegmento' solo aplica a los segmentos nuevos. */
+    public static LogEventos abrir(Path directorio, int tamanioSegmento) throws IOException {
+        if (tamanioSegmento < 4096) throw new IllegalArgumentException("Segmento demasiado chico: " + tamanioSegmento);
+        Files.createDirectories(directorio);
+        List<Long> bases = new ArrayList<>();
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.matches("\\d{20}\\.log"))
+                    .forEach(n -> bases.add(Long.parseLong(n.substring(0, 20))));
+        }
+        bases.sort(null);
+        List<SegmentoLog> abiertos = new ArrayList<>();
+        for (long base : bases) {
+            SegmentoLog s = SegmentoLog.abrir(SegmentoLog.archivo(directorio, base), base);
+            if (!abiertos.isEmpty()) {
+                SegmentoLog anterior = abiertos.get(abiertos.size() - 1);
+                anterior.limite = anterior.base + anterior.registros();
+                if (anterior.limite != base) {
+                    throw new IOException("Log de eventos inconsistente: " + anterior.archivo + " termina en el offset "
+                            + anterior.limite + " y el segmento siguiente empieza en " + base);
+                }
+            }
+            abiertos.add(s);
+        }
+        if (abiertos.isEmpty()) abiertos.add(SegmentoLog.crear(directorio, 0, tamanioSegmento));
+        return new LogEventos(directorio, tamanioSegmento, abiertos.toArray(new SegmentoLog[0]));
+    }
+
+    // ======= Escritura =======
+
+    /**
+     * Agrega un evento al final y devuelve su offset. Queda pendiente hasta el próximo confirmar().
+     * @param json el evento en JSON (UTF-8)
+     */
+    public synchronized long agregar(long idEvento, long creado, TipoEvento tipo, int idFactura, int idProducto,
+                                     String json) {
+        if (cerrado) throw new IllegalStateException("El log de eventos está cerrado");
+        byte[] datos = json.getBytes(StandardCharsets.UTF_8);
+        int largo = CABECERA + datos.length;
+        if (largo > tamanioSegmento) throw new IllegalArgumentException("Evento demasiado grande: " + largo + " bytes");
+        if (!activo.entra(largo)) rotar();
+        long offset = siguiente++;
+        activo.agregar(offset, idEvento, creado, tipo, idFactura, idProducto, datos);
+        return offset;
+    }
+
+    /** Cierra el segmento activo (ya en disco) y abre uno nuevo a partir del offset siguiente. */
+    private void rotar() {
+        activo.forzar();
+        try {
+            SegmentoLog nuevo = SegmentoLog.crear(directorio, siguiente, tamanioSegmento);
+            activo.limite = siguiente;
+            SegmentoLog[] s = Arrays.copyOf(segmentos, segmentos.length + 1);
+            s[s.length - 1] = nuevo;
+            segmentos = s;
+            activo = nuevo;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el segmento " + siguiente + " del log de eventos", e);
+        }
+    }
+
+    /** Baja a disco lo agregado y lo publica para los lectores; despierta a los que esperan. */
+    public synchronized void confirmar() {
+        if (siguiente == confirmado) return;
+        activo.forzar();
+        confirmado = siguiente;
+        synchronized (aviso) {
+            aviso.notifyAll();
+        }
+    }
+
+    // ======= Lectura =======
+
+    /** Primer offset que todavía está en el log. */
+    public long primerOffset() {
+        return segmentos[0].base;
+    }
+
+    /** Offset que va a tener el próximo evento confirmado (= cantidad de eventos si nunca se borró nada). */
+    public long siguienteOffset() {
+        return confirmado;
+    }
+
+    /** Lector que arranca en 'desde' (acotado a lo que hay en el log). No es thread-safe: uno por consumidor. */
+    public Lector lector(long desde) {
+        long offset = Math.max(primerOffset(), Math.min(desde, confirmado));
+        return new Lector(this, segmento(offset), offset);
+    }
+
+    /** Segmento que contiene el offset (o el último, si es el siguiente a escribir). */
+    SegmentoLog segmento(long offset) {
+        SegmentoLog[] s = segmentos;
+        int lo = 0, hi = s.length - 1;
+        while (lo < hi) {
+            int m = (lo + hi + 1) >>> 1;
+            if (s[m].base <= offset) lo = m;
+            else hi = m - 1;
+        }
+        return s[lo];
+    }
+
+    /** Espera hasta que haya un evento confirmado con offset >= 'offset' o pase el tiempo; true si lo hay. */
+    boolean esperar(long offset, long nanos) throws InterruptedException {
+        long hasta = System.nanoTime() + nanos;
+        synchronized (aviso) {
+            while (confirmado <= offset) {
+                long falta = hasta - System.nanoTime();
+                if (falta <= 0) return false;
+                aviso.wait(Math.max(1, falta / 1_000_000));
+            }
+        }
+        return true;
+    }
+
+    // ======= Estado =======
+
+    public int segmentos() {
+        return segmentos.length;
+    }
+
+    public Path directorio() {
+        return directorio;
+    }
+
+    @Override
+    public String toString() {
+        SegmentoLog[] s = segmentos;
+        long bytes = (long) (s.length - 1) * tamanioSegmento + s[s.length - 1].capacidad();
+        return String.format("offsets %d..%d, %d segmento(s) en %s (%.1f MB reservados)",
+                primerOffset(), confirmado, s.length, directorio, bytes / 1048576.0);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (cerrado) return;
+        confirmar();
+        cerrado = true;
+        for (SegmentoLog s : segmentos) {
+            try {
+                s.cerrar();
+            } catch (IOException ignored) { }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ar.edu.unlu.bd2.eventos;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Un evento del log, leído en el lugar: los getters leen del archivo mapeado y datos() es una vista
+ * de solo lectura sobre esos mismos bytes, sin copiarlos. El Lector reusa la instancia, así que solo
+ * vale hasta la próxima lectura; para guardarlo hay que copiar lo que haga falta (p. ej. json()).
+ */
+public final class Registro {
+
+    private ByteBuffer buffer;
+    private int pos;
+    private int largo;
+
+    Registro() { }
+
+    void apuntar(ByteBuffer buffer, int pos) {
+        this.buffer = buffer;
+        this.pos = pos;
+        this.largo = buffer.getInt(pos);
+    }
+
+    int largo() { return largo; }
+
+    public long offset() { return buffer.getLong(pos + 8); }
+
+    public long idEvento() { return buffer.getLong(pos + 16); }
+
+    public Instant creado() { return Instant.ofEpochMilli(buffer.getLong(pos + 24)); }
+
+    public TipoEvento tipo() { return TipoEvento.deCodigo(buffer.getShort(pos + 32)); }
+
+    public int idFactura() { return buffer.getInt(pos + 34); }
+
+    public int idProducto() { return buffer.getInt(pos + 38); }
+
+    /** El JSON del evento en UTF-8, como vista de solo lectura sobre el archivo mapeado (sin copia). */
+    public ByteBuffer datos() {
+        return buffer.slice(pos + LogEventos.CABECERA, largo - LogEventos.CABECERA).asReadOnlyBuffer();
+    }
+
+    /** El JSON del evento como String (este sí copia). */
+    public String json() {
+        return StandardCharsets.UTF_8.decode(datos()).toString();
+    }
+
+    @Override
+    public String toString() {
+        return "#" + offset() + " " + tipo() + " " + json();
+    }
+}
@@ -0,0 +1,254 @@
+package ar.edu.unlu.bd2.eventos;
+
+import ar.edu.unlu.bd2.metricas.Medidor;
+import ar.edu.unlu.bd2.metricas.Metricas;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pasa los eventos de evento_outbox a LogEventos de a lotes de hasta LOTE: los lee en orden de
+ * id_evento, los agrega al log, confirma (msync) y recién después los borra de la tabla, en la misma
+ * transacción que los leyó. Los de una misma factura salen en orden porque cada controller escribe su
+ * evento con la fila de la factura ya bloqueada: el AUTO_INCREMENT sigue el orden de los commits.
+ * Entre facturas no hay orden garantizado (un id más bajo puede confirmarse después: por eso se borra
+ * lo publicado en vez de leer "id > último").
+ *
+ * Entrega al menos una vez: si el proceso cae entre el msync y el commit del DELETE, los eventos ya
+ * están en el log y siguen en la tabla. Al arrancar se leen los id_evento del final del log y esos se
+ * borran sin volver a agregarlos.
+ *
+ * Un solo relay por base: cada proceso tiene su propio log, así que si dos drenaran la tabla se
+ * repartirían los eventos (y los de una factura podrían quedar en logs distintos). En MySQL/MariaDB
+ * drena solo el proceso que tiene GET_LOCK(LOCK) en una conexión propia, fuera del pool; la retiene
+ * hasta close() y, si el proceso o la conexión se caen, el servidor lo libera y lo toma otro relay en
+ * su próximo intento. Con otras bases (H2 en los benchmarks) no hay lock: un solo proceso.
+ */
+public final class RelayOutbox implements AutoCloseable {
+
+    /** Propiedades de hibernate.cfg.xml. */
+    public static final String ACTIVA = "bd2.outbox.activa";
+    public static final String DIRECTORIO = "bd2.outbox.directorio";
+
+    public static final int LOTE = 1000;
+
+    /** Nombre del lock de MySQL/MariaDB que tiene el relay que publica. */
+    static final String LOCK = "relay_outbox";
+
+    private static final Medidor M_LOTE = Metricas.medidor("eventos.relay");
+
+    private final SessionFactory sessionFactory;
+    private final LogEventos log;
+    private final AtomicLong publicados = new AtomicLong();
+    private final boolean mysql;
+    /** Conexión que retiene LOCK mientras este proceso es el que publica (solo MySQL/MariaDB). */
+    private Connection conexionLock;
+    private volatile boolean publicando;
+    /** id_evento que ya están en el log pero pueden seguir en la tabla (último lote antes de una caída). */
+    private Set<Long> yaPublicados;
+    private ScheduledExecutorService hilo;
+
+    public RelayOutbox(SessionFactory sessionFactory, LogEventos log) {
+        this.sessionFactory = sessionFactory;
+        this.log = log;
+        this.mysql = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof MySQLDialect;
+    }
+
+    /** Relay sobre el log de bd2.outbox.directorio (default "eventos"), o null si el outbox no está activo. */
+    public static RelayOutbox desdePropiedades(SessionFactory sessionFactory) throws IOException {
+        Map<String, Object> props = sessionFactory.getProperties();
+        if (!Boolean.parseBoolean(String.valueOf(props.get(ACTIVA)))) return null;
+        Object directorio = props.get(DIRECTORIO);
+        Path dir = Path.of(directorio == null ? "eventos" : directorio.toString().trim());
+        return new RelayOutbox(sessionFactory, LogEventos.abrir(dir));
+    }
+
+    /** Drena la tabla en un hilo aparte, cada 'espera' cuando queda vacía (lotes llenos: sin pausa). */
+    public synchronized void iniciar(Duration espera) {
+        if (hilo != null) throw new IllegalStateException("El relay ya está iniciado");
+        hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "relay-outbox");
+            t.setDaemon(true);
+            return t;
+        });
+        hilo.scheduleWithFixedDelay(() -> {
+            try {
+                while (drenar() == LOTE) { }
+            } catch (RuntimeException e) {
+                System.err.println("No se pudieron publicar los eventos del outbox: " + e.getMessage());
+            }
+        }, 0, espera.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Publica un lote; devuelve cuántas filas sacó de la tabla (LOTE si puede haber más). Si otro
+     * proceso tiene el relay de esta base no hace nada y devuelve 0.
+     */
+    public synchronized int drenar() {
+        return M_LOTE.medir(() -> {
+            if (!tomarLock()) return 0;
+            if (yaPublicados == null) yaPublicados = ultimosPublicados();
+            List<Long> ids = new ArrayList<>(LOTE);
+            long[] nuevos = { 0 };
+            Transaction tx = null;
+            try (Session session = sessionFactory.openSession()) {
+                tx = session.beginTransaction();
+                session.doWork(conn -> {
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "select id_evento, tipo, id_factura, id_producto, creado, datos " +
+                                    "from evento_outbox order by id_evento limit ?")) {
+                        ps.setInt(1, LOTE);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                long id = rs.getLong(1);
+                                if (!yaPublicados.remove(id)) {
+                                    Timestamp creado = rs.getTimestamp(5);
+                                    log.agregar(id, creado.getTime(), TipoEvento.valueOf(rs.getString(2)),
+                                            rs.getInt(3), rs.getInt(4), rs.getString(6));
+                                    nuevos[0]++;
+                                }
+                                ids.add(id);
+                            }
+                        }
+                    }
+                    if (ids.isEmpty()) return;
+                    log.confirmar();
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "delete from evento_outbox where id_evento in (" + "?,".repeat(ids.size() - 1) + "?)")) {
+                        for (int i = 0; i < ids.size(); i++) ps.setLong(i + 1, ids.get(i));
+                        ps.executeUpdate();
+                    }
+                });
+                tx.commit();
+            } catch (RuntimeException e) {
+                if (tx != null && tx.isActive()) tx.rollback();
+                // Lo que ya se confirmó en el log no se vuelve a agregar en el próximo intento
+                log.confirmar();
+                yaPublicados.addAll(ids);
+                throw e;
+            }
+            publicados.addAndGet(nuevos[0]);
+            // Con la tabla casi vacía ya no puede quedar ninguno del lote anterior a la caída
+            if (ids.size() < LOTE) yaPublicados.clear();
+            return ids.size();
+        });
+    }
+
+    /**
+     * true si este proceso es el que publica: ya tiene LOCK en una conexión que sigue viva, o lo
+     * consigue ahora sin esperar (GET_LOCK con timeout 0).
+     */
+    private boolean tomarLock() {
+        if (!mysql) return publicando = true;
+        try {
+            if (conexionLock != null) {
+                if (conexionLock.isValid(5)) return true;
+                soltarLock(); // la conexión se cayó: el servidor ya liberó el lock
+            }
+            Map<String, Object> props = sessionFactory.getProperties();
+            Properties credenciales = new Properties();
+            Object usuario = props.get("hibernate.connection.username");
+            Object clave = props.get("hibernate.connection.password");
+            if (usuario != null) credenciales.setProperty("user", usuario.toString());
+            if (clave != null) credenciales.setProperty("password", clave.toString());
+            Connection c = DriverManager.getConnection(String.valueOf(props.get("hibernate.connection.url")).trim(), credenciales);
+            boolean tomado = false;
+            try (PreparedStatement ps = c.prepareStatement("select get_lock(?, 0)")) {
+                ps.setString(1, LOCK);
+                try (ResultSet rs = ps.executeQuery()) {
+                    tomado = rs.next() && rs.getInt(1) == 1;
+                }
+            } finally {
+                if (tomado) conexionLock = c;
+                else c.close();
+            }
+            return publicando = tomado;
+        } catch (SQLException e) {
+            throw new RuntimeException("No se pudo tomar el lock del relay: " + e.getMessage(), e);
+        }
+    }
+
+    /** Cierra la conexión del lock (lo libera si el servidor todavía no lo hizo). */
+    private void soltarLock() {
+        publicando = false;
+        if (conexionLock == null) return;
+        try {
+            conexionLock.close();
+        } catch (SQLException e) {
+            // Cerrada o caída: el lock ya no es de esta conexión
+        }
+        conexionLock = null;
+    }
+
+    /** id_evento de los últimos LOTE registros del log. */
+    private Set<Long> ultimosPublicados() {
+        Set<Long> ids = new HashSet<>();
+        Lector l = log.lector(log.siguienteOffset() - LOTE);
+        l.leer(LOTE, r -> ids.add(r.idEvento()));
+        return ids;
+    }
+
+    public LogEventos log() {
+        return log;
+    }
+
+    /** Si este proceso es el que drena la tabla (false si lo hace otro relay de la misma base). */
+    public boolean publicando() {
+        return publicando;
+    }
+
+    /** Eventos agregados al log por este relay. */
+    public long publicados() {
+        return publicados.get();
+    }
+
+    /** Deja terminar el lote en curso, frena el hilo, suelta el lock y cierra el log. */
+    @Override
+    public void close() {
+        ScheduledExecutorService h;
+        synchronized (this) {
+            h = hilo;
+            hilo = null;
+        }
+        if (h != null) {
+            h.shutdown();
+            try {
+                h.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            soltarLock();
+        }
+        log.close();
+    }
+
+    @Override
+    public String toString() {
+        return publicados() + " eventos publicados" + (publicando ? "" : " (publica otro proceso)") + "; log: " + log;
+    }
+}
@@ -0,0 +1,161 @@
+package ar.edu.unlu.bd2.eventos;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Un archivo del log, mapeado entero en memoria (FileChannel.map) y con registros de offsets
+ * consecutivos desde 'base'. Formato de cada registro (ver LogEventos.CABECERA):
+ * <pre>
+ *  0 int   largo del registro (cabecera + datos)
+ *  4 int   CRC32C de los bytes [8, largo)
+ *  8 long  offset
+ * 16 long  id_evento de evento_outbox
+ * 24 long  creado (epoch ms)
+ * 32 short código de TipoEvento
+ * 34 int   id_factura (0 si no tiene)
+ * 38 int   id_producto (0 si no tiene)
+ * 42 ...   datos: el JSON del evento en UTF-8
+ * </pre>
+ * Escribe un solo hilo (el de LogEventos, sincronizado); los lectores usan solo lecturas absolutas
+ * sobre el mismo buffer y nunca pasan de lo que LogEventos ya confirmó.
+ */
+final class SegmentoLog {
+
+    /** Cada cuántos registros se guarda la posición (índice ralo para posicionar un lector). */
+    static final int INDICE_CADA = 256;
+
+    final long base;
+    final Path archivo;
+    final MappedByteBuffer datos;
+    private final FileChannel canal;
+
+    /** Offset siguiente al último registro del segmento; Long.MAX_VALUE mientras se escribe en él. */
+    volatile long limite = Long.MAX_VALUE;
+    /** Posición de los registros base, base + INDICE_CADA, base + 2 * INDICE_CADA... */
+    private volatile int[] indice = new int[64];
+
+    // Solo los usa el escritor
+    private int escrito;
+    private int forzado;
+    private int registros;
+    private final CRC32C crc = new CRC32C();
+
+    private SegmentoLog(long base, Path archivo, FileChannel canal, MappedByteBuffer datos) {
+        this.base = base;
+        this.archivo = archivo;
+        this.canal = canal;
+        this.datos = datos;
+    }
+
+    static Path archivo(Path directorio, long base) {
+        return directorio.resolve(String.format("%020d.log", base));
+    }
+
+    /** Crea el archivo del segmento con 'tamanio' bytes (en cero). */
+    static SegmentoLog crear(Path directorio, long base, int tamanio) throws IOException {
+        Path archivo = archivo(directorio, base);
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new SegmentoLog(base, archivo, canal, canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanio));
+    }
+
+    /**
+     * Abre un segmento existente y lo recorre validando largo, offset y CRC de cada registro.
+     * Termina en el primer registro inválido: una escritura cortada por una caída (solo puede pasar
+     * al final del último segmento, porque se confirma con force antes de seguir).
+     */
+    static SegmentoLog abrir(Path archivo, long base) throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        SegmentoLog s = new SegmentoLog(base, archivo, canal, canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size()));
+        int pos = 0;
+        while (true) {
+            int largo = s.valido(pos);
+            if (largo < 0) break;
+            s.indexar(pos);
+            pos += largo;
+        }
+        s.escrito = s.forzado = pos;
+        if (pos + Integer.BYTES <= s.capacidad()) {
+            s.datos.putInt(pos, 0); // que la próxima apertura no mire más allá de la cola cortada
+            s.datos.force(pos, Integer.BYTES);
+        }
+        return s;
+    }
+
+    /** Largo del registro en 'pos' si está completo y es el que sigue; -1 si no. */
+    private int valido(int pos) {
+        if (pos + LogEventos.CABECERA > capacidad()) return -1;
+        int largo = datos.getInt(pos);
+        if (largo < LogEventos.CABECERA || largo > capacidad() - pos) return -1;
+        if (datos.getLong(pos + 8) != base + registros) return -1;
+        return crc(pos, largo) == datos.getInt(pos + 4) ? largo : -1;
+    }
+
+    private int crc(int pos, int largo) {
+        crc.reset();
+        crc.update(datos.slice(pos + 8, largo - 8));
+        return (int) crc.getValue();
+    }
+
+    int capacidad() { return datos.capacity(); }
+
+    int registros() { return registros; }
+
+    boolean entra(int largo) {
+        return largo <= capacidad() - escrito;
+    }
+
+    /** Escribe el registro en la posición libre; no es visible para los lectores hasta que LogEventos confirme. */
+    void agregar(long offset, long idEvento, long creado, TipoEvento tipo, int idFactura, int idProducto, byte[] json) {
+        int pos = escrito;
+        int largo = LogEventos.CABECERA + json.length;
+        datos.putInt(pos, largo);
+        datos.putLong(pos + 8, offset);
+        datos.putLong(pos + 16, idEvento);
+        datos.putLong(pos + 24, creado);
+        datos.putShort(pos + 32, tipo.codigo());
+        datos.putInt(pos + 34, idFactura);
+        datos.putInt(pos + 38, idProducto);
+        datos.put(pos + LogEventos.CABECERA, json);
+        datos.putInt(pos + 4, crc(pos, largo));
+        indexar(pos);
+        escrito += largo;
+    }
+
+    private void indexar(int pos) {
+        if (registros % INDICE_CADA == 0) {
+            int j = registros / INDICE_CADA;
+            int[] idx = indice;
+            if (j == idx.length) idx = Arrays.copyOf(idx, idx.length * 2);
+            idx[j] = pos;
+            indice = idx; // escritura volátil: el lector que ve el array ve también la posición
+        }
+        registros++;
+    }
+
+    /** Baja a disco lo escrito desde la última vez (msync de ese rango). */
+    void forzar() {
+        if (escrito > forzado) {
+            datos.force(forzado, escrito - forzado);
+            forzado = escrito;
+        }
+    }
+
+    /** Posición del registro 'offset', que tiene que estar en el segmento y ya confirmado. */
+    int posicion(long offset) {
+        long k = offset - base;
+        int pos = indice[(int) (k / INDICE_CADA)];
+        for (long i = k % INDICE_CADA; i > 0; i--) pos += datos.getInt(pos);
+        return pos;
+    }
+
+    void cerrar() throws IOException {
+        canal.close(); // el mapeo sigue válido hasta que el GC libere el buffer
+    }
+}
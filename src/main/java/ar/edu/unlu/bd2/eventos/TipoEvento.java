@@ -0,0 +1,35 @@
+package ar.edu.unlu.bd2.eventos;
+
+/**
+ * Tipos de evento de dominio. En evento_outbox va el nombre; en el log, el código (2 bytes), que no
+ * depende del orden de declaración: un tipo nuevo lleva un código nuevo y los viejos no cambian.
+ */
+public enum TipoEvento {
+    FACTURA_CREADA(1),
+    FACTURA_ELIMINADA(2),
+    DETALLE_AGREGADO(3),
+    DETALLE_CANTIDAD_CAMBIADA(4),
+    DETALLE_REEMPLAZADO(5),
+    DETALLE_ELIMINADO(6),
+    STOCK_AJUSTADO(7);
+
+    private static final TipoEvento[] POR_CODIGO = new TipoEvento[16];
+
+    static {
+        for (TipoEvento t : values()) POR_CODIGO[t.codigo] = t;
+    }
+
+    private final short codigo;
+
+    TipoEvento(int codigo) {
+        this.codigo = (short) codigo;
+    }
+
+    public short codigo() { return codigo; }
+
+    public static TipoEvento deCodigo(int codigo) {
+        TipoEvento t = codigo >= 0 && codigo < POR_CODIGO.length ? POR_CODIGO[codigo] : null;
+        if (t == null) throw new IllegalArgumentException("Código de evento desconocido: " + codigo);
+        return t;
+    }
+}
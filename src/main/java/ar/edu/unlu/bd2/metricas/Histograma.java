@@ -0,0 +1,84 @@
+package ar.edu.unlu.bd2.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias en nanosegundos con buckets fijos log-lineales (cada potencia de 2
+ * partida en 16): error relativo de los percentiles menor a 6,25% en todo el rango.
+ * registrar() no reserva memoria ni toma locks (un incremento atómico por bucket más contadores
+ * LongAdder); los percentiles se calculan recorriendo los buckets, fuera del camino caliente.
+ * Acumula desde el arranque (o desde reiniciar()).
+ */
+public final class Histograma {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    // Potencias de 2 hasta 2^62 ns: sobra para cualquier duración
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    public void registrar(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(indice(nanos));
+        cantidad.increment();
+        suma.add(nanos);
+        long max = maximo.get();
+        while (nanos > max && !maximo.compareAndSet(max, nanos)) {
+            max = maximo.get();
+        }
+    }
+
+    public long cantidad() { return cantidad.sum(); }
+
+    public long sumaNanos() { return suma.sum(); }
+
+    public long maximoNanos() { return maximo.get(); }
+
+    /** Percentil 'q' (0..1) en nanosegundos; 0 si no hay muestras. Devuelve el límite superior del bucket. */
+    public long percentil(double q) {
+        long[] copia = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copia[i] = buckets.get(i);
+            total += copia[i];
+        }
+        if (total == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(q * total));
+        long acumulado = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo.get());
+        }
+        return maximo.get();
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        cantidad.reset();
+        suma.reset();
+        maximo.set(0);
+    }
+
+    // ======= Buckets =======
+
+    static int indice(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);            // >= SUB_BITS
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+        return (exp - SUB_BITS + 1) * SUB + sub;
+    }
+
+    static long limiteSuperior(int indice) {
+        if (indice < SUB) return indice;
+        int exp = indice / SUB + SUB_BITS - 1;
+        int sub = indice % SUB;
+        long ancho = 1L << (exp - SUB_BITS);
+        return ((long) (SUB + sub) << (exp - SUB_BITS)) + ancho - 1;
+    }
+}
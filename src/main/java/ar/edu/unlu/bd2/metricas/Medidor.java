@@ -0,0 +1,88 @@
+package ar.edu.unlu.bd2.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Llamadas, errores y latencias de una operación (p. ej. "factura.crearFacturaCompleta").
+ * Se obtiene una sola vez con Metricas.medidor(nombre) y se guarda en un campo static final;
+ * cada método medido envuelve su cuerpo:
+ * <pre>
+ *   return MEDIDOR.medir(() -> { ... });
+ * </pre>
+ * registrar(t0) y error() quedan para los casos que no entran en un lambda.
+ */
+public final class Medidor implements MedidorMXBean {
+
+    private final String nombre;
+    private final Histograma latencias = new Histograma();
+    private final LongAdder errores = new LongAdder();
+
+    Medidor(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String nombre() { return nombre; }
+
+    /** Ejecuta la operación registrando su latencia, y un error si lanza una excepción. */
+    public <T> T medir(Supplier<T> operacion) {
+        long t0 = System.nanoTime();
+        try {
+            return operacion.get();
+        } catch (RuntimeException e) {
+            errores.increment();
+            throw e;
+        } finally {
+            registrar(t0);
+        }
+    }
+
+    /** Como medir(Supplier), para operaciones sin resultado. */
+    public void medir(Runnable operacion) {
+        long t0 = System.nanoTime();
+        try {
+            operacion.run();
+        } catch (RuntimeException e) {
+            errores.increment();
+            throw e;
+        } finally {
+            registrar(t0);
+        }
+    }
+
+    /** Registra una llamada que empezó en 't0' (System.nanoTime()), haya terminado bien o no. */
+    public void registrar(long t0) {
+        latencias.registrar(System.nanoTime() - t0);
+    }
+
+    /** Marca la llamada en curso como fallida (además hay que llamar a registrar). */
+    public void error() {
+        errores.increment();
+    }
+
+    public Histograma latencias() { return latencias; }
+
+    // ======= JMX =======
+
+    @Override public long getLlamadas() { return latencias.cantidad(); }
+
+    @Override public long getErrores() { return errores.sum(); }
+
+    @Override public double getPromedioMs() {
+        long n = latencias.cantidad();
+        return n == 0 ? 0 : Metricas.ms(latencias.sumaNanos() / n);
+    }
+
+    @Override public double getP50Ms() { return Metricas.ms(latencias.percentil(0.50)); }
+
+    @Override public double getP95Ms() { return Metricas.ms(latencias.percentil(0.95)); }
+
+    @Override public double getP99Ms() { return Metricas.ms(latencias.percentil(0.99)); }
+
+    @Override public double getMaxMs() { return Metricas.ms(latencias.maximoNanos()); }
+
+    @Override public void reiniciar() {
+        latencias.reiniciar();
+        errores.reset();
+    }
+}
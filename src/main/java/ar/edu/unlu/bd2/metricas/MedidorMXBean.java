@@ -0,0 +1,21 @@
+package ar.edu.unlu.bd2.metricas;
+
+/** Vista JMX de un Medidor (ar.edu.unlu.bd2:type=Operacion,name=...). Tiempos en milisegundos. */
+public interface MedidorMXBean {
+
+    long getLlamadas();
+
+    long getErrores();
+
+    double getPromedioMs();
+
+    double getP50Ms();
+
+    double getP95Ms();
+
+    double getP99Ms();
+
+    double getMaxMs();
+
+    void reiniciar();
+}
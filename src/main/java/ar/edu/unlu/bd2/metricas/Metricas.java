@@ -0,0 +1,180 @@
+package ar.edu.unlu.bd2.metricas;
+
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Registro de métricas de la aplicación: un Medidor por operación de los controllers más el pool
+ * (MetricasPool). Cada medidor se publica por JMX (ar.edu.unlu.bd2:type=Operacion,name=...,
+ * visible en JConsole / VisualVM) y todo junto en formato de texto de Prometheus, ya sea con
+ * prometheus() o por HTTP con iniciarServidor(puerto) en http://127.0.0.1:puerto/metrics.
+ */
+public final class Metricas {
+
+    public static final String DOMINIO_JMX = "ar.edu.unlu.bd2";
+
+    private static final double[] CUANTILES = { 0.5, 0.95, 0.99 };
+
+    private static final Map<String, Medidor> MEDIDORES = new ConcurrentSkipListMap<>();
+
+    private static HttpServer servidor;
+
+    private Metricas() { }
+
+    /** Medidor de la operación 'nombre' (lo crea y publica por JMX la primera vez). */
+    public static Medidor medidor(String nombre) {
+        return MEDIDORES.computeIfAbsent(nombre, n -> {
+            Medidor m = new Medidor(n);
+            registrarMBean("type=Operacion,name=" + n, m);
+            return m;
+        });
+    }
+
+    public static Iterable<Medidor> medidores() {
+        return MEDIDORES.values();
+    }
+
+    /** Pone en cero todos los medidores y el pool. */
+    public static void reiniciar() {
+        MEDIDORES.values().forEach(Medidor::reiniciar);
+        MetricasPool pool = MetricasPool.actual();
+        if (pool != null) pool.reiniciar();
+    }
+
+    // ======= Exposición =======
+
+    /** Levanta (una sola vez) el endpoint /metrics en 127.0.0.1:puerto. */
+    public static synchronized void iniciarServidor(int puerto) throws IOException {
+        if (servidor != null) return;
+        HttpServer s = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), 0);
+        s.createContext("/metrics", ex -> {
+            byte[] cuerpo = prometheus().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            ex.sendResponseHeaders(200, cuerpo.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(cuerpo);
+            }
+        });
+        s.start(); // executor por defecto: un solo hilo, alcanza para un scrape cada tantos segundos
+        servidor = s;
+    }
+
+    public static synchronized void detenerServidor() {
+        if (servidor != null) {
+            servidor.stop(0);
+            servidor = null;
+        }
+    }
+
+    /** Todas las métricas en formato de texto de Prometheus (0.0.4). Latencias en segundos. */
+    public static String prometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("# HELP bd2_operacion_errores_total Llamadas que terminaron con excepción.\n")
+                .append("# TYPE bd2_operacion_errores_total counter\n");
+        for (Medidor m : MEDIDORES.values()) {
+            sb.append("bd2_operacion_errores_total{operacion=\"").append(m.nombre()).append("\"} ")
+                    .append(m.getErrores()).append('\n');
+        }
+        sb.append("# HELP bd2_operacion_segundos Latencia por operación de los controllers.\n")
+                .append("# TYPE bd2_operacion_segundos summary\n");
+        for (Medidor m : MEDIDORES.values()) {
+            resumen(sb, "bd2_operacion_segundos", "operacion=\"" + m.nombre() + "\"", m.latencias());
+        }
+        for (Medidor m : MEDIDORES.values()) {
+            sb.append("bd2_operacion_segundos_max{operacion=\"").append(m.nombre()).append("\"} ")
+                    .append(segundos(m.latencias().maximoNanos())).append('\n');
+        }
+
+        MetricasPool pool = MetricasPool.actual();
+        if (pool != null) {
+            String p = "pool=\"" + pool.nombre() + "\"";
+            sb.append("# HELP bd2_pool_conexiones Conexiones del pool por estado.\n")
+                    .append("# TYPE bd2_pool_conexiones gauge\n");
+            gauge(sb, "bd2_pool_conexiones", p + ",estado=\"activas\"", pool.getConexionesActivas());
+            gauge(sb, "bd2_pool_conexiones", p + ",estado=\"ociosas\"", pool.getConexionesOciosas());
+            gauge(sb, "bd2_pool_conexiones", p + ",estado=\"totales\"", pool.getConexionesTotales());
+            gauge(sb, "bd2_pool_conexiones", p + ",estado=\"maximas\"", pool.getConexionesMaximas());
+            sb.append("# TYPE bd2_pool_hilos_esperando gauge\n");
+            gauge(sb, "bd2_pool_hilos_esperando", p, pool.getHilosEsperando());
+            sb.append("# TYPE bd2_pool_timeouts_total counter\n");
+            gauge(sb, "bd2_pool_timeouts_total", p, pool.getTimeouts());
+            sb.append("# HELP bd2_pool_espera_segundos Espera hasta obtener una conexión.\n")
+                    .append("# TYPE bd2_pool_espera_segundos summary\n");
+            resumen(sb, "bd2_pool_espera_segundos", p, pool.espera());
+            sb.append("# HELP bd2_transaccion_segundos Tiempo con la conexión tomada (duración de la transacción).\n")
+                    .append("# TYPE bd2_transaccion_segundos summary\n");
+            resumen(sb, "bd2_transaccion_segundos", p, pool.transaccion());
+        }
+        return sb.toString();
+    }
+
+    /** Tabla para la consola: llamadas, errores y percentiles por operación, y estado del pool. */
+    public static String texto() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-42s %9s %7s %9s %9s %9s %9s%n", "Operación", "Llamadas", "Errores",
+                "p50 ms", "p95 ms", "p99 ms", "máx ms"));
+        for (Medidor m : MEDIDORES.values()) {
+            if (m.getLlamadas() == 0) continue;
+            sb.append(String.format("%-42s %9d %7d %9.3f %9.3f %9.3f %9.3f%n", m.nombre(), m.getLlamadas(),
+                    m.getErrores(), m.getP50Ms(), m.getP95Ms(), m.getP99Ms(), m.getMaxMs()));
+        }
+        MetricasPool pool = MetricasPool.actual();
+        if (pool != null) {
+            sb.append(String.format("Pool %s: activas=%d ociosas=%d totales=%d/%d esperando=%d timeouts=%d%n",
+                    pool.nombre(), pool.getConexionesActivas(), pool.getConexionesOciosas(),
+                    pool.getConexionesTotales(), pool.getConexionesMaximas(), pool.getHilosEsperando(),
+                    pool.getTimeouts()));
+            sb.append(String.format("  espera conexión p50=%.3f p99=%.3f máx=%.3f ms | transacción p50=%.3f p99=%.3f máx=%.3f ms%n",
+                    pool.getEsperaP50Ms(), pool.getEsperaP99Ms(), pool.getEsperaMaxMs(),
+                    pool.getTransaccionP50Ms(), pool.getTransaccionP99Ms(), pool.getTransaccionMaxMs()));
+        }
+        return sb.toString();
+    }
+
+    // ======= Helpers =======
+
+    private static void resumen(StringBuilder sb, String metrica, String etiquetas, Histograma h) {
+        for (double q : CUANTILES) {
+            sb.append(metrica).append('{').append(etiquetas).append(",quantile=\"").append(q).append("\"} ")
+                    .append(segundos(h.percentil(q))).append('\n');
+        }
+        sb.append(metrica).append("_sum{").append(etiquetas).append("} ").append(segundos(h.sumaNanos())).append('\n');
+        sb.append(metrica).append("_count{").append(etiquetas).append("} ").append(h.cantidad()).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String metrica, String etiquetas, long valor) {
+        sb.append(metrica).append('{').append(etiquetas).append("} ").append(valor).append('\n');
+    }
+
+    private static double segundos(long nanos) {
+        return nanos / 1e9;
+    }
+
+    static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /** Publica 'mbean' bajo ar.edu.unlu.bd2:'propiedades'; si ya había uno con ese nombre lo reemplaza. */
+    static void registrarMBean(String propiedades, Object mbean) {
+        try {
+            MBeanServer servidorJmx = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(DOMINIO_JMX + ":" + propiedades);
+            if (servidorJmx.isRegistered(nombre)) servidorJmx.unregisterMBean(nombre);
+            servidorJmx.registerMBean(mbean, nombre);
+        } catch (JMException e) {
+            // Sin JMX las métricas siguen disponibles por prometheus() / texto()
+            System.err.println("No se pudo publicar por JMX " + propiedades + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ar.edu.unlu.bd2.metricas;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Telemetría del pool HikariCP. Se engancha por configuración:
+ * hibernate.hikari.metricsTrackerFactory = ar.edu.unlu.bd2.metricas.MetricasPool
+ * (Hikari instancia la clase por nombre). Registra:
+ * - espera por una conexión (getConnection hasta que el pool la entrega),
+ * - tiempo con la conexión tomada: Hibernate la pide al empezar la transacción y la devuelve
+ *   al terminarla, así que es la duración de la transacción (Hikari lo informa en ms),
+ * - timeouts de connectionTimeout,
+ * - activas / ociosas / totales / hilos esperando (PoolStats, que Hikari refresca cada 1 s).
+ * Hay un único pool por aplicación: el estado es estático para que Metricas lo encuentre.
+ */
+public class MetricasPool implements MetricsTrackerFactory, PoolMXBean {
+
+    private static volatile MetricasPool actual;
+
+    private final String nombre;
+    private final PoolStats stats;
+    private final int maximo;
+    private final Histograma espera = new Histograma();
+    private final Histograma transaccion = new Histograma();
+    private final LongAdder timeouts = new LongAdder();
+
+    /** Lo usa Hikari; la instancia real se crea en create(). */
+    public MetricasPool() {
+        this(null, null);
+    }
+
+    private MetricasPool(String nombre, PoolStats stats) {
+        this.nombre = nombre;
+        this.stats = stats;
+        this.maximo = stats == null ? 0 : stats.getMaxConnections();
+    }
+
+    /** Pool en uso, o null si el pool no se configuró con este tracker (o todavía no arrancó). */
+    public static MetricasPool actual() {
+        return actual;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        MetricasPool pool = new MetricasPool(poolName, poolStats);
+        actual = pool;
+        Metricas.registrarMBean("type=Pool,name=" + poolName, pool);
+        return new IMetricsTracker() {
+            @Override public void recordConnectionAcquiredNanos(long nanos) { pool.espera.registrar(nanos); }
+
+            @Override public void recordConnectionUsageMillis(long millis) {
+                pool.transaccion.registrar(TimeUnit.MILLISECONDS.toNanos(millis));
+            }
+
+            @Override public void recordConnectionTimeout() { pool.timeouts.increment(); }
+        };
+    }
+
+    public String nombre() { return nombre; }
+
+    public Histograma espera() { return espera; }
+
+    public Histograma transaccion() { return transaccion; }
+
+    // ======= JMX =======
+
+    @Override public int getConexionesActivas() { return stats.getActiveConnections(); }
+
+    @Override public int getConexionesOciosas() { return stats.getIdleConnections(); }
+
+    @Override public int getConexionesTotales() { return stats.getTotalConnections(); }
+
+    @Override public int getConexionesMaximas() { return maximo; }
+
+    @Override public int getHilosEsperando() { return stats.getPendingThreads(); }
+
+    @Override public long getTimeouts() { return timeouts.sum(); }
+
+    @Override public double getEsperaP50Ms() { return Metricas.ms(espera.percentil(0.50)); }
+
+    @Override public double getEsperaP99Ms() { return Metricas.ms(espera.percentil(0.99)); }
+
+    @Override public double getEsperaMaxMs() { return Metricas.ms(espera.maximoNanos()); }
+
+    @Override public double getTransaccionP50Ms() { return Metricas.ms(transaccion.percentil(0.50)); }
+
+    @Override public double getTransaccionP99Ms() { return Metricas.ms(transaccion.percentil(0.99)); }
+
+    @Override public double getTransaccionMaxMs() { return Metricas.ms(transaccion.maximoNanos()); }
+
+    @Override public void reiniciar() {
+        espera.reiniciar();
+        transaccion.reiniciar();
+        timeouts.reset();
+    }
+}
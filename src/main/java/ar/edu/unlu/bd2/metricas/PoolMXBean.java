@@ -0,0 +1,31 @@
+package ar.edu.unlu.bd2.metricas;
+
+/** Vista JMX del pool de conexiones (ar.edu.unlu.bd2:type=Pool,name=...). Tiempos en milisegundos. */
+public interface PoolMXBean {
+
+    int getConexionesActivas();
+
+    int getConexionesOciosas();
+
+    int getConexionesTotales();
+
+    int getConexionesMaximas();
+
+    int getHilosEsperando();
+
+    long getTimeouts();
+
+    double getEsperaP50Ms();
+
+    double getEsperaP99Ms();
+
+    double getEsperaMaxMs();
+
+    double getTransaccionP50Ms();
+
+    double getTransaccionP99Ms();
+
+    double getTransaccionMaxMs();
+
+    void reiniciar();
+}
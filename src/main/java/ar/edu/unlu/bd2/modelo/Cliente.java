@@ -1,11 +1,15 @@
 package ar.edu.unlu.bd2.modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.*;
 
 @Entity
 @Table(name = "cliente")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "cliente") // ver ehcache.xml
 public class Cliente {
 
     public enum Estado { activo, inactivo }
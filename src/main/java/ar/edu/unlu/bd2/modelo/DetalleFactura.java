@@ -1,6 +1,8 @@
 package ar.edu.unlu.bd2.modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
 
 import java.math.BigDecimal;
 import java.util.Objects;
@@ -9,7 +11,11 @@ import java.util.Objects;
 /**
  * Detalle de factura con clave compuesta (id_factura, id_producto).
  * Los valores de precio_unitario y subtotal los mantiene la BD (triggers),
- * por eso están marcados como solo lectura desde JPA.
+ * por eso están marcados como solo lectura desde JPA y como valores generados en UPDATE: Hibernate
+ * los relee después de cada UPDATE, sin flush + refresh a mano. En el INSERT no: un valor generado
+ * al insertar deja la entidad sin batch (cada INSERT tendría su round trip). Después del INSERT
+ * los controllers los traen con una consulta por factura; las altas de un solo detalle, con el
+ * mismo INSERT donde la base lo permite (ver ValoresCalculados).
  */
 @Entity
 @Table(name = "factura_detalle") // Cambiá si tu tabla se llama distinto
@@ -31,11 +37,13 @@ public class DetalleFactura {
     @Column(name = "cantidad", nullable = false)
     private Integer cantidad;
 
-    // Mantenidos por triggers en BD (solo lectura desde JPA)
+    // Mantenidos por triggers en BD (solo lectura desde JPA, releídos al actualizar)
+    @Generated(event = EventType.UPDATE)
     @Column(name = "precio_unitario", precision = 12, scale = 2,
             nullable = false, insertable = false, updatable = false)
     private BigDecimal precioUnitario;
 
+    @Generated(event = EventType.UPDATE)
     @Column(name = "subtotal", precision = 12, scale = 2,
             nullable = false, insertable = false, updatable = false)
     private BigDecimal subtotal;
@@ -65,6 +73,12 @@ public class DetalleFactura {
     public BigDecimal getPrecioUnitario() { return precioUnitario; } // solo lectura
     public BigDecimal getSubtotal() { return subtotal; }             // solo lectura
 
+    /** Valores que calcularon los triggers al insertar, leídos de la BD (no se escriben: columnas no insertables). */
+    public void asignarCalculados(BigDecimal precioUnitario, BigDecimal subtotal) {
+        this.precioUnitario = precioUnitario;
+        this.subtotal = subtotal;
+    }
+
     // =================== equals / hashCode / toString ===================
 
     @Override
@@ -1,6 +1,8 @@
 package ar.edu.unlu.bd2.modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -10,8 +12,17 @@ import java.util.Set;
 
 @Entity
 @Table(name = "factura")
+// Agregado completo para la pantalla "ver factura": encabezado + cliente + líneas con su producto
+@NamedEntityGraph(name = Factura.GRAFO_COMPLETA,
+        attributeNodes = {
+                @NamedAttributeNode("cliente"),
+                @NamedAttributeNode(value = "detalles", subgraph = "detalles")
+        },
+        subgraphs = @NamedSubgraph(name = "detalles", attributeNodes = @NamedAttributeNode("producto")))
 public class Factura {
 
+    public static final String GRAFO_COMPLETA = "Factura.completa";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY) // BIGINT AUTO_INCREMENT en MySQL
     @Column(name = "id_factura", nullable = false)
@@ -26,10 +37,17 @@ public class Factura {
     @Column(name = "fecha", nullable = false)
     private LocalDateTime fecha = LocalDateTime.now();
 
-    // El total lo recalculan triggers en BD; lo marcamos solo-lectura desde JPA
+    // El total lo recalculan triggers en BD; lo marcamos solo-lectura desde JPA.
+    // Como valor generado, Hibernate lo lee en el mismo INSERT (RETURNING) en vez de dejarlo en null.
+    @Generated(event = { EventType.INSERT, EventType.UPDATE })
     @Column(name = "total", precision = 12, scale = 2, nullable = false, insertable = false, updatable = false)
     private BigDecimal total;
 
+    // Bloqueo optimista (ver resources/sql/version_optimista.sql: los triggers también la incrementan)
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     // Relación 1..N con DetalleFactura (lado inverso; dueño = DetalleFactura.factura)
     @OneToMany(mappedBy = "factura", fetch = FetchType.LAZY,
             cascade = { CascadeType.PERSIST, CascadeType.MERGE },
@@ -56,6 +74,11 @@ public class Factura {
     public BigDecimal getTotal() { return total; }
     // sin setter de total: lo mantiene la BD por triggers
 
+    /** Total leído de la BD después de insertar detalles (no se escribe: columna no insertable ni actualizable). */
+    public void asignarTotal(BigDecimal total) { this.total = total; }
+
+    public Integer getVersion() { return version; } // la maneja Hibernate
+
     public Set<DetalleFactura> getDetalles() { return detalles; }
     public void setDetalles(Set<DetalleFactura> detalles) { this.detalles = detalles; }
 
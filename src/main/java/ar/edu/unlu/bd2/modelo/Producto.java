@@ -1,6 +1,8 @@
 package ar.edu.unlu.bd2.modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.util.LinkedHashSet;
@@ -10,6 +12,8 @@ import java.util.Set;
 
 @Entity
 @Table(name = "producto")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "producto") // ver ehcache.xml
 public class Producto {
 
     @Id
@@ -29,6 +33,11 @@ public class Producto {
     @Column(name = "activo", nullable = false)
     private Boolean activo = Boolean.TRUE;
 
+    // Bloqueo optimista (ver resources/sql/version_optimista.sql: los triggers también la incrementan)
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     // Relación 1..N con DetalleFactura (lado inverso; el dueño es DetalleFactura.producto)
     @OneToMany(mappedBy = "producto", fetch = FetchType.LAZY)
     private Set<DetalleFactura> detalles = new LinkedHashSet<>();
@@ -59,6 +68,8 @@ public class Producto {
     public Boolean getActivo() { return activo; }
     public void setActivo(Boolean activo) { this.activo = activo; }
 
+    public Integer getVersion() { return version; } // la maneja Hibernate
+
     public Set<DetalleFactura> getDetalles() { return detalles; }
     public void setDetalles(Set<DetalleFactura> detalles) { this.detalles = detalles; }
 
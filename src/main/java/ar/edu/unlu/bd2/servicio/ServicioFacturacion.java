@@ -0,0 +1,158 @@
+package ar.edu.unlu.bd2.servicio;
+
+import ar.edu.unlu.bd2.controller.FacturaController;
+import ar.edu.unlu.bd2.controller.ProductoController;
+import ar.edu.unlu.bd2.modelo.DetalleFactura;
+import ar.edu.unlu.bd2.modelo.Factura;
+import ar.edu.unlu.bd2.util.LlamadaCancelable;
+import org.hibernate.SessionFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fachada concurrente sobre FacturaController y ProductoController para muchos pedidos en paralelo.
+ * Cada operación corre en su propio hilo virtual (miles en vuelo sin ocupar hilos de plataforma)
+ * y devuelve un CompletableFuture. Requiere Connector/J 9.x: hasta la 8.x el driver sincroniza con
+ * synchronized y cada hilo esperando al servidor queda fijado a su carrier.
+ * Bulkhead: un semáforo con tantos permisos como conexiones tiene el pool; el resto espera en el
+ * semáforo (barato en un hilo virtual) y no en Hikari, así nadie falla por connectionTimeout.
+ * Timeout por llamada: cubre la espera del permiso y la ejecución. Al vencer, o si el caller hace
+ * cancel() sobre el future, se cancela la sentencia JDBC en curso (ver LlamadaCancelable; requiere
+ * HikariConnectionProviderCancelable como provider_class) y el controller hace rollback.
+ */
+public class ServicioFacturacion implements AutoCloseable {
+
+    public static final Duration TIMEOUT_DEFAULT = Duration.ofSeconds(5);
+
+    private final FacturaController facturas;
+    private final ProductoController productos;
+    private final Semaphore permisos;
+    private final int maxPermisos;
+    private final ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger enCurso = new AtomicInteger();
+
+    /** Bulkhead del tamaño del pool configurado (hibernate.hikari.maximumPoolSize). */
+    public ServicioFacturacion(SessionFactory sessionFactory) {
+        this(new FacturaController(sessionFactory), new ProductoController(sessionFactory), tamanioPool(sessionFactory));
+    }
+
+    public ServicioFacturacion(FacturaController facturas, ProductoController productos, int maxConcurrentes) {
+        if (maxConcurrentes <= 0) throw new IllegalArgumentException("maxConcurrentes debe ser > 0");
+        this.facturas = facturas;
+        this.productos = productos;
+        this.maxPermisos = maxConcurrentes;
+        this.permisos = new Semaphore(maxConcurrentes, true);
+    }
+
+    public static int tamanioPool(SessionFactory sessionFactory) {
+        Object v = sessionFactory.getProperties().get("hibernate.hikari.maximumPoolSize");
+        return v == null ? 10 : Integer.parseInt(v.toString().trim());
+    }
+
+    // ======= Facturas =======
+
+    public CompletableFuture<Factura> crearFacturaCompleta(Integer idCliente, List<FacturaController.Linea> lineas, Duration timeout) {
+        return ejecutar(() -> facturas.crearFacturaCompleta(idCliente, lineas), timeout);
+    }
+
+    public CompletableFuture<Optional<Factura>> obtenerFactura(Integer idFactura, Duration timeout) {
+        return ejecutar(() -> facturas.obtenerPorId(idFactura), timeout);
+    }
+
+    public CompletableFuture<DetalleFactura> actualizarCantidad(Integer idFactura, Integer idProducto, int nuevaCantidad,
+                                                                Duration timeout) {
+        return ejecutar(() -> facturas.actualizarCantidad(idFactura, idProducto, nuevaCantidad), timeout);
+    }
+
+    public CompletableFuture<Boolean> eliminarFactura(Integer idFactura, Duration timeout) {
+        return ejecutar(() -> facturas.eliminar(idFactura), timeout);
+    }
+
+    // ======= Productos =======
+
+    public CompletableFuture<Integer> ajustarStock(Integer idProducto, int delta, Duration timeout) {
+        return ejecutar(() -> productos.ajustarStock(idProducto.longValue(), delta), timeout);
+    }
+
+    public CompletableFuture<SortedMap<Integer, Integer>> ajustarStockMasivo(Map<Integer, Integer> deltas, Duration timeout) {
+        return ejecutar(() -> productos.ajustarStockMasivo(deltas), timeout);
+    }
+
+    public CompletableFuture<Boolean> actualizarPrecio(Integer idProducto, BigDecimal nuevoPrecio, Duration timeout) {
+        return ejecutar(() -> productos.actualizarPrecio(idProducto.longValue(), nuevoPrecio), timeout);
+    }
+
+    // ======= Motor =======
+
+    /**
+     * Corre 'operacion' en un hilo virtual dentro del bulkhead y con plazo 'timeout'.
+     * El future termina con TimeoutException si vence el plazo y con CancellationException si se cancela;
+     * en ambos casos se corta la sentencia JDBC en curso.
+     */
+    public <T> CompletableFuture<T> ejecutar(Supplier<T> operacion, Duration timeout) {
+        if (operacion == null) throw new IllegalArgumentException("La operación no puede ser nula");
+        Duration plazo = timeout == null ? TIMEOUT_DEFAULT : timeout;
+        if (plazo.isNegative() || plazo.isZero()) throw new IllegalArgumentException("El timeout debe ser > 0");
+
+        LlamadaCancelable llamada = new LlamadaCancelable(plazo.toNanos(), TimeUnit.NANOSECONDS);
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        hilos.execute(() -> correr(llamada, operacion, resultado));
+
+        resultado.orTimeout(plazo.toNanos(), TimeUnit.NANOSECONDS);
+        resultado.whenComplete((r, e) -> {
+            if (e instanceof TimeoutException || e instanceof CancellationException) llamada.cancelar();
+        });
+        return resultado;
+    }
+
+    private <T> void correr(LlamadaCancelable llamada, Supplier<T> operacion, CompletableFuture<T> resultado) {
+        try {
+            if (!permisos.tryAcquire(Math.max(0, llamada.nanosRestantes()), TimeUnit.NANOSECONDS)) {
+                resultado.completeExceptionally(new TimeoutException("Sin conexión libre antes del plazo"));
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultado.completeExceptionally(e);
+            return;
+        }
+        enCurso.incrementAndGet();
+        try {
+            if (llamada.isCancelada() || resultado.isDone()) return; // venció esperando el permiso
+            resultado.complete(llamada.ejecutar(operacion));
+        } catch (Throwable t) {
+            resultado.completeExceptionally(t);
+        } finally {
+            enCurso.decrementAndGet();
+            permisos.release();
+        }
+    }
+
+    /** Operaciones ejecutándose (con permiso tomado). */
+    public int enCurso() { return enCurso.get(); }
+
+    /** Operaciones esperando un permiso del bulkhead (aproximado). */
+    public int esperando() { return permisos.getQueueLength(); }
+
+    public int maxConcurrentes() { return maxPermisos; }
+
+    /** Deja de aceptar operaciones y espera a que terminen las que están en curso. */
+    @Override
+    public void close() {
+        hilos.close();
+    }
+}
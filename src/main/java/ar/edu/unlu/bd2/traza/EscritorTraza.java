@@ -0,0 +1,199 @@
+package ar.edu.unlu.bd2.traza;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hilo de fondo que vacía la cola de la traza y escribe una línea JSON por sentencia en
+ * 'directorio'/sql-traza.jsonl. Al superar 'maxBytes' rota: sql-traza.jsonl pasa a sql-traza.1.jsonl,
+ * la .1 a .2, ... y se borra la más vieja (se conservan 'archivos' rotados).
+ * La cola es una ConcurrentLinkedQueue (sin locks) acotada con un contador: si el disco no da abasto
+ * los eventos nuevos se descartan y se cuentan, nunca se frena a quien ejecuta SQL.
+ */
+final class EscritorTraza implements Runnable {
+
+    static final String ARCHIVO = "sql-traza";
+    private static final int MAX_PARAMETRO = 200;   // caracteres por parámetro de texto
+    private static final long ESPERA_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final Path directorio;
+    private final long maxBytes;
+    private final int archivos;
+    private final int capacidad;
+
+    private final ConcurrentLinkedQueue<EventoSql> cola = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final LongAdder escritos = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final StringBuilder sb = new StringBuilder(512);
+
+    private volatile boolean cerrando;
+    private Thread hilo;
+    private BufferedWriter out;
+    private long bytes;
+
+    EscritorTraza(Path directorio, long maxBytes, int archivos, int capacidad) {
+        this.directorio = directorio;
+        this.maxBytes = maxBytes;
+        this.archivos = archivos;
+        this.capacidad = capacidad;
+    }
+
+    void iniciar() {
+        hilo = new Thread(this, "traza-sql");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /** Encola sin bloquear; false si la cola está llena (el evento se descarta). */
+    boolean encolar(EventoSql e) {
+        if (pendientes.incrementAndGet() > capacidad) {
+            pendientes.decrementAndGet();
+            descartados.increment();
+            return false;
+        }
+        cola.offer(e);
+        return true;
+    }
+
+    long escritos() { return escritos.sum(); }
+
+    long descartados() { return descartados.sum(); }
+
+    /** Escribe lo que quede en la cola y cierra el archivo. */
+    void cerrar() {
+        cerrando = true;
+        if (hilo == null) return;
+        LockSupport.unpark(hilo);
+        try {
+            hilo.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            abrir();
+            boolean sucio = false;
+            while (true) {
+                EventoSql e = cola.poll();
+                if (e != null) {
+                    pendientes.decrementAndGet();
+                    escribir(e);
+                    sucio = true;
+                    continue;
+                }
+                if (sucio) {
+                    out.flush();
+                    sucio = false;
+                }
+                if (cerrando) break;
+                LockSupport.parkNanos(ESPERA_NANOS);
+            }
+        } catch (IOException ex) {
+            System.err.println("Traza SQL detenida: " + ex.getMessage());
+        } finally {
+            try {
+                if (out != null) out.close();
+            } catch (IOException ignored) { }
+        }
+    }
+
+    // ======= Archivo =======
+
+    private void abrir() throws IOException {
+        Files.createDirectories(directorio);
+        Path actual = directorio.resolve(ARCHIVO + ".jsonl");
+        bytes = Files.exists(actual) ? Files.size(actual) : 0;
+        out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(actual,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private void rotar() throws IOException {
+        out.close();
+        Files.deleteIfExists(directorio.resolve(ARCHIVO + "." + archivos + ".jsonl"));
+        for (int i = archivos - 1; i >= 1; i--) {
+            Path p = directorio.resolve(ARCHIVO + "." + i + ".jsonl");
+            if (Files.exists(p)) {
+                Files.move(p, directorio.resolve(ARCHIVO + "." + (i + 1) + ".jsonl"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Path actual = directorio.resolve(ARCHIVO + ".jsonl");
+        if (archivos > 0) Files.move(actual, directorio.resolve(ARCHIVO + ".1.jsonl"), StandardCopyOption.REPLACE_EXISTING);
+        else Files.deleteIfExists(actual);
+        abrir();
+    }
+
+    private void escribir(EventoSql e) throws IOException {
+        sb.setLength(0);
+        sb.append("{\"ts\":\"").append(Instant.ofEpochMilli(e.epochMillis())).append('"')
+                .append(",\"hilo\":");
+        texto(e.hilo());
+        sb.append(",\"ms\":").append(BigDecimal.valueOf(e.nanos(), 6).stripTrailingZeros().toPlainString())
+                .append(",\"filas\":").append(e.filas());
+        if (e.lote() > 0) sb.append(",\"lote\":").append(e.lote());
+        if (e.lenta()) sb.append(",\"lenta\":true");
+        if (e.error() != null) {
+            sb.append(",\"error\":");
+            texto(e.error());
+        }
+        sb.append(",\"sql\":");
+        texto(e.sql());
+        sb.append(",\"parametros\":[");
+        Object[] ps = e.parametros();
+        for (int i = 0; i < ps.length; i++) {
+            if (i > 0) sb.append(',');
+            valor(ps[i]);
+        }
+        sb.append("]}\n");
+
+        if (bytes > 0 && bytes + sb.length() > maxBytes) rotar();
+        out.append(sb);
+        bytes += sb.length(); // aproximado (caracteres, no bytes UTF-8): alcanza para decidir la rotación
+        escritos.increment();
+    }
+
+    private void valor(Object v) {
+        if (v == null) sb.append("null");
+        else if (v instanceof Number || v instanceof Boolean) sb.append(v);
+        else if (v instanceof byte[] b) sb.append("\"<").append(b.length).append(" bytes>\"");
+        else {
+            String s = v.toString();
+            texto(s.length() > MAX_PARAMETRO ? s.substring(0, MAX_PARAMETRO) + "…" : s);
+        }
+    }
+
+    private void texto(String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,10 @@
+package ar.edu.unlu.bd2.traza;
+
+/**
+ * Una sentencia ejecutada, tal como se encola para el escritor. Se arma solo si va a escribirse
+ * (muestreada o lenta); el formateo a JSON lo hace el hilo escritor.
+ * @param filas filas afectadas (update) o leídas (query); -1 si no se sabe
+ * @param lote  cantidad de filas del batch JDBC (0 si no fue batch); 'parametros' son los de la última
+ */
+record EventoSql(long epochMillis, String hilo, String sql, Object[] parametros,
+                 long nanos, long filas, int lote, boolean lenta, String error) { }
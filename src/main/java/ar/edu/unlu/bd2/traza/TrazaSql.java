@@ -0,0 +1,235 @@
+package ar.edu.unlu.bd2.traza;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Traza de SQL estructurada, en reemplazo de show_sql (que imprime cada sentencia formateada en
+ * System.out, de forma sincrónica y desde todos los hilos a la vez).
+ * HikariConnectionProviderCancelable envuelve cada conexión con envolver(): los Statement /
+ * PreparedStatement que crea registran texto, parámetros, tiempo de ejecución y filas
+ * (afectadas, o leídas del ResultSet). Si la sentencia sale en el muestreo o superó el umbral de
+ * lenta (esas se escriben siempre) se arma un EventoSql y se encola para EscritorTraza, que escribe
+ * en segundo plano archivos JSON Lines rotativos.
+ * Se configura con propiedades de hibernate.cfg.xml (ver las constantes); apagada no envuelve nada.
+ */
+public final class TrazaSql {
+
+    public static final String ACTIVA = "bd2.traza.activa";
+    /** Fracción de sentencias a escribir, entre 0 y 1 (default 0.01). */
+    public static final String MUESTREO = "bd2.traza.muestreo";
+    /** Las sentencias que tardan al menos esto se escriben siempre (default 200 ms). */
+    public static final String LENTA_MS = "bd2.traza.lentaMs";
+    public static final String DIRECTORIO = "bd2.traza.directorio";
+    public static final String MAX_BYTES = "bd2.traza.maxBytes";
+    public static final String ARCHIVOS = "bd2.traza.archivos";
+    public static final String CAPACIDAD = "bd2.traza.capacidad";
+
+    private final double muestreo;
+    private final long lentaNanos;
+    private final EscritorTraza escritor;
+
+    public TrazaSql(double muestreo, long lentaMs, Path directorio, long maxBytes, int archivos, int capacidad) {
+        if (muestreo < 0 || muestreo > 1) throw new IllegalArgumentException("El muestreo debe estar entre 0 y 1");
+        if (lentaMs < 0) throw new IllegalArgumentException("El umbral de lenta debe ser >= 0");
+        if (maxBytes <= 0 || archivos < 0 || capacidad <= 0) {
+            throw new IllegalArgumentException("maxBytes y capacidad deben ser > 0 y archivos >= 0");
+        }
+        this.muestreo = muestreo;
+        this.lentaNanos = lentaMs * 1_000_000L;
+        this.escritor = new EscritorTraza(directorio, maxBytes, archivos, capacidad);
+        escritor.iniciar();
+    }
+
+    /** Traza configurada con las propiedades bd2.traza.*, o null si no está activa. */
+    public static TrazaSql desdePropiedades(Map<String, ?> props) {
+        if (!Boolean.parseBoolean(valor(props, ACTIVA, "false"))) return null;
+        return new TrazaSql(
+                Double.parseDouble(valor(props, MUESTREO, "0.01")),
+                Long.parseLong(valor(props, LENTA_MS, "200")),
+                Path.of(valor(props, DIRECTORIO, "logs")),
+                Long.parseLong(valor(props, MAX_BYTES, String.valueOf(10L << 20))),
+                Integer.parseInt(valor(props, ARCHIVOS, "5")),
+                Integer.parseInt(valor(props, CAPACIDAD, "10000")));
+    }
+
+    private static String valor(Map<String, ?> props, String clave, String porDefecto) {
+        Object v = props.get(clave);
+        return v == null ? porDefecto : v.toString().trim();
+    }
+
+    /** Sentencias escritas en disco y descartadas por cola llena, desde el arranque. */
+    public long escritas() { return escritor.escritos(); }
+
+    public long descartadas() { return escritor.descartados(); }
+
+    /** Vacía la cola y cierra el archivo (lo llama el provider al cerrar el pool). */
+    public void cerrar() {
+        escritor.cerrar();
+    }
+
+    // ======= Envoltorios JDBC =======
+
+    public Connection envolver(Connection real) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, metodo, args) -> {
+                    String nombre = metodo.getName();
+                    if ("unwrap".equals(nombre) && args[0] == Connection.class) return proxy;
+                    if ("equals".equals(nombre)) return proxy == args[0];
+                    if ("hashCode".equals(nombre)) return System.identityHashCode(proxy);
+                    if (!Statement.class.isAssignableFrom(metodo.getReturnType())) return invocar(metodo, real, args);
+
+                    String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                    try {
+                        return envolver((Statement) invocar(metodo, real, args), sql, metodo.getReturnType());
+                    } catch (Throwable t) {
+                        // Con prepared statements del lado del servidor los errores de sintaxis saltan acá
+                        encolar(sql, new Object[0], 0, -1, 0, t.toString());
+                        throw t;
+                    }
+                });
+    }
+
+    private Statement envolver(Statement real, String sql, Class<?> tipo) {
+        Sentencia s = new Sentencia(sql);
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { tipo },
+                (proxy, metodo, args) -> {
+                    String nombre = metodo.getName();
+                    if (args != null && args.length >= 2 && args[0] instanceof Integer i && nombre.startsWith("set")) {
+                        s.parametro(i, "setNull".equals(nombre) ? null : args[1]);
+                    } else if ("clearParameters".equals(nombre)) {
+                        s.parametros = 0;
+                    } else if ("addBatch".equals(nombre)) {
+                        s.lote++;
+                        if (args != null && args.length == 1) s.sql = (String) args[0]; // Statement.addBatch(sql)
+                    } else if ("clearBatch".equals(nombre)) {
+                        s.lote = 0;
+                    } else if ("unwrap".equals(nombre) && ((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    } else if (nombre.startsWith("execute")) {
+                        return ejecutar(s, real, metodo, args);
+                    }
+                    return invocar(metodo, real, args);
+                });
+    }
+
+    private Object ejecutar(Sentencia s, Statement real, Method metodo, Object[] args) throws Throwable {
+        if (args != null && args.length > 0 && args[0] instanceof String sql) s.sql = sql;
+        long t0 = System.nanoTime();
+        Object r;
+        try {
+            r = invocar(metodo, real, args);
+        } catch (Throwable t) {
+            // Los errores se escriben siempre, como las lentas
+            emitir(s, System.nanoTime() - t0, -1, t.toString());
+            s.reiniciar();
+            throw t;
+        }
+        long nanos = System.nanoTime() - t0;
+        if (r instanceof ResultSet rs) {
+            if (!debeEscribir(nanos)) {
+                s.reiniciar();
+                return rs;
+            }
+            return contarFilas(rs, s, nanos);
+        }
+        if (debeEscribir(nanos)) {
+            long filas = r instanceof int[] v ? sumar(Arrays.stream(v).asLongStream().toArray())
+                    : r instanceof long[] v ? sumar(v)
+                    : r instanceof Number n ? n.longValue()
+                    : real.getUpdateCount();
+            emitir(s, nanos, filas, null);
+        }
+        s.reiniciar();
+        return r;
+    }
+
+    /** Filas de un executeBatch; -1 si el driver no las informa (SUCCESS_NO_INFO, p. ej. con rewriteBatchedStatements). */
+    private static long sumar(long[] filas) {
+        long total = 0;
+        for (long f : filas) {
+            if (f < 0) return -1;
+            total += f;
+        }
+        return total;
+    }
+
+    /** El evento de una consulta se emite al cerrar su ResultSet, con las filas que se leyeron. */
+    private ResultSet contarFilas(ResultSet real, Sentencia s, long nanos) {
+        Object[] parametros = s.copiarParametros();
+        String sql = s.sql;
+        s.reiniciar();
+        long[] filas = { 0 };
+        boolean[] emitido = { false };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, metodo, args) -> {
+                    String nombre = metodo.getName();
+                    if ("unwrap".equals(nombre) && args[0] == ResultSet.class) return proxy;
+                    Object r = invocar(metodo, real, args);
+                    if ("next".equals(nombre)) {
+                        if ((Boolean) r) filas[0]++;
+                    } else if ("close".equals(nombre) && !emitido[0]) {
+                        emitido[0] = true;
+                        encolar(sql, parametros, nanos, filas[0], 0, null);
+                    }
+                    return r;
+                });
+    }
+
+    private boolean debeEscribir(long nanos) {
+        return nanos >= lentaNanos || (muestreo > 0 && ThreadLocalRandom.current().nextDouble() < muestreo);
+    }
+
+    private void emitir(Sentencia s, long nanos, long filas, String error) {
+        encolar(s.sql, s.copiarParametros(), nanos, filas, s.lote, error);
+    }
+
+    private void encolar(String sql, Object[] parametros, long nanos, long filas, int lote, String error) {
+        escritor.encolar(new EventoSql(System.currentTimeMillis(), Thread.currentThread().getName(),
+                sql == null ? "?" : sql, parametros, nanos, filas, lote, nanos >= lentaNanos, error));
+    }
+
+    private static Object invocar(Method metodo, Object real, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(real, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Estado de un Statement envuelto: lo usa un solo hilo a la vez, como el Statement mismo. */
+    private static final class Sentencia {
+        String sql;
+        Object[] valores = new Object[8];
+        int parametros;
+        int lote;
+
+        Sentencia(String sql) {
+            this.sql = sql;
+        }
+
+        void parametro(int indice, Object valor) {
+            if (indice < 1) return;
+            if (indice > valores.length) valores = Arrays.copyOf(valores, Math.max(indice, valores.length * 2));
+            valores[indice - 1] = valor;
+            parametros = Math.max(parametros, indice);
+        }
+
+        Object[] copiarParametros() {
+            return Arrays.copyOf(valores, parametros);
+        }
+
+        void reiniciar() {
+            lote = 0;
+            // En un PreparedStatement los parámetros siguen vigentes hasta el próximo set/clearParameters
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ar.edu.unlu.bd2.util;
+
+import ar.edu.unlu.bd2.modelo.Producto;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Collection;
+
+/**
+ * Utilidades de la caché de segundo nivel (regiones "producto" y "cliente", ver ehcache.xml).
+ * El stock de Producto lo cambian triggers de BD, así que después de tocar factura_detalle
+ * hay que evictar a mano los productos involucrados.
+ */
+public final class CacheUtil {
+
+    public static final String REGION_PRODUCTO = "producto";
+    public static final String REGION_CLIENTE = "cliente";
+
+    private CacheUtil() { }
+
+    /** Evicta de la caché los productos cuyo stock pudieron cambiar los triggers. */
+    public static void evictarProductos(SessionFactory sf, Collection<Integer> idsProducto) {
+        if (idsProducto == null) return;
+        for (Integer id : idsProducto) {
+            evictarProducto(sf, id);
+        }
+    }
+
+    public static void evictarProducto(SessionFactory sf, Integer idProducto) {
+        if (idProducto != null) {
+            sf.getCache().evictEntityData(Producto.class, idProducto);
+        }
+    }
+
+    /** Evicta toda la región de productos (borrados de facturas, updates masivos). */
+    public static void evictarProductos(SessionFactory sf) {
+        sf.getCache().evictEntityData(Producto.class);
+    }
+
+    /** Resumen de hits/misses/puts por región (requiere hibernate.generate_statistics=true). */
+    public static String estadisticas(SessionFactory sf) {
+        Statistics stats = sf.getStatistics();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-10s %10s %10s %10s %8s%n", "Región", "Hits", "Misses", "Puts", "Hit%"));
+        for (String region : new String[] { REGION_PRODUCTO, REGION_CLIENTE }) {
+            CacheRegionStatistics r = stats.getDomainDataRegionStatistics(region);
+            if (r == null) continue;
+            long total = r.getHitCount() + r.getMissCount();
+            sb.append(String.format("%-10s %10d %10d %10d %7.1f%%%n",
+                    region, r.getHitCount(), r.getMissCount(), r.getPutCount(),
+                    total == 0 ? 0.0 : 100.0 * r.getHitCount() / total));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package ar.edu.unlu.bd2.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV mínimo (RFC 4180 sin saltos de línea dentro de los campos): separador coma,
+ * comillas dobles para campos con coma o comillas ("" es una comilla literal).
+ */
+public final class CsvUtil {
+
+    private CsvUtil() { }
+
+    /** Separa una línea en campos. Lanza IllegalArgumentException si una comilla queda sin cerrar. */
+    public static List<String> parsearLinea(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"') {
+                    if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                        actual.append('"');
+                        i++;
+                    } else {
+                        entreComillas = false;
+                    }
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        if (entreComillas) throw new IllegalArgumentException("Comilla sin cerrar");
+        campos.add(actual.toString());
+        return campos;
+    }
+
+    /** Valor listo para escribir en un campo CSV (agrega comillas solo si hace falta). */
+    public static String escapar(String valor) {
+        if (valor == null) return "";
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
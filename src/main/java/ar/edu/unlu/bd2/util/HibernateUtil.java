@@ -1,47 +1,72 @@
 package ar.edu.unlu.bd2.util;
 
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 
+import java.util.Properties;
+
+/**
+ * Punto único de arranque de Hibernate.
+ * La aplicación construye UN solo SessionFactory (con el pool HikariCP configurado en
+ * hibernate.cfg.xml) y se lo inyecta a todos los controllers desde App.
+ */
 public final class HibernateUtil {
 
-    // SessionFactory único de la aplicación
-    private static final SessionFactory SESSION_FACTORY = buildSessionFactory();
+    // SessionFactory único de la aplicación (se construye en el primer getSessionFactory())
+    private static volatile SessionFactory sessionFactory;
 
     private HibernateUtil() { }
 
-    private static SessionFactory buildSessionFactory() {
+    /**
+     * Construye un SessionFactory nuevo a partir de hibernate.cfg.xml, pisando las propiedades
+     * recibidas (útil para benchmarks o para apuntar a otra base). No lo registra como global.
+     */
+    public static SessionFactory buildSessionFactory(Properties overrides) {
         try {
             // Lee src/main/resources/hibernate.cfg.xml
             Configuration cfg = new Configuration().configure("hibernate.cfg.xml");
-
-            SessionFactory sf = cfg.buildSessionFactory();
-
-            // Cierre ordenado al finalizar la JVM
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                try {
-                    if (sf != null && !sf.isClosed()) sf.close();
-                } catch (Throwable ignored) {}
-            }));
-
-            return sf;
+            if (overrides != null) {
+                cfg.addProperties(overrides);
+            }
+            return cfg.buildSessionFactory();
         } catch (Throwable ex) {
             System.err.println("Error construyendo SessionFactory: " + ex);
             throw new ExceptionInInitializerError(ex);
         }
     }
 
+    /** Inicializa el SessionFactory global con propiedades adicionales (una sola vez). */
+    public static synchronized SessionFactory init(Properties overrides) {
+        if (sessionFactory == null || sessionFactory.isClosed()) {
+            sessionFactory = buildSessionFactory(overrides);
+        }
+        return sessionFactory;
+    }
+
+    /**
+     * Sesión para consultas de solo lectura (listados, reportes): las entidades que cargue no
+     * guardan snapshot para dirty checking y con FlushMode.MANUAL las consultas no disparan auto-flush.
+     */
+    public static Session abrirLectura(SessionFactory sf) {
+        Session session = sf.withOptions().flushMode(FlushMode.MANUAL).openSession();
+        session.setDefaultReadOnly(true);
+        return session;
+    }
+
     /** Obtiene el SessionFactory global */
     public static SessionFactory getSessionFactory() {
-        return SESSION_FACTORY;
+        SessionFactory sf = sessionFactory;
+        return sf != null ? sf : init(null);
     }
 
-    /** Cierra explícitamente (por si querés llamar al salir del menú) */
-    public static void shutdown() {
+    /** Cierra explícitamente (lo llama el shutdown hook de App) */
+    public static synchronized void shutdown() {
         try {
-            if (SESSION_FACTORY != null && !SESSION_FACTORY.isClosed()) {
-                SESSION_FACTORY.close();
+            if (sessionFactory != null && !sessionFactory.isClosed()) {
+                sessionFactory.close();
             }
         } catch (Throwable ignored) {}
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package ar.edu.unlu.bd2.util;
+
+import ar.edu.unlu.bd2.traza.TrazaSql;
+import org.hibernate.HibernateException;
+import org.hibernate.hikaricp.internal.HikariCPConnectionProvider;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * El mismo pool HikariCP de siempre, pero si la conexión se pide dentro de una LlamadaCancelable
+ * se entrega envuelta: cada Statement/PreparedStatement/CallableStatement que se crea queda
+ * registrado en la llamada (con query timeout = plazo restante) para poder cancelarlo desde otro hilo.
+ * Sin llamada en curso devuelve la conexión del pool tal cual.
+ * Con bd2.traza.activa=true además la envuelve TrazaSql (traza de SQL asincrónica y muestreada).
+ */
+public class HikariConnectionProviderCancelable extends HikariCPConnectionProvider {
+
+    private TrazaSql traza;
+
+    @Override
+    public void configure(Map<String, Object> props) throws HibernateException {
+        super.configure(props);
+        traza = TrazaSql.desdePropiedades(props);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (traza != null) traza.cerrar();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection c = conexion();
+        return traza == null ? c : traza.envolver(c);
+    }
+
+    private Connection conexion() throws SQLException {
+        LlamadaCancelable llamada = LlamadaCancelable.actual();
+        if (llamada == null) return super.getConnection();
+
+        llamada.verificar();
+        Connection real = super.getConnection();
+        llamada.conexionTomada();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, metodo, args) -> {
+                    String nombre = metodo.getName();
+                    if ("close".equals(nombre)) llamada.conexionDevuelta();
+                    if ("unwrap".equals(nombre) && args[0] == Connection.class) return proxy;
+                    if ("equals".equals(nombre)) return proxy == args[0];
+                    if ("hashCode".equals(nombre)) return System.identityHashCode(proxy);
+                    Object r;
+                    try {
+                        r = metodo.invoke(real, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (r instanceof Statement st) llamada.registrar(st);
+                    return r;
+                });
+    }
+}
@@ -0,0 +1,111 @@
+package ar.edu.unlu.bd2.util;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Contexto de una llamada con plazo y cancelable, asociado al hilo que la ejecuta.
+ * HikariConnectionProviderCancelable lo consulta al entregar conexiones: cada sentencia JDBC
+ * preparada dentro de la llamada recibe como query timeout el tiempo que le queda, y cancelar()
+ * hace Statement.cancel() sobre la sentencia en curso (en MySQL, un KILL QUERY del lado del servidor).
+ * Fuera de una llamada (p. ej. el menú de consola) las conexiones no se tocan.
+ */
+public final class LlamadaCancelable {
+
+    private static final ThreadLocal<LlamadaCancelable> ACTUAL = new ThreadLocal<>();
+
+    private final long plazoNanos;
+    // ReentrantLock y no synchronized: no fija el hilo virtual a su carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean cancelada;
+    private Statement sentencia;      // última sentencia de la conexión en uso (protegida por lock)
+    private boolean conConexion;      // si la conexión volvió al pool no se cancela nada
+
+    public LlamadaCancelable(long timeout, TimeUnit unidad) {
+        this.plazoNanos = System.nanoTime() + unidad.toNanos(timeout);
+    }
+
+    /** Llamada del hilo actual, o null si no hay. */
+    public static LlamadaCancelable actual() {
+        return ACTUAL.get();
+    }
+
+    /** Ejecuta la operación en el hilo actual con esta llamada como contexto. */
+    public <T> T ejecutar(Supplier<T> operacion) {
+        LlamadaCancelable anterior = ACTUAL.get();
+        ACTUAL.set(this);
+        try {
+            return operacion.get();
+        } finally {
+            if (anterior == null) ACTUAL.remove();
+            else ACTUAL.set(anterior);
+        }
+    }
+
+    public boolean isCancelada() { return cancelada; }
+
+    public long nanosRestantes() {
+        return plazoNanos - System.nanoTime();
+    }
+
+    /** Marca la llamada como cancelada y corta la sentencia JDBC que esté corriendo. */
+    public void cancelar() {
+        cancelada = true;
+        lock.lock();
+        try {
+            if (conConexion && sentencia != null) {
+                try {
+                    sentencia.cancel();
+                } catch (SQLException ignored) {
+                    // ya terminó o se cerró: no hay nada que cortar
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ======= Usado por HikariConnectionProviderCancelable =======
+
+    void verificar() throws SQLException {
+        if (cancelada) throw new SQLTimeoutException("Llamada cancelada");
+        if (nanosRestantes() <= 0) throw new SQLTimeoutException("Plazo de la llamada vencido");
+    }
+
+    void conexionTomada() {
+        lock.lock();
+        try {
+            conConexion = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Bloquea hasta que termine un cancelar() en curso: así nunca se cancela algo de otra llamada. */
+    void conexionDevuelta() {
+        lock.lock();
+        try {
+            conConexion = false;
+            sentencia = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void registrar(Statement st) throws SQLException {
+        verificar();
+        long restante = TimeUnit.NANOSECONDS.toSeconds(nanosRestantes() + 999_999_999L);
+        st.setQueryTimeout((int) Math.max(1, Math.min(Integer.MAX_VALUE, restante)));
+        lock.lock();
+        try {
+            sentencia = st;
+        } finally {
+            lock.unlock();
+        }
+        if (cancelada) cancelar(); // canceló entre verificar() y el registro
+    }
+}
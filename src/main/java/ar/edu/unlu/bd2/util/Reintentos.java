@@ -0,0 +1,64 @@
+package ar.edu.unlu.bd2.util;
+
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleStateException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Política de reintentos acotada para conflictos de bloqueo optimista (@Version).
+ * Backoff exponencial con "full jitter": espera al azar entre 0 y min(máx, base * 2^intento).
+ */
+public final class Reintentos {
+
+    public static final int MAX_INTENTOS_DEFAULT = 5;
+    public static final long BASE_MS_DEFAULT = 5;
+    public static final long MAX_ESPERA_MS_DEFAULT = 200;
+
+    // Total de reintentos hechos en la JVM (para benchmarks / métricas)
+    private static final LongAdder REINTENTOS = new LongAdder();
+
+    private Reintentos() { }
+
+    /** Ejecuta 'operacion' (una transacción completa) reintentando con los valores por defecto. */
+    public static <T> T optimista(Supplier<T> operacion) {
+        return optimista(MAX_INTENTOS_DEFAULT, BASE_MS_DEFAULT, MAX_ESPERA_MS_DEFAULT, operacion);
+    }
+
+    public static <T> T optimista(int maxIntentos, long baseMs, long maxEsperaMs, Supplier<T> operacion) {
+        if (maxIntentos <= 0) throw new IllegalArgumentException("maxIntentos debe ser > 0");
+        for (int intento = 1; ; intento++) {
+            try {
+                return operacion.get();
+            } catch (RuntimeException e) {
+                if (!esConflictoOptimista(e) || intento >= maxIntentos) throw e;
+                REINTENTOS.increment();
+                dormir(ThreadLocalRandom.current().nextLong(Math.min(maxEsperaMs, baseMs << Math.min(intento, 20)) + 1));
+            }
+        }
+    }
+
+    /** True si la excepción (o alguna causa) es un conflicto de versión. */
+    public static boolean esConflictoOptimista(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException || t instanceof StaleStateException) return true;
+            if (t.getCause() == t) break;
+        }
+        return false;
+    }
+
+    public static long reintentosTotales() {
+        return REINTENTOS.sum();
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reintento interrumpido", ie);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ar.edu.unlu.bd2.util;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Recorrido de consultas grandes sin materializar toda la tabla en memoria.
+ * Usa un cursor forward-only (con useCursorFetch=true el driver trae 'lote' filas por viaje)
+ * y limpia la sesión cada 'lote' entidades, así el heap queda acotado.
+ */
+public final class StreamingUtil {
+
+    /** Tamaño de lote por defecto: filas por fetch y entidades vivas en la sesión. */
+    public static final int LOTE_DEFAULT = 500;
+
+    private StreamingUtil() { }
+
+    /**
+     * Ejecuta la consulta HQL y le pasa cada resultado al consumidor.
+     * Las entidades quedan detachadas en cuanto se procesa el lote: el consumidor no debe guardarlas.
+     * @return cantidad de filas recorridas
+     */
+    public static <T> long recorrer(SessionFactory sf, String hql, Class<T> tipo, int lote, Consumer<? super T> consumidor) {
+        return recorrer(sf, hql, tipo, Map.of(), lote, consumidor);
+    }
+
+    /**
+     * Igual que {@link #recorrer(SessionFactory, String, Class, int, Consumer)} pero con parámetros nombrados.
+     * Con tipo Object[] sirve para proyecciones escalares (no quedan entidades en la sesión).
+     */
+    public static <T> long recorrer(SessionFactory sf, String hql, Class<T> tipo, Map<String, ?> parametros,
+                                    int lote, Consumer<? super T> consumidor) {
+        if (lote <= 0) throw new IllegalArgumentException("El lote debe ser > 0");
+        try (Session session = sf.openSession()) {
+            session.setDefaultReadOnly(true);
+            Query<T> q = session.createQuery(hql, tipo)
+                    .setReadOnly(true)
+                    .setFetchSize(lote);
+            parametros.forEach(q::setParameter);
+            long n = 0;
+            try (ScrollableResults<T> rs = q.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rs.next()) {
+                    consumidor.accept(rs.get());
+                    if (++n % lote == 0) {
+                        session.clear(); // suelta las entidades ya procesadas
+                    }
+                }
+            }
+            return n;
+        }
+    }
+}
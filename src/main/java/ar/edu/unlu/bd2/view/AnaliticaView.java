@@ -0,0 +1,125 @@
+package ar.edu.unlu.bd2.view;
+
+import ar.edu.unlu.bd2.analitica.Afinidad;
+import ar.edu.unlu.bd2.analitica.Agregado;
+import ar.edu.unlu.bd2.analitica.Agrupacion;
+import ar.edu.unlu.bd2.analitica.Consulta;
+import ar.edu.unlu.bd2.analitica.MotorAnalitico;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AnaliticaView {
+
+    private final MotorAnalitico motor;
+
+    public AnaliticaView(MotorAnalitico motor) {
+        this.motor = motor;
+    }
+
+    public void menu() {
+        while (true) {
+            System.out.println("\n--- Análisis en memoria ---");
+            System.out.println("Foto: " + motor.instantanea());
+            System.out.println("1) Cargar todo (descarta la foto actual)");
+            System.out.println("2) Actualizar (facturas nuevas)");
+            System.out.println("3) Ventas agrupadas");
+            System.out.println("4) Simular márgenes por producto");
+            System.out.println("5) Productos que se compran juntos");
+            System.out.println("0) Volver");
+
+            int opt = InputReader.nextInt("Opción: ");
+            try {
+                switch (opt) {
+                    case 1 -> System.out.println("✔ " + motor.cargar());
+                    case 2 -> System.out.println("✔ " + motor.actualizar());
+                    case 3 -> agrupadas();
+                    case 4 -> margenes();
+                    case 5 -> afinidad();
+                    case 0 -> { return; }
+                    default -> System.out.println("Opción inválida.");
+                }
+            } catch (RuntimeException e) {
+                System.out.println("✖ " + e.getMessage());
+            }
+            InputReader.pressEnterToContinue();
+        }
+    }
+
+    // ======================= Acciones =======================
+
+    private void agrupadas() {
+        System.out.println("\n> Ventas agrupadas");
+        Agrupacion agrupacion = InputReader.nextEnum("Agrupar por", Agrupacion.class);
+        Consulta consulta = rango(Consulta.todas().agrupadaPor(agrupacion));
+        long t0 = System.nanoTime();
+        List<Agregado> grupos = motor.consultar(consulta);
+        long micros = (System.nanoTime() - t0) / 1000;
+        if (agrupacion == Agrupacion.PRODUCTO || agrupacion == Agrupacion.CLIENTE) {
+            // Por id no dice mucho: los que más facturaron primero
+            grupos = grupos.stream().sorted(Comparator.comparingLong(Agregado::importeCentavos).reversed()).limit(20).toList();
+        }
+        printAgregados(agrupacion, grupos, false);
+        System.out.println("(" + micros + " µs)");
+    }
+
+    private void margenes() {
+        System.out.println("\n> Simular márgenes por producto (costo unitario hipotético)");
+        Map<Integer, BigDecimal> costos = new HashMap<>();
+        while (true) {
+            int id = InputReader.nextInt("ID Producto (0 para terminar): ");
+            if (id == 0) break;
+            costos.put(id, InputReader.nextPositiveMoney("Costo unitario: "));
+        }
+        if (costos.isEmpty()) {
+            System.out.println("(sin productos)");
+            return;
+        }
+        Consulta consulta = rango(Consulta.todas().agrupadaPor(Agrupacion.PRODUCTO)
+                .deProductos(costos.keySet()).conCostos(costos));
+        printAgregados(Agrupacion.PRODUCTO, motor.consultar(consulta), true);
+    }
+
+    private void afinidad() {
+        System.out.println("\n> Productos que se compran juntos");
+        int idProducto = InputReader.nextInt("ID Producto: ");
+        int n = InputReader.nextIntInRange("Cantidad (top N): ", 1, 1000);
+        Afinidad a = motor.afinidad(idProducto, rango(Consulta.todas()), n);
+        System.out.println("Facturas con el producto " + idProducto + ": " + a.facturas());
+        if (a.acompanantes().isEmpty()) {
+            System.out.println("(sin productos acompañantes)");
+            return;
+        }
+        System.out.printf("%-4s %-8s %-10s %-10s %-10s %-14s%n", "#", "ID", "Facturas", "Confianza", "Unidades", "Importe");
+        int i = 1;
+        for (Agregado g : a.acompanantes()) {
+            System.out.printf("%-4d %-8d %-10d %-10s %-10d %-14s%n", i++, g.clave(), g.facturas(),
+                    String.format("%.1f%%", 100 * a.confianza(g)), g.unidades(), g.importe());
+        }
+    }
+
+    // ======================= Helpers =======================
+
+    private static Consulta rango(Consulta consulta) {
+        if (!InputReader.nextYesNo("¿Filtrar por fechas?")) return consulta;
+        return consulta.entre(InputReader.readDate("Desde (yyyy-MM-dd, inclusive): "),
+                InputReader.readDate("Hasta (yyyy-MM-dd, exclusive): "));
+    }
+
+    private static void printAgregados(Agrupacion agrupacion, List<Agregado> grupos, boolean conMargen) {
+        if (grupos.isEmpty()) {
+            System.out.println("(sin ventas)");
+            return;
+        }
+        System.out.printf("%-12s %-8s %-8s %-10s %-14s%s%n", agrupacion, "Líneas", "Facturas", "Unidades", "Importe",
+                conMargen ? String.format(" %-14s %-8s", "Margen", "Margen %") : "");
+        for (Agregado g : grupos) {
+            String clave = agrupacion == Agrupacion.DIA ? g.dia().toString() : String.valueOf(g.clave());
+            System.out.printf("%-12s %-8d %-8d %-10d %-14s%s%n", clave, g.lineas(), g.facturas(), g.unidades(), g.importe(),
+                    conMargen ? String.format(" %-14s %-8.1f", g.margen(), g.margenPorcentual()) : "");
+        }
+    }
+}
@@ -1,14 +1,26 @@
 package ar.edu.unlu.bd2.view;
 
+import ar.edu.unlu.bd2.busqueda.ClienteEncontrado;
 import ar.edu.unlu.bd2.controller.ClienteController;
+import ar.edu.unlu.bd2.controller.ResumenCliente;
 import ar.edu.unlu.bd2.modelo.Cliente;
+import ar.edu.unlu.bd2.modelo.Factura;
 
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
 
 public class ClienteView {
 
-    private final ClienteController controller = new ClienteController();
+    private final ClienteController controller;
+
+    private static final int TAMANIO_PAGINA = 20;
+
+    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    public ClienteView(ClienteController controller) {
+        this.controller = controller;
+    }
 
     public void menu() {
         while (true) {
@@ -18,6 +30,7 @@ public class ClienteView {
             System.out.println("3) Buscar por ID");
             System.out.println("4) Actualizar cliente");
             System.out.println("5) Eliminar cliente");
+            System.out.println("6) Buscar por nombre / apellido");
             System.out.println("0) Volver");
 
             int opt = InputReader.nextInt("Opción: ");
@@ -27,6 +40,7 @@ public class ClienteView {
                 case 3 -> buscarPorId();
                 case 4 -> actualizar();
                 case 5 -> eliminar();
+                case 6 -> buscarPorNombre();
                 case 0 -> { return; }
                 default -> System.out.println("Opción inválida.");
             }
@@ -55,11 +69,20 @@ public class ClienteView {
 
     private void listar() {
         System.out.println("\n> Listado de clientes");
-        List<Cliente> lista = controller.listarTodos();
-        if (lista.isEmpty()) {
-            System.out.println("(sin registros)");
-            return;
+        Integer ultimoId = null; // keyset: id del último cliente mostrado
+        while (true) {
+            List<Cliente> pagina = controller.listarTodos(ultimoId, TAMANIO_PAGINA);
+            if (pagina.isEmpty()) {
+                System.out.println(ultimoId == null ? "(sin registros)" : "(no hay más registros)");
+                return;
+            }
+            printTabla(pagina);
+            ultimoId = pagina.get(pagina.size() - 1).getIdCliente();
+            if (pagina.size() < TAMANIO_PAGINA || !InputReader.nextYesNo("¿Ver página siguiente?")) return;
         }
+    }
+
+    private void printTabla(List<Cliente> lista) {
         System.out.printf("%-10s %-15s %-15s %-8s %-10s%n",
                 "ID", "Nombre", "Apellido", "CC", "Estado");
         System.out.println("------------------------------------------------------");
@@ -75,13 +98,67 @@ public class ClienteView {
 
     private void buscarPorId() {
         System.out.println("\n> Buscar cliente");
-        int id = InputReader.nextInt("ID: ");
-        Optional<Cliente> oc = controller.obtenerPorId(id);
-        if (oc.isEmpty()) {
+        mostrarResumen(InputReader.nextInt("ID: "));
+    }
+
+    private void buscarPorNombre() {
+        System.out.println("\n> Buscar cliente por nombre / apellido (sin acentos, por prefijo, tolera un error)");
+        String texto = InputReader.nextNonEmpty("Texto: ");
+        List<ClienteEncontrado> encontrados;
+        try {
+            encontrados = controller.buscar(texto, TAMANIO_PAGINA);
+        } catch (RuntimeException ex) {
+            System.out.println("✗ " + ex.getMessage());
+            return;
+        }
+        if (encontrados.isEmpty()) {
+            System.out.println("(sin coincidencias)");
+            return;
+        }
+        System.out.printf("%-10s %-15s %-15s%n", "ID", "Nombre", "Apellido");
+        System.out.println("------------------------------------------");
+        for (ClienteEncontrado c : encontrados) {
+            System.out.printf("%-10d %-15s %-15s%n", c.idCliente(), c.nombre(), c.apellido());
+        }
+        int id = InputReader.nextInt("ID para ver el detalle (0 = ninguno): ");
+        if (id != 0) mostrarResumen(id);
+    }
+
+    private void mostrarResumen(int id) {
+        Optional<ResumenCliente> or = controller.obtenerResumen(id);
+        if (or.isEmpty()) {
             System.out.println("No existe cliente con id=" + id);
             return;
         }
-        printDetalle(oc.get());
+        ResumenCliente r = or.get();
+        printDetalle(r.cliente());
+        System.out.println("Facturas: " + r.cantidadFacturas()
+                + " | Total histórico: " + r.totalHistorico().toPlainString()
+                + " | Última: " + (r.ultimaFactura() == null ? "-" : FMT.format(r.ultimaFactura())));
+        if (r.cantidadFacturas() > 0 && InputReader.nextYesNo("¿Ver sus facturas?")) {
+            listarFacturas(id);
+        }
+    }
+
+    /** Facturas del cliente de a páginas, de la más nueva a la más vieja. */
+    private void listarFacturas(int idCliente) {
+        Integer antesDeId = null; // keyset: id de la última factura mostrada
+        while (true) {
+            List<Factura> pagina = controller.listarFacturas(idCliente, antesDeId, TAMANIO_PAGINA);
+            if (pagina.isEmpty()) {
+                System.out.println("(no hay más facturas)");
+                return;
+            }
+            System.out.printf("%-10s %-17s %-14s%n", "ID", "Fecha", "Total");
+            System.out.println("------------------------------------------");
+            for (Factura f : pagina) {
+                System.out.printf("%-10d %-17s %-14s%n", f.getIdFactura(),
+                        f.getFecha() == null ? "" : FMT.format(f.getFecha()),
+                        f.getTotal() == null ? "(null)" : f.getTotal().toPlainString());
+            }
+            antesDeId = pagina.get(pagina.size() - 1).getIdFactura();
+            if (pagina.size() < TAMANIO_PAGINA || !InputReader.nextYesNo("¿Ver página siguiente?")) return;
+        }
     }
 
     private void actualizar() {
@@ -136,6 +213,5 @@ public class ClienteView {
         System.out.println("Apellido: " + c.getApellido());
         System.out.println("Cuenta Corriente: " + (Boolean.TRUE.equals(c.getEsCuentaCorriente()) ? "Sí" : "No"));
         System.out.println("Estado: " + c.getEstado());
-        System.out.println("Facturas asociadas: " + (c.getFacturas() == null ? 0 : c.getFacturas().size()));
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package ar.edu.unlu.bd2.view;
 
 
 import ar.edu.unlu.bd2.controller.DetalleFacturaController;
+import ar.edu.unlu.bd2.controller.DetalleLinea;
+import ar.edu.unlu.bd2.controller.ModoActualizacionCantidad;
 import ar.edu.unlu.bd2.modelo.DetalleFactura;
 
 import java.math.BigDecimal;
@@ -10,7 +12,11 @@ import java.util.Optional;
 
 public class DetalleFacturaView {
 
-    private final DetalleFacturaController controller = new DetalleFacturaController();
+    private final DetalleFacturaController controller;
+
+    public DetalleFacturaView(DetalleFacturaController controller) {
+        this.controller = controller;
+    }
 
     public void menu() {
         while (true) {
@@ -18,7 +24,7 @@ public class DetalleFacturaView {
             System.out.println("1) Crear detalle");
             System.out.println("2) Obtener detalle por (factura, producto)");
             System.out.println("3) Listar detalles por factura");
-            System.out.println("4) Actualizar cantidad (DELETE + INSERT)");
+            System.out.println("4) Actualizar cantidad (DELETE + INSERT o UPDATE en el lugar)");
             System.out.println("5) Reemplazar producto (DELETE + INSERT)");
             System.out.println("6) Eliminar detalle");
             System.out.println("0) Volver");
@@ -70,7 +76,7 @@ public class DetalleFacturaView {
     private void listarPorFactura() {
         System.out.println("\n> Listar detalles por factura");
         int idFactura = InputReader.nextInt("ID de factura: ");
-        List<DetalleFactura> dets = controller.listarPorFactura(idFactura);
+        List<DetalleLinea> dets = controller.listarLineas(idFactura);
         printTabla(dets);
     }
 
@@ -79,7 +85,8 @@ public class DetalleFacturaView {
         int idFactura = InputReader.nextInt("ID de factura: ");
         int idProducto = InputReader.nextInt("ID de producto (actual): ");
         int nuevaCantidad = InputReader.nextInt("Nueva cantidad (>0): ");
-        DetalleFactura d = controller.actualizarCantidad(idFactura, idProducto, nuevaCantidad);
+        ModoActualizacionCantidad modo = InputReader.nextEnum("Modo", ModoActualizacionCantidad.class);
+        DetalleFactura d = controller.actualizarCantidad(idFactura, idProducto, nuevaCantidad, modo);
         System.out.println("✔ Cantidad actualizada.");
         printUnaLinea(d);
     }
@@ -106,16 +113,18 @@ public class DetalleFacturaView {
 
     // ======================= Helpers de impresión =======================
 
-    private void printTabla(List<DetalleFactura> dets) {
+    private void printTabla(List<DetalleLinea> dets) {
         if (dets == null || dets.isEmpty()) {
             System.out.println("(sin detalles)");
             return;
         }
-        System.out.printf("%-10s %-10s %-10s %-14s %-14s%n",
-                "FacturaID", "ProductoID", "Cantidad", "PrecioUnit", "Subtotal");
-        System.out.println("------------------------------------------------------------------");
-        for (DetalleFactura d : dets) {
-            printLineaTabla(d);
+        System.out.printf("%-10s %-10s %-22s %-10s %-14s %-14s%n",
+                "FacturaID", "ProductoID", "Producto", "Cantidad", "PrecioUnit", "Subtotal");
+        System.out.println("-----------------------------------------------------------------------------------------");
+        for (DetalleLinea d : dets) {
+            System.out.printf("%-10d %-10d %-22s %-10d %-14s %-14s%n",
+                    d.idFactura(), d.idProducto(), d.nombreProducto(), d.cantidad(),
+                    fmtMoney(d.precioUnitario()), fmtMoney(d.subtotal()));
         }
     }
 
@@ -0,0 +1,95 @@
+package ar.edu.unlu.bd2.view;
+
+import ar.edu.unlu.bd2.eventos.Lector;
+import ar.edu.unlu.bd2.eventos.LogEventos;
+import ar.edu.unlu.bd2.eventos.Registro;
+import ar.edu.unlu.bd2.eventos.RelayOutbox;
+
+import java.time.Duration;
+
+public class EventosView {
+
+    private final RelayOutbox relay;
+
+    public EventosView(RelayOutbox relay) {
+        this.relay = relay;
+    }
+
+    public void menu() {
+        if (relay == null) {
+            System.out.println("El outbox de eventos está desactivado (bd2.outbox.activa en hibernate.cfg.xml).");
+            return;
+        }
+        while (true) {
+            System.out.println("\n--- Eventos (outbox y log) ---");
+            System.out.println("1) Estado del log");
+            System.out.println("2) Ver eventos desde un offset");
+            System.out.println("3) Seguir eventos nuevos");
+            System.out.println("4) Publicar ahora lo pendiente del outbox");
+            System.out.println("0) Volver");
+
+            int opt = InputReader.nextInt("Opción: ");
+            try {
+                switch (opt) {
+                    case 1 -> System.out.println(relay);
+                    case 2 -> verDesde();
+                    case 3 -> seguir();
+                    case 4 -> publicar();
+                    case 0 -> { return; }
+                    default -> System.out.println("Opción inválida.");
+                }
+            } catch (RuntimeException e) {
+                System.out.println("✖ " + e.getMessage());
+            }
+            InputReader.pressEnterToContinue();
+        }
+    }
+
+    // ======================= Acciones =======================
+
+    private void verDesde() {
+        LogEventos log = relay.log();
+        System.out.println("\n> Eventos (offsets " + log.primerOffset() + ".." + log.siguienteOffset() + ")");
+        long desde = InputReader.nextLong("Desde offset: ");
+        int n = InputReader.nextIntInRange("Cantidad: ", 1, 1000);
+        if (log.lector(desde).leer(n, r -> System.out.println(linea(r))) == 0) {
+            System.out.println("(no hay eventos desde ese offset)");
+        }
+    }
+
+    private void seguir() {
+        int segundos = InputReader.nextIntInRange("Durante cuántos segundos: ", 1, 600);
+        Lector lector = relay.log().lector(relay.log().siguienteOffset());
+        long hasta = System.nanoTime() + segundos * 1_000_000_000L;
+        int leidos = 0;
+        try {
+            while (System.nanoTime() < hasta) {
+                Registro r = lector.siguiente(Duration.ofMillis(500));
+                if (r != null) {
+                    System.out.println(linea(r));
+                    leidos++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("(" + leidos + " eventos; siguiente offset " + lector.posicion() + ")");
+    }
+
+    private void publicar() {
+        int total = 0, n;
+        do {
+            n = relay.drenar();
+            total += n;
+        } while (n == RelayOutbox.LOTE);
+        if (!relay.publicando()) {
+            System.out.println("Otro proceso tiene el relay de esta base: publica él (en su log).");
+            return;
+        }
+        System.out.println("✔ " + total + " eventos sacados del outbox.");
+    }
+
+    private static String linea(Registro r) {
+        return String.format("%-8d %-26s %-24s %s", r.offset(), r.creado(), r.tipo(), r.json());
+    }
+}
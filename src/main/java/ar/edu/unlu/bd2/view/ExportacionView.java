@@ -0,0 +1,62 @@
+package ar.edu.unlu.bd2.view;
+
+
+import ar.edu.unlu.bd2.controller.ExportacionController;
+import ar.edu.unlu.bd2.controller.FormatoExportacion;
+import ar.edu.unlu.bd2.controller.ResultadoExportacion;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+public class ExportacionView {
+
+    private final ExportacionController controller;
+
+    public ExportacionView(ExportacionController controller) {
+        this.controller = controller;
+    }
+
+    public void menu() {
+        while (true) {
+            System.out.println("\n--- Exportación de facturas ---");
+            System.out.println("1) Exportar rango de fechas a un archivo");
+            System.out.println("2) Exportar rango de fechas en paralelo (un archivo por segmento)");
+            System.out.println("0) Volver");
+
+            int opt = InputReader.nextInt("Opción: ");
+            try {
+                switch (opt) {
+                    case 1 -> exportar(false);
+                    case 2 -> exportar(true);
+                    case 0 -> { return; }
+                    default -> System.out.println("Opción inválida.");
+                }
+            } catch (RuntimeException e) {
+                System.out.println("✖ " + e.getMessage());
+            }
+            InputReader.pressEnterToContinue();
+        }
+    }
+
+    // ======================= Acciones =======================
+
+    private void exportar(boolean paralelo) {
+        System.out.println("\n> Exportar facturas");
+        LocalDate desde = InputReader.readDate("Desde (yyyy-MM-dd, inclusive): ");
+        LocalDate hasta = InputReader.readDate("Hasta (yyyy-MM-dd, exclusive): ");
+        FormatoExportacion formato = InputReader.nextEnum("Formato", FormatoExportacion.class);
+        boolean gzip = InputReader.nextYesNo("¿Comprimir con gzip?");
+
+        ResultadoExportacion r;
+        if (paralelo) {
+            Path dir = Path.of(InputReader.nextNonEmpty("Directorio de salida: "));
+            int segmentos = InputReader.nextIntInRange("Segmentos: ", 1, 366);
+            r = controller.exportarParalelo(desde, hasta, dir, formato, gzip, segmentos);
+        } else {
+            Path archivo = Path.of(InputReader.nextNonEmpty("Archivo de salida: "));
+            r = controller.exportar(desde, hasta, archivo, formato, gzip);
+        }
+        System.out.println("✔ " + r);
+        r.archivos().forEach(a -> System.out.println("  " + a));
+    }
+}
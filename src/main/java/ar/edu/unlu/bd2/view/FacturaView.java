@@ -1,20 +1,33 @@
 package ar.edu.unlu.bd2.view;
 
+import ar.edu.unlu.bd2.busqueda.ProductoEncontrado;
 import ar.edu.unlu.bd2.controller.FacturaController;
+import ar.edu.unlu.bd2.controller.FacturaResumen;
+import ar.edu.unlu.bd2.controller.ProductoController;
 import ar.edu.unlu.bd2.modelo.DetalleFactura;
 import ar.edu.unlu.bd2.modelo.Factura;
 
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
 public class FacturaView {
 
-    private final FacturaController fCtrl = new FacturaController();
+    private final FacturaController fCtrl;
+    private final ProductoController pCtrl;
+
+    private static final int TAMANIO_PAGINA = 20;
 
     private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
+    public FacturaView(FacturaController fCtrl, ProductoController pCtrl) {
+        this.fCtrl = fCtrl;
+        this.pCtrl = pCtrl;
+    }
+
     public void menu() {
         while (true) {
             System.out.println("\n--- Facturas ---");
@@ -27,6 +40,7 @@ public class FacturaView {
             System.out.println("7) Reemplazar producto de un detalle");
             System.out.println("8) Eliminar detalle");
             System.out.println("9) Eliminar factura");
+            System.out.println("10) Crear factura completa (varias líneas)");
             System.out.println("0) Volver");
 
             int opt = InputReader.nextInt("Opción: ");
@@ -41,6 +55,7 @@ public class FacturaView {
                     case 7 -> reemplazarProductoDetalle();
                     case 8 -> eliminarDetalle();
                     case 9 -> eliminarFactura();
+                    case 10 -> crearFacturaCompleta();
                     case 0 -> { return; }
                     default -> System.out.println("Opción inválida.");
                 }
@@ -62,28 +77,40 @@ public class FacturaView {
 
     private void listarTodas() {
         System.out.println("\n> Listado de facturas");
-        List<Factura> lista = fCtrl.listarTodas();
-        printTablaFacturas(lista);
+        Integer ultimoId = null; // keyset: id de la última factura mostrada
+        while (true) {
+            List<FacturaResumen> pagina = fCtrl.listarResumenes(ultimoId, TAMANIO_PAGINA);
+            if (pagina.isEmpty()) {
+                if (ultimoId != null) System.out.println("(no hay más registros)");
+                else printTablaFacturas(pagina);
+                return;
+            }
+            printTablaFacturas(pagina);
+            ultimoId = pagina.get(pagina.size() - 1).idFactura();
+            if (pagina.size() < TAMANIO_PAGINA || !InputReader.nextYesNo("¿Ver página siguiente?")) return;
+        }
     }
 
     private void listarPorCliente() {
         System.out.println("\n> Listado por cliente");
         int idCliente = InputReader.nextInt("ID de cliente: ");
-        List<Factura> lista = fCtrl.listarPorCliente(idCliente);
+        List<FacturaResumen> lista = fCtrl.listarResumenesPorCliente(idCliente);
         printTablaFacturas(lista);
     }
 
     private void verFactura() {
         System.out.println("\n> Ver factura");
         int  id = InputReader.nextInt("ID de factura: ");
-        Optional<Factura> of = fCtrl.obtenerPorId(id);
+        // Encabezado, cliente y líneas con producto en una sola consulta
+        Optional<Factura> of = fCtrl.obtenerCompleta(id);
         if (of.isEmpty()) {
             System.out.println("No existe factura con id=" + id);
             return;
         }
         Factura f = of.get();
         printEncabezado(f);
-        List<DetalleFactura> dets = fCtrl.listarDetalles(id);
+        List<DetalleFactura> dets = new ArrayList<>(f.getDetalles());
+        dets.sort(Comparator.comparing(d -> d.getProducto().getIdProducto()));
         printDetalles(dets);
         System.out.println("TOTAL: " + (f.getTotal() == null ? "(BD no informó total aún)" : f.getTotal()));
     }
@@ -91,7 +118,7 @@ public class FacturaView {
     private void agregarDetalle() {
         System.out.println("\n> Agregar detalle");
         int idFactura = InputReader.nextInt("ID de factura: ");
-        int idProducto = InputReader.nextInt("ID de producto: ");
+        int idProducto = leerProducto("Producto (ID o parte del nombre): ");
         int cantidad = InputReader.nextInt("Cantidad (>0): ");
         DetalleFactura d = fCtrl.agregarDetalle(idFactura, idProducto, cantidad);
         System.out.println("✔ Detalle agregado: factura=" + idFactura + ", producto=" + idProducto +
@@ -111,7 +138,7 @@ public class FacturaView {
         System.out.println("\n> Reemplazar producto en detalle");
         int idFactura = InputReader.nextInt("ID de factura: ");
         int idProductoActual = InputReader.nextInt("ID de producto actual: ");
-        int idProductoNuevo = InputReader.nextInt("ID de producto nuevo: ");
+        int idProductoNuevo = leerProducto("Producto nuevo (ID o parte del nombre): ");
         int cantidadNueva = InputReader.nextInt("Cantidad para el nuevo producto (>0): ");
         DetalleFactura d = fCtrl.reemplazarProducto(idFactura, idProductoActual, idProductoNuevo, cantidadNueva);
         System.out.println("✔ Producto reemplazado. Nuevo prod=" + d.getProducto().getIdProducto()
@@ -135,9 +162,45 @@ public class FacturaView {
         else System.out.println("No existe factura con id=" + id);
     }
 
+    private void crearFacturaCompleta() {
+        System.out.println("\n> Crear factura completa");
+        int idCliente = InputReader.nextInt("ID de cliente: ");
+        List<FacturaController.Linea> lineas = new ArrayList<>();
+        do {
+            int idProducto = leerProducto("Producto (ID o parte del nombre): ");
+            int cantidad = InputReader.nextInt("Cantidad (>0): ");
+            lineas.add(new FacturaController.Linea(idProducto, cantidad));
+        } while (InputReader.nextYesNo("¿Agregar otra línea?"));
+        Factura f = fCtrl.crearFacturaCompleta(idCliente, lineas);
+        System.out.println("✔ Factura creada. ID = " + f.getIdFactura() + " (" + lineas.size() + " líneas)");
+    }
+
+    // ======================= Helpers =======================
+
+    /** Un número es el ID; cualquier otro texto se busca por nombre en el catálogo y se elige de la lista. */
+    private int leerProducto(String prompt) {
+        while (true) {
+            String s = InputReader.nextNonEmpty(prompt).trim();
+            try {
+                return Integer.parseInt(s);
+            } catch (NumberFormatException ignored) {
+                // no es un id: se busca por nombre
+            }
+            List<ProductoEncontrado> encontrados;
+            try {
+                encontrados = pCtrl.buscar(s, 10);
+            } catch (RuntimeException ex) {
+                System.out.println("✗ " + ex.getMessage() + " (ingrese el ID)");
+                continue;
+            }
+            ProductoView.printEncontrados(encontrados);
+            if (!encontrados.isEmpty()) return InputReader.nextInt("ID de producto: ");
+        }
+    }
+
     // ======================= Helpers de impresión =======================
 
-    private void printTablaFacturas(List<Factura> lista) {
+    private void printTablaFacturas(List<FacturaResumen> lista) {
         if (lista == null || lista.isEmpty()) {
             System.out.println("(sin registros)");
             return;
@@ -145,12 +208,12 @@ public class FacturaView {
         System.out.printf("%-8s %-10s %-18s %-14s%n",
                 "ID", "ClienteID", "Fecha", "Total");
         System.out.println("---------------------------------------------------");
-        for (Factura f : lista) {
+        for (FacturaResumen f : lista) {
             System.out.printf("%-8d %-10d %-18s %-14s%n",
-                    f.getIdFactura(),
-                    f.getCliente() != null ? f.getCliente().getIdCliente() : null,
-                    f.getFecha() != null ? FMT.format(f.getFecha()) : "",
-                    fmtMoney(f.getTotal()));
+                    f.idFactura(),
+                    f.idCliente(),
+                    f.fecha() != null ? FMT.format(f.fecha()) : "",
+                    fmtMoney(f.total()));
         }
     }
 
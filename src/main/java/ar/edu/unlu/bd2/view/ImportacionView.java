@@ -0,0 +1,65 @@
+package ar.edu.unlu.bd2.view;
+
+
+import ar.edu.unlu.bd2.controller.ImportacionController;
+import ar.edu.unlu.bd2.controller.ResultadoImportacion;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ImportacionView {
+
+    private final ImportacionController controller;
+
+    public ImportacionView(ImportacionController controller) {
+        this.controller = controller;
+    }
+
+    public void menu() {
+        while (true) {
+            System.out.println("\n--- Importación CSV ---");
+            System.out.println("1) Importar clientes (id_cliente,nombre,apellido,es_cuenta_corriente,estado)");
+            System.out.println("2) Importar productos (nombre,precio_unitario,stock,activo)");
+            System.out.println("0) Volver");
+
+            int opt = InputReader.nextInt("Opción: ");
+            try {
+                switch (opt) {
+                    case 1 -> importar(true);
+                    case 2 -> importar(false);
+                    case 0 -> { return; }
+                    default -> System.out.println("Opción inválida.");
+                }
+            } catch (RuntimeException e) {
+                System.out.println("✖ " + e.getMessage());
+            }
+            InputReader.pressEnterToContinue();
+        }
+    }
+
+    // ======================= Acciones =======================
+
+    private void importar(boolean clientes) {
+        System.out.println(clientes ? "\n> Importar clientes" : "\n> Importar productos");
+        Path archivo = Path.of(InputReader.nextNonEmpty("Archivo CSV: "));
+        if (!Files.isReadable(archivo)) {
+            System.out.println("No se puede leer el archivo " + archivo);
+            return;
+        }
+        Path rechazos = Path.of(archivo + ".rechazos.csv");
+        String s = InputReader.nextLine("Filas por lote [" + ImportacionController.LOTE_DEFAULT + "]: ").trim();
+        int lote = s.isEmpty() ? ImportacionController.LOTE_DEFAULT : Integer.parseInt(s);
+
+        ResultadoImportacion r = clientes
+                ? controller.importarClientes(archivo, rechazos, lote, this::mostrarProgreso)
+                : controller.importarProductos(archivo, rechazos, lote, this::mostrarProgreso);
+        System.out.println();
+        System.out.println("✔ " + r);
+        if (r.rechazadas() > 0) System.out.println("Filas rechazadas en: " + rechazos);
+    }
+
+    private void mostrarProgreso(ResultadoImportacion r) {
+        System.out.print("\r  " + r);
+        System.out.flush();
+    }
+}
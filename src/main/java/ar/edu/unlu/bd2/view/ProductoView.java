@@ -1,16 +1,28 @@
 package ar.edu.unlu.bd2.view;
 
 
+import ar.edu.unlu.bd2.busqueda.ProductoEncontrado;
+import ar.edu.unlu.bd2.controller.FiltroProductos;
 import ar.edu.unlu.bd2.controller.ProductoController;
+import ar.edu.unlu.bd2.controller.ProductoResumen;
 import ar.edu.unlu.bd2.modelo.Producto;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class ProductoView {
 
-    private final ProductoController controller = new ProductoController();
+    private final ProductoController controller;
+
+    private static final int TAMANIO_PAGINA = 20;
+
+    public ProductoView(ProductoController controller) {
+        this.controller = controller;
+    }
 
     public void menu() {
         while (true) {
@@ -23,6 +35,9 @@ public class ProductoView {
             System.out.println("6) Ajustar stock (+/-)");
             System.out.println("7) Activar / Desactivar");
             System.out.println("8) Eliminar");
+            System.out.println("9) Ajuste masivo de stock (entrega de proveedor)");
+            System.out.println("10) Cambio masivo de precios / estado");
+            System.out.println("11) Buscar por nombre");
             System.out.println("0) Volver");
 
             int opt = InputReader.nextInt("Opción: ");
@@ -35,6 +50,9 @@ public class ProductoView {
                 case 6 -> ajustarStock();
                 case 7 -> activarDesactivar();
                 case 8 -> eliminar();
+                case 9 -> ajusteMasivo();
+                case 10 -> cambioMasivo();
+                case 11 -> buscarPorNombre();
                 case 0 -> { return; }
                 default -> System.out.println("Opción inválida.");
             }
@@ -58,13 +76,23 @@ public class ProductoView {
 
     private void listarTodos() {
         System.out.println("\n> Listado de productos (todos)");
-        List<Producto> lista = controller.listarTodos();
-        printTabla(lista);
+        Integer ultimoId = null; // keyset: id del último producto mostrado
+        while (true) {
+            List<ProductoResumen> pagina = controller.listarResumenes(ultimoId, TAMANIO_PAGINA);
+            if (pagina.isEmpty()) {
+                if (ultimoId != null) System.out.println("(no hay más registros)");
+                else printTabla(pagina);
+                return;
+            }
+            printTabla(pagina);
+            ultimoId = pagina.get(pagina.size() - 1).idProducto();
+            if (pagina.size() < TAMANIO_PAGINA || !InputReader.nextYesNo("¿Ver página siguiente?")) return;
+        }
     }
 
     private void listarActivos() {
         System.out.println("\n> Listado de productos (activos)");
-        List<Producto> lista = controller.listarActivos();
+        List<ProductoResumen> lista = controller.listarActivosResumen();
         printTabla(lista);
     }
 
@@ -79,6 +107,25 @@ public class ProductoView {
         printDetalle(op.get());
     }
 
+    private void buscarPorNombre() {
+        System.out.println("\n> Buscar producto por nombre (sin acentos, por prefijo, tolera un error)");
+        String texto = InputReader.nextNonEmpty("Texto: ");
+        List<ProductoEncontrado> encontrados;
+        try {
+            encontrados = controller.buscar(texto, TAMANIO_PAGINA);
+        } catch (RuntimeException ex) {
+            System.out.println("✗ " + ex.getMessage());
+            return;
+        }
+        printEncontrados(encontrados);
+        if (encontrados.isEmpty()) return;
+        long id = InputReader.nextLong("ID para ver el detalle (0 = ninguno): ");
+        if (id == 0) return;
+        Optional<Producto> op = controller.obtenerPorId(id);
+        if (op.isEmpty()) System.out.println("No existe producto con id=" + id);
+        else printDetalle(op.get());
+    }
+
     private void cambiarPrecio() {
         System.out.println("\n> Cambiar precio");
         long id = InputReader.nextLong("ID: ");
@@ -100,6 +147,52 @@ public class ProductoView {
         }
     }
 
+    private void ajusteMasivo() {
+        System.out.println("\n> Ajuste masivo de stock (ID 0 para terminar)");
+        Map<Integer, Integer> deltas = new LinkedHashMap<>();
+        while (true) {
+            int id = InputReader.nextInt("ID producto (0 = fin): ");
+            if (id == 0) break;
+            deltas.merge(id, InputReader.nextInt("Delta (ej: +5 o -3): "), Integer::sum);
+        }
+        if (deltas.isEmpty()) {
+            System.out.println("(sin ajustes)");
+            return;
+        }
+        try {
+            Map<Integer, Integer> nuevos = controller.ajustarStockMasivo(deltas);
+            System.out.println("✔ Ajuste aplicado. Stock resultante:");
+            nuevos.forEach((id, stock) -> System.out.printf("  id=%-8d stock=%d%n", id, stock));
+        } catch (RuntimeException e) {
+            System.out.println("✖ " + e.getMessage());
+        }
+    }
+
+    private void cambioMasivo() {
+        System.out.println("\n> Cambio masivo de precios / estado");
+        System.out.println("Filtro: 1) Rango de IDs  2) Prefijo de nombre  3) Lista de IDs  4) Todos");
+        int tipoFiltro = InputReader.nextIntInRange("Opción: ", 1, 4);
+        try {
+            FiltroProductos filtro = switch (tipoFiltro) {
+                case 1 -> FiltroProductos.rangoIds(InputReader.nextInt("ID desde: "), InputReader.nextInt("ID hasta: "));
+                case 2 -> FiltroProductos.prefijoNombre(InputReader.nextNonEmpty("Prefijo: "));
+                case 3 -> FiltroProductos.ids(parsearIds(InputReader.nextNonEmpty("IDs (separados por coma): ")));
+                default -> FiltroProductos.todos();
+            };
+            System.out.println("Cambio: 1) Precio +/- %  2) Precio +/- monto  3) Activar  4) Desactivar");
+            int cambio = InputReader.nextIntInRange("Opción: ", 1, 4);
+            int filas = switch (cambio) {
+                case 1 -> controller.ajustarPreciosPorcentaje(filtro, InputReader.nextBigDecimal("Porcentaje (ej: 7 o -5): "));
+                case 2 -> controller.ajustarPreciosMonto(filtro, InputReader.nextBigDecimal("Monto (ej: 10 o -2.5): "));
+                case 3 -> controller.activarDesactivarMasivo(filtro, true);
+                default -> controller.activarDesactivarMasivo(filtro, false);
+            };
+            System.out.println("✔ Productos actualizados: " + filas);
+        } catch (RuntimeException e) {
+            System.out.println("✖ " + e.getMessage());
+        }
+    }
+
     private void activarDesactivar() {
         System.out.println("\n> Activar / Desactivar producto");
         long id = InputReader.nextLong("ID: ");
@@ -119,7 +212,21 @@ public class ProductoView {
 
     // ======================= Helpers =======================
 
-    private void printTabla(List<Producto> lista) {
+    private List<Integer> parsearIds(String texto) {
+        List<Integer> ids = new ArrayList<>();
+        for (String parte : texto.split(",")) {
+            String t = parte.trim();
+            if (t.isEmpty()) continue;
+            try {
+                ids.add(Integer.parseInt(t));
+            } catch (NumberFormatException e) {
+                System.out.println("ID ignorado (no numérico): " + t);
+            }
+        }
+        return ids;
+    }
+
+    private void printTabla(List<ProductoResumen> lista) {
         if (lista == null || lista.isEmpty()) {
             System.out.println("(sin registros)");
             return;
@@ -127,13 +234,25 @@ public class ProductoView {
         System.out.printf("%-8s %-22s %-14s %-8s %-8s%n",
                 "ID", "Nombre", "Precio", "Stock", "Activo");
         System.out.println("-----------------------------------------------------------");
-        for (Producto p : lista) {
+        for (ProductoResumen p : lista) {
             System.out.printf("%-8d %-22s %-14s %-8d %-8s%n",
-                    p.getIdProducto(),
-                    p.getNombre(),
-                    p.getPrecioUnitario(),
-                    p.getStock(),
-                    Boolean.TRUE.equals(p.getActivo()) ? "Sí" : "No");
+                    p.idProducto(),
+                    p.nombre(),
+                    p.precioUnitario(),
+                    p.stock(),
+                    Boolean.TRUE.equals(p.activo()) ? "Sí" : "No");
+        }
+    }
+
+    static void printEncontrados(List<ProductoEncontrado> lista) {
+        if (lista.isEmpty()) {
+            System.out.println("(sin coincidencias)");
+            return;
+        }
+        System.out.printf("%-8s %-30s %-8s%n", "ID", "Nombre", "Activo");
+        System.out.println("----------------------------------------------");
+        for (ProductoEncontrado p : lista) {
+            System.out.printf("%-8d %-30s %-8s%n", p.idProducto(), p.nombre(), p.activo() ? "Sí" : "No");
         }
     }
 
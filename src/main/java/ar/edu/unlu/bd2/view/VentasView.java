@@ -0,0 +1,124 @@
+package ar.edu.unlu.bd2.view;
+
+import ar.edu.unlu.bd2.controller.VentaCliente;
+import ar.edu.unlu.bd2.controller.VentaDia;
+import ar.edu.unlu.bd2.controller.VentaProducto;
+import ar.edu.unlu.bd2.controller.VentasController;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public class VentasView {
+
+    private final VentasController controller;
+
+    public VentasView(VentasController controller) {
+        this.controller = controller;
+    }
+
+    public void menu() {
+        while (true) {
+            System.out.println("\n--- Ventas (resúmenes diarios) ---");
+            System.out.println("1) Ventas por día");
+            System.out.println("2) Ventas por día de un producto");
+            System.out.println("3) Productos más vendidos");
+            System.out.println("4) Clientes que más compraron");
+            System.out.println("5) Reconstruir resúmenes");
+            System.out.println("0) Volver");
+
+            int opt = InputReader.nextInt("Opción: ");
+            try {
+                switch (opt) {
+                    case 1 -> porDia();
+                    case 2 -> porDiaDeProducto();
+                    case 3 -> topProductos();
+                    case 4 -> topClientes();
+                    case 5 -> reconstruir();
+                    case 0 -> { return; }
+                    default -> System.out.println("Opción inválida.");
+                }
+            } catch (RuntimeException e) {
+                System.out.println("✖ " + e.getMessage());
+            }
+            InputReader.pressEnterToContinue();
+        }
+    }
+
+    // ======================= Acciones =======================
+
+    private void porDia() {
+        System.out.println("\n> Ventas por día");
+        LocalDate desde = InputReader.readDate("Desde (yyyy-MM-dd, inclusive): ");
+        LocalDate hasta = InputReader.readDate("Hasta (yyyy-MM-dd, exclusive): ");
+        printDias(controller.porDia(desde, hasta));
+    }
+
+    private void porDiaDeProducto() {
+        System.out.println("\n> Ventas por día de un producto");
+        int idProducto = InputReader.nextInt("ID Producto: ");
+        LocalDate desde = InputReader.readDate("Desde (yyyy-MM-dd, inclusive): ");
+        LocalDate hasta = InputReader.readDate("Hasta (yyyy-MM-dd, exclusive): ");
+        printDias(controller.porDiaDeProducto(idProducto, desde, hasta));
+    }
+
+    private void topProductos() {
+        System.out.println("\n> Productos más vendidos");
+        LocalDate desde = InputReader.readDate("Desde (yyyy-MM-dd, inclusive): ");
+        LocalDate hasta = InputReader.readDate("Hasta (yyyy-MM-dd, exclusive): ");
+        int n = InputReader.nextIntInRange("Cantidad (top N): ", 1, 1000);
+        List<VentaProducto> top = controller.topProductos(desde, hasta, n);
+        if (top.isEmpty()) {
+            System.out.println("(sin ventas en el rango)");
+            return;
+        }
+        System.out.printf("%-4s %-8s %-30s %-10s %-14s%n", "#", "ID", "Producto", "Unidades", "Importe");
+        int i = 1;
+        for (VentaProducto v : top) {
+            System.out.printf("%-4d %-8d %-30s %-10d %-14s%n", i++, v.idProducto(), v.nombre(), v.cantidad(), v.importe());
+        }
+    }
+
+    private void topClientes() {
+        System.out.println("\n> Clientes que más compraron");
+        LocalDate desde = InputReader.readDate("Desde (yyyy-MM-dd, inclusive): ");
+        LocalDate hasta = InputReader.readDate("Hasta (yyyy-MM-dd, exclusive): ");
+        int n = InputReader.nextIntInRange("Cantidad (top N): ", 1, 1000);
+        List<VentaCliente> top = controller.topClientes(desde, hasta, n);
+        if (top.isEmpty()) {
+            System.out.println("(sin ventas en el rango)");
+            return;
+        }
+        System.out.printf("%-4s %-8s %-30s %-10s %-14s%n", "#", "ID", "Cliente", "Unidades", "Importe");
+        int i = 1;
+        for (VentaCliente v : top) {
+            System.out.printf("%-4d %-8d %-30s %-10d %-14s%n", i++, v.idCliente(),
+                    v.apellido() + ", " + v.nombre(), v.cantidad(), v.importe());
+        }
+    }
+
+    private void reconstruir() {
+        System.out.println("\n> Reconstruir resúmenes desde las líneas de factura");
+        int particiones = InputReader.nextIntInRange("Particiones: ", 1, 366);
+        System.out.println("✔ " + controller.reconstruir(particiones));
+    }
+
+    // ======================= Helpers de impresión =======================
+
+    private void printDias(List<VentaDia> dias) {
+        if (dias.isEmpty()) {
+            System.out.println("(sin ventas en el rango)");
+            return;
+        }
+        System.out.printf("%-12s %-10s %-8s %-14s%n", "Día", "Unidades", "Líneas", "Importe");
+        long unidades = 0, lineas = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (VentaDia d : dias) {
+            System.out.printf("%-12s %-10d %-8d %-14s%n", d.dia(), d.cantidad(), d.lineas(), d.importe());
+            unidades += d.cantidad();
+            lineas += d.lineas();
+            total = total.add(d.importe());
+        }
+        System.out.printf("%-12s %-10d %-8d %-14s%n", "Total", unidades, lineas, total);
+    }
+}
@@ -0,0 +1,8 @@
+-- Índice para el resumen de cliente y el listado paginado de sus facturas (ClienteController).
+-- Con (id_cliente, id_factura, fecha, total) el conteo, la suma y el máximo de fecha de un cliente
+-- se resuelven leyendo solo el índice, y la página "facturas con id < ? del cliente" es un
+-- recorrido de rango sobre el mismo índice, sin ordenar.
+-- Reemplaza al índice que InnoDB creó para la FK de id_cliente (queda cubierta por este).
+-- Se ejecuta una sola vez desde el cliente mysql/mariadb:  SOURCE idx_factura_cliente.sql
+
+CREATE INDEX idx_factura_cliente ON factura (id_cliente, id_factura, fecha, total);
@@ -0,0 +1,7 @@
+-- Índice para la exportación de facturas por rango de fechas (ExportacionController).
+-- Cada segmento de exportarParalelo filtra "f.fecha >= ? and f.fecha < ?": sin índice sobre fecha
+-- cada hilo recorre la tabla factura completa. Con (fecha, id_factura) el filtro es un recorrido de
+-- rango y el id para ordenar y unir con factura_detalle sale del mismo índice.
+-- Se ejecuta una sola vez desde el cliente mysql/mariadb:  SOURCE idx_factura_fecha.sql
+
+CREATE INDEX idx_factura_fecha ON factura (fecha, id_factura);
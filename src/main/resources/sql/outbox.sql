@@ -0,0 +1,18 @@
+-- Outbox de eventos de dominio (Outbox / RelayOutbox).
+-- Los controllers de facturas (y los ajustes de stock) insertan acá un evento por cambio, en la misma
+-- transacción que el cambio: si hay rollback el evento no existe. El relay de la aplicación los lee en
+-- orden de id_evento, los agrega al log local (bd2.outbox.directorio) y los borra: la tabla queda casi
+-- vacía y los sistemas de afuera (ERP, BI) leen el log en vez de recorrer factura / factura_detalle.
+-- 'datos' es el evento en JSON; id_factura / id_producto permiten mirar la tabla sin abrirlo.
+-- Se ejecuta una sola vez desde el cliente mysql/mariadb:  SOURCE outbox.sql
+-- y después se habilita bd2.outbox.activa en hibernate.cfg.xml.
+
+CREATE TABLE IF NOT EXISTS evento_outbox (
+    id_evento    BIGINT         NOT NULL AUTO_INCREMENT,
+    tipo         VARCHAR(40)    NOT NULL,
+    id_factura   INT            NULL,
+    id_producto  INT            NULL,
+    creado       DATETIME(3)    NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    datos        VARCHAR(2000)  NOT NULL,
+    PRIMARY KEY (id_evento)
+) ENGINE = InnoDB;
@@ -0,0 +1,41 @@
+-- Trigger opcional para ModoActualizacionCantidad.UPDATE_TRIGGER.
+-- Con este trigger instalado, cambiar la cantidad de un detalle es UN solo
+-- UPDATE factura_detalle SET cantidad = ? ... y la BD ajusta stock, subtotal y total por delta
+-- (en vez de disparar los triggers de DELETE y de INSERT).
+-- Se ejecuta una sola vez desde el cliente mysql/mariadb:  SOURCE trg_factura_detalle_bu.sql
+
+DROP TRIGGER IF EXISTS trg_factura_detalle_bu;
+
+DELIMITER $$
+CREATE TRIGGER trg_factura_detalle_bu
+BEFORE UPDATE ON factura_detalle
+FOR EACH ROW
+BEGIN
+    DECLARE v_delta INT;
+
+    IF NEW.id_factura <> OLD.id_factura OR NEW.id_producto <> OLD.id_producto THEN
+        SIGNAL SQLSTATE '45000'
+            SET MESSAGE_TEXT = 'Para cambiar factura/producto de un detalle usar DELETE + INSERT';
+    END IF;
+
+    SET v_delta = NEW.cantidad - OLD.cantidad;
+
+    -- El precio queda congelado al del alta; el subtotal se recalcula con la nueva cantidad
+    SET NEW.precio_unitario = OLD.precio_unitario;
+    SET NEW.subtotal = OLD.precio_unitario * NEW.cantidad;
+
+    IF v_delta <> 0 THEN
+        UPDATE producto
+           SET stock = stock - v_delta
+         WHERE id_producto = NEW.id_producto
+           AND stock >= v_delta;
+        IF ROW_COUNT() = 0 THEN
+            SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Stock insuficiente para el producto';
+        END IF;
+
+        UPDATE factura
+           SET total = total + (NEW.subtotal - OLD.subtotal)
+         WHERE id_factura = NEW.id_factura;
+    END IF;
+END$$
+DELIMITER ;
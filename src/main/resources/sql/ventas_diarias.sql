@@ -0,0 +1,42 @@
+-- Resúmenes diarios de ventas (DeltaVentas / VentasController).
+-- Una fila por (día, producto) y por (día, cliente) con unidades, importe y cantidad de líneas.
+-- Los controllers de facturas los mantienen por delta en la misma transacción que toca factura_detalle;
+-- los reportes (rango de fechas, top-N) leen estas tablas en vez de recorrer factura_detalle.
+-- No hay una tabla por día sola: sería una fila que actualizan TODAS las ventas del día (un cuello de
+-- botella de bloqueos); el total diario se suma desde venta_diaria_producto.
+-- Se ejecuta una sola vez desde el cliente mysql/mariadb:  SOURCE ventas_diarias.sql
+-- y después se habilita bd2.ventas.activa en hibernate.cfg.xml.
+
+CREATE TABLE IF NOT EXISTS venta_diaria_producto (
+    dia          DATE           NOT NULL,
+    id_producto  INT            NOT NULL,
+    cantidad     BIGINT         NOT NULL,
+    importe      DECIMAL(14,2)  NOT NULL,
+    lineas       INT            NOT NULL,
+    PRIMARY KEY (dia, id_producto),
+    -- Serie diaria de un producto
+    KEY idx_venta_producto_dia (id_producto, dia)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS venta_diaria_cliente (
+    dia          DATE           NOT NULL,
+    id_cliente   INT            NOT NULL,
+    cantidad     BIGINT         NOT NULL,
+    importe      DECIMAL(14,2)  NOT NULL,
+    lineas       INT            NOT NULL,
+    PRIMARY KEY (dia, id_cliente),
+    KEY idx_venta_cliente_dia (id_cliente, dia)
+) ENGINE = InnoDB;
+
+-- Carga inicial con la historia existente (lo mismo hace VentasController.reconstruir, en paralelo)
+DELETE FROM venta_diaria_producto;
+INSERT INTO venta_diaria_producto (dia, id_producto, cantidad, importe, lineas)
+SELECT CAST(f.fecha AS DATE), d.id_producto, SUM(d.cantidad), SUM(d.subtotal), COUNT(*)
+  FROM factura_detalle d JOIN factura f ON f.id_factura = d.id_factura
+ GROUP BY CAST(f.fecha AS DATE), d.id_producto;
+
+DELETE FROM venta_diaria_cliente;
+INSERT INTO venta_diaria_cliente (dia, id_cliente, cantidad, importe, lineas)
+SELECT CAST(f.fecha AS DATE), f.id_cliente, SUM(d.cantidad), SUM(d.subtotal), COUNT(*)
+  FROM factura_detalle d JOIN factura f ON f.id_factura = d.id_factura
+ GROUP BY CAST(f.fecha AS DATE), f.id_cliente;
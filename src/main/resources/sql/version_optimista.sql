@@ -0,0 +1,32 @@
+-- Columnas de versión para el bloqueo optimista de Producto y Factura (@Version).
+-- Correr una vez antes de desplegar: hibernate.hbm2ddl.auto=validate exige que existan.
+
+ALTER TABLE producto ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE factura  ADD COLUMN version INT NOT NULL DEFAULT 0;
+
+-- Los triggers de factura_detalle cambian producto.stock y factura.total por SQL, sin tocar
+-- la versión. Sin esto, un ajuste optimista podría pisar una venta concurrente.
+-- Si quien actualiza no incrementó la versión (triggers, SQL manual), la incrementamos acá;
+-- Hibernate ya manda version = version + 1, así que no se incrementa dos veces.
+DROP TRIGGER IF EXISTS trg_producto_version_bu;
+DROP TRIGGER IF EXISTS trg_factura_version_bu;
+
+DELIMITER $$
+CREATE TRIGGER trg_producto_version_bu
+BEFORE UPDATE ON producto
+FOR EACH ROW
+BEGIN
+    IF NEW.version = OLD.version THEN
+        SET NEW.version = OLD.version + 1;
+    END IF;
+END$$
+
+CREATE TRIGGER trg_factura_version_bu
+BEFORE UPDATE ON factura
+FOR EACH ROW
+BEGIN
+    IF NEW.version = OLD.version THEN
+        SET NEW.version = OLD.version + 1;
+    END IF;
+END$$
+DELIMITER ;
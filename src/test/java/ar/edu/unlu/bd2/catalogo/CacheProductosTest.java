@@ -0,0 +1,76 @@
+package ar.edu.unlu.bd2.catalogo;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Parches, caché negativa y unión a la base, sin BD (no se llama a recargar()). */
+class CacheProductosTest {
+
+    private final CacheProductos cache = new CacheProductos(null);
+
+    @Test
+    void respondeLoQueSeLeEscribio() {
+        assertEquals(EstadoProducto.DESCONOCIDO, cache.estado(1));
+        assertEquals(EstadoProducto.INEXISTENTE, cache.estado(0));
+
+        cache.poner(1, true, new BigDecimal("12.34"));
+        cache.poner(2, false, new BigDecimal("5"));
+        assertEquals(EstadoProducto.ACTIVO, cache.estado(1));
+        assertEquals(new BigDecimal("12.34"), cache.precio(1));
+        assertEquals(EstadoProducto.INACTIVO, cache.estado(2));
+        assertTrue(cache.verificarActivo(1, "Producto"));
+        assertThrows(IllegalStateException.class, () -> cache.verificarActivo(2, "Producto"));
+        assertFalse(cache.verificarActivo(3, "Producto"));
+
+        cache.quitar(1);
+        assertEquals(EstadoProducto.INEXISTENTE, cache.estado(1));
+        assertNull(cache.precio(1));
+        assertThrows(IllegalArgumentException.class, () -> cache.verificarActivo(1, "Producto"));
+        assertEquals(3, cache.version()); // una foto por escritura
+    }
+
+    @Test
+    void noExisteNoPisaUnProductoConocido() {
+        cache.poner(1, true, BigDecimal.ONE);
+        cache.noExiste(1);
+        assertEquals(EstadoProducto.ACTIVO, cache.estado(1));
+
+        cache.noExiste(2);
+        assertEquals(EstadoProducto.INEXISTENTE, cache.estado(2));
+        // Llegó después (p. ej. por la importación): el alta gana sobre la caché negativa
+        cache.poner(2, true, BigDecimal.TEN);
+        assertEquals(EstadoProducto.ACTIVO, cache.estado(2));
+    }
+
+    @Test
+    void losParchesSeUnenALaBaseSinPerderNada() {
+        int n = CacheProductos.MAX_PARCHES * 2 + 10;
+        for (int id = 1; id <= n; id++) cache.poner(id, id % 3 != 0, BigDecimal.valueOf(id, 2));
+        CacheProductos.Lote lote = cache.lote();
+        for (int id = 1; id <= 100; id++) lote.poner(id, false, BigDecimal.ZERO);
+        lote.publicar();
+        assertEquals(n + 1, cache.version());
+        for (int id = 1; id <= n; id++) {
+            boolean activo = id > 100 && id % 3 != 0;
+            assertEquals(activo ? EstadoProducto.ACTIVO : EstadoProducto.INACTIVO, cache.estado(id), "id " + id);
+            assertEquals(id > 100 ? BigDecimal.valueOf(id, 2) : BigDecimal.ZERO.setScale(2), cache.precio(id));
+        }
+    }
+
+    @Test
+    void desactivadaNoSabeNada() {
+        CacheProductos c = CacheProductos.desactivada();
+        c.poner(1, true, BigDecimal.ONE);
+        c.noExiste(2);
+        assertEquals(EstadoProducto.DESCONOCIDO, c.estado(1));
+        assertEquals(EstadoProducto.DESCONOCIDO, c.estado(2));
+        assertEquals(0, c.version());
+    }
+}
@@ -0,0 +1,74 @@
+package ar.edu.unlu.bd2.catalogo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TablaProductosTest {
+
+    @Test
+    void buscaLoQuePusoYNadaMas() {
+        TablaProductos.Constructor c = new TablaProductos.Constructor(0);
+        int n = 10_000; // rehace varias veces desde la capacidad mínima
+        for (int id = 1; id <= n; id++) {
+            c.poner(id * 7, id % 2 == 0 ? TablaProductos.ACTIVO : TablaProductos.INACTIVO, id * 100L);
+        }
+        TablaProductos t = c.construir();
+        assertEquals(n, t.tamanio());
+        assertTrue(t.tamanio() <= t.capacidad() - (t.capacidad() >>> 2));
+        for (int id = 1; id <= n; id++) {
+            int i = t.buscar(id * 7);
+            assertTrue(i >= 0, "falta el id " + id * 7);
+            assertEquals(id * 7, t.id(i));
+            assertEquals(id % 2 == 0 ? TablaProductos.ACTIVO : TablaProductos.INACTIVO, t.estado(i));
+            assertEquals(id * 100L, t.precio(i));
+            assertEquals(-1, t.buscar(id * 7 + 1));
+        }
+        assertEquals(-1, TablaProductos.VACIA.buscar(1));
+    }
+
+    @Test
+    void ponerReemplazaYCuentaLosNegativos() {
+        TablaProductos.Constructor c = new TablaProductos.Constructor(4);
+        c.poner(5, TablaProductos.INEXISTENTE, 123);
+        c.poner(6, TablaProductos.INEXISTENTE, 456);
+        c.poner(5, TablaProductos.ACTIVO, 999);
+        TablaProductos t = c.construir();
+        assertEquals(2, t.tamanio());
+        assertEquals(1, t.negativos());
+        int i = t.buscar(5);
+        assertEquals(TablaProductos.ACTIVO, t.estado(i));
+        assertEquals(999, t.precio(i));
+        assertThrows(IllegalArgumentException.class, () -> new TablaProductos.Constructor(1).poner(0, TablaProductos.ACTIVO, 1));
+    }
+
+    @Test
+    void laCopiaNoTocaElOriginal() {
+        TablaProductos.Constructor c = new TablaProductos.Constructor(8);
+        for (int id = 1; id <= 8; id++) c.poner(id, TablaProductos.ACTIVO, id);
+        TablaProductos original = c.construir();
+
+        // Entra en la capacidad actual: arrays clonados
+        TablaProductos.Constructor chica = TablaProductos.Constructor.copia(original, 1);
+        chica.poner(1, TablaProductos.INACTIVO, 0);
+        chica.poner(100, TablaProductos.ACTIVO, 100);
+        TablaProductos t1 = chica.construir();
+        assertEquals(original.capacidad(), t1.capacidad());
+
+        // No entra: se rehace más grande
+        TablaProductos.Constructor grande = TablaProductos.Constructor.copia(original, 1000);
+        for (int id = 200; id < 1200; id++) grande.poner(id, TablaProductos.INACTIVO, id);
+        TablaProductos t2 = grande.construir();
+        assertTrue(t2.capacidad() > original.capacidad());
+
+        assertEquals(8, original.tamanio());
+        assertEquals(TablaProductos.ACTIVO, original.estado(original.buscar(1)));
+        assertEquals(-1, original.buscar(100));
+        assertEquals(9, t1.tamanio());
+        assertEquals(TablaProductos.INACTIVO, t1.estado(t1.buscar(1)));
+        assertEquals(1008, t2.tamanio());
+        assertEquals(8, t2.precio(t2.buscar(8)));
+    }
+}
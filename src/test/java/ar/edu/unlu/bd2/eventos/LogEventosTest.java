@@ -0,0 +1,130 @@
+package ar.edu.unlu.bd2.eventos;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogEventosTest {
+
+    private static final int SEGMENTO = 4096;
+
+    @TempDir
+    Path dir;
+
+    /** JSON de largo fijo: cada registro ocupa CABECERA + 20 bytes. */
+    private static String json(long id) {
+        return String.format("{\"id\":%013d}", id);
+    }
+
+    private static long agregar(LogEventos log, long id) {
+        return log.agregar(id, 1_700_000_000_000L + id, TipoEvento.STOCK_AJUSTADO, 0, (int) id, json(id));
+    }
+
+    private static List<Long> ids(LogEventos log) {
+        List<Long> ids = new ArrayList<>();
+        log.lector(0).leer(Integer.MAX_VALUE, r -> ids.add(r.idEvento()));
+        return ids;
+    }
+
+    @Test
+    void loAgregadoSeVeRecienAlConfirmar() throws IOException {
+        try (LogEventos log = LogEventos.abrir(dir, SEGMENTO)) {
+            Lector lector = log.lector(0);
+            assertEquals(0, agregar(log, 10));
+            assertEquals(1, log.agregar(11, 5, TipoEvento.FACTURA_CREADA, 7, 0, "{\"ñ\":1}"));
+            assertNull(lector.siguiente());
+            assertEquals(0, log.siguienteOffset());
+
+            log.confirmar();
+            assertEquals(2, log.siguienteOffset());
+            Registro r = lector.siguiente();
+            assertEquals(0, r.offset());
+            assertEquals(10, r.idEvento());
+            assertEquals(TipoEvento.STOCK_AJUSTADO, r.tipo());
+            assertEquals(10, r.idProducto());
+            assertEquals(json(10), r.json());
+            r = lector.siguiente();
+            assertEquals(1, r.offset());
+            assertEquals(TipoEvento.FACTURA_CREADA, r.tipo());
+            assertEquals(7, r.idFactura());
+            assertEquals(5, r.creado().toEpochMilli());
+            assertEquals("{\"ñ\":1}", r.json());
+            assertNull(lector.siguiente());
+        }
+    }
+
+    @Test
+    void rotaSegmentosYLosRecuperaAlReabrir() throws IOException {
+        int n = 500; // 62 bytes por registro: unos 66 por segmento de 4 KB
+        try (LogEventos log = LogEventos.abrir(dir, SEGMENTO)) {
+            for (long id = 1; id <= n; id++) agregar(log, id);
+            log.confirmar();
+            assertTrue(log.segmentos() > 1);
+        }
+        try (LogEventos log = LogEventos.abrir(dir, SEGMENTO)) {
+            assertEquals(n, log.siguienteOffset());
+            List<Long> ids = ids(log);
+            assertEquals(n, ids.size());
+            for (int i = 0; i < n; i++) assertEquals(i + 1, ids.get(i));
+            // Un lector que arranca a mitad de un segmento que no es el primero
+            Lector l = log.lector(300);
+            assertEquals(301, l.siguiente().idEvento());
+            assertEquals(n, agregar(log, n + 1));
+        }
+    }
+
+    @Test
+    void descartaUnRegistroFinalCorrupto() throws IOException {
+        try (LogEventos log = LogEventos.abrir(dir, SEGMENTO)) {
+            for (long id = 1; id <= 3; id++) agregar(log, id);
+        }
+        // Un byte del JSON del tercer registro (pasa el chequeo de largo y offset, no el CRC)
+        int tercero = 2 * (LogEventos.CABECERA + 20);
+        try (FileChannel c = FileChannel.open(SegmentoLog.archivo(dir, 0), StandardOpenOption.WRITE)) {
+            c.write(ByteBuffer.wrap(new byte[] { 'X' }), tercero + LogEventos.CABECERA + 2);
+        }
+        try (LogEventos log = LogEventos.abrir(dir, SEGMENTO)) {
+            assertEquals(2, log.siguienteOffset());
+            assertEquals(List.of(1L, 2L), ids(log));
+            // El siguiente pisa la cola descartada
+            assertEquals(2, agregar(log, 4));
+        }
+        try (LogEventos log = LogEventos.abrir(dir, SEGMENTO)) {
+            assertEquals(List.of(1L, 2L, 4L), ids(log));
+        }
+    }
+
+    @Test
+    void descartaUnRegistroFinalCortado() throws IOException {
+        try (LogEventos log = LogEventos.abrir(dir, SEGMENTO)) {
+            for (long id = 1; id <= 3; id++) agregar(log, id);
+        }
+        // El archivo termina en medio de la cabecera del tercer registro
+        int tercero = 2 * (LogEventos.CABECERA + 20);
+        try (FileChannel c = FileChannel.open(SegmentoLog.archivo(dir, 0), StandardOpenOption.WRITE)) {
+            c.truncate(tercero + 20);
+        }
+        try (LogEventos log = LogEventos.abrir(dir, SEGMENTO)) {
+            assertEquals(2, log.siguienteOffset());
+            assertEquals(List.of(1L, 2L), ids(log));
+            // No entra en lo que quedó del segmento: sigue en uno nuevo desde el offset 2
+            assertEquals(2, agregar(log, 4));
+            log.confirmar();
+            assertEquals(2, log.segmentos());
+        }
+        try (LogEventos log = LogEventos.abrir(dir, SEGMENTO)) {
+            assertEquals(List.of(1L, 2L, 4L), ids(log));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ar.edu.unlu.bd2.eventos;
+
+import ar.edu.unlu.bd2.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Relay contra evento_outbox en H2 en memoria (sin lock: un solo proceso). */
+class RelayOutboxTest {
+
+    private static SessionFactory sf;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void crearBase() {
+        Properties p = new Properties();
+        p.setProperty("hibernate.connection.url", "jdbc:h2:mem:relay;DB_CLOSE_DELAY=-1");
+        p.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        p.setProperty("hibernate.connection.username", "sa");
+        p.setProperty("hibernate.connection.password", "");
+        p.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        p.setProperty("hibernate.hbm2ddl.auto", "create");
+        p.setProperty("bd2.traza.activa", "false");
+        sf = HibernateUtil.buildSessionFactory(p);
+        // resources/sql/outbox.sql, en el dialecto de H2
+        sql("create table evento_outbox (id_evento bigint generated by default as identity primary key, " +
+                "tipo varchar(40) not null, id_factura integer, id_producto integer, " +
+                "creado timestamp(3) default current_timestamp(3) not null, datos varchar(2000) not null)");
+    }
+
+    @AfterAll
+    static void cerrarBase() {
+        sf.close();
+    }
+
+    @BeforeEach
+    void vaciar() {
+        sql("truncate table evento_outbox restart identity");
+    }
+
+    private static void sql(String sql) {
+        try (Session session = sf.openSession()) {
+            session.beginTransaction();
+            session.doWork(conn -> {
+                try (Statement st = conn.createStatement()) {
+                    st.execute(sql);
+                }
+            });
+            session.getTransaction().commit();
+        }
+    }
+
+    /** Inserta n eventos de stock en el outbox (id_evento 1..n si la tabla estaba recién vaciada). */
+    private static void encolar(int n) {
+        try (Session session = sf.openSession()) {
+            session.beginTransaction();
+            session.doWork(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "insert into evento_outbox (tipo, id_producto, datos) values (?, ?, ?)")) {
+                    for (int i = 1; i <= n; i++) {
+                        Evento e = new Evento.StockAjustado(i, -1, 100 - i);
+                        ps.setString(1, e.tipo().name());
+                        ps.setInt(2, e.idProducto());
+                        ps.setString(3, e.json());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            });
+            session.getTransaction().commit();
+        }
+    }
+
+    private static long pendientes() {
+        try (Session session = sf.openSession()) {
+            return session.doReturningWork(conn -> {
+                try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("select count(*) from evento_outbox")) {
+                    rs.next();
+                    return rs.getLong(1);
+                }
+            });
+        }
+    }
+
+    private static List<Long> ids(LogEventos log) {
+        List<Long> ids = new ArrayList<>();
+        log.lector(0).leer(Integer.MAX_VALUE, r -> ids.add(r.idEvento()));
+        return ids;
+    }
+
+    @Test
+    void pasaLosEventosAlLogEnOrdenYVaciaLaTabla() throws IOException {
+        int n = RelayOutbox.LOTE + 5;
+        encolar(n);
+        try (RelayOutbox relay = new RelayOutbox(sf, LogEventos.abrir(dir))) {
+            assertEquals(RelayOutbox.LOTE, relay.drenar());
+            assertEquals(5, relay.drenar());
+            assertEquals(0, relay.drenar());
+            assertTrue(relay.publicando());
+            assertEquals(n, relay.publicados());
+            assertEquals(0, pendientes());
+
+            List<Long> ids = ids(relay.log());
+            assertEquals(n, ids.size());
+            for (int i = 0; i < n; i++) assertEquals(i + 1, ids.get(i));
+            Registro r = relay.log().lector(2).siguiente();
+            assertEquals(TipoEvento.STOCK_AJUSTADO, r.tipo());
+            assertEquals(3, r.idProducto());
+            assertEquals(new Evento.StockAjustado(3, -1, 97).json(), r.json());
+        }
+    }
+
+    @Test
+    void noRepiteLoQueYaEstabaEnElLogAntesDeUnaCaida() throws IOException {
+        encolar(5);
+        // Caída entre el msync y el DELETE: 1..3 ya están en el log y siguen en la tabla
+        try (LogEventos log = LogEventos.abrir(dir)) {
+            for (long id = 1; id <= 3; id++) {
+                log.agregar(id, 0, TipoEvento.STOCK_AJUSTADO, 0, (int) id, new Evento.StockAjustado((int) id, -1, 0).json());
+            }
+        }
+        try (RelayOutbox relay = new RelayOutbox(sf, LogEventos.abrir(dir))) {
+            assertEquals(5, relay.drenar());
+            assertEquals(2, relay.publicados());
+            assertEquals(0, pendientes());
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(relay.log()));
+
+            // Lo que llega después se publica normalmente (ya no se lo confunde con lo recuperado)
+            encolar(1);
+            assertEquals(1, relay.drenar());
+            assertEquals(6, ids(relay.log()).size());
+        }
+    }
+}